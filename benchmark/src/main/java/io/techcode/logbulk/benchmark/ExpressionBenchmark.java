@@ -0,0 +1,70 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.benchmark;
+
+import io.techcode.logbulk.util.expr.Expression;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expression benchmark.
+ * Measure evaluation of dispatch and stage conditions by event.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+
+    // Comparison, conjunction with function and regex
+    @Param({"$.status >= 500", "$.status >= 500 && startsWith($.path, \"/api\")", "matches($.path, \"^/api/v[0-9]+/\")"})
+    private String source;
+
+    // Expression to evaluate
+    private Expression expr;
+
+    // Document to evaluate
+    private JsonObject doc;
+
+    @Setup public void setup() {
+        expr = Expression.compile(source);
+        doc = new JsonObject()
+                .put("status", 503)
+                .put("method", "GET")
+                .put("path", "/api/v1/users");
+    }
+
+    @Benchmark public Expression compile() {
+        return Expression.compile(source);
+    }
+
+    @Benchmark public boolean test() {
+        return expr.test(doc);
+    }
+
+}
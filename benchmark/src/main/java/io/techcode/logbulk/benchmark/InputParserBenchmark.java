@@ -0,0 +1,127 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.benchmark;
+
+import io.techcode.logbulk.component.ComponentVerticle;
+import io.techcode.logbulk.net.Packet;
+import io.techcode.logbulk.net.PacketPool;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Input parser benchmark.
+ * Measure line, json and lazy json record decoding up to the creation of events.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputParserBenchmark {
+
+    // Number of records by chunk
+    private static final int RECORDS = 100;
+
+    // Vertx instance
+    private Vertx vertx;
+
+    // Parsers
+    private Handler<Buffer> lineParser;
+    private Handler<Buffer> jsonParser;
+    private Handler<Buffer> lazyParser;
+
+    // Chunks to parse
+    private Buffer lines;
+    private Buffer jsons;
+
+    @Setup public void setup() throws Exception {
+        vertx = Vertx.vertx();
+        JsonObject conf = new JsonObject()
+                .put("endpoint", "input")
+                .put("hasMailbox", false)
+                .put("dispatch", "main")
+                .put("route", new JsonObject().put("main", new JsonArray().add("input").add("output")))
+                .put("setting", new JsonObject());
+
+        // Deploy an input that drops events
+        DroppingInput input = new DroppingInput();
+        CompletableFuture<String> deployed = new CompletableFuture<>();
+        vertx.deployVerticle(input, new DeploymentOptions().setConfig(conf), h -> deployed.complete(h.result()));
+        deployed.get(10, TimeUnit.SECONDS);
+        lineParser = input.inputParser(new JsonObject());
+        jsonParser = input.inputParser(new JsonObject().put("json", true));
+        lazyParser = input.inputParser(new JsonObject().put("json", true).put("lazy", true));
+
+        // Prepare chunks
+        String line = "127.0.0.1 - frank [10/Oct/2000:13:55:36 -0700] \"GET /apache_pb.gif HTTP/1.0\" 200 2326";
+        String json = new JsonObject().put("message", line).put("host", "web-01.example.org").put("status", 200).encode();
+        lines = Buffer.buffer();
+        jsons = Buffer.buffer();
+        for (int i = 0; i < RECORDS; i++) {
+            lines.appendString(line).appendString("\n");
+            jsons.appendString(json).appendString("\n");
+        }
+    }
+
+    @TearDown public void tearDown() {
+        vertx.close();
+    }
+
+    @Benchmark @OperationsPerInvocation(RECORDS) public void line() {
+        lineParser.handle(lines);
+    }
+
+    @Benchmark @OperationsPerInvocation(RECORDS) public void json() {
+        jsonParser.handle(jsons);
+    }
+
+    @Benchmark @OperationsPerInvocation(RECORDS) public void lazy() {
+        lazyParser.handle(jsons);
+    }
+
+    /**
+     * Input dropping all events.
+     */
+    public static class DroppingInput extends ComponentVerticle {
+
+        @Override protected void checkConfig(JsonObject config) {
+            // Nothing to check
+        }
+
+        @Override public void forwardAndRelease(Packet packet) {
+            PacketPool.recycle(packet);
+        }
+
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.benchmark;
+
+import io.techcode.logbulk.util.json.JsonPath;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Json path benchmark.
+ * Measure creation and evaluation of direct, compiled and self json paths.
+ * Compiled paths of one, three and six segments are evaluated with flat steps or interpreted accessors.
+ * Wildcard and recursive descent paths are visited in place.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonPathBenchmark {
+
+    // Direct, compiled with object & array accessors, self and multi
+    @Param({"message", "$.message", "$.geo.city", "$.tags[1]", "$", "$.geo.location.lat", "$.a.b.c.d.e.f", "$.tags[*]", "$..city"})
+    private String path;
+
+    // Interpret accessors instead of flat steps
+    @Param({"false", "true"})
+    private boolean interpreted;
+
+    // Json path to evaluate
+    private JsonPath compiled;
+
+    // Document to evaluate
+    private JsonObject doc;
+
+    // Visitor of values
+    private Consumer<Object> visitor;
+
+    @Setup public void setup(Blackhole bh) {
+        visitor = bh::consume;
+        compiled = JsonPath.create(path, interpreted);
+        doc = new JsonObject()
+                .put("message", "127.0.0.1 - frank [10/Oct/2000:13:55:36 -0700] \"GET /apache_pb.gif HTTP/1.0\" 200 2326")
+                .put("host", "web-01.example.org")
+                .put("tags", new JsonArray().add("nginx").add("access").add("prod"))
+                .put("geo", new JsonObject().put("country", "FR").put("city", "Paris")
+                        .put("location", new JsonObject().put("lat", 48.8566).put("lon", 2.3522)))
+                .put("a", new JsonObject().put("b", new JsonObject().put("c", new JsonObject()
+                        .put("d", new JsonObject().put("e", new JsonObject().put("f", "foobar"))))));
+    }
+
+    @Benchmark public JsonPath create() {
+        return JsonPath.create(path, interpreted);
+    }
+
+    @Benchmark public Object get() {
+        return compiled.get(doc);
+    }
+
+    @Benchmark public void forEach() {
+        compiled.forEach(doc, visitor);
+    }
+
+    @Benchmark public JsonObject put() {
+        compiled.put(doc, "foobar");
+        return doc;
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.benchmark;
+
+import io.techcode.logbulk.component.Mailbox;
+import io.techcode.logbulk.net.Packet;
+import io.techcode.logbulk.net.PacketBatch;
+import io.techcode.logbulk.net.PacketBatchCodec;
+import io.techcode.logbulk.net.PacketCodec;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mailbox benchmark.
+ * Measure dispatch of packets through a mailbox to a worker releasing each job or batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MailboxBenchmark {
+
+    // Number of packets by invocation
+    private static final int PACKETS = 1000;
+
+    // Endpoints
+    private static final String ENDPOINT = "output";
+    private static final String WORKER = ENDPOINT + ".worker.benchmark";
+
+    @Param({"1", "64"})
+    private int batch;
+
+    // Vertx instance
+    private Vertx vertx;
+    private EventBus eventBus;
+
+    // Packets pending
+    private volatile CountDownLatch pending;
+
+    @Setup public void setup() throws Exception {
+        vertx = Vertx.vertx();
+        eventBus = vertx.eventBus()
+                .registerDefaultCodec(Packet.class, new PacketCodec())
+                .registerDefaultCodec(PacketBatch.class, new PacketBatchCodec());
+
+        // Fake worker releasing jobs as soon as received
+        eventBus.<Packet>localConsumer(WORKER, h -> release(1));
+        eventBus.<PacketBatch>localConsumer(WORKER + ".batch", h -> release(h.body().size()));
+
+        // Deploy mailbox
+        JsonObject conf = new JsonObject()
+                .put("endpoint", ENDPOINT)
+                .put("hasMailbox", false)
+                .put("instance", 1)
+                .put("mailbox", Mailbox.DEFAULT_THRESHOLD)
+                .put("batch", batch)
+                .put("route", new JsonObject().put("main", new JsonArray().add("input").add(ENDPOINT)))
+                .put("setting", new JsonObject());
+        CompletableFuture<String> deployed = new CompletableFuture<>();
+        vertx.deployVerticle(Mailbox.class.getName(), new DeploymentOptions().setConfig(conf), h -> deployed.complete(h.result()));
+        deployed.get(10, TimeUnit.SECONDS);
+        eventBus.publish(ENDPOINT + ".worker", new JsonArray().add(WORKER).add(0));
+    }
+
+    @TearDown public void tearDown() {
+        vertx.close();
+    }
+
+    @Benchmark @OperationsPerInvocation(PACKETS) public void dispatch() throws InterruptedException {
+        pending = new CountDownLatch(PACKETS);
+        for (int i = 0; i < PACKETS; i++) {
+            eventBus.publish(ENDPOINT, Packet.builder()
+                    .header(Packet.Header.builder().source("input").route("main").previous(0).current(1).build())
+                    .body(new JsonObject().put("message", "foobar"))
+                    .build());
+        }
+        pending.await();
+    }
+
+    /**
+     * Release jobs of the fake worker.
+     *
+     * @param count number of jobs.
+     */
+    private void release(int count) {
+        for (int i = 0; i < count; i++) {
+            pending.countDown();
+        }
+        eventBus.publish(ENDPOINT + ".worker", new JsonArray().add(WORKER).add(count));
+    }
+
+}
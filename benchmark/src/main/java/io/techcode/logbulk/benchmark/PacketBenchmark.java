@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.benchmark;
+
+import io.techcode.logbulk.net.Packet;
+import io.techcode.logbulk.net.PacketPool;
+import io.techcode.logbulk.net.RouteTable;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packet benchmark.
+ * Measure packet creation and copy, run with -prof gc to get allocation rate per event.
+ * Pooled variants recycle packets at the end of the route like the last stage would do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketBenchmark {
+
+    // Packet to copy
+    private Packet packet;
+
+    // Packet with a plugin attribute
+    private Packet masked;
+
+    // Route id
+    private int route;
+
+    @Setup public void setup() {
+        packet = create();
+        masked = create();
+        masked.getHeader().put("_mask", new JsonObject().put("message", "foobar"));
+        route = RouteTable.id("main");
+        PacketPool.configure(true, 0);
+    }
+
+    @TearDown public void tearDown() {
+        PacketPool.configure(false, 0);
+    }
+
+    @Benchmark public Packet create() {
+        Packet pkt = Packet.builder()
+                .header(Packet.Header.builder().source("file").route("main").build())
+                .body(new JsonObject().put("message", "foobar"))
+                .build();
+
+        // Simulate a hop
+        Packet.Header header = pkt.getHeader();
+        header.setPrevious(header.getCurrent());
+        header.setCurrent(header.getCurrent() + 1);
+        return pkt;
+    }
+
+    @Benchmark public Packet createPooled() {
+        Packet pkt = PacketPool.acquire("file", route);
+        pkt.getBody().put("message", "foobar");
+
+        // Simulate a hop
+        Packet.Header header = pkt.getHeader();
+        header.setPrevious(header.getCurrent());
+        header.setCurrent(header.getCurrent() + 1);
+        PacketPool.recycle(pkt);
+        return pkt;
+    }
+
+    @Benchmark public Packet copy() {
+        return Packet.builder()
+                .header(packet.getHeader().copy())
+                .body(packet.getBody().copy())
+                .build();
+    }
+
+    @Benchmark public Packet copyPooled() {
+        Packet pkt = packet.copy();
+        PacketPool.recycle(pkt);
+        return pkt;
+    }
+
+    @Benchmark public Packet copyMasked() {
+        Packet pkt = masked.copy();
+        PacketPool.recycle(pkt);
+        return pkt;
+    }
+
+    @Benchmark public Packet fanOut() {
+        // Dispatch to four routes, only one of them writes
+        Packet last = null;
+        for (int i = 0; i < 4; i++) {
+            last = packet.copy();
+            if (i == 0) {
+                last.getBody().put("route", "main");
+            }
+            PacketPool.recycle(last);
+        }
+        return last;
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.benchmark;
+
+import io.techcode.logbulk.net.FastJsonObjectCodec;
+import io.techcode.logbulk.net.Packet;
+import io.techcode.logbulk.net.PacketCodec;
+import io.techcode.logbulk.net.Trace;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.impl.codecs.JsonObjectMessageCodec;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packet codec benchmark.
+ * Compare the cluster wire format against a plain json text encoding.
+ * Local delivery is measured by the transform of packet and json object codecs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketCodecBenchmark {
+
+    // Implementations
+    private final PacketCodec codec = new PacketCodec();
+    private final FastJsonObjectCodec fastJsonCodec = new FastJsonObjectCodec();
+    private final JsonObjectMessageCodec jsonCodec = new JsonObjectMessageCodec();
+
+    // Packet to encode
+    private Packet packet;
+
+    // Encoded packets
+    private Buffer wire;
+    private Buffer json;
+
+    @Setup public void setup() {
+        Packet.Header header = Packet.Header.builder()
+                .source("file")
+                .route("main")
+                .previous(1)
+                .current(2)
+                .build();
+        Trace trace = new Trace(0L);
+        trace.exit(Trace.stage(header.getRouteId(), 0), 1_000L);
+        trace.exit(Trace.stage(header.getRouteId(), 1), 2_000L);
+        header.setTrace(trace);
+        JsonObject body = new JsonObject()
+                .put("message", "127.0.0.1 - frank [10/Oct/2000:13:55:36 -0700] \"GET /apache_pb.gif HTTP/1.0\" 200 2326")
+                .put("host", "web-01.example.org")
+                .put("timestamp", "2017-04-12T13:55:36.000Z")
+                .put("status", 200)
+                .put("bytes", 2326L)
+                .put("latency", 0.042D)
+                .put("tags", new JsonArray().add("nginx").add("access").add("prod"))
+                .put("geo", new JsonObject().put("country", "FR").put("city", "Paris"));
+        packet = Packet.builder().header(header).body(body).build();
+        wire = wireEncode();
+        json = jsonEncode();
+    }
+
+    @Benchmark public Buffer wireEncode() {
+        Buffer buf = Buffer.buffer();
+        codec.encodeToWire(buf, packet);
+        return buf;
+    }
+
+    @Benchmark public Packet wireDecode() {
+        return codec.decodeFromWire(0, wire);
+    }
+
+    @Benchmark public Buffer jsonEncode() {
+        Packet.Header header = packet.getHeader();
+        JsonObject msg = new JsonObject()
+                .put("source", header.getSource())
+                .put("route", header.getRoute())
+                .put("oldRoute", header.getOldRoute())
+                .put("previous", header.getPrevious())
+                .put("current", header.getCurrent())
+                .put("body", packet.getBody());
+        return Buffer.buffer(msg.encode());
+    }
+
+    @Benchmark public Packet jsonDecode() {
+        JsonObject msg = new JsonObject(json.toString());
+        Packet.Header header = Packet.Header.builder()
+                .source(msg.getString("source"))
+                .route(msg.getString("route"))
+                .oldRoute(msg.getString("oldRoute"))
+                .previous(msg.getInteger("previous"))
+                .current(msg.getInteger("current"))
+                .build();
+        return Packet.builder().header(header).body(msg.getJsonObject("body")).build();
+    }
+
+    @Benchmark public Packet packetTransform() {
+        return codec.transform(packet);
+    }
+
+    @Benchmark public JsonObject fastJsonTransform() {
+        return fastJsonCodec.transform(packet.getBody());
+    }
+
+    @Benchmark public JsonObject jsonTransform() {
+        return jsonCodec.transform(packet.getBody());
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.benchmark;
+
+import io.techcode.logbulk.util.text.AhoCorasick;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multi-pattern matching benchmark.
+ * Measure start & contains dispatch rules on the same field, scanned once or once by rule.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextMatchBenchmark {
+
+    // Number of rules, half anchored
+    @Param({"10", "200"})
+    private int rules;
+
+    // Rules
+    private String[] patterns;
+    private boolean[] anchored;
+
+    // Compiled rules
+    private AhoCorasick.Matcher matcher;
+
+    // Text to scan
+    private String text;
+
+    @Setup public void setup() {
+        patterns = new String[rules];
+        anchored = new boolean[rules];
+        for (int i = 0; i < rules; i++) {
+            anchored[i] = i % 2 == 0;
+            patterns[i] = String.format(Locale.ROOT, anchored[i] ? "/api/v%d/" : "service-%03d", i);
+        }
+        matcher = new AhoCorasick(patterns, anchored).matcher();
+        text = "/api/v4/users?host=service-101&trace=0af7651916cd43dd8448eb211c80319c";
+    }
+
+    @Benchmark public int automaton() {
+        return matcher.match(text);
+    }
+
+    @Benchmark public int naive() {
+        int count = 0;
+        for (int i = 0; i < patterns.length; i++) {
+            if (anchored[i] ? text.startsWith(patterns[i]) : text.contains(patterns[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.benchmark;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import io.techcode.logbulk.component.WorkerPool;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worker selection benchmark.
+ * Compare the worker pool against the previous tree set based selection.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorkerSelectionBenchmark {
+
+    // Number of dispatch before a job is released
+    private static final int IN_FLIGHT = 4;
+
+    @Param({"1", "8", "64"})
+    private int instance;
+
+    // Implementations
+    private WorkerPool pool;
+    private LegacyWorkers legacy;
+
+    // Ring of in flight jobs
+    private int[] poolRing;
+    private String[] legacyRing;
+    private int cursor;
+
+    @Setup public void setup() {
+        int threshold = 1000 * instance;
+        int idle = 500;
+        pool = new WorkerPool(threshold, idle);
+        legacy = new LegacyWorkers(threshold, idle);
+        for (int i = 0; i < instance; i++) {
+            pool.register("worker-" + i);
+            legacy.release("worker-" + i, 0);
+        }
+        poolRing = new int[instance * IN_FLIGHT];
+        legacyRing = new String[instance * IN_FLIGHT];
+        for (int i = 0; i < poolRing.length; i++) {
+            poolRing[i] = -1;
+        }
+    }
+
+    @Benchmark public int pool() {
+        // Release oldest job
+        int slot = cursor++ % poolRing.length;
+        if (poolRing[slot] >= 0) {
+            pool.release(poolRing[slot], 1);
+        }
+
+        // Dispatch new job
+        int worker = pool.select();
+        pool.acquire(worker, 1);
+        poolRing[slot] = worker;
+        return worker;
+    }
+
+    @Benchmark public String legacy() {
+        // Release oldest job
+        int slot = cursor++ % legacyRing.length;
+        if (legacyRing[slot] != null) {
+            legacy.release(legacyRing[slot], 1);
+        }
+
+        // Dispatch new job
+        String worker = legacy.dispatch();
+        legacyRing[slot] = worker;
+        return worker;
+    }
+
+    /**
+     * Previous mailbox worker selection based on a tree set.
+     */
+    private static class LegacyWorkers {
+
+        // Threshold
+        private final int threshold;
+        private final int idle;
+
+        // Workers
+        private final NavigableSet<Worker> workers = Sets.newTreeSet();
+        private final Map<String, Worker> workersJob = Maps.newHashMap();
+
+        LegacyWorkers(int threshold, int idle) {
+            this.threshold = threshold;
+            this.idle = idle;
+        }
+
+        String dispatch() {
+            Worker worker = workers.isEmpty() ? null : workers.first();
+            if (worker == null) {
+                return null;
+            }
+            workers.remove(worker);
+            worker.job++;
+            if (worker.job < threshold) {
+                workers.add(worker);
+            }
+            return worker.name;
+        }
+
+        void release(String workerName, int count) {
+            Worker worker = workersJob.get(workerName);
+            if (worker == null) {
+                worker = new Worker(workerName, 0);
+            }
+            workers.remove(worker);
+            worker.job -= count;
+            workersJob.put(workerName, worker);
+            if (worker.job < idle) workers.add(worker);
+        }
+
+        @AllArgsConstructor
+        @Data
+        private static class Worker implements Comparable<Worker> {
+            private final String name;
+            private int job;
+
+            @Override public int compareTo(Worker o) {
+                return Integer.compare(job, o.job);
+            }
+        }
+
+    }
+
+}
@@ -24,17 +24,24 @@
 package io.techcode.logbulk;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.typesafe.config.ConfigRenderOptions;
 import com.typesafe.config.ConfigValue;
 import io.techcode.logbulk.component.ComponentRegistry;
+import io.techcode.logbulk.component.FusedStage;
 import io.techcode.logbulk.component.Mailbox;
+import io.techcode.logbulk.component.StageFusion;
 import io.techcode.logbulk.io.AppConfig;
 import io.techcode.logbulk.io.Configuration;
 import io.techcode.logbulk.net.FastJsonArrayCodec;
 import io.techcode.logbulk.net.FastJsonObjectCodec;
 import io.techcode.logbulk.net.Packet;
+import io.techcode.logbulk.net.PacketBatch;
+import io.techcode.logbulk.net.PacketBatchCodec;
 import io.techcode.logbulk.net.PacketCodec;
+import io.techcode.logbulk.net.PacketPool;
 import io.techcode.logbulk.util.StatusMonitor;
+import io.techcode.logbulk.util.metric.MetricHandler;
 import io.vertx.core.*;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
@@ -42,6 +49,7 @@ import io.vertx.core.logging.LoggerFactory;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -51,6 +59,9 @@ import java.util.Set;
  */
 public class Logbulk extends AbstractVerticle {
 
+    // Default metric port
+    public static final int DEFAULT_METRIC_PORT = 9100;
+
     // Logging
     private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -63,6 +74,9 @@ public class Logbulk extends AbstractVerticle {
     // Status monitor
     private StatusMonitor monitor;
 
+    // Compiled routes
+    private JsonObject routes;
+
     @Override public void start(Future<Void> startFuture) {
         // Ensure error are handle correctly
         vertx.exceptionHandler(log::error);
@@ -76,20 +90,54 @@ public class Logbulk extends AbstractVerticle {
         // Register custom codecs
         vertx.eventBus()
                 .registerDefaultCodec(Packet.class, new PacketCodec())
+                .registerDefaultCodec(PacketBatch.class, new PacketBatchCodec())
 
                 // Replace system implementation when used with delivery options
                 .registerCodec(new FastJsonObjectCodec())
                 .registerCodec(new FastJsonArrayCodec());
 
+        // Setup packet recycling
+        JsonObject settings = config.settings();
+        PacketPool.configure(settings.getBoolean(AppConfig.RECYCLING, false), settings.getInteger(AppConfig.LEAK_DETECTION, 0));
+
         // Setup status monitor
-        monitor = new StatusMonitor(vertx, config.settings().getLong(AppConfig.STATUS, -1L));
+        monitor = new StatusMonitor(vertx, settings.getLong(AppConfig.STATUS, -1L));
+
+        // Setup metric endpoint
+        JsonObject metric = settings.getJsonObject(AppConfig.METRIC);
+        if (metric != null) {
+            vertx.createHttpServer()
+                    .requestHandler(new MetricHandler())
+                    .listen(metric.getInteger(AppConfig.PORT, DEFAULT_METRIC_PORT), metric.getString(AppConfig.HOST, "0.0.0.0"), h -> {
+                        if (h.failed()) {
+                            log.error("Can't expose metrics:", h.cause());
+                        } else {
+                            log.info("Metrics exposed on port: " + h.result().actualPort());
+                        }
+                    });
+        }
+
+        // Compile routes
+        Map<String, Configuration> transforms = configurations(config.transforms());
+        routes = config.routes();
+        Map<String, JsonObject> fused = Collections.emptyMap();
+        if (settings.getBoolean(AppConfig.FUSION, false)) {
+            StageFusion fusion = new StageFusion(routes, Collections.unmodifiableMap(transforms),
+                    endpoint -> registry.getComponent(AppConfig.TRANSFORM, endpoint));
+            routes = fusion.getRoutes();
+            fused = fusion.getStages();
+
+            // Members only reached through fused stages aren't deployed
+            transforms.keySet().removeAll(fusion.getReplaced());
+        }
 
         // Deploy all outputs & transforms components and input
         CompositeFuture.all(
-                setups(AppConfig.OUTPUT, config.outputs()),
-                setups(AppConfig.TRANSFORM, config.transforms())
+                setups(AppConfig.OUTPUT, configurations(config.outputs())),
+                setups(AppConfig.TRANSFORM, transforms),
+                fusions(fused)
         ).setHandler(h ->
-                setups(AppConfig.INPUT, config.inputs()).setHandler(e -> {
+                setups(AppConfig.INPUT, configurations(config.inputs())).setHandler(e -> {
                     // Release monitor if uneeded
                     monitor = null;
 
@@ -103,68 +151,127 @@ public class Logbulk extends AbstractVerticle {
         log.info("Logbulk is shutting down...");
     }
 
+    /**
+     * Extract json configuration of all components in a section.
+     *
+     * @param entries details of setup.
+     * @return configuration by endpoint.
+     */
+    private Map<String, Configuration> configurations(Set<Map.Entry<String, ConfigValue>> entries) {
+        Map<String, Configuration> configurations = Maps.newLinkedHashMap();
+        for (Map.Entry<String, ConfigValue> el : entries) {
+            configurations.put(el.getKey(), new Configuration(el.getValue().render(ConfigRenderOptions.concise().setJson(true))));
+        }
+        return configurations;
+    }
+
     /**
      * Setup all components in a section.
      *
      * @param section section to analyze.
-     * @param entries details of setup.
+     * @param entries configuration by endpoint.
      */
-    private Future<CompositeFuture> setups(String section, Set<Map.Entry<String, ConfigValue>> entries) {
+    private Future<CompositeFuture> setups(String section, Map<String, Configuration> entries) {
         // Wait for completion
         List<Future> completions = Lists.newArrayListWithCapacity(entries.size());
 
         // Iterate over each component
-        for (Map.Entry<String, ConfigValue> el : entries) {
-            // Extract json configuration
-            DeploymentOptions deployment = new DeploymentOptions();
-            Configuration conf = new Configuration(el.getValue().render(ConfigRenderOptions.concise().setJson(true)));
-            int instance = conf.getInteger(AppConfig.INSTANCE, 1);
+        for (Map.Entry<String, Configuration> el : entries.entrySet()) {
             String endpoint = el.getKey();
+            completions.add(setup(section, endpoint, registry.getComponent(section, endpoint), el.getValue().copy()));
+        }
 
-            // Handle special case
-            conf.put(AppConfig.ENDPOINT, endpoint);
-            conf.put(AppConfig.HAS_MAILBOX, !AppConfig.INPUT.equals(section));
-            conf.put(AppConfig.SETTING, config.settings());
-            conf.put(AppConfig.ROUTE, config.routes());
-            if (!AppConfig.INPUT.equals(section)) {
-                deployment.setInstances(instance);
-            }
-
-            // Handle generic case
-            if (conf.getBoolean(AppConfig.WORKER, false)) {
-                deployment.setWorker(true);
-            }
-
-            // Map configuration & deploy
-            Future completion = Future.future();
-            completions.add(completion);
-            Handler<AsyncResult<String>> deploy = new ComponentDeployment(deployment, endpoint, completion, section, conf);
+        // Compose all futures
+        return CompositeFuture.all(completions);
+    }
 
-            // Deploy mailbox first
-            if (conf.getBoolean(AppConfig.HAS_MAILBOX)) {
-                // Add to monitoring if needed
-                if (monitor.isEnable()) {
-                    monitor.addMailbox(endpoint);
-                }
+    /**
+     * Setup all fused stages.
+     *
+     * @param stages configuration by endpoint.
+     */
+    private Future<CompositeFuture> fusions(Map<String, JsonObject> stages) {
+        // Wait for completion
+        List<Future> completions = Lists.newArrayListWithCapacity(stages.size());
 
-                // Create configuration and deploy
-                JsonObject mailboxConf = new JsonObject();
-                mailboxConf.put(AppConfig.ROUTE, conf.getJsonObject(AppConfig.ROUTE));
-                mailboxConf.put(AppConfig.INSTANCE, instance);
-                mailboxConf.put(AppConfig.ENDPOINT, endpoint);
-                mailboxConf.put(AppConfig.HAS_MAILBOX, false);
-                mailboxConf.put(AppConfig.FIFO, conf.getBoolean(AppConfig.FIFO, true));
-                mailboxConf.put(AppConfig.MAILBOX, conf.getInteger(AppConfig.MAILBOX, Mailbox.DEFAULT_THRESHOLD));
-                vertx.deployVerticle(Mailbox.class.getName(), new DeploymentOptions().setConfig(mailboxConf), deploy);
-            } else {
-                deploy.handle(null);
-            }
+        // Iterate over each fused stage
+        for (Map.Entry<String, JsonObject> el : stages.entrySet()) {
+            completions.add(setup(AppConfig.TRANSFORM, el.getKey(), FusedStage.class.getName(), el.getValue().copy()));
         }
 
         // Compose all futures
         return CompositeFuture.all(completions);
     }
 
+    /**
+     * Setup a component.
+     *
+     * @param section   section of the component.
+     * @param endpoint  endpoint of the component.
+     * @param component component class.
+     * @param conf      configuration of the component.
+     */
+    private Future setup(String section, String endpoint, String component, JsonObject conf) {
+        // Extract json configuration
+        DeploymentOptions deployment = new DeploymentOptions();
+        int instance = conf.getInteger(AppConfig.INSTANCE, 1);
+
+        // Handle special case
+        conf.put(AppConfig.ENDPOINT, endpoint);
+        conf.put(AppConfig.HAS_MAILBOX, !AppConfig.INPUT.equals(section));
+        conf.put(AppConfig.SETTING, config.settings());
+        conf.put(AppConfig.ROUTE, routes);
+        if (!AppConfig.INPUT.equals(section)) {
+            deployment.setInstances(instance);
+        }
+
+        // Handle generic case
+        if (conf.getBoolean(AppConfig.WORKER, false)) {
+            deployment.setWorker(true);
+        }
+
+        // Map configuration & deploy
+        Future completion = Future.future();
+        Handler<AsyncResult<String>> deploy = new ComponentDeployment(deployment, component, completion, conf);
+
+        // Deploy mailbox first
+        if (conf.getBoolean(AppConfig.HAS_MAILBOX)) {
+            // Add to monitoring if needed
+            if (monitor.isEnable()) {
+                monitor.addMailbox(endpoint);
+            }
+
+            // Create configuration and deploy
+            JsonObject mailboxConf = new JsonObject();
+            mailboxConf.put(AppConfig.ROUTE, conf.getJsonObject(AppConfig.ROUTE));
+            mailboxConf.put(AppConfig.SETTING, conf.getJsonObject(AppConfig.SETTING));
+            mailboxConf.put(AppConfig.INSTANCE, instance);
+            mailboxConf.put(AppConfig.ENDPOINT, endpoint);
+            mailboxConf.put(AppConfig.HAS_MAILBOX, false);
+            mailboxConf.put(AppConfig.FIFO, conf.getBoolean(AppConfig.FIFO, true));
+            mailboxConf.put(AppConfig.MAILBOX, conf.getInteger(AppConfig.MAILBOX, Mailbox.DEFAULT_THRESHOLD));
+            mailboxConf.put(AppConfig.BATCH, conf.getInteger(AppConfig.BATCH, Mailbox.DEFAULT_BATCH));
+            mailboxConf.put(AppConfig.LINGER, conf.getLong(AppConfig.LINGER, Mailbox.DEFAULT_LINGER));
+            if (conf.containsKey(AppConfig.SPILL)) {
+                mailboxConf.put(AppConfig.SPILL, conf.getJsonObject(AppConfig.SPILL));
+            }
+            if (conf.containsKey(AppConfig.FAIR)) {
+                mailboxConf.put(AppConfig.FAIR, conf.getJsonObject(AppConfig.FAIR));
+            }
+            if (conf.containsKey(AppConfig.ADAPTIVE)) {
+                mailboxConf.put(AppConfig.ADAPTIVE, conf.getJsonObject(AppConfig.ADAPTIVE));
+            }
+            if (conf.containsKey(AppConfig.PARTITION_BY)) {
+                mailboxConf.put(AppConfig.PARTITION_BY, conf.getString(AppConfig.PARTITION_BY));
+                mailboxConf.put(AppConfig.SKEW, conf.getInteger(AppConfig.SKEW, Mailbox.DEFAULT_SKEW));
+            }
+            vertx.deployVerticle(Mailbox.class.getName(), new DeploymentOptions().setConfig(mailboxConf), deploy);
+        } else {
+            deploy.handle(null);
+        }
+        return completion;
+    }
+
     /**
      * Component deployement implementation.
      */
@@ -172,15 +279,13 @@ public class Logbulk extends AbstractVerticle {
     private class ComponentDeployment implements Handler<AsyncResult<String>> {
 
         private DeploymentOptions deployment;
-        private String endpoint;
+        private String component;
         private Future completion;
-        private String section;
         private JsonObject conf;
 
         @Override public void handle(AsyncResult<String> result) {
             deployment.setConfig(conf);
-            String type = type(endpoint);
-            vertx.deployVerticle(registry.getComponent(section + '.' + type), deployment, h -> {
+            vertx.deployVerticle(component, deployment, h -> {
                 if (h.failed()) {
                     log.error("Error during component setup:", h.cause());
                     vertx.close();
@@ -189,17 +294,6 @@ public class Logbulk extends AbstractVerticle {
                 }
             });
         }
-
-        /**
-         * Gets the type of the component.
-         *
-         * @param component component id.
-         * @return type of the component.
-         */
-        private String type(String component) {
-            int idx = component.indexOf('/');
-            return (idx != -1) ? component.substring(0, idx) : component;
-        }
     }
 
-}
\ No newline at end of file
+}
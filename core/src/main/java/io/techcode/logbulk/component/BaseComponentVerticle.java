@@ -23,8 +23,13 @@
  */
 package io.techcode.logbulk.component;
 
+import io.techcode.logbulk.io.AppConfig;
 import io.techcode.logbulk.net.Packet;
+import io.techcode.logbulk.net.PacketBatch;
+import io.techcode.logbulk.net.Trace;
 import io.techcode.logbulk.util.ConvertHandler;
+import io.techcode.logbulk.util.expr.Expression;
+import io.techcode.logbulk.util.metric.CostMeter;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.eventbus.MessageConsumer;
 
@@ -36,24 +41,108 @@ public abstract class BaseComponentVerticle extends ComponentVerticle implements
     // State pause
     private boolean pause = true;
 
-    // Message consumer
+    // Message consumers
     private MessageConsumer<Packet> consumer;
+    private MessageConsumer<PacketBatch> batchConsumer;
+
+    // Cost accounting
+    CostMeter cost;
+
+    // Condition to handle packets, others are forwarded as is
+    private Expression when;
 
     @Override public void start() {
         super.start();
-        consumer = getEventBus().<Packet>localConsumer(endpoint).handler(this);
+        cost = new CostMeter(parentEndpoint, uuid, getProfiling());
+        String condition = config.getString(AppConfig.WHEN);
+        if (condition != null) {
+            when = Expression.compile(condition);
+        }
+
+        // Fused stage call us directly
+        if (!isFused()) {
+            // Worker endpoints are only reachable by local mailbox
+            consumer = (hasMailbox() ? getEventBus().<Packet>localConsumer(endpoint) : this.<Packet>routeConsumer(endpoint)).handler(this);
+            batchConsumer = getEventBus().<PacketBatch>localConsumer(endpoint + ".batch").handler(this::handleBatch);
+        }
     }
 
     @Override public void handle(Message<Packet> event) {
         Packet packet = event.body();
         if (pause) {
-            refuse(event.body());
+            refuse(packet);
         } else {
-            try {
-                handle(packet);
-            } catch (Exception ex) {
-                handleFallback(packet, ex);
+            process(packet);
+        }
+    }
+
+    /**
+     * Handle a packet, send it to fallback on error and record metrics.
+     *
+     * @param packet packet to handle.
+     */
+    void process(Packet packet) {
+        metrics.getIn().inc();
+        long start = System.nanoTime();
+        Trace trace = packet.getHeader().getTrace();
+        if (trace != null) {
+            trace.enter(start);
+        }
+        boolean profiled = false;
+        try {
+            // Condition can fail on a malformed body
+            if (bypass(packet)) {
+                return;
+            }
+            profiled = cost.begin();
+            handle(packet);
+        } catch (Exception ex) {
+            handleFallback(packet, ex);
+        } finally {
+            if (profiled) {
+                cost.end();
+            }
+            metrics.getHandle().observe(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Forward a packet without handling it if it doesn't match the condition of the component.
+     *
+     * @param packet packet involved.
+     * @return true if the packet has been forwarded, otherwise false.
+     */
+    boolean bypass(Packet packet) {
+        if (when != null && !when.test(packet.getBody())) {
+            forwardAndRelease(packet);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Handle a batch of packets and release worker once.
+     *
+     * @param event event involved.
+     */
+    private void handleBatch(Message<PacketBatch> event) {
+        setBatching(true);
+        try {
+            for (Packet packet : event.body()) {
+                // Component can be paused during batch processing
+                if (pause) {
+                    refuse(packet);
+                } else {
+                    process(packet);
+                }
             }
+        } finally {
+            setBatching(false);
+        }
+
+        // Release once for the whole batch unless refuse mecanism is pending
+        if (!pause) {
+            release();
         }
     }
 
@@ -72,7 +161,10 @@ public abstract class BaseComponentVerticle extends ComponentVerticle implements
     public void resume() {
         // Update flag
         pause = false;
-        consumer.resume();
+        if (consumer != null) {
+            consumer.resume();
+            batchConsumer.resume();
+        }
 
         // Don't forget to release because refuse use forward-release mecanism
         release();
@@ -82,7 +174,10 @@ public abstract class BaseComponentVerticle extends ComponentVerticle implements
      * Pause packet handling.
      */
     public void pause() {
-        consumer.pause();
+        if (consumer != null) {
+            consumer.pause();
+            batchConsumer.pause();
+        }
         pause = true;
     }
 
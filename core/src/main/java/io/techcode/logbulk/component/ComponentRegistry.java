@@ -106,8 +106,13 @@ public class ComponentRegistry {
 
         // Print
         if (!unknowns.isEmpty()) {
-            unknowns.forEach(c -> log.error("The component '" + c + "' isn't defined"));
-            verticle.getVertx().close();
+            if (verticle.getVertx().isClustered()) {
+                // Components can be defined on other nodes
+                unknowns.forEach(c -> log.warn("The component '" + c + "' isn't defined locally"));
+            } else {
+                unknowns.forEach(c -> log.error("The component '" + c + "' isn't defined"));
+                verticle.getVertx().close();
+            }
         }
     }
 
@@ -123,4 +128,26 @@ public class ComponentRegistry {
         return component;
     }
 
+    /**
+     * Retrieve a component by his section and endpoint.
+     *
+     * @param section  section of the component.
+     * @param endpoint endpoint of the component.
+     * @return class mapping.
+     */
+    public String getComponent(String section, String endpoint) {
+        return getComponent(section + '.' + type(endpoint));
+    }
+
+    /**
+     * Gets the type of the component.
+     *
+     * @param component component id.
+     * @return type of the component.
+     */
+    private String type(String component) {
+        int idx = component.indexOf('/');
+        return (idx != -1) ? component.substring(0, idx) : component;
+    }
+
 }
\ No newline at end of file
@@ -24,23 +24,27 @@
 package io.techcode.logbulk.component;
 
 import com.google.common.base.Strings;
-import com.google.common.collect.ImmutableListMultimap;
-import com.google.common.collect.ListMultimap;
-import io.netty.buffer.ByteBufInputStream;
 import io.techcode.logbulk.io.AppConfig;
 import io.techcode.logbulk.io.Configuration;
 import io.techcode.logbulk.net.FastJsonArrayCodec;
 import io.techcode.logbulk.net.Packet;
-import io.techcode.logbulk.util.PressureHandler;
-import io.techcode.logbulk.util.stream.Streams;
+import io.techcode.logbulk.net.PacketPool;
+import io.techcode.logbulk.net.RouteTable;
+import io.techcode.logbulk.net.Trace;
+import io.techcode.logbulk.util.CreditHandler;
+import io.techcode.logbulk.util.json.JsonRecordParser;
+import io.techcode.logbulk.util.json.LazyJsonObject;
+import io.techcode.logbulk.util.metric.ComponentMetrics;
+import io.techcode.logbulk.util.metric.MetricRegistry;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Context;
 import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.EventBus;
 import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.json.DecodeException;
-import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
@@ -52,11 +56,8 @@ import lombok.NonNull;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
-import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 /**
  * Component verticle helper.
@@ -66,10 +67,16 @@ public class ComponentVerticle extends AbstractVerticle {
     // Some constants
     private static final String MESSAGE = "message";
     private static final String STACKTRACE = "stacktrace";
-    private static final String TRACES = "_traces";
     private static final String DISPATCH = "dispatch";
     private static final String DELIMITER = "delimiter";
     private static final String JSON = "json";
+    private static final String LAZY = "lazy";
+
+    // Default sampling of traced packets
+    public static final int DEFAULT_SAMPLING = 1000;
+
+    // Default sampling of profiled events
+    public static final int DEFAULT_PROFILING = 100;
 
     // Fast json array
     private static final DeliveryOptions DELIVERY_OPTIONS = new DeliveryOptions().setCodecName(FastJsonArrayCodec.CODEC_NAME);
@@ -89,7 +96,7 @@ public class ComponentVerticle extends AbstractVerticle {
     protected String endpoint;
 
     // Routing
-    protected ListMultimap<String, String> routing;
+    protected RouteTable routing;
 
     // Event Bus
     @Getter private EventBus eventBus;
@@ -97,32 +104,66 @@ public class ComponentVerticle extends AbstractVerticle {
     // Configuration
     protected Configuration config;
     protected String fallback;
-    private boolean tracing = true;
+    private int fallbackId = -1;
+
+    // Tracing
+    private int sampling = 0;
+    private long sampled = 0;
+
+    // Profiling
+    private int profiling = 0;
 
     // Mailbox
     private boolean hasMailbox = true;
     private int toRelease = 0;
     private JsonArray releaseOne;
+    private boolean batching = false;
+
+    // Cluster
+    private boolean clustered;
+
+    // Fusion
+    private FusedStage fusion;
+    private int fusionIndex;
+    private boolean traced = true;
+
+    // Flow control
+    private CreditHandler credits;
+    private int creditWindow = CreditHandler.DEFAULT_WINDOW;
+
+    // Metrics
+    protected ComponentMetrics metrics;
 
     @Override public void start() {
         this.config = config();
         eventBus = vertx.eventBus();
+        clustered = vertx.isClustered();
         fallback = config.getString(AppConfig.FALLBACK, StringUtils.EMPTY);
+        if (!Strings.isNullOrEmpty(fallback)) {
+            fallbackId = RouteTable.id(fallback);
+        }
         endpoint(config);
         releaseOne = new JsonArray().add(endpoint);
+        metrics = new ComponentMetrics(parentEndpoint);
 
         // Settings
         JsonObject settings = new Configuration(config.getJsonObject(AppConfig.SETTING, new JsonObject()));
-        tracing = settings.getBoolean(AppConfig.TRACING, false);
+        Object tracing = settings.getValue(AppConfig.TRACING);
+        if (tracing instanceof Number) {
+            sampling = ((Number) tracing).intValue();
+        } else if (Boolean.TRUE.equals(tracing)) {
+            sampling = DEFAULT_SAMPLING;
+        }
+        Object profile = settings.getValue(AppConfig.PROFILING);
+        if (profile instanceof Number) {
+            profiling = ((Number) profile).intValue();
+        } else if (Boolean.TRUE.equals(profile)) {
+            profiling = DEFAULT_PROFILING;
+        }
+        creditWindow = settings.getInteger(AppConfig.CREDIT, CreditHandler.DEFAULT_WINDOW);
 
         // Generate routing
-        JsonObject routes = config.getJsonObject(AppConfig.ROUTE);
-        ImmutableListMultimap.Builder<String, String> builder = ImmutableListMultimap.builder();
-        for (String route : routes.fieldNames()) {
-            builder.putAll(route, Streams.to(routes.getJsonArray(route).stream(), String.class)
-                    .collect(Collectors.toList()));
-        }
-        routing = builder.build();
+        routing = RouteTable.compile(config.getJsonObject(AppConfig.ROUTE));
     }
 
     /**
@@ -135,6 +176,41 @@ public class ComponentVerticle extends AbstractVerticle {
         log.warn("Configuration not checked: " + getClass().getSimpleName());
     }
 
+    /**
+     * Setup the component as a stage of a fused stage.
+     *
+     * @param fusion fused stage owning the component.
+     * @param index  index of the component in the fused stage.
+     * @param vertx  vertx instance.
+     * @param ctx    context of the fused stage.
+     * @param config configuration of the component.
+     */
+    void fuse(@NonNull FusedStage fusion, int index, Vertx vertx, Context ctx, @NonNull JsonObject config) {
+        init(vertx, ctx);
+        this.fusion = fusion;
+        this.fusionIndex = index;
+        this.config = new Configuration(config);
+        checkConfig(this.config);
+    }
+
+    /**
+     * Returns the sampling period of profiled events.
+     *
+     * @return sampling period of profiled events or zero if disabled.
+     */
+    int getProfiling() {
+        return profiling;
+    }
+
+    /**
+     * Returns true if the component is a stage of a fused stage.
+     *
+     * @return true if the component is a stage of a fused stage, otherwise false.
+     */
+    public boolean isFused() {
+        return fusion != null;
+    }
+
     @Override public Configuration config() {
         if (config == null) {
             config = new Configuration(super.config());
@@ -159,18 +235,43 @@ public class ComponentVerticle extends AbstractVerticle {
      * @param th     error throw.
      */
     public void handleFallback(@NonNull Packet packet, Throwable th) {
-        JsonObject body = packet.getBody();
+        metrics.getFallback().inc();
+        acknowledge();
+        try {
+            packet.setBody(fallbackBody(packet.getBody(), th));
+            if (fallbackId < 0) {
+                // Log info if no fallback
+                log.error(packet.getBody());
+                PacketPool.recycle(packet);
+            } else {
+                // Otherwise send to fallback
+                send(updateRoute(packet, fallbackId));
+            }
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Returns the body to send to fallback.
+     * An undecodable lazy body is replaced by its raw text.
+     *
+     * @param body body involved.
+     * @param th   error throw.
+     * @return body to send to fallback.
+     */
+    private JsonObject fallbackBody(JsonObject body, Throwable th) {
+        if (body instanceof LazyJsonObject) {
+            try {
+                body.size();
+            } catch (DecodeException ex) {
+                body = new JsonObject().put(MESSAGE, ((LazyJsonObject) body).raw().toString());
+            }
+        }
         if (th != null) {
             body.put(STACKTRACE, ExceptionUtils.getStackTrace(th));
         }
-        if (Strings.isNullOrEmpty(fallback)) {
-            // Log info if no fallback
-            log.error(packet.getBody());
-            release();
-        } else {
-            // Otherwise send to fallback
-            forwardAndRelease(updateRoute(packet, fallback));
-        }
+        return body;
     }
 
     /**
@@ -186,13 +287,11 @@ public class ComponentVerticle extends AbstractVerticle {
         // Possible previous component
         if (previous >= 0) {
             // Base on previous or current one
-            String route = headers.getOldRoute();
-            if (route == null) {
-                route = headers.getRoute();
+            int route = headers.getOldRouteId();
+            if (route < 0) {
+                route = headers.getRouteId();
             }
-
-            List<String> endpoints = this.routing.get(route);
-            return Optional.of(endpoints.get(previous));
+            return Optional.ofNullable(routing.endpoint(route, previous));
         } else {
             return Optional.empty();
         }
@@ -204,30 +303,8 @@ public class ComponentVerticle extends AbstractVerticle {
      * @param headers headers of the packet.
      * @return next component processor for this packet.
      */
-    public Optional<String> next(Packet.Header headers) {
-        return next(headers, headers.getCurrent());
-    }
-
-    /**
-     * Returns the next component processor for this body.
-     *
-     * @param headers headers of the body.
-     * @return next component processor for this body.
-     */
-    private Optional<String> next(@NonNull Packet.Header headers, int current) {
-        // Gets some stuff
-        int next = current + 1;
-
-        // Retrieve routing
-        String route = headers.getRoute();
-        List<String> endpoints = this.routing.get(route);
-
-        // Possible next component
-        if (endpoints != null && next < endpoints.size()) {
-            return Optional.of(endpoints.get(next));
-        } else {
-            return Optional.empty();
-        }
+    public Optional<String> next(@NonNull Packet.Header headers) {
+        return Optional.ofNullable(routing.endpoint(headers.getRouteId(), headers.getCurrent() + 1));
     }
 
     /**
@@ -239,29 +316,105 @@ public class ComponentVerticle extends AbstractVerticle {
         // Gets some stuff
         Packet.Header headers = packet.getHeader();
         int current = headers.getCurrent();
+        metrics.getOut().inc();
+
+        // Fused stage handle forwarding directly
+        if (fusion != null) {
+            fusion.advance(fusionIndex, packet);
+            return;
+        }
+
+        // Sampled packet leave the stage
+        Trace trace = headers.getTrace();
+        if (trace != null && traced) {
+            trace.exit((current >= 0) ? Trace.stage(headers.getRouteId(), current) :
+                    Trace.stage(headers.getOldRouteId(), headers.getPrevious()), System.nanoTime());
+        }
 
         // Determine next stage
-        Optional<String> nextOpt = next(headers, current);
-        if (nextOpt.isPresent()) {
+        String next = routing.endpoint(headers.getRouteId(), current + 1);
+        if (next != null) {
             if (current > -1) {
                 headers.setPrevious(current);
             }
             if (current == 0) {
-                headers.setOldRoute(null);
+                headers.setOldRouteId(-1);
             }
             headers.setCurrent(current + 1);
 
-            // Add trace
-            if (tracing) {
-                JsonArray traces = headers.getJsonArray(TRACES);
-                if (traces == null) {
-                    traces = new JsonArray();
-                    headers.put(TRACES, traces);
-                }
-                traces.add(endpoint);
+            // A re-routed packet leaves the mailbox route, the credit is consumed by this worker
+            boolean rerouted = current == -1 && hasMailbox;
+            if (rerouted) {
+                headers.setUpstream(endpoint);
+            }
+            if (clustered) {
+                // Only one node must process the packet
+                eventBus.send(next, packet);
+            } else {
+                eventBus.publish(next, packet);
+            }
+
+            // Credit requests must follow packets sent
+            if (rerouted) {
+                credits().consume(next);
+            } else if (credits != null) {
+                credits.consume(next);
+            }
+        } else {
+            // End of route
+            if (trace != null) {
+                record(trace);
+            }
+            PacketPool.recycle(packet);
+        }
+    }
+
+    /**
+     * Record latencies of a sampled packet at the end of its route.
+     *
+     * @param trace trace of the packet.
+     */
+    private void record(Trace trace) {
+        if (trace.size() == 0) {
+            return;
+        }
+        for (int i = 0; i < trace.size(); i++) {
+            long stage = trace.stage(i);
+            int route = Trace.route(stage);
+            String name = RouteTable.name(route);
+            String component = routing.endpoint(route, Trace.index(stage));
+            int member = Trace.member(stage);
+            if (component != null && member >= 0) {
+                component = StageFusion.member(component, member);
+            }
+            if (name != null && component != null) {
+                String labels = MetricRegistry.labels("route", name, "stage", component);
+                MetricRegistry.histogram("logbulk_stage_latency_seconds",
+                        "Time spent in stage by sampled packets.", labels).observe(trace.elapsed(i));
+                MetricRegistry.histogram("logbulk_stage_wait_seconds",
+                        "Time spent in mailbox before stage by sampled packets.", labels).observe(trace.wait(i));
             }
-            eventBus.publish(nextOpt.get(), packet);
         }
+
+        // Latency is accounted to the route the packet was created on
+        String name = RouteTable.name(Trace.route(trace.stage(0)));
+        if (name != null) {
+            MetricRegistry.histogram("logbulk_route_latency_seconds",
+                    "End-to-end latency of sampled packets.", MetricRegistry.labels("route", name)).observe(trace.latency());
+        }
+    }
+
+    /**
+     * Sample a new packet for tracing.
+     *
+     * @param packet packet created.
+     * @return same object for chaining.
+     */
+    private Packet sample(Packet packet) {
+        if (sampling > 0 && ++sampled % sampling == 0) {
+            packet.getHeader().setTrace(new Trace(System.nanoTime()));
+        }
+        return packet;
     }
 
     /**
@@ -271,14 +424,43 @@ public class ComponentVerticle extends AbstractVerticle {
      */
     public void forward(@NonNull Packet packet) {
         // Don't forget to release
-        if (hasMailbox) {
-            toRelease += 1;
-        }
+        acknowledge();
 
         // Send to next endpoint
         send(packet);
     }
 
+    /**
+     * Register a consumer on an address reachable by routes.
+     * In cluster mode, the consumer is reachable from all nodes.
+     *
+     * @param address address to consume.
+     * @param <T>     type of message.
+     * @return message consumer.
+     */
+    protected <T> MessageConsumer<T> routeConsumer(String address) {
+        return clustered ? eventBus.consumer(address) : eventBus.localConsumer(address);
+    }
+
+    /**
+     * Returns true if the component is behind a mailbox.
+     *
+     * @return true if the component is behind a mailbox, otherwise false.
+     */
+    public boolean hasMailbox() {
+        return hasMailbox;
+    }
+
+    /**
+     * Acknowledge a processed packet without forwarding it.
+     * The worker will be released on next release if mailbox.
+     */
+    public void acknowledge() {
+        if (hasMailbox) {
+            toRelease += 1;
+        }
+    }
+
     /**
      * Forward the packet to the next stage and release worker if mailbox.
      *
@@ -295,16 +477,27 @@ public class ComponentVerticle extends AbstractVerticle {
      * @param packet packet to refuse.
      */
     public void refuse(Packet packet) {
+        // Don't forget to release
+        acknowledge();
+
+        // Not sent by upstream, mailbox must not consume its credits
         Packet.Header headers = packet.getHeader();
-        headers.setCurrent(headers.getCurrent() - 1);
-        forward(packet);
+        headers.setPrevious(-1);
+        headers.setUpstream(null);
+        String mailbox = routing.endpoint(headers.getRouteId(), headers.getCurrent());
+        if (clustered) {
+            eventBus.send(mailbox, packet);
+        } else {
+            eventBus.publish(mailbox, packet);
+        }
     }
 
     /**
      * Notify to mailbox that worker is available.
+     * A worker starved of credits holds its release until the next grant.
      */
     public void release() {
-        if (hasMailbox && toRelease > 0) {
+        if (hasMailbox && toRelease > 0 && !batching && (credits == null || !credits.isStarved())) {
             JsonArray msg = releaseOne;
 
             // If we release more than one, generate a custom message otherwise use already defined
@@ -317,6 +510,25 @@ public class ComponentVerticle extends AbstractVerticle {
         }
     }
 
+    /**
+     * Record hops of sampled packets leaving the component.
+     * Hops of a fused stage are recorded by its members.
+     *
+     * @param traced true to record hops, otherwise false.
+     */
+    void setTraced(boolean traced) {
+        this.traced = traced;
+    }
+
+    /**
+     * Defer release notification while a batch is processed.
+     *
+     * @param batching true to defer release, otherwise false.
+     */
+    void setBatching(boolean batching) {
+        this.batching = batching;
+    }
+
     /**
      * Update route of packet.
      *
@@ -325,9 +537,20 @@ public class ComponentVerticle extends AbstractVerticle {
      * @return same object for chaining.
      */
     public Packet updateRoute(Packet packet, String route) {
+        return updateRoute(packet, RouteTable.id(route));
+    }
+
+    /**
+     * Update route of packet.
+     *
+     * @param packet packet to update.
+     * @param route  route id to use.
+     * @return same object for chaining.
+     */
+    public Packet updateRoute(Packet packet, int route) {
         Packet.Header headers = packet.getHeader();
-        headers.setOldRoute(headers.getRoute());
-        headers.setRoute(route);
+        headers.setOldRouteId(headers.getRouteId());
+        headers.setRouteId(route);
         headers.setPrevious(headers.getCurrent());
         headers.setCurrent(-1);
         return packet;
@@ -349,13 +572,30 @@ public class ComponentVerticle extends AbstractVerticle {
      * @param endHandler end handler to call.
      */
     public void handlePressure(ReadStream stream, Handler<Void> endHandler) {
-        MessageConsumer<String> consumer = eventBus.consumer(parentEndpoint + ".pressure");
-        consumer.handler(new PressureHandler(stream, parentEndpoint, h -> {
-            if (endHandler != null) {
-                endHandler.handle(null);
+        credits().register(stream, endHandler);
+    }
+
+    /**
+     * Returns the credits granted by downstream mailboxes.
+     * Credits are granted on the first call.
+     *
+     * @return credits granted by downstream mailboxes.
+     */
+    protected CreditHandler credits() {
+        if (credits == null) {
+            credits = new CreditHandler(vertx, endpoint, creditWindow);
+            CreditHandler handler = credits;
+            MetricRegistry.gauge("logbulk_pressure", "Component starved of credits by a downstream.",
+                    MetricRegistry.component(parentEndpoint),
+                    () -> handler.isStarved() ? 1L : 0L);
+            this.<JsonArray>routeConsumer(endpoint + ".grant").handler(credits);
+
+            // Starved workers hold their release, so the mailbox stops dispatching to them
+            if (hasMailbox) {
+                credits.grantHandler(h -> release());
             }
-            consumer.unregister();
-        }));
+        }
+        return credits;
     }
 
     /**
@@ -364,20 +604,22 @@ public class ComponentVerticle extends AbstractVerticle {
      * @param config configuration details.
      * @return new input parser.
      */
-    public RecordParser inputParser(JsonObject config) {
-        boolean json = config.getBoolean(JSON, false);
-        Handler<Buffer> handler = json ? buf -> {
-            JsonObject message = decode(buf);
-            if (!message.isEmpty()) {
-                createEvent(message);
-            }
-        } : buf -> {
+    public Handler<Buffer> inputParser(JsonObject config) {
+        String delimiter = config.getString(DELIMITER, "\n");
+        if (config.getBoolean(JSON, false)) {
+            return new JsonRecordParser(delimiter, config.getBoolean(LAZY, false), this::createEvent, buf -> {
+                metrics.getMalformed().inc();
+                if (log.isDebugEnabled()) {
+                    log.debug("Malformed record dropped: " + buf);
+                }
+            });
+        }
+        return RecordParser.newDelimited(delimiter, buf -> {
             String message = buf.toString();
             if (!Strings.isNullOrEmpty(message)) {
                 createEvent(message);
             }
-        };
-        return RecordParser.newDelimited(config.getString(DELIMITER, "\n"), handler);
+        });
     }
 
     /**
@@ -386,6 +628,12 @@ public class ComponentVerticle extends AbstractVerticle {
      * @param body message data.
      */
     protected final Packet generateEvent(String body) {
+        if (PacketPool.isEnabled()) {
+            // Reuse pooled body
+            Packet packet = acquireEvent();
+            packet.getBody().put(MESSAGE, body);
+            return sample(packet);
+        }
         return generateEvent(new JsonObject().put(MESSAGE, body));
     }
 
@@ -395,6 +643,12 @@ public class ComponentVerticle extends AbstractVerticle {
      * @param body message data.
      */
     protected final Packet generateEvent(JsonObject body) {
+        if (PacketPool.isEnabled()) {
+            Packet packet = acquireEvent();
+            packet.setBody(body);
+            return sample(packet);
+        }
+
         // Create a new body
         Packet.Header.HeaderBuilder headers = Packet.Header.builder();
 
@@ -404,19 +658,25 @@ public class ComponentVerticle extends AbstractVerticle {
             headers.route(dispatch);
 
             // Add source
-            List<String> route = routing.get(dispatch);
-            if (route.size() > 1) {
-                headers.source(route.get(1));
-            } else {
-                headers.source(route.get(0));
-            }
+            int route = RouteTable.id(dispatch);
+            headers.source(routing.endpoint(route, (routing.size(route) > 1) ? 1 : 0));
         }
 
         // Generate
-        return Packet.builder()
+        return sample(Packet.builder()
                 .header(headers.build())
                 .body(body)
-                .build();
+                .build());
+    }
+
+    /**
+     * Acquire a new packet from the pool.
+     *
+     * @return packet acquired.
+     */
+    private Packet acquireEvent() {
+        int route = RouteTable.id(config.getString(DISPATCH));
+        return PacketPool.acquire(routing.endpoint(route, (routing.size(route) > 1) ? 1 : 0), route);
     }
 
     /**
@@ -435,46 +695,7 @@ public class ComponentVerticle extends AbstractVerticle {
      * @param body message data.
      */
     protected final void createEvent(String body) {
-        createEvent(new JsonObject().put(MESSAGE, body));
-    }
-
-    /**
-     * Notify pressure to another component.
-     *
-     * @param previousPressure already notified component.
-     * @param headers          headers body involved.
-     */
-    public void notifyPressure(List<String> previousPressure, Packet.Header headers) {
-        // Always return a previous in mailbox context
-        Optional<String> previousOpt = previous(headers);
-        previousOpt.ifPresent(e -> {
-            // Handle pressure
-            String previous = previousOpt.get();
-            if (!previousPressure.contains(previous)) {
-                if (previousPressure.isEmpty()) {
-                    tooglePressure(previous);
-                    previousPressure.add(previous);
-                } else {
-                    String old = previousPressure.remove(0);
-                    String source = headers.getSource();
-                    previousPressure.add(source);
-
-                    if (!source.equals(old)) {
-                        tooglePressure(source);
-                        tooglePressure(old);
-                    }
-                }
-            }
-        });
-    }
-
-    /**
-     * Toogle pressure state of the mailbox.
-     *
-     * @param endpoint endpoint to notify.
-     */
-    public void tooglePressure(String endpoint) {
-        eventBus.publish(endpoint + ".pressure", parentEndpoint);
+        forwardAndRelease(generateEvent(body));
     }
 
     /**
@@ -496,20 +717,4 @@ public class ComponentVerticle extends AbstractVerticle {
         log.info("Endpoint: " + endpoint);
     }
 
-    /**
-     * Decode a buffer into a json object.
-     * Needed until vert.x 3.4.2 #1975
-     *
-     * @param buf buffer involved.
-     * @return json object.
-     */
-    private JsonObject decode(Buffer buf) {
-        ByteBufInputStream stream = new ByteBufInputStream(buf.getByteBuf());
-        try {
-            return new JsonObject((Map<String, Object>) Json.mapper.readValue(stream, Map.class));
-        } catch (Exception e) {
-            throw new DecodeException("Failed to decode:" + e.getMessage(), e);
-        }
-    }
-
-}
\ No newline at end of file
+}
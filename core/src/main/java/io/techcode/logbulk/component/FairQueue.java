@@ -0,0 +1,253 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.component;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
+import io.techcode.logbulk.net.Packet;
+import lombok.NonNull;
+
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Mailbox queue of pending packets.
+ * Packets are split in lanes by route or source and lanes are served using deficit round-robin,
+ * so a lane with a weight of 2 is served twice as much as a lane with a weight of 1 when both are backlogged.
+ * Within a lane, packets are served in fifo or lifo order.
+ */
+public class FairQueue {
+
+    // Default weight of a lane
+    public static final int DEFAULT_WEIGHT = 1;
+
+    // Settings
+    private final boolean fifo;
+    private final Key key;
+    private final Map<String, Integer> weights;
+
+    // Lanes by key and lanes backlogged in service order
+    private final Map<String, Lane> lanes = Maps.newHashMap();
+    private final Deque<Lane> active = Queues.newArrayDeque();
+
+    // Lane used when packets aren't split
+    private final Lane single = new Lane(DEFAULT_WEIGHT);
+
+    // Number of packets queued
+    private int size = 0;
+
+    /**
+     * Create a new queue without lanes.
+     *
+     * @param fifo true to serve packets in fifo order, otherwise lifo.
+     */
+    public FairQueue(boolean fifo) {
+        this(fifo, Key.NONE, ImmutableMap.of());
+    }
+
+    /**
+     * Create a new queue.
+     *
+     * @param fifo    true to serve packets in fifo order, otherwise lifo.
+     * @param key     key used to split packets in lanes.
+     * @param weights weights of lanes by key.
+     */
+    public FairQueue(boolean fifo, @NonNull Key key, @NonNull Map<String, Integer> weights) {
+        weights.values().forEach(w -> checkArgument(w != null && w > 0, "The weight must be positive"));
+        this.fifo = fifo;
+        this.key = key;
+        this.weights = ImmutableMap.copyOf(weights);
+    }
+
+    /**
+     * Add a packet at the tail of its lane.
+     *
+     * @param packet packet to add.
+     */
+    public void add(@NonNull Packet packet) {
+        Lane lane = lane(packet);
+        lane.packets.addLast(packet);
+        size += 1;
+        if (!lane.active) {
+            lane.active = true;
+            active.addLast(lane);
+        }
+    }
+
+    /**
+     * Poll the next packet to serve.
+     *
+     * @return next packet to serve or null if the queue is empty.
+     */
+    public Packet poll() {
+        Lane lane = active.peekFirst();
+        if (lane == null) {
+            return null;
+        }
+
+        // New turn of the lane
+        if (lane.deficit <= 0) {
+            lane.deficit += lane.weight;
+        }
+        Packet packet = fifo ? lane.packets.pollFirst() : lane.packets.pollLast();
+        lane.deficit -= 1;
+        size -= 1;
+
+        // Rotate once the lane is drained or its quantum is spent
+        if (lane.packets.isEmpty()) {
+            active.pollFirst();
+            lane.active = false;
+            lane.deficit = 0;
+        } else if (lane.deficit <= 0) {
+            active.addLast(active.pollFirst());
+        }
+        return packet;
+    }
+
+    /**
+     * Put back the last packet polled, as if it has never been polled.
+     *
+     * @param packet packet to put back.
+     */
+    public void defer(@NonNull Packet packet) {
+        Lane lane = lane(packet);
+        if (fifo) {
+            lane.packets.addFirst(packet);
+        } else {
+            lane.packets.addLast(packet);
+        }
+        size += 1;
+        lane.deficit += 1;
+        if (!lane.active) {
+            lane.active = true;
+            active.addFirst(lane);
+        } else if (active.peekFirst() != lane) {
+            active.remove(lane);
+            active.addFirst(lane);
+        }
+    }
+
+    /**
+     * Returns the number of packets queued.
+     *
+     * @return number of packets queued.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if no packet is queued.
+     *
+     * @return true if no packet is queued, otherwise false.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of packets queued by lane.
+     *
+     * @return number of packets queued by lane.
+     */
+    public Map<String, Integer> lanes() {
+        Map<String, Integer> depths = Maps.newTreeMap();
+        lanes.forEach((k, v) -> depths.put(k, v.packets.size()));
+        return depths;
+    }
+
+    /**
+     * Returns the lane of a packet.
+     *
+     * @param packet packet involved.
+     * @return lane of the packet.
+     */
+    private Lane lane(Packet packet) {
+        if (key == Key.NONE) {
+            return single;
+        }
+        String name = (key == Key.ROUTE) ? packet.getHeader().getRoute() : packet.getHeader().getSource();
+        Lane lane = lanes.get(name);
+        if (lane == null) {
+            lane = new Lane(weights.getOrDefault(name, DEFAULT_WEIGHT));
+            lanes.put(name, lane);
+        }
+        return lane;
+    }
+
+    /**
+     * Key used to split packets in lanes.
+     */
+    public enum Key {
+        // Single lane
+        NONE,
+        // Lane by route
+        ROUTE,
+        // Lane by source
+        SOURCE;
+
+        /**
+         * Returns the key matching the name.
+         *
+         * @param name name of the key.
+         * @return key.
+         */
+        public static Key of(@NonNull String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Lane of packets.
+     */
+    private static class Lane {
+
+        // Packets queued
+        private final Deque<Packet> packets = Queues.newArrayDeque();
+
+        // Packets served by turn
+        private final int weight;
+
+        // Packets left to serve in current turn
+        private int deficit = 0;
+
+        // Lane is backlogged
+        private boolean active = false;
+
+        /**
+         * Create a new lane.
+         *
+         * @param weight packets served by turn.
+         */
+        Lane(int weight) {
+            this.weight = weight;
+        }
+
+    }
+
+}
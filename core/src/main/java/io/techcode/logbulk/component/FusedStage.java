@@ -0,0 +1,164 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.component;
+
+import io.techcode.logbulk.io.AppConfig;
+import io.techcode.logbulk.net.Packet;
+import io.techcode.logbulk.net.Trace;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Fused stage implementation.
+ * Run a chain of synchronous transforms in a single verticle by calling each stage directly.
+ */
+public class FusedStage extends BaseComponentVerticle {
+
+    // Some constants
+    public static final String STAGES = "stages";
+    public static final String COMPONENT = "component";
+    public static final String CONFIG = "config";
+
+    // Stages
+    private BaseComponentVerticle[] stages;
+
+    @Override public void start() {
+        super.start();
+        setTraced(false);
+
+        // Setup all stages
+        JsonArray definitions = config.getJsonArray(STAGES);
+        stages = new BaseComponentVerticle[definitions.size()];
+        for (int i = 0; i < stages.length; i++) {
+            JsonObject definition = definitions.getJsonObject(i);
+            String endpoint = definition.getString(AppConfig.ENDPOINT);
+            BaseComponentVerticle stage = create(definition.getString(COMPONENT));
+
+            // Prepare configuration
+            JsonObject conf = definition.getJsonObject(CONFIG, new JsonObject()).copy();
+            conf.put(AppConfig.ENDPOINT, endpoint);
+            conf.put(AppConfig.HAS_MAILBOX, false);
+            conf.put(AppConfig.SETTING, config.getJsonObject(AppConfig.SETTING, new JsonObject()));
+            conf.put(AppConfig.ROUTE, config.getJsonObject(AppConfig.ROUTE));
+
+            // Start stage
+            stage.fuse(this, i, vertx, context, conf);
+            stage.start();
+            checkState(!stage.isPause(), "The component '%s' isn't ready", endpoint);
+            stages[i] = stage;
+        }
+
+        // Ready
+        resume();
+    }
+
+    @Override public void stop() throws Exception {
+        for (BaseComponentVerticle stage : stages) {
+            if (stage != null) stage.stop();
+        }
+    }
+
+    @Override public void handle(Packet packet) {
+        // Process through all stages
+        try {
+            process(0, packet);
+        } finally {
+            // Release once whatever happens in stages
+            acknowledge();
+            release();
+        }
+    }
+
+    /**
+     * Forward the packet to the stage following the given one.
+     * The packet leaves the fused stage after the last stage or if the route has been updated.
+     *
+     * @param index  index of the stage forwarding.
+     * @param packet packet to forward.
+     */
+    void advance(int index, Packet packet) {
+        // Sampled packet leave the member
+        Packet.Header headers = packet.getHeader();
+        Trace trace = headers.getTrace();
+        if (trace != null) {
+            trace.exit((headers.getCurrent() >= 0) ? Trace.stage(headers.getRouteId(), headers.getCurrent(), index) :
+                    Trace.stage(headers.getOldRouteId(), headers.getPrevious(), index), System.nanoTime());
+        }
+        if (headers.getCurrent() < 0 || index + 1 >= stages.length) {
+            send(packet);
+        } else {
+            process(index + 1, packet);
+        }
+    }
+
+    /**
+     * Process a packet with a given stage.
+     *
+     * @param index  index of the stage.
+     * @param packet packet to process.
+     */
+    private void process(int index, Packet packet) {
+        BaseComponentVerticle stage = stages[index];
+        boolean profiled = false;
+        try {
+            // Condition can fail on a malformed body
+            if (stage.bypass(packet)) {
+                return;
+            }
+            profiled = stage.cost.begin();
+            stage.handle(packet);
+        } catch (Exception ex) {
+            stage.handleFallback(packet, ex);
+        } finally {
+            if (profiled) {
+                stage.cost.end();
+            }
+        }
+    }
+
+    /**
+     * Create a new stage instance.
+     *
+     * @param component component class.
+     * @return new stage instance.
+     */
+    private BaseComponentVerticle create(String component) {
+        Object instance;
+        try {
+            instance = Class.forName(component).newInstance();
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Can't create component: " + component, ex);
+        }
+        checkState(instance instanceof BaseComponentVerticle && instance instanceof Fusable,
+                "The component '%s' can't be fused", component);
+        return (BaseComponentVerticle) instance;
+    }
+
+    @Override protected void checkConfig(JsonObject config) {
+        checkState(config.getJsonArray(STAGES) != null && !config.getJsonArray(STAGES).isEmpty(), "The stages is required");
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.component;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Controller of mailbox thresholds aiming at a target queueing latency.
+ * The per-worker in-flight limit follows a Vegas rule: it grows while worker latency stays close to its minimum
+ * and shrinks once packets queue up in workers.
+ * The mailbox threshold follows the throughput times the target latency and backs off like CoDel
+ * when a standing queue above the target persists over a whole interval.
+ */
+public class LatencyController {
+
+    // Vegas bounds of packets queued in a worker
+    static final int ALPHA = 2;
+    static final int BETA = 4;
+
+    // Initial per-worker in-flight limit
+    private static final int INITIAL_LIMIT = 16;
+
+    // Intervals before forgetting minimum latency
+    private static final int BASE_WINDOW = 100;
+
+    // Smoothing of latency estimate
+    private static final double SMOOTHING = 0.25;
+
+    // Settings
+    private final long target;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxThreshold;
+
+    // Values chosen
+    private int limit;
+    private int threshold;
+
+    // Samples of current interval
+    private long start;
+    private long completed = 0;
+    private long inflightSum = 0;
+    private long samples = 0;
+    private int minQueued = Integer.MAX_VALUE;
+
+    // Worker latency estimates in nanoseconds
+    private double latency = 0;
+    private double baseLatency = Double.MAX_VALUE;
+    private int intervals = 0;
+
+    /**
+     * Create a new latency controller.
+     *
+     * @param target       target queueing latency in nanoseconds.
+     * @param minLimit     minimum per-worker in-flight limit.
+     * @param maxLimit     maximum per-worker in-flight limit.
+     * @param maxThreshold maximum mailbox threshold.
+     * @param now          current time in nanoseconds.
+     */
+    public LatencyController(long target, int minLimit, int maxLimit, int maxThreshold, long now) {
+        checkArgument(target > 0, "The target must be positive");
+        checkArgument(minLimit > 0 && minLimit <= maxLimit, "The limits must be positive and ordered");
+        checkArgument(maxThreshold > 0, "The max threshold must be positive");
+        this.target = target;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxThreshold = maxThreshold;
+        this.limit = Math.min(maxLimit, Math.max(minLimit, INITIAL_LIMIT));
+        this.threshold = maxThreshold;
+        this.start = now;
+    }
+
+    /**
+     * Observe the mailbox state at a scheduling point.
+     *
+     * @param queued   number of packets waiting in mailbox.
+     * @param inflight number of packets in progress by workers.
+     */
+    public void observe(int queued, int inflight) {
+        minQueued = Math.min(minQueued, queued);
+        inflightSum += inflight;
+        samples += 1;
+    }
+
+    /**
+     * Account packets completed by workers.
+     *
+     * @param count number of packets completed.
+     */
+    public void complete(int count) {
+        completed += count;
+    }
+
+    /**
+     * Update limits at the end of an interval.
+     *
+     * @param now     current time in nanoseconds.
+     * @param workers number of workers.
+     */
+    public void update(long now, int workers) {
+        long elapsed = now - start;
+        if (completed > 0 && elapsed > 0 && samples > 0) {
+            double rate = (double) completed / elapsed;
+
+            // Worker latency based on little's law
+            double sample = ((double) inflightSum / samples) / rate;
+            latency = (latency == 0) ? sample : latency + SMOOTHING * (sample - latency);
+            if (++intervals >= BASE_WINDOW) {
+                baseLatency = latency;
+                intervals = 0;
+            }
+            baseLatency = Math.min(baseLatency, latency);
+
+            // Vegas on per-worker limit, only grow when workers are limited
+            double queuedInWorker = limit * (1 - baseLatency / latency);
+            int step = Math.max(1, limit / 16);
+            boolean limited = (double) inflightSum / samples >= (double) limit * workers / 2;
+            if (queuedInWorker > BETA) {
+                limit = Math.max(minLimit, limit - step);
+            } else if (queuedInWorker < ALPHA && limited) {
+                limit = Math.min(maxLimit, limit + step);
+            }
+
+            // Standing queue above target, back off, otherwise follow throughput
+            double standing = (minQueued == Integer.MAX_VALUE) ? 0 : minQueued / rate;
+            if (standing > target) {
+                threshold = Math.max(1, threshold - threshold / 4);
+            } else {
+                double wanted = Math.min(maxThreshold, Math.max(1, rate * target));
+                threshold = (int) Math.max(1, Math.min(maxThreshold, threshold + (wanted - threshold) / 2));
+            }
+        }
+
+        // Reset interval
+        start = now;
+        completed = 0;
+        inflightSum = 0;
+        samples = 0;
+        minQueued = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the per-worker in-flight limit.
+     *
+     * @return per-worker in-flight limit.
+     */
+    public int limit() {
+        return limit;
+    }
+
+    /**
+     * Returns the mailbox threshold.
+     *
+     * @return mailbox threshold.
+     */
+    public int threshold() {
+        return threshold;
+    }
+
+    /**
+     * Returns the estimated worker latency in nanoseconds.
+     *
+     * @return estimated worker latency in nanoseconds.
+     */
+    public long latency() {
+        return (long) latency;
+    }
+
+}
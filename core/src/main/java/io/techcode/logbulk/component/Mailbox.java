@@ -28,15 +28,25 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
 import com.google.common.collect.Sets;
 import io.techcode.logbulk.io.AppConfig;
+import io.techcode.logbulk.io.SpillQueue;
+import io.techcode.logbulk.net.FastJsonArrayCodec;
 import io.techcode.logbulk.net.Packet;
+import io.techcode.logbulk.net.PacketBatch;
+import io.techcode.logbulk.net.PacketPool;
+import io.techcode.logbulk.net.Trace;
 import io.techcode.logbulk.util.ConvertHandler;
+import io.techcode.logbulk.util.CreditHandler;
+import io.techcode.logbulk.util.json.JsonPath;
+import io.techcode.logbulk.util.metric.CostMeter;
+import io.techcode.logbulk.util.metric.MetricRegistry;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
-import lombok.AllArgsConstructor;
-import lombok.Data;
 
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkState;
 
@@ -48,36 +58,119 @@ public class Mailbox extends ComponentVerticle implements ConvertHandler {
     // Default threshold
     public static final int DEFAULT_THRESHOLD = 1000;
 
+    // Default batch settings
+    public static final int DEFAULT_BATCH = 1;
+    public static final long DEFAULT_LINGER = 0L;
+
+    // Default skew of partitions, as a factor of a fair share of threshold
+    public static final int DEFAULT_SKEW = 2;
+
+    // Default adaptive settings in milliseconds
+    public static final long DEFAULT_TARGET = 5L;
+    public static final long DEFAULT_INTERVAL = 100L;
+
+    // Fast json array
+    private static final DeliveryOptions DELIVERY_OPTIONS = new DeliveryOptions().setCodecName(FastJsonArrayCodec.CODEC_NAME);
+
     // Threshold
     private int threshold;
     private int idle;
 
+    // Batch settings
+    private int batch;
+    private long linger;
+    private long lingerTimer = -1;
+    private boolean lingered = false;
+
+    // Batch statistics
+    private long batchSent = 0;
+    private long batchPackets = 0;
+
+    // Cost of workers by name and totals at last status
+    private final Map<String, CostMeter> costs = Maps.newHashMap();
+    private long lastCpu = 0;
+    private long lastAllocated = 0;
+    private long lastProfiled = 0;
+
     // Workers
-    private final NavigableSet<Worker> workers = Sets.newTreeSet();
-    private final Map<String, Worker> workersJob = Maps.newHashMap();
+    private WorkerPool workers;
+
+    // Adaptive thresholds
+    private LatencyController controller;
+    private long adaptiveTimer = -1;
 
     // Pending packet to process
-    private final Deque<Packet> buffer = Queues.newArrayDeque();
-    private boolean fifo;
+    private FairQueue buffer;
+
+    // Packets waiting for the worker owning their partition key
+    private JsonPath partitionBy;
+    private int skew;
+    private final List<Deque<Packet>> partitions = Lists.newArrayList();
+    private int parked = 0;
+    private int owners = 0;
+
+    // Overflow spilled on disk
+    private SpillQueue spill;
+    private int memory;
+
+    // Credits granted to upstream components
+    private final Map<String, Integer> granted = Maps.newHashMap();
+    private final Map<String, Integer> windows = Maps.newHashMap();
+    private final Set<String> waiting = Sets.newLinkedHashSet();
+    private int outstanding = 0;
 
-    // Back pressure
-    private final List<String> previousPressure = Lists.newArrayListWithCapacity(1);
-    private final Set<String> nextPressure = Sets.newHashSet();
+    // Credits granted by downstream mailboxes
+    private CreditHandler credits;
 
     @Override public void start() {
         super.start();
 
         // Retrieve configuration settings
         threshold = config.getInteger(AppConfig.MAILBOX);
-        fifo = config.getBoolean(AppConfig.FIFO, true);
         idle = Math.max(1, threshold / 2);
+        batch = Math.max(1, config.getInteger(AppConfig.BATCH, DEFAULT_BATCH));
+        linger = config.getLong(AppConfig.LINGER, DEFAULT_LINGER);
         int componentCount = config.getInteger(AppConfig.INSTANCE);
         threshold *= componentCount;
+        workers = new WorkerPool(threshold, idle);
+        JsonObject adaptiveConf = config.getJsonObject(AppConfig.ADAPTIVE);
+        if (adaptiveConf != null) {
+            controller = new LatencyController(
+                    TimeUnit.MILLISECONDS.toNanos(adaptiveConf.getLong(AppConfig.TARGET, DEFAULT_TARGET)),
+                    batch, threshold, threshold, System.nanoTime());
+            applyLimits();
+            adaptiveTimer = vertx.setPeriodic(adaptiveConf.getLong(AppConfig.INTERVAL, DEFAULT_INTERVAL), h -> adapt());
+        }
+        buffer = queue(config.getBoolean(AppConfig.FIFO, true), config.getJsonObject(AppConfig.FAIR));
+        if (config.getString(AppConfig.PARTITION_BY) != null) {
+            partitionBy = JsonPath.create(config.getString(AppConfig.PARTITION_BY));
+            skew = Math.max(1, config.getInteger(AppConfig.SKEW, DEFAULT_SKEW));
+        }
+        JsonObject spillConf = config.getJsonObject(AppConfig.SPILL);
+        if (spillConf != null) {
+            memory = spillConf.getInteger(AppConfig.MEMORY, threshold);
+            spill = new SpillQueue(Paths.get(spillConf.getString(AppConfig.PATH), endpoint),
+                    spillConf.getInteger(AppConfig.SEGMENT, SpillQueue.DEFAULT_SEGMENT),
+                    spillConf.getInteger(AppConfig.SEGMENTS, SpillQueue.DEFAULT_SEGMENTS),
+                    SpillQueue.Sync.of(spillConf.getString(AppConfig.SYNC, SpillQueue.Sync.SEGMENT.name())));
+        }
+        credits = credits();
+        credits.grantHandler(h -> processBuffers());
+
+        // Metrics sampled on scrape
+        String labels = MetricRegistry.component(endpoint);
+        MetricRegistry.gauge("logbulk_mailbox_depth", "Packets waiting in mailbox.", labels, this::pending);
+        MetricRegistry.gauge("logbulk_mailbox_spilled", "Packets spilled on disk by mailbox.", labels,
+                () -> (spill != null) ? spill.getSize() : 0L);
+        MetricRegistry.gauge("logbulk_mailbox_credits", "Credits granted upstream by mailbox.", labels, () -> outstanding);
+        MetricRegistry.gauge("logbulk_worker_inflight", "Packets in progress by workers of mailbox.", labels, workers::jobs);
+        MetricRegistry.gauge("logbulk_mailbox_threshold", "Pressure threshold of mailbox.", labels, () -> threshold);
+        MetricRegistry.gauge("logbulk_worker_limit", "In-flight limit by worker of mailbox.", labels, workers::threshold);
 
         // Setup
-        getEventBus().<Packet>localConsumer(endpoint).handler(this);
+        this.<Packet>routeConsumer(endpoint).handler(this);
         getEventBus().<JsonArray>localConsumer(endpoint + ".worker").handler(this::handleWorker);
-        getEventBus().<String>localConsumer(endpoint + ".pressure").handler(this::handlePressure);
+        this.<JsonArray>routeConsumer(endpoint + ".credit").handler(this::handleCredit);
         getEventBus().<JsonObject>localConsumer(endpoint + ".status").handler(this::handleStatus);
     }
 
@@ -86,11 +179,79 @@ public class Mailbox extends ComponentVerticle implements ConvertHandler {
                 config.getInteger(AppConfig.MAILBOX) > 0, "The mailbox is required");
         checkState(config.getInteger(AppConfig.INSTANCE) != null &&
                 config.getInteger(AppConfig.INSTANCE) > 0, "The instance is required");
+        JsonObject adaptiveConf = config.getJsonObject(AppConfig.ADAPTIVE);
+        checkState(adaptiveConf == null || adaptiveConf.getLong(AppConfig.TARGET, DEFAULT_TARGET) > 0,
+                "The adaptive target must be positive");
+        checkState(adaptiveConf == null || adaptiveConf.getLong(AppConfig.INTERVAL, DEFAULT_INTERVAL) > 0,
+                "The adaptive interval must be positive");
+        JsonObject spillConf = config.getJsonObject(AppConfig.SPILL);
+        checkState(spillConf == null || spillConf.getString(AppConfig.PATH) != null, "The spill path is required");
+        JsonObject fairConf = config.getJsonObject(AppConfig.FAIR);
+        if (fairConf != null) {
+            JsonObject weights = fairConf.getJsonObject(AppConfig.WEIGHTS, new JsonObject());
+            weights.forEach(e -> checkState(e.getValue() instanceof Integer && (Integer) e.getValue() > 0,
+                    "The weight must be positive"));
+        }
+    }
+
+    /**
+     * Create the queue of pending packets.
+     *
+     * @param fifo     true to serve packets in fifo order, otherwise lifo.
+     * @param fairConf fair queueing configuration or null.
+     * @return queue of pending packets.
+     */
+    private FairQueue queue(boolean fifo, JsonObject fairConf) {
+        if (fairConf == null) {
+            return new FairQueue(fifo);
+        }
+        Map<String, Integer> weights = Maps.newHashMap();
+        fairConf.getJsonObject(AppConfig.WEIGHTS, new JsonObject()).forEach(e -> weights.put(e.getKey(), (Integer) e.getValue()));
+        return new FairQueue(fifo, FairQueue.Key.of(fairConf.getString(AppConfig.BY, FairQueue.Key.ROUTE.name())), weights);
+    }
+
+    @Override public void stop() {
+        if (adaptiveTimer != -1) {
+            vertx.cancelTimer(adaptiveTimer);
+        }
+        if (spill != null) {
+            // Pending packets are kept on disk for the next start
+            partitions.forEach(partition -> partition.forEach(this::persist));
+            while (!buffer.isEmpty()) {
+                persist(buffer.poll());
+            }
+            spill.close();
+        }
+    }
+
+    /**
+     * Persist a pending packet in the spill on stop.
+     *
+     * @param packet packet to persist.
+     */
+    private void persist(Packet packet) {
+        if (spill.append(packet)) {
+            PacketPool.recycle(packet);
+        } else {
+            log.warn("Packet dropped on stop, spill is full: " + endpoint);
+        }
     }
 
     @Override public void handle(Packet packet) {
-        handlePressure(packet);
-        if (!workers.isEmpty()) {
+        // Credit consumed by upstream, either the worker of a re-routed packet or the previous mailbox
+        Packet.Header header = packet.getHeader();
+        if (header.getUpstream() != null) {
+            arrived(header.getUpstream());
+            header.setUpstream(null);
+        } else {
+            previous(header).ifPresent(this::arrived);
+        }
+        Trace trace = packet.getHeader().getTrace();
+        if (trace != null) {
+            trace.arrive(System.nanoTime());
+        }
+        enqueue(packet);
+        if (workers.hasAvailable()) {
             processBuffers();
         }
     }
@@ -105,38 +266,91 @@ public class Mailbox extends ComponentVerticle implements ConvertHandler {
         JsonArray body = event.body();
 
         // Retrieve worker
-        String workerName = body.getString(0);
-        Worker worker = getOrCreate(workerName);
-
-        // Remove from set before anything
-        workers.remove(worker);
+        int worker = workers.register(body.getString(0));
 
         // Decrease job
-        worker.job -= (body.size() == 2) ? body.getInteger(1) : 1;
-        workersJob.put(workerName, worker);
-
-        // Check idle
-        if (worker.job < idle) workers.add(worker);
+        int count = (body.size() == 2) ? body.getInteger(1) : 1;
+        workers.release(worker, count);
+        if (controller != null) {
+            controller.complete(count);
+        }
 
         // Check if there is work to be done
         processBuffers();
     }
 
     /**
-     * Handle pressure event.
+     * Handle credit request event.
      *
      * @param event event involved.
      */
-    private void handlePressure(Message<String> event) {
-        String component = event.body();
-        if (nextPressure.contains(component)) {
-            nextPressure.remove(component);
-            if (nextPressure.isEmpty()) {
-                processBuffers();
+    private void handleCredit(Message<JsonArray> event) {
+        // Isolate body message
+        JsonArray body = event.body();
+        String upstream = body.getString(0);
+
+        // Credits left reported by upstream are authoritative
+        Integer previous = granted.put(upstream, body.getInteger(1));
+        outstanding += body.getInteger(1) - ((previous == null) ? 0 : previous);
+        windows.put(upstream, body.getInteger(2));
+        waiting.add(upstream);
+        grantCredits();
+    }
+
+    /**
+     * Account a packet received from an upstream.
+     *
+     * @param upstream upstream endpoint.
+     */
+    private void arrived(String upstream) {
+        Integer left = granted.get(upstream);
+        if (left != null && left > 0) {
+            granted.put(upstream, left - 1);
+            outstanding -= 1;
+        }
+    }
+
+    /**
+     * Grant credits to waiting upstream components according to free capacity.
+     * Partial grants are deferred until buffer is idle to avoid granting credits one by one.
+     */
+    private void grantCredits() {
+        Iterator<String> it = waiting.iterator();
+        while (it.hasNext()) {
+            String upstream = it.next();
+            int left = granted.get(upstream);
+            int wanted = windows.get(upstream) - left;
+            int grant = Math.min(wanted, capacity());
+            if (grant <= 0 || (grant < wanted && pending() >= idle)) {
+                return;
             }
-        } else {
-            nextPressure.add(component);
+            granted.put(upstream, left + grant);
+            outstanding += grant;
+            it.remove();
+            getEventBus().publish(upstream + ".grant", new JsonArray().add(endpoint).add(grant), DELIVERY_OPTIONS);
+        }
+    }
+
+    /**
+     * Returns the free capacity of the mailbox.
+     * A spilling mailbox has no limit until disk is full.
+     *
+     * @return free capacity of the mailbox.
+     */
+    private int capacity() {
+        if (spill != null && !spill.isFull()) {
+            return Integer.MAX_VALUE;
         }
+        return threshold - pending() - outstanding;
+    }
+
+    /**
+     * Returns the number of packets waiting in mailbox.
+     *
+     * @return number of packets waiting in mailbox.
+     */
+    private int pending() {
+        return buffer.size() + parked;
     }
 
     /**
@@ -146,31 +360,104 @@ public class Mailbox extends ComponentVerticle implements ConvertHandler {
      */
     private void handleStatus(Message<JsonObject> event) {
         JsonObject workerStatus = new JsonObject();
-        for (Worker worker : workers) {
-            workerStatus.put(worker.name.substring(worker.name.length() - 36), worker.job);
+        for (int i = 0; i < workers.size(); i++) {
+            String name = workers.name(i);
+            workerStatus.put(name.substring(name.length() - 36), workers.jobs(i));
         }
 
+        // Average batch size since last status
+        double achieved = (batchSent > 0) ? (double) batchPackets / batchSent : 0D;
+        batchSent = 0;
+        batchPackets = 0;
+
+        // Depth of lanes if split
+        JsonObject laneStatus = new JsonObject();
+        buffer.lanes().forEach(laneStatus::put);
+
         JsonObject message = event.body();
         message.put(endpoint, new JsonObject()
-                .put(AppConfig.MAILBOX, buffer.size())
+                .put(AppConfig.MAILBOX, pending())
                 .put(AppConfig.IDLE, idle)
                 .put(AppConfig.THRESHOLD, threshold)
+                .put(AppConfig.LIMIT, workers.threshold())
+                .put(AppConfig.LATENCY, (controller != null) ? controller.latency() : 0L)
+                .put(AppConfig.BATCH, achieved)
+                .put(AppConfig.CREDIT, outstanding)
+                .put(AppConfig.SPILL, (spill != null) ? spill.getSize() : 0L)
+                .put(AppConfig.FAIR, laneStatus)
+                .put(AppConfig.COST, cost())
                 .put(AppConfig.WORKER, workerStatus));
         event.reply(message);
     }
 
     /**
-     * Add packet in buffer and handle back pressure.
+     * Returns the cost by event of workers since last status.
+     *
+     * @return cpu time in nanoseconds and bytes allocated by event.
+     */
+    private JsonObject cost() {
+        JsonObject status = new JsonObject();
+        if (getProfiling() <= 0) {
+            return status;
+        }
+
+        // Sum costs of all workers
+        long cpu = 0;
+        long allocated = 0;
+        long profiled = 0;
+        for (int i = 0; i < workers.size(); i++) {
+            String name = workers.name(i);
+            CostMeter meter = costs.computeIfAbsent(name,
+                    k -> new CostMeter(endpoint, k.substring(k.length() - 36), getProfiling()));
+            cpu += meter.getCpu();
+            allocated += meter.getAllocated();
+            profiled += meter.getProfiled();
+        }
+
+        // Average since last status
+        long events = profiled - lastProfiled;
+        if (events > 0) {
+            status.put(AppConfig.CPU, (cpu - lastCpu) / events);
+            status.put(AppConfig.ALLOCATED, (allocated - lastAllocated) / events);
+        }
+        lastCpu = cpu;
+        lastAllocated = allocated;
+        lastProfiled = profiled;
+        return status;
+    }
+
+    /**
+     * Add packet in buffer or spill it on disk once in-memory size is exceeded.
+     * Packets are spilled as long as the spill isn't drained to keep arrival order.
      *
-     * @param packet packet to add in buffer.
+     * @param packet packet to add.
+     */
+    private void enqueue(Packet packet) {
+        if (spill != null && (!spill.isEmpty() || pending() >= memory) && spill.append(packet)) {
+            PacketPool.recycle(packet);
+        } else {
+            buffer.add(packet);
+        }
+    }
+
+    /**
+     * Replay packets spilled on disk in order while there is room in memory.
      */
-    private void handlePressure(Packet packet) {
-        buffer.add(packet);
-        if (buffer.size() > threshold) {
-            notifyPressure(previousPressure, packet.getHeader());
+    private void replay() {
+        while (pending() < memory && !spill.isEmpty()) {
+            buffer.add(spill.poll());
         }
     }
 
+    /**
+     * Put back a packet in buffer until credits are granted by the next stage.
+     *
+     * @param packet packet to put back.
+     */
+    private void defer(Packet packet) {
+        buffer.defer(packet);
+    }
+
     /**
      * Send packet to an available worker.
      *
@@ -179,22 +466,16 @@ public class Mailbox extends ComponentVerticle implements ConvertHandler {
      */
     private boolean process(Packet packet) {
         // Retrieve a worker
-        Worker worker = workers.isEmpty() ? null : workers.first();
-        if (worker == null) {
+        int worker = workers.select();
+        if (worker < 0) {
             return false;
         }
 
-        // Remove from set before anything
-        workers.remove(worker);
-
-        // Increase job
-        worker.job++;
-
-        // Evict if busy & send job
-        if (worker.job < threshold) {
-            workers.add(worker);
-        }
-        getEventBus().publish(worker.name, packet);
+        // Increase job & send job
+        workers.acquire(worker, 1);
+        consume(packet);
+        dispatched(packet);
+        getEventBus().publish(workers.name(worker), packet);
         return true;
     }
 
@@ -203,79 +484,242 @@ public class Mailbox extends ComponentVerticle implements ConvertHandler {
      */
     private void processBuffers() {
         while (processBuffer()) ;
+        if (controller != null) {
+            controller.observe(pending(), workers.jobs());
+        }
+    }
+
+    /**
+     * Update thresholds at the end of an adaptive interval.
+     */
+    private void adapt() {
+        controller.update(System.nanoTime(), workers.size());
+        applyLimits();
+
+        // Limits may have grown
+        processBuffers();
+        grantCredits();
+    }
+
+    /**
+     * Apply limits chosen by the controller.
+     */
+    private void applyLimits() {
+        int limit = controller.limit();
+        workers.resize(limit, Math.max(1, limit / 2));
+        threshold = controller.threshold();
+        idle = Math.max(1, threshold / 2);
     }
 
     /**
      * Attempt to process an body in the buffer.
      */
     private boolean processBuffer() {
+        if (spill != null) {
+            replay();
+        }
+        if (partitionBy != null) {
+            return processPartitions();
+        }
+        if (batch > 1) {
+            return processBatch();
+        }
         if (!buffer.isEmpty()) {
-            Packet packet = fifo ? buffer.pollFirst() : buffer.pollLast();
-            Optional<String> nextOpt = next(packet.getHeader());
-
-            if (nextOpt.isPresent()) {
-                if (nextPressure.contains(nextOpt.get())) {
-                    handlePressure(packet);
-                } else {
-                    return sendWorker(packet);
-                }
+            Packet packet = buffer.poll();
+            if (isPressured(packet)) {
+                defer(packet);
             } else {
-                if (nextPressure.isEmpty()) {
-                    return sendWorker(packet);
-                } else {
-                    handlePressure(packet);
-                }
+                return sendWorker(packet);
             }
         }
         return false;
     }
 
     /**
-     * Send the packet to the worker.
-     *
-     * @param packet packet to process.
-     * @return true if success, otherwise false.
+     * Attempt to process a batch of packets in the buffer.
      */
-    private boolean sendWorker(Packet packet) {
-        if (process(packet)) {
-            // Handle pressure
-            if (buffer.size() < idle && !previousPressure.isEmpty()) {
-                previousPressure.forEach(this::tooglePressure);
-                previousPressure.clear();
+    private boolean processBatch() {
+        // Retrieve a worker
+        int worker = workers.select();
+        if (worker < 0 || buffer.isEmpty()) {
+            return false;
+        }
+
+        // Wait a little bit to fill the batch
+        if (buffer.size() < batch && linger > 0 && !lingered) {
+            if (lingerTimer == -1) {
+                lingerTimer = vertx.setTimer(linger, h -> {
+                    lingerTimer = -1;
+                    lingered = true;
+                    processBuffers();
+                    lingered = false;
+                });
             }
-            return true;
-        } else {
-            handlePressure(packet);
             return false;
         }
+
+        // Drain as much as possible packets without overflowing worker
+        int limit = Math.min(batch, workers.capacity(worker));
+        PacketBatch packets = new PacketBatch(limit);
+        while (packets.size() < limit && !buffer.isEmpty()) {
+            Packet packet = buffer.poll();
+            if (isPressured(packet)) {
+                defer(packet);
+                break;
+            }
+            consume(packet);
+            dispatched(packet);
+            packets.add(packet);
+        }
+        if (packets.isEmpty()) {
+            return false;
+        }
+
+        // Increase job & send jobs
+        workers.acquire(worker, packets.size());
+        getEventBus().publish(workers.name(worker) + ".batch", packets);
+        batchSent += 1;
+        batchPackets += packets.size();
+
+        // Handle pressure
+        grantCredits();
+        return true;
+    }
+
+    /**
+     * Attempt to route packets to the partition of their key and process partitions.
+     * A partition is bounded by a skewed share of the threshold, a hot key filling it holds back routing.
+     * Keys only move to a new worker once packets parked and in flight have been drained, routing is held back meanwhile.
+     */
+    private boolean processPartitions() {
+        // Fence keys moving to new workers
+        if (owners < workers.size() && parked == 0 && workers.jobs() == 0) {
+            owners = workers.size();
+        }
+
+        // Route packets in buffer order
+        int bound = Math.max(batch, skew * threshold / Math.max(1, owners));
+        while (owners == workers.size() && !buffer.isEmpty()) {
+            Packet packet = buffer.poll();
+            Object key = partitionBy.get(packet.getBody());
+            int worker = workers.partition((key != null) ? key.hashCode() : 0, owners);
+            if (worker < 0 || partition(worker).size() >= bound) {
+                defer(packet);
+                break;
+            }
+            partition(worker).addLast(packet);
+            parked += 1;
+        }
+
+        // Each partition is only processed by its worker
+        boolean processed = false;
+        for (int i = 0; i < partitions.size(); i++) {
+            processed |= processPartition(i);
+        }
+        if (processed) {
+            // Handle pressure
+            grantCredits();
+        }
+        return processed;
+    }
+
+    /**
+     * Attempt to send packets of a partition to its worker.
+     *
+     * @param worker index of the worker.
+     * @return true if packets have been sent, otherwise false.
+     */
+    private boolean processPartition(int worker) {
+        Deque<Packet> partition = partitions.get(worker);
+        if (partition.isEmpty() || !workers.isAvailable(worker) || isPressured(partition.peekFirst())) {
+            return false;
+        }
+        if (batch == 1) {
+            Packet packet = partition.pollFirst();
+            parked -= 1;
+            workers.acquire(worker, 1);
+            consume(packet);
+            dispatched(packet);
+            getEventBus().publish(workers.name(worker), packet);
+            return true;
+        }
+
+        // Drain as much as possible packets without overflowing worker
+        int limit = Math.max(1, Math.min(batch, workers.capacity(worker)));
+        PacketBatch packets = new PacketBatch(limit);
+        while (packets.size() < limit && !partition.isEmpty() && !isPressured(partition.peekFirst())) {
+            Packet packet = partition.pollFirst();
+            consume(packet);
+            dispatched(packet);
+            packets.add(packet);
+        }
+        parked -= packets.size();
+        workers.acquire(worker, packets.size());
+        getEventBus().publish(workers.name(worker) + ".batch", packets);
+        batchSent += 1;
+        batchPackets += packets.size();
+        return true;
     }
 
     /**
-     * Get or create a worker based on his name.
+     * Returns the partition of a worker.
      *
-     * @param workerName worker name.
-     * @return a worker.
+     * @param worker index of the worker.
+     * @return partition of the worker.
      */
-    private Worker getOrCreate(String workerName) {
-        Worker worker = workersJob.get(workerName);
-        if (worker != null) {
-            return worker;
-        } else {
-            return new Worker(workerName, 0);
+    private Deque<Packet> partition(int worker) {
+        while (partitions.size() <= worker) {
+            partitions.add(Queues.newArrayDeque());
+        }
+        return partitions.get(worker);
+    }
+
+    /**
+     * Returns true if the next stage of the packet has no credits left.
+     *
+     * @param packet packet involved.
+     * @return true if the next stage of the packet has no credits left, otherwise false.
+     */
+    private boolean isPressured(Packet packet) {
+        Optional<String> nextOpt = next(packet.getHeader());
+        return nextOpt.isPresent() && !credits.hasCredit(nextOpt.get());
+    }
+
+    /**
+     * Account the time spent in mailbox by a sampled packet.
+     *
+     * @param packet packet dispatched.
+     */
+    private void dispatched(Packet packet) {
+        Trace trace = packet.getHeader().getTrace();
+        if (trace != null) {
+            trace.dispatch(System.nanoTime());
         }
     }
 
     /**
-     * Worker component representation.
+     * Consume a credit of the next stage of the packet.
+     *
+     * @param packet packet involved.
+     */
+    private void consume(Packet packet) {
+        next(packet.getHeader()).ifPresent(credits::consume);
+    }
+
+    /**
+     * Send the packet to the worker.
+     *
+     * @param packet packet to process.
+     * @return true if success, otherwise false.
      */
-    @AllArgsConstructor
-    @Data
-    private class Worker implements Comparable<Worker> {
-        private final String name;
-        private int job;
-
-        @Override public int compareTo(Worker o) {
-            return Integer.compare(job, o.job);
+    private boolean sendWorker(Packet packet) {
+        if (process(packet)) {
+            // Handle pressure
+            grantCredits();
+            return true;
+        } else {
+            defer(packet);
+            return false;
         }
     }
 
@@ -0,0 +1,253 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.component;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import io.techcode.logbulk.io.AppConfig;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Stage fusion compiler.
+ * Rewrite routes by replacing each run of consecutive fusable transforms with a single fused stage.
+ * A transform whose mailbox settings differ from the head of the run starts a new run.
+ */
+public class StageFusion {
+
+    // Some constants
+    public static final String SEPARATOR = "+";
+    private static final Joiner JOINER = Joiner.on(SEPARATOR);
+    private static final Splitter SPLITTER = Splitter.on(SEPARATOR);
+
+    // Mailbox settings inherited from the head of a run
+    private static final String[] MAILBOX_SETTINGS = {
+            AppConfig.FIFO, AppConfig.MAILBOX, AppConfig.BATCH, AppConfig.LINGER,
+            AppConfig.SPILL, AppConfig.FAIR, AppConfig.ADAPTIVE
+    };
+
+    // Mailbox settings starting a new run when set
+    private static final String[] HEAD_SETTINGS = {AppConfig.SPILL, AppConfig.FAIR, AppConfig.ADAPTIVE};
+
+    // Logging
+    private final Logger log = LoggerFactory.getLogger(getClass().getName());
+
+    // Rewritten routes
+    @Getter private final JsonObject routes = new JsonObject();
+
+    // Fused stages configuration by endpoint
+    @Getter private final Map<String, JsonObject> stages = Maps.newLinkedHashMap();
+
+    // Transforms only reached through fused stages
+    @Getter private final Set<String> replaced = Sets.newHashSet();
+
+    // Transforms configuration by endpoint
+    private final Map<String, JsonObject> transforms;
+
+    // Component class resolver
+    private final Function<String, String> resolver;
+
+    /**
+     * Create a new stage fusion compiler.
+     *
+     * @param routes     routes to rewrite.
+     * @param transforms transforms configuration by endpoint.
+     * @param resolver   component class resolver by endpoint.
+     */
+    public StageFusion(@NonNull JsonObject routes, @NonNull Map<String, JsonObject> transforms, @NonNull Function<String, String> resolver) {
+        this.transforms = transforms;
+        this.resolver = resolver;
+        for (String route : routes.fieldNames()) {
+            this.routes.put(route, compile(routes.getJsonArray(route)));
+        }
+
+        // Members still reached outside of a fused stage must be deployed
+        stages.keySet().forEach(endpoint -> SPLITTER.split(endpoint).forEach(replaced::add));
+        this.routes.forEach(route -> ((JsonArray) route.getValue()).forEach(replaced::remove));
+    }
+
+    /**
+     * Returns the endpoint of a member of a fused stage.
+     *
+     * @param endpoint endpoint of the fused stage.
+     * @param member   index of the member.
+     * @return endpoint of the member or null.
+     */
+    public static String member(@NonNull String endpoint, int member) {
+        return Iterables.get(SPLITTER.split(endpoint), member, null);
+    }
+
+    /**
+     * Compile a route.
+     *
+     * @param route route to compile.
+     * @return compiled route.
+     */
+    private JsonArray compile(JsonArray route) {
+        JsonArray compiled = new JsonArray();
+        List<String> run = Lists.newArrayList();
+
+        // Input is never fused
+        for (int i = 0; i < route.size(); i++) {
+            String endpoint = route.getString(i);
+            if (i > 0 && isFusable(endpoint)) {
+                // Mailbox behaviour is only kept at the head of a run
+                if (isHead(endpoint) || (!run.isEmpty() && conflicts(run.get(0), endpoint))) {
+                    flush(compiled, run);
+                }
+                run.add(endpoint);
+            } else {
+                flush(compiled, run);
+                compiled.add(endpoint);
+            }
+        }
+        flush(compiled, run);
+        return compiled;
+    }
+
+    /**
+     * Flush a run of fusable transforms in a compiled route.
+     *
+     * @param compiled compiled route.
+     * @param run      run of fusable transforms.
+     */
+    private void flush(JsonArray compiled, List<String> run) {
+        if (run.size() == 1) {
+            compiled.add(run.get(0));
+        } else if (run.size() > 1) {
+            String endpoint = JOINER.join(run);
+            stages.computeIfAbsent(endpoint, k -> fuse(run));
+            compiled.add(endpoint);
+        }
+        run.clear();
+    }
+
+    /**
+     * Create the configuration of a fused stage.
+     *
+     * @param run run of fusable transforms.
+     * @return configuration of the fused stage.
+     */
+    private JsonObject fuse(List<String> run) {
+        JsonObject first = transforms.get(run.get(0));
+        JsonArray definitions = new JsonArray();
+        int instance = 1;
+        for (String endpoint : run) {
+            JsonObject conf = transforms.get(endpoint);
+            instance = Math.max(instance, conf.getInteger(AppConfig.INSTANCE, 1));
+            definitions.add(new JsonObject()
+                    .put(AppConfig.ENDPOINT, endpoint)
+                    .put(FusedStage.COMPONENT, resolver.apply(endpoint))
+                    .put(FusedStage.CONFIG, conf));
+        }
+
+        // Mailbox settings are inherited from the head of the run
+        JsonObject conf = new JsonObject()
+                .put(FusedStage.STAGES, definitions)
+                .put(AppConfig.INSTANCE, instance);
+        for (String key : MAILBOX_SETTINGS) {
+            if (first.containsKey(key)) {
+                conf.put(key, first.getValue(key));
+            }
+        }
+        return conf;
+    }
+
+    /**
+     * Returns true if the mailbox settings of an endpoint differ from the ones of the head of a run.
+     *
+     * @param head     head of the run.
+     * @param endpoint endpoint to check.
+     * @return true if the mailbox settings differ, otherwise false.
+     */
+    private boolean conflicts(String head, String endpoint) {
+        JsonObject first = transforms.get(head);
+        JsonObject conf = transforms.get(endpoint);
+        for (String key : MAILBOX_SETTINGS) {
+            if (conf.containsKey(key) && !Objects.equals(conf.getValue(key), first.getValue(key))) {
+                log.warn("The component '" + endpoint + "' isn't fused with '" + head + "', their " + key + " settings differ");
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the endpoint must be the head of a run to keep its mailbox behaviour.
+     *
+     * @param endpoint endpoint to check.
+     * @return true if the endpoint must be the head of a run, otherwise false.
+     */
+    private boolean isHead(String endpoint) {
+        JsonObject conf = transforms.get(endpoint);
+        for (String key : HEAD_SETTINGS) {
+            if (conf.containsKey(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the endpoint can be fused.
+     *
+     * @param endpoint endpoint to check.
+     * @return true if the endpoint can be fused, otherwise false.
+     */
+    private boolean isFusable(String endpoint) {
+        JsonObject conf = transforms.get(endpoint);
+        if (conf == null || !conf.getBoolean(AppConfig.FUSION, true) || conf.getBoolean(AppConfig.WORKER, false)) {
+            return false;
+        }
+
+        // Partitioned components rely on their own mailbox
+        if (conf.containsKey(AppConfig.PARTITION_BY)) {
+            return false;
+        }
+        String component = resolver.apply(endpoint);
+        if (component == null) {
+            return false;
+        }
+        try {
+            return Fusable.class.isAssignableFrom(Class.forName(component));
+        } catch (ClassNotFoundException ex) {
+            return false;
+        }
+    }
+
+}
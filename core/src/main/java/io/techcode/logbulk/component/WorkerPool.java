@@ -0,0 +1,348 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.component;
+
+import com.google.common.collect.Maps;
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Worker pool implementation.
+ * Workers are stored in primitive arrays and selected in constant time using power-of-two-choices.
+ * Available workers are kept in a dense array, so choices are only drawn among them.
+ */
+public class WorkerPool {
+
+    // Default capacity
+    private static final int DEFAULT_CAPACITY = 4;
+
+    // Thresholds
+    private int threshold;
+    private int idle;
+
+    // Workers state
+    private String[] names = new String[DEFAULT_CAPACITY];
+    private int[] jobs = new int[DEFAULT_CAPACITY];
+    private boolean[] available = new boolean[DEFAULT_CAPACITY];
+    private final Map<String, Integer> index = Maps.newHashMap();
+    private int size = 0;
+    private int inflight = 0;
+
+    // Available workers, first ones of free, and position of each worker in free
+    private int[] free = new int[DEFAULT_CAPACITY];
+    private int[] positions = new int[DEFAULT_CAPACITY];
+    private int availables = 0;
+
+    // Selection state
+    private int seed = 0x9E3779B9;
+
+    /**
+     * Create a new worker pool.
+     *
+     * @param threshold number of jobs before a worker is considered busy.
+     * @param idle      number of jobs under which a busy worker is available again.
+     */
+    public WorkerPool(int threshold, int idle) {
+        checkArgument(threshold > 0, "The threshold must be positive");
+        checkArgument(idle > 0, "The idle must be positive");
+        this.threshold = threshold;
+        this.idle = idle;
+    }
+
+    /**
+     * Returns the index of a worker, registering it if unknown.
+     *
+     * @param name worker name.
+     * @return index of the worker.
+     */
+    public int register(@NonNull String name) {
+        Integer idx = index.get(name);
+        if (idx != null) {
+            return idx;
+        }
+
+        // Grow if needed
+        if (size == names.length) {
+            int capacity = size << 1;
+            names = Arrays.copyOf(names, capacity);
+            jobs = Arrays.copyOf(jobs, capacity);
+            available = Arrays.copyOf(available, capacity);
+            free = Arrays.copyOf(free, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+        }
+
+        // Register worker as available
+        names[size] = name;
+        jobs[size] = 0;
+        index.put(name, size);
+        enable(size);
+        return size++;
+    }
+
+    /**
+     * Select an available worker.
+     *
+     * @return index of the selected worker or -1 if no worker is available.
+     */
+    public int select() {
+        if (availables == 0) {
+            return -1;
+        }
+        if (availables == 1) {
+            return free[0];
+        }
+
+        // Power of two choices among available workers
+        int i = next();
+        int j = next();
+        if (j == i) {
+            j = (j + 1) % availables;
+        }
+        int first = free[i];
+        int second = free[j];
+        return jobs[first] <= jobs[second] ? first : second;
+    }
+
+    /**
+     * Select the worker owning a partition key using rendezvous hashing.
+     * A key keeps its worker as long as the worker is registered, whatever its load.
+     *
+     * @param hash hash of the partition key.
+     * @return index of the worker or -1 if no worker is registered.
+     */
+    public int partition(int hash) {
+        return partition(hash, size);
+    }
+
+    /**
+     * Select the worker owning a partition key among the first registered workers.
+     * Registering a worker only moves keys to it, a caller can fence them until it is safe.
+     *
+     * @param hash  hash of the partition key.
+     * @param count number of workers owning keys.
+     * @return index of the worker or -1 if no worker owns keys.
+     */
+    public int partition(int hash, int count) {
+        int key = mix(hash);
+        int selected = -1;
+        int best = 0;
+        for (int i = 0; i < Math.min(count, size); i++) {
+            int score = mix(key ^ names[i].hashCode());
+            if (selected < 0 || Integer.compareUnsigned(score, best) > 0) {
+                selected = i;
+                best = score;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Assign jobs to a worker.
+     *
+     * @param idx   index of the worker.
+     * @param count number of jobs.
+     */
+    public void acquire(int idx, int count) {
+        jobs[idx] += count;
+        inflight += count;
+
+        // Evict if busy
+        if (available[idx] && jobs[idx] >= threshold) {
+            disable(idx);
+        }
+    }
+
+    /**
+     * Release jobs of a worker.
+     *
+     * @param idx   index of the worker.
+     * @param count number of jobs.
+     */
+    public void release(int idx, int count) {
+        jobs[idx] -= count;
+        inflight -= count;
+
+        // Check idle
+        boolean idling = jobs[idx] < idle;
+        if (idling && !available[idx]) {
+            enable(idx);
+        } else if (!idling && available[idx]) {
+            disable(idx);
+        }
+    }
+
+    /**
+     * Change thresholds and update availability of workers.
+     *
+     * @param threshold number of jobs before a worker is considered busy.
+     * @param idle      number of jobs under which a busy worker is available again.
+     */
+    public void resize(int threshold, int idle) {
+        checkArgument(threshold > 0, "The threshold must be positive");
+        checkArgument(idle > 0, "The idle must be positive");
+        this.threshold = threshold;
+        this.idle = idle;
+        for (int i = 0; i < size; i++) {
+            if (available[i] && jobs[i] >= threshold) {
+                disable(i);
+            } else if (!available[i] && jobs[i] < idle) {
+                enable(i);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of jobs before a worker is considered busy.
+     *
+     * @return number of jobs before a worker is considered busy.
+     */
+    public int threshold() {
+        return threshold;
+    }
+
+    /**
+     * Returns true if a worker is available.
+     *
+     * @param idx index of the worker.
+     * @return true if the worker is available, otherwise false.
+     */
+    public boolean isAvailable(int idx) {
+        return available[idx];
+    }
+
+    /**
+     * Returns the number of jobs a worker can still accept.
+     *
+     * @param idx index of the worker.
+     * @return number of jobs a worker can still accept.
+     */
+    public int capacity(int idx) {
+        return threshold - jobs[idx];
+    }
+
+    /**
+     * Returns the number of jobs in progress for a worker.
+     *
+     * @param idx index of the worker.
+     * @return number of jobs in progress.
+     */
+    public int jobs(int idx) {
+        return jobs[idx];
+    }
+
+    /**
+     * Returns the number of jobs in progress for all workers.
+     *
+     * @return number of jobs in progress.
+     */
+    public int jobs() {
+        return inflight;
+    }
+
+    /**
+     * Returns the name of a worker.
+     *
+     * @param idx index of the worker.
+     * @return name of the worker.
+     */
+    public String name(int idx) {
+        return names[idx];
+    }
+
+    /**
+     * Returns the number of workers.
+     *
+     * @return number of workers.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if at least one worker is available.
+     *
+     * @return true if at least one worker is available, otherwise false.
+     */
+    public boolean hasAvailable() {
+        return availables > 0;
+    }
+
+    /**
+     * Mark a worker as available.
+     *
+     * @param idx index of the worker.
+     */
+    private void enable(int idx) {
+        available[idx] = true;
+        free[availables] = idx;
+        positions[idx] = availables;
+        availables += 1;
+    }
+
+    /**
+     * Mark a worker as busy, the last available worker takes its place.
+     *
+     * @param idx index of the worker.
+     */
+    private void disable(int idx) {
+        available[idx] = false;
+        availables -= 1;
+        int last = free[availables];
+        free[positions[idx]] = last;
+        positions[last] = positions[idx];
+    }
+
+    /**
+     * Mix bits of a hash, finalizer of murmur3.
+     *
+     * @param hash hash to mix.
+     * @return hash mixed.
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * Returns a pseudo random position among available workers.
+     *
+     * @return pseudo random position among available workers.
+     */
+    private int next() {
+        // Xorshift is good enough to spread load
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return (seed & Integer.MAX_VALUE) % availables;
+    }
+
+}
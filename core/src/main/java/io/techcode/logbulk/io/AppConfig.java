@@ -58,6 +58,36 @@ public class AppConfig {
     public static final String THRESHOLD = "threshold";
     public static final String FALLBACK = "fallback";
     public static final String TRACING = "tracing";
+    public static final String PROFILING = "profiling";
+    public static final String COST = "cost";
+    public static final String CPU = "cpu";
+    public static final String ALLOCATED = "allocated";
+    public static final String BATCH = "batch";
+    public static final String LINGER = "linger";
+    public static final String FUSION = "fusion";
+    public static final String RECYCLING = "recycling";
+    public static final String LEAK_DETECTION = "leakDetection";
+    public static final String CREDIT = "credit";
+    public static final String SPILL = "spill";
+    public static final String PATH = "path";
+    public static final String MEMORY = "memory";
+    public static final String SEGMENT = "segment";
+    public static final String SEGMENTS = "segments";
+    public static final String SYNC = "sync";
+    public static final String METRIC = "metric";
+    public static final String HOST = "host";
+    public static final String PORT = "port";
+    public static final String FAIR = "fair";
+    public static final String BY = "by";
+    public static final String WEIGHTS = "weights";
+    public static final String ADAPTIVE = "adaptive";
+    public static final String TARGET = "target";
+    public static final String INTERVAL = "interval";
+    public static final String LIMIT = "limit";
+    public static final String LATENCY = "latency";
+    public static final String PARTITION_BY = "partitionBy";
+    public static final String SKEW = "skew";
+    public static final String WHEN = "when";
 
     // Configuration wrapped
     private final Config config;
@@ -0,0 +1,448 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.io;
+
+import com.google.common.collect.Queues;
+import io.netty.buffer.Unpooled;
+import io.techcode.logbulk.net.Packet;
+import io.techcode.logbulk.net.PacketCodec;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Disk-backed queue of packets.
+ * Packets are appended as length-prefixed wire records to memory-mapped segment files and polled in order.
+ * Drained segments are recycled instead of being deleted and mapped again.
+ * Segments left with packets are kept on close and recovered on creation, each one stores its read position.
+ */
+public class SpillQueue implements AutoCloseable {
+
+    // Default settings
+    public static final int DEFAULT_SEGMENT = 64 * 1024 * 1024;
+    public static final int DEFAULT_SEGMENTS = 16;
+
+    // Segments kept mapped for reuse
+    static final int RECYCLED = 2;
+
+    // Size of length prefix
+    private static final int PREFIX = 4;
+
+    // Size of segment header holding the read position
+    private static final int HEADER = 4;
+
+    // Extension of segment files
+    private static final String EXTENSION = ".spill";
+
+    // Logging
+    private final Logger log = LoggerFactory.getLogger(getClass().getName());
+
+    // Packet encoding
+    private final PacketCodec codec = new PacketCodec();
+
+    // Settings
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final Sync sync;
+
+    // Segments in use, read from head and written to tail
+    private final Deque<Segment> segments = Queues.newArrayDeque();
+
+    // Segments drained and ready to be reused
+    private final Deque<Segment> recycled = Queues.newArrayDeque();
+
+    // Sequence used to name segments
+    private int sequence = 0;
+
+    // Number of packets spilled
+    @Getter private long size = 0;
+
+    /**
+     * Create a new spill queue.
+     *
+     * @param directory   directory of segment files.
+     * @param segmentSize size of a segment in bytes.
+     * @param maxSegments maximum number of segments in use.
+     * @param sync        sync policy of segments.
+     */
+    public SpillQueue(@NonNull Path directory, int segmentSize, int maxSegments, @NonNull Sync sync) {
+        checkArgument(segmentSize > HEADER + PREFIX, "The segment size must be greater than " + (HEADER + PREFIX));
+        checkArgument(maxSegments > 0, "The max segments must be positive");
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.sync = sync;
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Recover segments left by a previous queue in the directory, in creation order.
+     *
+     * @throws IOException if the directory can't be listed.
+     */
+    private void recover() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(p -> p.getFileName().toString().endsWith(EXTENSION)).sorted().collect(Collectors.toList());
+        }
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+            sequence = Math.max(sequence, Integer.parseInt(name.substring(0, name.length() - EXTENSION.length())) + 1);
+            Segment segment = new Segment(path, segmentSize, true);
+            if (segment.isReadable()) {
+                size += segment.count();
+                segments.addLast(segment);
+            } else {
+                segment.close(true);
+            }
+        }
+        if (size > 0) {
+            log.info("Recovered " + size + " packets spilled in: " + directory);
+        }
+    }
+
+    /**
+     * Returns true if there is no packet spilled.
+     *
+     * @return true if there is no packet spilled, otherwise false.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns true if no more segment can be allocated.
+     *
+     * @return true if no more segment can be allocated, otherwise false.
+     */
+    public boolean isFull() {
+        return segments.size() >= maxSegments && segments.peekLast().remaining() <= PREFIX;
+    }
+
+    /**
+     * Append a packet at the end of the queue.
+     * The packet isn't released and must be recycled by the caller on success.
+     *
+     * @param packet packet to append.
+     * @return true if the packet has been spilled, otherwise false if the record is too large or the queue is full.
+     */
+    public boolean append(@NonNull Packet packet) {
+        // Encode packet
+        Buffer record = Buffer.buffer();
+        codec.encodeToWire(record, packet);
+        int length = record.length() + PREFIX;
+        if (length > segmentSize - HEADER) {
+            return false;
+        }
+
+        // Roll segment if needed
+        Segment tail = segments.peekLast();
+        if (tail == null || tail.remaining() < length) {
+            if (segments.size() >= maxSegments) {
+                return false;
+            }
+            if (tail != null && sync == Sync.SEGMENT) {
+                tail.force();
+            }
+            tail = allocate();
+            segments.addLast(tail);
+        }
+
+        // Write record
+        tail.write(record);
+        if (sync == Sync.ALWAYS) {
+            tail.force();
+        }
+        size += 1;
+        return true;
+    }
+
+    /**
+     * Poll the packet at the head of the queue.
+     *
+     * @return packet polled or null if the queue is empty.
+     */
+    public Packet poll() {
+        Segment head = segments.peekFirst();
+        if (head == null || !head.isReadable()) {
+            return null;
+        }
+        Packet packet = codec.decodeFromWire(0, head.read());
+        size -= 1;
+
+        // Recycle drained segment
+        if (!head.isReadable()) {
+            segments.pollFirst();
+            recycle(head);
+        }
+        return packet;
+    }
+
+    /**
+     * Close the queue, segments left with packets are kept for the next queue on the same directory.
+     */
+    @Override public void close() {
+        for (Segment segment : segments) {
+            boolean drained = !segment.isReadable();
+            if (!drained && sync != Sync.NONE) {
+                segment.force();
+            }
+            segment.close(drained);
+        }
+        recycled.forEach(segment -> segment.close(true));
+        segments.clear();
+        recycled.clear();
+        size = 0;
+    }
+
+    /**
+     * Allocate a segment by reusing a recycled one if possible.
+     *
+     * @return segment allocated.
+     */
+    private Segment allocate() {
+        Segment segment = recycled.pollFirst();
+        if (segment == null) {
+            segment = new Segment(directory.resolve(String.format(Locale.ROOT, "%08d", sequence++) + EXTENSION), segmentSize, false);
+        }
+        return segment;
+    }
+
+    /**
+     * Recycle a drained segment or delete it if enough segments are recycled.
+     *
+     * @param segment segment to recycle.
+     */
+    private void recycle(Segment segment) {
+        if (recycled.size() < RECYCLED) {
+            segment.reset();
+            recycled.addLast(segment);
+        } else {
+            segment.close(true);
+        }
+    }
+
+    /**
+     * Sync policy of segment files.
+     */
+    public enum Sync {
+        // Left to the operating system
+        NONE,
+        // Force each segment once full
+        SEGMENT,
+        // Force after each record
+        ALWAYS;
+
+        /**
+         * Returns the sync policy matching the name.
+         *
+         * @param name name of the sync policy.
+         * @return sync policy.
+         */
+        public static Sync of(@NonNull String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Append-only memory-mapped segment file.
+     * A record is terminated by a zero length, its length is written last so a torn record is never read.
+     */
+    private class Segment {
+
+        // File of the segment
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer mapped;
+
+        // Positions
+        private int writePos = HEADER;
+        private int readPos = HEADER;
+
+        /**
+         * Create a new segment.
+         *
+         * @param path    path of the segment file.
+         * @param size    size of the segment.
+         * @param recover true to recover records of an existing file, otherwise false to start empty.
+         */
+        Segment(Path path, int size, boolean recover) {
+            this.path = path;
+            try {
+                if (recover) {
+                    channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size()));
+                } else {
+                    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                    mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            if (recover) {
+                scan();
+            } else {
+                reset();
+            }
+        }
+
+        /**
+         * Restore positions from the segment content.
+         */
+        private void scan() {
+            while (writePos + PREFIX <= mapped.capacity()) {
+                int length = mapped.getInt(writePos);
+                if (length <= 0 || writePos + PREFIX + length > mapped.capacity()) {
+                    break;
+                }
+                writePos += PREFIX + length;
+            }
+            readPos = Math.min(Math.max(HEADER, mapped.getInt(0)), writePos);
+        }
+
+        /**
+         * Returns the number of records left for reading.
+         *
+         * @return number of records left for reading.
+         */
+        int count() {
+            int count = 0;
+            for (int pos = readPos; pos < writePos; pos += PREFIX + mapped.getInt(pos)) {
+                count += 1;
+            }
+            return count;
+        }
+
+        /**
+         * Returns the number of bytes left for writing.
+         *
+         * @return number of bytes left for writing.
+         */
+        int remaining() {
+            return mapped.capacity() - writePos;
+        }
+
+        /**
+         * Returns true if records are left for reading.
+         *
+         * @return true if records are left for reading, otherwise false.
+         */
+        boolean isReadable() {
+            return readPos < writePos;
+        }
+
+        /**
+         * Write a length-prefixed record.
+         *
+         * @param record record to write.
+         */
+        void write(Buffer record) {
+            ByteBuffer target = mapped.duplicate();
+            target.position(writePos + PREFIX);
+            target.put(record.getByteBuf().nioBuffer());
+            int next = writePos + PREFIX + record.length();
+            if (next + PREFIX <= mapped.capacity()) {
+                mapped.putInt(next, 0);
+            }
+            mapped.putInt(writePos, record.length());
+            writePos = next;
+        }
+
+        /**
+         * Read the next record without copy.
+         * The record is only valid until the segment is reused.
+         *
+         * @return record read.
+         */
+        Buffer read() {
+            int length = mapped.getInt(readPos);
+            ByteBuffer source = mapped.duplicate();
+            source.position(readPos + PREFIX);
+            source.limit(readPos + PREFIX + length);
+            readPos += PREFIX + length;
+            mapped.putInt(0, readPos);
+            return Buffer.buffer(Unpooled.wrappedBuffer(source.slice()));
+        }
+
+        /**
+         * Force written records to disk.
+         */
+        void force() {
+            mapped.force();
+        }
+
+        /**
+         * Reset the segment to be reused.
+         */
+        void reset() {
+            writePos = HEADER;
+            readPos = HEADER;
+            mapped.putInt(0, readPos);
+            mapped.putInt(writePos, 0);
+        }
+
+        /**
+         * Close the segment.
+         *
+         * @param delete true to delete the segment file, otherwise false.
+         */
+        void close(boolean delete) {
+            try {
+                channel.close();
+                if (delete) {
+                    Files.deleteIfExists(path);
+                }
+            } catch (IOException ex) {
+                log.error("Failed to close segment: " + path, ex);
+            }
+        }
+
+    }
+
+}
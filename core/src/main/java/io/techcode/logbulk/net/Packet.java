@@ -23,9 +23,15 @@
  */
 package io.techcode.logbulk.net;
 
+import io.netty.util.Recycler;
+import io.techcode.logbulk.util.json.LazyJsonObject;
+import io.techcode.logbulk.util.json.SharedJsonObject;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import lombok.*;
+import org.apache.commons.lang3.StringUtils;
 
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -33,20 +39,115 @@ import java.util.Objects;
  */
 @Getter
 @Setter
-@Builder
-@ToString
+@ToString(of = {"header", "body"})
 public class Packet {
 
     @NonNull private Header header;
-    @NonNull private JsonObject body;
+    @Setter(AccessLevel.NONE) @NonNull private JsonObject body;
 
+    // Pool lifecycle
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) private final Recycler.Handle<Packet> handle;
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) private int refCnt;
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) private PacketLeakDetector.Leak leak;
+
+    @Builder
+    private Packet(@NonNull Header header, @NonNull JsonObject body) {
+        this.header = header;
+        this.body = own(body);
+        this.handle = null;
+    }
+
+    /**
+     * Create a new pooled packet.
+     *
+     * @param handle recycler handle.
+     */
+    Packet(@NonNull Recycler.Handle<Packet> handle) {
+        this.header = new Header(StringUtils.EMPTY, -1, -1, -1, 0);
+        this.body = own(new JsonObject());
+        this.handle = handle;
+    }
+
+    /**
+     * Sets the body of the packet.
+     * A plain json object is owned by the packet and must only be mutated through the packet afterwards.
+     *
+     * @param body body of the packet.
+     */
+    public void setBody(@NonNull JsonObject body) {
+        this.body = own(body);
+    }
+
+    /**
+     * Copy the packet.
+     * The body is shared by both packets and only copied at the first write.
+     *
+     * @return copy of the packet.
+     */
     public Packet copy() {
+        if (PacketPool.isEnabled()) {
+            return PacketPool.copy(this);
+        }
         return Packet.builder()
                 .header(header.copy())
                 .body(body.copy())
                 .build();
     }
 
+    /**
+     * Wrap a body in a copy-on-write view once, so copies never change the body of the packet.
+     *
+     * @param body body of the packet.
+     * @return body owned by the packet.
+     */
+    private static JsonObject own(JsonObject body) {
+        return (body instanceof LazyJsonObject) ? body : SharedJsonObject.wrap(body);
+    }
+
+    /**
+     * Retain the packet until a matching recycle.
+     * Must be called by components keeping a reference on a packet after forwarding it.
+     *
+     * @return same object for chaining.
+     */
+    public Packet retain() {
+        refCnt += 1;
+        return this;
+    }
+
+    /**
+     * Prepare the packet to be handed out by the pool.
+     *
+     * @param leak leak tracker or null.
+     */
+    void acquire(PacketLeakDetector.Leak leak) {
+        this.refCnt = 1;
+        this.leak = leak;
+    }
+
+    /**
+     * Release a reference on the packet.
+     *
+     * @return true if the packet can be recycled, otherwise false.
+     */
+    boolean release() {
+        if (handle == null || refCnt <= 0 || --refCnt > 0) {
+            return false;
+        }
+        if (leak != null) {
+            leak.close();
+            leak = null;
+        }
+        return true;
+    }
+
+    /**
+     * Return the packet to his pool.
+     */
+    void recycle() {
+        handle.recycle(this);
+    }
+
     @Override public final boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof Packet)) return false;
@@ -59,16 +160,54 @@ public class Packet {
         return Objects.hash(header, body);
     }
 
+    /**
+     * Packet header with typed routing metadata and lazily allocated plugin attributes.
+     * The upstream is only set on re-routed packets, it names the worker holding the credit consumed by the packet.
+     */
     @Getter
     @Setter
-    @Builder
-    @ToString
-    public static class Header extends JsonObject {
+    @ToString(exclude = {"trace", "attributes"})
+    public static class Header {
         @NonNull private String source;
-        @NonNull private String route;
-        private String oldRoute;
+        private int route;
+        private int oldRoute;
         private int previous;
         private int current;
+        private String upstream;
+        private Trace trace;
+        @Setter(AccessLevel.NONE) private JsonObject attributes;
+
+        @Builder
+        private Header(@NonNull String source, @NonNull String route, String oldRoute, int previous, int current) {
+            this(source, RouteTable.id(route), (oldRoute != null) ? RouteTable.id(oldRoute) : -1, previous, current);
+        }
+
+        private Header(String source, int route, int oldRoute, int previous, int current) {
+            this.source = source;
+            this.route = route;
+            this.oldRoute = oldRoute;
+            this.previous = previous;
+            this.current = current;
+        }
+
+        /**
+         * Reset the header to be reused.
+         *
+         * @param source source of the packet.
+         * @param route  route id of the packet.
+         */
+        void reset(@NonNull String source, int route) {
+            this.source = source;
+            this.route = route;
+            this.oldRoute = -1;
+            this.previous = -1;
+            this.current = 0;
+            this.upstream = null;
+            this.trace = null;
+            if (attributes != null) {
+                attributes.clear();
+            }
+        }
 
         /**
          * Ensure default values.
@@ -78,34 +217,202 @@ public class Packet {
             protected int current = 0;
         }
 
-        @Override public Header copy() {
-            Header cpy = Header.builder()
-                    .source(source)
-                    .route(route)
-                    .oldRoute(oldRoute)
-                    .previous(previous)
-                    .current(current)
-                    .build();
-            cpy.getMap().putAll(super.copy().getMap());
+        /**
+         * Returns the route name.
+         *
+         * @return route name.
+         */
+        public String getRoute() {
+            return RouteTable.name(route);
+        }
+
+        /**
+         * Sets the route name.
+         *
+         * @param route route name.
+         */
+        public void setRoute(@NonNull String route) {
+            this.route = RouteTable.id(route);
+        }
+
+        /**
+         * Returns the old route name.
+         *
+         * @return old route name or null.
+         */
+        public String getOldRoute() {
+            return RouteTable.name(oldRoute);
+        }
+
+        /**
+         * Sets the old route name.
+         *
+         * @param oldRoute old route name or null.
+         */
+        public void setOldRoute(String oldRoute) {
+            this.oldRoute = (oldRoute != null) ? RouteTable.id(oldRoute) : -1;
+        }
+
+        /**
+         * Returns the route id.
+         *
+         * @return route id.
+         */
+        public int getRouteId() {
+            return route;
+        }
+
+        /**
+         * Sets the route id.
+         *
+         * @param route route id.
+         */
+        public void setRouteId(int route) {
+            this.route = route;
+        }
+
+        /**
+         * Returns the old route id.
+         *
+         * @return old route id or -1.
+         */
+        public int getOldRouteId() {
+            return oldRoute;
+        }
+
+        /**
+         * Sets the old route id.
+         *
+         * @param oldRoute old route id or -1.
+         */
+        public void setOldRouteId(int oldRoute) {
+            this.oldRoute = oldRoute;
+        }
+
+        /**
+         * Add an attribute.
+         *
+         * @param key   attribute key.
+         * @param value attribute value.
+         * @return same object for chaining.
+         */
+        public Header put(@NonNull String key, Object value) {
+            if (attributes == null) {
+                attributes = new JsonObject();
+            }
+            attributes.put(key, value);
+            return this;
+        }
+
+        /**
+         * Returns an attribute.
+         *
+         * @param key attribute key.
+         * @return attribute value or null.
+         */
+        public Object getValue(@NonNull String key) {
+            return (attributes != null) ? attributes.getValue(key) : null;
+        }
+
+        /**
+         * Returns a string attribute.
+         *
+         * @param key attribute key.
+         * @return attribute value or null.
+         */
+        public String getString(@NonNull String key) {
+            return (attributes != null) ? attributes.getString(key) : null;
+        }
+
+        /**
+         * Returns a long attribute.
+         *
+         * @param key attribute key.
+         * @return attribute value or null.
+         */
+        public Long getLong(@NonNull String key) {
+            return (attributes != null) ? attributes.getLong(key) : null;
+        }
+
+        /**
+         * Returns a json object attribute.
+         *
+         * @param key attribute key.
+         * @return attribute value or null.
+         */
+        public JsonObject getJsonObject(@NonNull String key) {
+            return (attributes != null) ? attributes.getJsonObject(key) : null;
+        }
+
+        /**
+         * Returns a json array attribute.
+         *
+         * @param key attribute key.
+         * @return attribute value or null.
+         */
+        public JsonArray getJsonArray(@NonNull String key) {
+            return (attributes != null) ? attributes.getJsonArray(key) : null;
+        }
+
+        /**
+         * Returns true if the attribute exists.
+         *
+         * @param key attribute key.
+         * @return true if the attribute exists, otherwise false.
+         */
+        public boolean containsKey(@NonNull String key) {
+            return attributes != null && attributes.containsKey(key);
+        }
+
+        /**
+         * Remove an attribute.
+         *
+         * @param key attribute key.
+         * @return attribute value removed or null.
+         */
+        public Object remove(@NonNull String key) {
+            return (attributes != null) ? attributes.remove(key) : null;
+        }
+
+        public Header copy() {
+            Header cpy = new Header(source, route, oldRoute, previous, current);
+            cpy.upstream = upstream;
+            if (trace != null) {
+                cpy.trace = trace.copy();
+            }
+            if (attributes != null && !attributes.isEmpty()) {
+                cpy.attributes = attributes.copy();
+            }
             return cpy;
         }
 
         @Override public boolean equals(Object o) {
             if (this == o) return true;
-            if (!(o instanceof Header)) return false;
-            if (!super.equals(o)) return false;
+            if (o == null || getClass() != o.getClass()) return false;
             Header entries = (Header) o;
-            return previous == entries.previous &&
+            return route == entries.route &&
+                    oldRoute == entries.oldRoute &&
+                    previous == entries.previous &&
                     current == entries.current &&
                     Objects.equals(source, entries.source) &&
-                    Objects.equals(route, entries.route) &&
-                    Objects.equals(oldRoute, entries.oldRoute);
+                    Objects.equals(upstream, entries.upstream) &&
+                    Objects.equals(trace, entries.trace) &&
+                    Objects.equals(attributes(), entries.attributes());
         }
 
         @Override public int hashCode() {
-            return Objects.hash(super.hashCode(), source, route, oldRoute, previous, current);
+            return Objects.hash(source, route, oldRoute, previous, current, upstream, trace, attributes());
+        }
+
+        /**
+         * Returns attributes map, empty attributes are equivalent to no attributes.
+         *
+         * @return attributes map or null.
+         */
+        private Map<String, Object> attributes() {
+            return (attributes != null && !attributes.isEmpty()) ? attributes.getMap() : null;
         }
 
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,84 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.net;
+
+import com.google.common.collect.Lists;
+import lombok.NonNull;
+import lombok.ToString;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * EventBus packet batch message.
+ */
+@ToString
+public class PacketBatch implements Iterable<Packet> {
+
+    // Packets in batch
+    private final List<Packet> packets;
+
+    /**
+     * Create a new packet batch.
+     *
+     * @param capacity expected number of packets.
+     */
+    public PacketBatch(int capacity) {
+        packets = Lists.newArrayListWithCapacity(capacity);
+    }
+
+    /**
+     * Add a packet to the batch.
+     *
+     * @param packet packet to add.
+     * @return same object for chaining.
+     */
+    public PacketBatch add(@NonNull Packet packet) {
+        packets.add(packet);
+        return this;
+    }
+
+    /**
+     * Returns the number of packets in the batch.
+     *
+     * @return number of packets in the batch.
+     */
+    public int size() {
+        return packets.size();
+    }
+
+    /**
+     * Returns true if the batch is empty.
+     *
+     * @return true if the batch is empty, otherwise false.
+     */
+    public boolean isEmpty() {
+        return packets.isEmpty();
+    }
+
+    @Override public Iterator<Packet> iterator() {
+        return packets.iterator();
+    }
+
+}
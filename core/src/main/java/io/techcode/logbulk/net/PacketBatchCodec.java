@@ -0,0 +1,73 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.net;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+
+/**
+ * Packet batch codec that avoid copy.
+ * On the wire, each packet is encoded by the packet codec and prefixed by its length.
+ */
+public class PacketBatchCodec implements MessageCodec<PacketBatch, PacketBatch> {
+
+    // Packet codec
+    private final PacketCodec codec = new PacketCodec();
+
+    @Override public void encodeToWire(Buffer buffer, PacketBatch batch) {
+        buffer.appendInt(batch.size());
+        for (Packet packet : batch) {
+            int pos = buffer.length();
+            buffer.appendInt(0);
+            codec.encodeToWire(buffer, packet);
+            buffer.setInt(pos, buffer.length() - pos - 4);
+        }
+    }
+
+    @Override public PacketBatch decodeFromWire(int pos, Buffer buffer) {
+        int size = buffer.getInt(pos);
+        PacketBatch batch = new PacketBatch(size);
+        pos += 4;
+        for (int i = 0; i < size; i++) {
+            int length = buffer.getInt(pos);
+            batch.add(codec.decodeFromWire(pos + 4, buffer));
+            pos += 4 + length;
+        }
+        return batch;
+    }
+
+    @Override public PacketBatch transform(PacketBatch batch) {
+        // Avoid copy when we use it as event schema
+        return batch;
+    }
+
+    @Override public String name() {
+        return PacketBatchCodec.class.getSimpleName();
+    }
+
+    @Override public byte systemCodecID() {
+        return -1;
+    }
+
+}
@@ -1,7 +1,7 @@
 /*
  * The MIT License (MIT)
  * <p>
- * Copyright (c) 2016-2017
+ * Copyright (c) 2017
  * <p>
  * Permission is hereby granted, free of charge, to any person obtaining a copy
  * of this software and associated documentation files (the "Software"), to deal
@@ -23,21 +23,75 @@
  */
 package io.techcode.logbulk.net;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.netty.buffer.ByteBufInputStream;
+import io.techcode.logbulk.util.json.SharedJsonObject;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.EncodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 /**
  * Packet codec that avoid copy.
+ * In cluster mode, header fields and trace are written natively and json objects as length-prefixed smile.
  */
 public class PacketCodec implements MessageCodec<Packet, Packet> {
 
-    @Override public void encodeToWire(Buffer buffer, Packet entries) {
-        // Currently don't support cluster mode
+    // Smile mapper
+    private static final ObjectMapper MAPPER = new ObjectMapper(new SmileFactory())
+            .registerModule(new SimpleModule()
+                    .addSerializer(JsonObject.class, new JsonObjectSerializer())
+                    .addSerializer(JsonArray.class, new JsonArraySerializer()));
+
+    @Override public void encodeToWire(Buffer buffer, Packet pkt) {
+        Packet.Header header = pkt.getHeader();
+        encodeString(buffer, header.getSource());
+        encodeString(buffer, header.getRoute());
+        encodeString(buffer, header.getOldRoute());
+        buffer.appendInt(header.getPrevious());
+        buffer.appendInt(header.getCurrent());
+        encodeString(buffer, header.getUpstream());
+        encodeTrace(buffer, header.getTrace());
+        encodeJson(buffer, header.getAttributes());
+        encodeJson(buffer, pkt.getBody());
     }
 
     @Override public Packet decodeFromWire(int pos, Buffer buffer) {
-        // Currently don't support cluster mode
-        return null;
+        // Decode header fields
+        int[] cursor = new int[] {pos};
+        Packet.Header header = Packet.Header.builder()
+                .source(decodeString(buffer, cursor))
+                .route(decodeString(buffer, cursor))
+                .oldRoute(decodeString(buffer, cursor))
+                .previous(decodeInt(buffer, cursor))
+                .current(decodeInt(buffer, cursor))
+                .build();
+        header.setUpstream(decodeString(buffer, cursor));
+
+        // Decode header trace, attributes & body
+        if (buffer.getByte(cursor[0]++) != 0) {
+            header.setTrace(Trace.decode(buffer, cursor));
+        }
+        Map<String, Object> attributes = decodeJson(buffer, cursor, Map.class);
+        if (attributes != null) {
+            attributes.forEach(header::put);
+        }
+        Map<String, Object> body = decodeJson(buffer, cursor, Map.class);
+        return Packet.builder()
+                .header(header)
+                .body(body != null ? new JsonObject(body) : new JsonObject())
+                .build();
     }
 
     @Override public Packet transform(Packet pkt) {
@@ -53,4 +107,138 @@ public class PacketCodec implements MessageCodec<Packet, Packet> {
         return -1;
     }
 
+    /**
+     * Encode a nullable string.
+     *
+     * @param buffer buffer to write.
+     * @param value  value to encode.
+     */
+    private void encodeString(Buffer buffer, String value) {
+        if (value == null) {
+            buffer.appendInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            buffer.appendInt(bytes.length);
+            buffer.appendBytes(bytes);
+        }
+    }
+
+    /**
+     * Encode a nullable trace.
+     *
+     * @param buffer buffer to write.
+     * @param trace  trace to encode.
+     */
+    private void encodeTrace(Buffer buffer, Trace trace) {
+        if (trace == null) {
+            buffer.appendByte((byte) 0);
+        } else {
+            buffer.appendByte((byte) 1);
+            trace.encode(buffer);
+        }
+    }
+
+    /**
+     * Encode a nullable json value as length-prefixed smile.
+     *
+     * @param buffer buffer to write.
+     * @param value  value to encode.
+     */
+    private void encodeJson(Buffer buffer, Object value) {
+        if (value == null || isEmpty(value)) {
+            buffer.appendInt(0);
+        } else {
+            try {
+                // Shared fields are read in place
+                Object json = (value instanceof SharedJsonObject) ? ((SharedJsonObject) value).view() : value;
+                byte[] bytes = MAPPER.writeValueAsBytes(json);
+                buffer.appendInt(bytes.length);
+                buffer.appendBytes(bytes);
+            } catch (IOException ex) {
+                throw new EncodeException("Failed to encode as smile: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns true if the json value is empty.
+     *
+     * @param value json value.
+     * @return true if the json value is empty, otherwise false.
+     */
+    private boolean isEmpty(Object value) {
+        return (value instanceof JsonObject && ((JsonObject) value).isEmpty()) ||
+                (value instanceof JsonArray && ((JsonArray) value).isEmpty());
+    }
+
+    /**
+     * Decode an int and move cursor.
+     *
+     * @param buffer buffer to read.
+     * @param cursor current position.
+     * @return int decoded.
+     */
+    private int decodeInt(Buffer buffer, int[] cursor) {
+        int value = buffer.getInt(cursor[0]);
+        cursor[0] += 4;
+        return value;
+    }
+
+    /**
+     * Decode a nullable string and move cursor.
+     *
+     * @param buffer buffer to read.
+     * @param cursor current position.
+     * @return string decoded.
+     */
+    private String decodeString(Buffer buffer, int[] cursor) {
+        int length = decodeInt(buffer, cursor);
+        if (length < 0) {
+            return null;
+        }
+        String value = buffer.getString(cursor[0], cursor[0] + length, StandardCharsets.UTF_8.name());
+        cursor[0] += length;
+        return value;
+    }
+
+    /**
+     * Decode a length-prefixed smile json value and move cursor.
+     *
+     * @param buffer buffer to read.
+     * @param cursor current position.
+     * @param type   type of json value.
+     * @return json value decoded or null if empty.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T decodeJson(Buffer buffer, int[] cursor, Class<? super T> type) {
+        int length = decodeInt(buffer, cursor);
+        if (length == 0) {
+            return null;
+        }
+        try (ByteBufInputStream stream = new ByteBufInputStream(buffer.getByteBuf().slice(cursor[0], length))) {
+            cursor[0] += length;
+            return (T) MAPPER.readValue(stream, type);
+        } catch (IOException ex) {
+            throw new DecodeException("Failed to decode smile: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Json object serializer.
+     */
+    private static class JsonObjectSerializer extends JsonSerializer<JsonObject> {
+        @Override public void serialize(JsonObject value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeObject(value.getMap());
+        }
+    }
+
+    /**
+     * Json array serializer.
+     */
+    private static class JsonArraySerializer extends JsonSerializer<JsonArray> {
+        @Override public void serialize(JsonArray value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeObject(value.getList());
+        }
+    }
+
 }
@@ -0,0 +1,126 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.net;
+
+import com.google.common.collect.Sets;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import lombok.NonNull;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Packet leak detector.
+ * Track a sample of pooled packets and report those garbage collected without being recycled.
+ */
+public class PacketLeakDetector {
+
+    // Logging
+    private static final Logger log = LoggerFactory.getLogger(PacketLeakDetector.class);
+
+    // Sampling interval
+    private final int interval;
+
+    // Leaks tracked
+    private final Set<Leak> tracked = Sets.newConcurrentHashSet();
+    private final ReferenceQueue<Packet> queue = new ReferenceQueue<>();
+
+    /**
+     * Create a new packet leak detector.
+     *
+     * @param interval track one packet every interval on average.
+     */
+    public PacketLeakDetector(int interval) {
+        checkArgument(interval > 0, "The interval must be positive");
+        this.interval = interval;
+    }
+
+    /**
+     * Track a packet if sampled.
+     *
+     * @param packet packet to track.
+     * @return leak tracker or null if not sampled.
+     */
+    public Leak track(@NonNull Packet packet) {
+        reportLeaks();
+        if (interval == 1 || ThreadLocalRandom.current().nextInt(interval) == 0) {
+            return new Leak(packet);
+        }
+        return null;
+    }
+
+    /**
+     * Report all leaks detected since last call.
+     *
+     * @return number of leaks reported.
+     */
+    public int reportLeaks() {
+        int leaks = 0;
+        Reference<? extends Packet> ref;
+        while ((ref = queue.poll()) != null) {
+            Leak leak = (Leak) ref;
+            if (tracked.remove(leak)) {
+                leaks += 1;
+                log.error("LEAK: a packet was garbage collected before being recycled, " +
+                        "use Packet.retain() and PacketPool.recycle() to keep a reference on it", leak.record);
+            }
+        }
+        return leaks;
+    }
+
+    /**
+     * Leak tracker of a packet.
+     */
+    public final class Leak extends PhantomReference<Packet> {
+
+        // Acquisition record
+        private final Throwable record = new Throwable("Packet acquired here");
+
+        /**
+         * Create a new leak tracker.
+         *
+         * @param packet packet to track.
+         */
+        private Leak(Packet packet) {
+            super(packet, queue);
+            tracked.add(this);
+        }
+
+        /**
+         * Stop tracking the packet because it has been recycled.
+         */
+        public void close() {
+            tracked.remove(this);
+            clear();
+        }
+
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.net;
+
+import io.netty.util.Recycler;
+import io.techcode.logbulk.util.json.LazyJsonObject;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import lombok.NonNull;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packet pool.
+ * Packets are recycled in per-thread pools, so each event loop reuses packets, headers and bodies.
+ */
+public final class PacketPool {
+
+    // Pool settings, every packet recycled is kept up to capacity
+    private static final int MAX_CAPACITY = 32768;
+    private static final int SHARED_CAPACITY_FACTOR = 2;
+    private static final int RATIO = 1;
+    private static final int MAX_DELAYED_QUEUES = Runtime.getRuntime().availableProcessors() * 2;
+
+    // Recycler backed by per-thread stacks
+    private static final Recycler<Packet> RECYCLER = new Recycler<Packet>(MAX_CAPACITY, SHARED_CAPACITY_FACTOR, RATIO, MAX_DELAYED_QUEUES) {
+        @Override protected Packet newObject(Handle<Packet> handle) {
+            return new Packet(handle);
+        }
+    };
+
+    // Settings
+    private static volatile boolean enabled = false;
+    private static volatile PacketLeakDetector detector;
+
+    private PacketPool() {
+        // Static class
+    }
+
+    /**
+     * Configure the packet pool.
+     *
+     * @param enable   true to recycle packets, otherwise false.
+     * @param interval leak detection sampling interval or zero to disable.
+     */
+    public static void configure(boolean enable, int interval) {
+        detector = (enable && interval > 0) ? new PacketLeakDetector(interval) : null;
+        enabled = enable;
+    }
+
+    /**
+     * Returns true if packets are recycled.
+     *
+     * @return true if packets are recycled, otherwise false.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Acquire a packet with an empty body.
+     *
+     * @param source source of the packet.
+     * @param route  route id of the packet.
+     * @return packet acquired.
+     */
+    public static Packet acquire(@NonNull String source, int route) {
+        Packet packet = RECYCLER.get();
+        packet.getHeader().reset(source, route);
+        JsonObject body = packet.getBody();
+        if (body instanceof LazyJsonObject) {
+            // Don't decode a lazy body only to clear it
+            packet.setBody(new JsonObject());
+        } else if (!body.isEmpty()) {
+            body.clear();
+        }
+        PacketLeakDetector leaks = detector;
+        packet.acquire((leaks != null) ? leaks.track(packet) : null);
+        return packet;
+    }
+
+    /**
+     * Recycle a packet once all references are released.
+     * Packets not acquired from the pool are left to the garbage collector.
+     *
+     * @param packet packet to recycle.
+     */
+    public static void recycle(@NonNull Packet packet) {
+        if (packet.release()) {
+            packet.recycle();
+        }
+    }
+
+    /**
+     * Copy a packet using a pooled packet.
+     *
+     * @param packet packet to copy.
+     * @return copy of the packet.
+     */
+    static Packet copy(Packet packet) {
+        Packet.Header header = packet.getHeader();
+        Packet cpy = acquire(header.getSource(), header.getRouteId());
+        Packet.Header cpyHeader = cpy.getHeader();
+        cpyHeader.setOldRouteId(header.getOldRouteId());
+        cpyHeader.setPrevious(header.getPrevious());
+        cpyHeader.setCurrent(header.getCurrent());
+        cpyHeader.setUpstream(header.getUpstream());
+        if (header.getTrace() != null) {
+            cpyHeader.setTrace(header.getTrace().copy());
+        }
+        if (header.getAttributes() != null) {
+            header.getAttributes().getMap().forEach((k, v) -> cpyHeader.put(k, copyValue(v)));
+        }
+        // Share raw bytes or fields as long as the body isn't modified
+        cpy.setBody(packet.getBody().copy());
+        return cpy;
+    }
+
+    /**
+     * Deep copy a json value.
+     *
+     * @param value value to copy.
+     * @return copy of the value.
+     */
+    @SuppressWarnings("unchecked")
+    private static Object copyValue(Object value) {
+        if (value instanceof JsonObject) {
+            return ((JsonObject) value).copy();
+        } else if (value instanceof JsonArray) {
+            return ((JsonArray) value).copy();
+        } else if (value instanceof Map) {
+            return new JsonObject((Map<String, Object>) value).copy();
+        } else if (value instanceof List) {
+            return new JsonArray((List) value).copy();
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).clone();
+        }
+        return value;
+    }
+
+}
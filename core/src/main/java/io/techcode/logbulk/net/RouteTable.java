@@ -0,0 +1,148 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.net;
+
+import com.google.common.collect.Maps;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable route table indexed by route id and stage index.
+ * Route names are interned once per jvm so that packets only carry route ids.
+ */
+public class RouteTable {
+
+    // Interned route ids
+    private static final Map<String, Integer> IDS = Maps.newConcurrentMap();
+    private static volatile String[] names = new String[0];
+
+    // Endpoints by route id and stage index
+    private final String[][] endpoints;
+
+    /**
+     * Create a new route table.
+     *
+     * @param endpoints endpoints by route id and stage index.
+     */
+    private RouteTable(String[][] endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    /**
+     * Compile a route section into a route table.
+     *
+     * @param routes route section.
+     * @return route table.
+     */
+    public static RouteTable compile(@NonNull JsonObject routes) {
+        // Intern all routes first to size the table
+        int size = 0;
+        for (String route : routes.fieldNames()) {
+            size = Math.max(size, id(route) + 1);
+        }
+
+        // Populate endpoints
+        String[][] endpoints = new String[size][];
+        for (String route : routes.fieldNames()) {
+            JsonArray stages = routes.getJsonArray(route);
+            String[] compiled = new String[stages.size()];
+            for (int i = 0; i < compiled.length; i++) {
+                compiled[i] = stages.getString(i);
+            }
+            endpoints[id(route)] = compiled;
+        }
+        return new RouteTable(endpoints);
+    }
+
+    /**
+     * Returns the id of a route and intern it if needed.
+     *
+     * @param route route name.
+     * @return route id.
+     */
+    public static int id(@NonNull String route) {
+        Integer id = IDS.get(route);
+        return (id != null) ? id : intern(route);
+    }
+
+    /**
+     * Returns the name of a route.
+     *
+     * @param id route id.
+     * @return route name or null if unknown.
+     */
+    public static String name(int id) {
+        String[] current = names;
+        return (id >= 0 && id < current.length) ? current[id] : null;
+    }
+
+    /**
+     * Intern a new route.
+     *
+     * @param route route name.
+     * @return route id.
+     */
+    private static synchronized int intern(String route) {
+        Integer id = IDS.get(route);
+        if (id == null) {
+            String[] current = names;
+            String[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = route;
+            names = next;
+            id = current.length;
+            IDS.put(route, id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the endpoint of a stage in a route.
+     *
+     * @param route route id.
+     * @param stage stage index.
+     * @return endpoint or null if undefined.
+     */
+    public String endpoint(int route, int stage) {
+        if (route < 0 || route >= endpoints.length) return null;
+        String[] stages = endpoints[route];
+        return (stages != null && stage >= 0 && stage < stages.length) ? stages[stage] : null;
+    }
+
+    /**
+     * Returns the number of stages in a route.
+     *
+     * @param route route id.
+     * @return number of stages or zero if undefined.
+     */
+    public int size(int route) {
+        if (route < 0 || route >= endpoints.length) return 0;
+        String[] stages = endpoints[route];
+        return (stages != null) ? stages.length : 0;
+    }
+
+}
@@ -0,0 +1,340 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.net;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.util.Arrays;
+
+/**
+ * Compact trace of a sampled packet.
+ * Each hop is recorded as (stage, enter, exit, mailbox wait) with times taken from {@link System#nanoTime()}.
+ * A stage is identified by its route id, its index in the route and its member index when fused.
+ */
+public class Trace {
+
+    // Longs by hop
+    static final int STRIDE = 4;
+
+    // Default hops capacity
+    private static final int DEFAULT_CAPACITY = 4;
+
+    // Bits of the index in a stage identifier, followed by the member of a fused stage
+    private static final int INDEX_BITS = 24;
+
+    // Creation time of the packet
+    private final long start;
+
+    // Hops recorded
+    private long[] hops;
+    private int size = 0;
+
+    // Pending hop
+    private long enter;
+    private long arrival = -1;
+    private long wait = 0;
+
+    /**
+     * Create a new trace.
+     *
+     * @param start creation time of the packet.
+     */
+    public Trace(long start) {
+        this(start, new long[DEFAULT_CAPACITY * STRIDE], 0);
+    }
+
+    /**
+     * Create a new trace.
+     *
+     * @param start creation time of the packet.
+     * @param hops  hops recorded.
+     * @param size  number of hops recorded.
+     */
+    private Trace(long start, long[] hops, int size) {
+        this.start = start;
+        this.enter = start;
+        this.hops = hops;
+        this.size = size;
+    }
+
+    /**
+     * Returns a stage identifier.
+     *
+     * @param route route id.
+     * @param index index of the stage in the route.
+     * @return stage identifier.
+     */
+    public static long stage(int route, int index) {
+        return stage(route, index, -1);
+    }
+
+    /**
+     * Returns a stage identifier of a member of a fused stage.
+     *
+     * @param route  route id.
+     * @param index  index of the fused stage in the route.
+     * @param member index of the member in the fused stage or -1.
+     * @return stage identifier.
+     */
+    public static long stage(int route, int index, int member) {
+        return ((long) route << 32) | (((member + 1) & 0xFFL) << INDEX_BITS) | (index & ((1L << INDEX_BITS) - 1));
+    }
+
+    /**
+     * Returns the route id of a stage identifier.
+     *
+     * @param stage stage identifier.
+     * @return route id.
+     */
+    public static int route(long stage) {
+        return (int) (stage >> 32);
+    }
+
+    /**
+     * Returns the index in the route of a stage identifier.
+     *
+     * @param stage stage identifier.
+     * @return index in the route.
+     */
+    public static int index(long stage) {
+        return ((int) stage << (32 - INDEX_BITS)) >> (32 - INDEX_BITS);
+    }
+
+    /**
+     * Returns the index of the member in the fused stage of a stage identifier.
+     *
+     * @param stage stage identifier.
+     * @return index of the member or -1 if the stage isn't fused.
+     */
+    public static int member(long stage) {
+        return (int) ((stage >>> INDEX_BITS) & 0xFF) - 1;
+    }
+
+    /**
+     * Returns the creation time of the packet.
+     *
+     * @return creation time of the packet.
+     */
+    public long start() {
+        return start;
+    }
+
+    /**
+     * Record the arrival of the packet in a mailbox.
+     *
+     * @param now current time.
+     */
+    public void arrive(long now) {
+        arrival = now;
+    }
+
+    /**
+     * Record the dispatch of the packet by a mailbox to a worker.
+     *
+     * @param now current time.
+     */
+    public void dispatch(long now) {
+        if (arrival >= 0) {
+            wait += now - arrival;
+            arrival = -1;
+        }
+    }
+
+    /**
+     * Record the packet entering a stage.
+     *
+     * @param now current time.
+     */
+    public void enter(long now) {
+        enter = now;
+    }
+
+    /**
+     * Record the packet leaving a stage.
+     * Without an explicit enter, the stage is entered when the previous one was left.
+     *
+     * @param stage stage identifier.
+     * @param now   current time.
+     */
+    public void exit(long stage, long now) {
+        if ((size + 1) * STRIDE > hops.length) {
+            hops = Arrays.copyOf(hops, hops.length << 1);
+        }
+        int i = size * STRIDE;
+        hops[i] = stage;
+        hops[i + 1] = enter;
+        hops[i + 2] = now;
+        hops[i + 3] = wait;
+        size += 1;
+        enter = now;
+        wait = 0;
+    }
+
+    /**
+     * Returns the number of hops recorded.
+     *
+     * @return number of hops recorded.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the stage of a hop.
+     *
+     * @param hop index of the hop.
+     * @return stage identifier.
+     */
+    public long stage(int hop) {
+        return hops[hop * STRIDE];
+    }
+
+    /**
+     * Returns the time spent in the stage of a hop.
+     *
+     * @param hop index of the hop.
+     * @return time spent in nanoseconds.
+     */
+    public long elapsed(int hop) {
+        return hops[hop * STRIDE + 2] - hops[hop * STRIDE + 1];
+    }
+
+    /**
+     * Returns the time spent in mailbox before the stage of a hop.
+     *
+     * @param hop index of the hop.
+     * @return time spent in nanoseconds.
+     */
+    public long wait(int hop) {
+        return hops[hop * STRIDE + 3];
+    }
+
+    /**
+     * Returns the time elapsed since the creation of the packet until the last hop.
+     *
+     * @return time elapsed in nanoseconds.
+     */
+    public long latency() {
+        return (size > 0) ? hops[(size - 1) * STRIDE + 2] - start : 0L;
+    }
+
+    /**
+     * Returns a deep copy of the trace.
+     *
+     * @return copy of the trace.
+     */
+    public Trace copy() {
+        Trace cpy = new Trace(start, Arrays.copyOf(hops, hops.length), size);
+        cpy.enter = enter;
+        cpy.arrival = arrival;
+        cpy.wait = wait;
+        return cpy;
+    }
+
+    /**
+     * Encode the trace.
+     * Times are written relative to the encoding time, since clocks of two nodes can't be compared.
+     *
+     * @param buffer buffer to write.
+     */
+    void encode(Buffer buffer) {
+        encode(buffer, System.nanoTime());
+    }
+
+    /**
+     * Encode the trace relative to a given time.
+     *
+     * @param buffer buffer to write.
+     * @param now    current time.
+     */
+    void encode(Buffer buffer, long now) {
+        buffer.appendInt(size);
+        buffer.appendLong(now - start);
+        buffer.appendLong(now - enter);
+        buffer.appendLong((arrival >= 0) ? now - arrival : -1);
+        buffer.appendLong(wait);
+        for (int i = 0; i < size * STRIDE; i += STRIDE) {
+            buffer.appendLong(hops[i]);
+            buffer.appendLong(now - hops[i + 1]);
+            buffer.appendLong(now - hops[i + 2]);
+            buffer.appendLong(hops[i + 3]);
+        }
+    }
+
+    /**
+     * Decode a trace and move cursor.
+     * Times are rebased on the decoding time, so the time spent on the wire isn't accounted.
+     *
+     * @param buffer buffer to read.
+     * @param cursor current position.
+     * @return trace decoded.
+     */
+    static Trace decode(Buffer buffer, int[] cursor) {
+        return decode(buffer, cursor, System.nanoTime());
+    }
+
+    /**
+     * Decode a trace relative to a given time and move cursor.
+     *
+     * @param buffer buffer to read.
+     * @param cursor current position.
+     * @param now    current time.
+     * @return trace decoded.
+     */
+    static Trace decode(Buffer buffer, int[] cursor, long now) {
+        int pos = cursor[0];
+        int size = buffer.getInt(pos);
+        pos += 4;
+        long[] hops = new long[Math.max(DEFAULT_CAPACITY, size) * STRIDE];
+        Trace trace = new Trace(now - buffer.getLong(pos), hops, size);
+        trace.enter = now - buffer.getLong(pos + 8);
+        long arrival = buffer.getLong(pos + 16);
+        trace.arrival = (arrival >= 0) ? now - arrival : -1;
+        trace.wait = buffer.getLong(pos + 24);
+        pos += 32;
+        for (int i = 0; i < size * STRIDE; i += STRIDE) {
+            hops[i] = buffer.getLong(pos);
+            hops[i + 1] = now - buffer.getLong(pos + 8);
+            hops[i + 2] = now - buffer.getLong(pos + 16);
+            hops[i + 3] = buffer.getLong(pos + 24);
+            pos += 32;
+        }
+        cursor[0] = pos;
+        return trace;
+    }
+
+    @Override public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Trace)) return false;
+        Trace trace = (Trace) o;
+        return start == trace.start &&
+                size == trace.size &&
+                Arrays.equals(Arrays.copyOf(hops, size * STRIDE), Arrays.copyOf(trace.hops, trace.size * STRIDE));
+    }
+
+    @Override public int hashCode() {
+        return 31 * Long.hashCode(start) + Arrays.hashCode(Arrays.copyOf(hops, size * STRIDE));
+    }
+
+}
@@ -0,0 +1,251 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import io.techcode.logbulk.net.FastJsonArrayCodec;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.streams.ReadStream;
+import lombok.NonNull;
+
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Credit handler implementation.
+ * Track credits granted by downstream mailboxes, request more ahead of time and pause streams once starved.
+ * A downstream starts without credits, so every credit in flight has been granted by its mailbox.
+ */
+public class CreditHandler implements Handler<Message<JsonArray>> {
+
+    // Default credits requested to each downstream
+    public static final int DEFAULT_WINDOW = 256;
+
+    // Interval between two requests of a starved downstream
+    public static final long RETRY = 1000L;
+
+    // Fast json array
+    private static final DeliveryOptions DELIVERY_OPTIONS = new DeliveryOptions().setCodecName(FastJsonArrayCodec.CODEC_NAME);
+
+    // Logging
+    private final Logger log = LoggerFactory.getLogger(getClass().getName());
+
+    // Vertx instance
+    private final Vertx vertx;
+
+    // Endpoint of the component
+    private final String endpoint;
+
+    // Credits settings
+    private final int window;
+    private final int lowWater;
+
+    // Credits by downstream
+    private final Map<String, Integer> credits = Maps.newHashMap();
+    private final Set<String> requested = Sets.newHashSet();
+    private int starved = 0;
+    private long retryTimer = -1;
+
+    // Streams source
+    private final Set<ReadStream> streams = Sets.newHashSet();
+
+    // Handler to call on grant
+    private Handler<Void> grantHandler;
+
+    /**
+     * Create a new credit handler.
+     *
+     * @param vertx    vertx instance.
+     * @param endpoint endpoint name.
+     * @param window   credits requested to each downstream.
+     */
+    public CreditHandler(@NonNull Vertx vertx, @NonNull String endpoint, int window) {
+        checkArgument(window > 0, "The window must be positive");
+        this.vertx = vertx;
+        this.endpoint = endpoint;
+        this.window = window;
+        this.lowWater = window / 2;
+    }
+
+    /**
+     * Set an handler to call when credits are granted.
+     *
+     * @param grantHandler handler to call when credits are granted.
+     */
+    public void grantHandler(Handler<Void> grantHandler) {
+        this.grantHandler = grantHandler;
+    }
+
+    /**
+     * Register a stream to pause when starved.
+     *
+     * @param stream     stream to handle.
+     * @param endHandler end handler to call.
+     */
+    public void register(@NonNull ReadStream stream, Handler<Void> endHandler) {
+        streams.add(stream);
+        stream.endHandler(h -> {
+            if (endHandler != null) endHandler.handle(null);
+            streams.remove(stream);
+            log.info("Finish to read stream: " + endpoint);
+        });
+        if (starved > 0) {
+            stream.pause();
+        }
+    }
+
+    /**
+     * Returns true if the downstream has credits left.
+     *
+     * @param downstream downstream endpoint.
+     * @return true if the downstream has credits left, otherwise false.
+     */
+    public boolean hasCredit(@NonNull String downstream) {
+        track(downstream);
+        return credits(downstream) > 0;
+    }
+
+    /**
+     * Returns the credits left for a downstream.
+     *
+     * @param downstream downstream endpoint.
+     * @return credits left for the downstream.
+     */
+    public int credits(@NonNull String downstream) {
+        Integer left = credits.get(downstream);
+        return (left == null) ? 0 : left;
+    }
+
+    /**
+     * Returns true if at least one downstream is out of credits.
+     *
+     * @return true if at least one downstream is out of credits, otherwise false.
+     */
+    public boolean isStarved() {
+        return starved > 0;
+    }
+
+    /**
+     * Consume a credit of a downstream.
+     *
+     * @param downstream downstream endpoint.
+     */
+    public void consume(@NonNull String downstream) {
+        track(downstream);
+        int previous = credits(downstream);
+        int left = previous - 1;
+        credits.put(downstream, left);
+
+        // Request ahead of time
+        if (left <= lowWater && !requested.contains(downstream)) {
+            request(downstream, left);
+        }
+
+        // Pause until next grant
+        if (previous > 0 && left == 0) {
+            starve();
+        }
+    }
+
+    /**
+     * Start tracking a downstream seen for the first time, starved until its first grant.
+     *
+     * @param downstream downstream endpoint.
+     */
+    private void track(String downstream) {
+        if (!credits.containsKey(downstream)) {
+            credits.put(downstream, 0);
+            request(downstream, 0);
+            starve();
+        }
+    }
+
+    /**
+     * Account a downstream out of credits, streams are paused by the first one.
+     */
+    private void starve() {
+        starved += 1;
+        if (starved == 1) {
+            streams.forEach(ReadStream::pause);
+            retryTimer = vertx.setPeriodic(RETRY, h -> retry());
+        }
+    }
+
+    @Override public void handle(Message<JsonArray> event) {
+        // Isolate body message
+        JsonArray body = event.body();
+        String downstream = body.getString(0);
+
+        // Add credits granted
+        boolean tracked = credits.containsKey(downstream);
+        int previous = credits(downstream);
+        int left = previous + body.getInteger(1);
+        credits.put(downstream, left);
+        requested.remove(downstream);
+
+        // Resume if all downstream have credits
+        if (tracked && previous <= 0 && left > 0) {
+            starved -= 1;
+            if (starved == 0) {
+                vertx.cancelTimer(retryTimer);
+                retryTimer = -1;
+                streams.forEach(ReadStream::resume);
+            }
+        }
+        if (grantHandler != null) {
+            grantHandler.handle(null);
+        }
+    }
+
+    /**
+     * Request credits to a downstream.
+     *
+     * @param downstream downstream endpoint.
+     * @param left       credits left for the downstream.
+     */
+    private void request(String downstream, int left) {
+        requested.add(downstream);
+        vertx.eventBus().publish(downstream + ".credit",
+                new JsonArray().add(endpoint).add(Math.max(0, left)).add(window), DELIVERY_OPTIONS);
+    }
+
+    /**
+     * Request again credits to starved downstream in case of lost messages.
+     */
+    private void retry() {
+        credits.forEach((downstream, left) -> {
+            if (left <= 0) request(downstream, left);
+        });
+    }
+
+}
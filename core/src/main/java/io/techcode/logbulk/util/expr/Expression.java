@@ -0,0 +1,643 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.expr;
+
+import io.techcode.logbulk.util.json.JsonPath;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import lombok.NonNull;
+
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Boolean expression evaluated against json documents.
+ * Expressions are parsed once, constant parts are folded and the result is a tree of closures.
+ * <p>
+ * Supported syntax:
+ * <ul>
+ * <li>literals: {@code 200}, {@code 0.5}, {@code "foo"}, {@code 'foo'}, {@code true}, {@code false}, {@code null}</li>
+ * <li>json paths starting with {@code $}, like {@code $.status} or {@code $.items[*].ip}</li>
+ * <li>comparisons: {@code ==}, {@code !=}, {@code <}, {@code <=}, {@code >}, {@code >=}</li>
+ * <li>logical operators: {@code &&}, {@code ||}, {@code !} and parentheses</li>
+ * <li>functions: {@code exists(a)}, {@code startsWith(a, b)}, {@code endsWith(a, b)}, {@code contains(a, b)}
+ * and {@code matches(a, "regex")} which finds the regex in a</li>
+ * </ul>
+ * A value is true unless it is null or false.
+ * Paths with wildcards, slices or recursive descents may reach many values, they are only accepted
+ * where a value is tested for truth, like in {@code exists(a)}.
+ */
+public abstract class Expression {
+
+    /**
+     * Compile an expression.
+     *
+     * @param source source of the expression.
+     * @return expression compiled.
+     * @throws IllegalArgumentException if the expression is invalid.
+     */
+    public static Expression compile(@NonNull String source) {
+        return new ExpressionParser(source).parse();
+    }
+
+    /**
+     * Evaluate the expression.
+     *
+     * @param doc json document.
+     * @return value of the expression.
+     */
+    public abstract Object eval(JsonObject doc);
+
+    /**
+     * Test the expression.
+     *
+     * @param doc json document.
+     * @return true if the value of the expression is neither null nor false, otherwise false.
+     */
+    public boolean test(@NonNull JsonObject doc) {
+        return truthy(eval(doc));
+    }
+
+    /**
+     * Returns true if the expression always evaluates to the same value.
+     *
+     * @return true if the expression is constant, otherwise false.
+     */
+    boolean isConstant() {
+        return false;
+    }
+
+    /**
+     * Returns true if the expression always evaluates to a boolean.
+     *
+     * @return true if the expression always evaluates to a boolean, otherwise false.
+     */
+    boolean isBoolean() {
+        return false;
+    }
+
+    /**
+     * Returns true if a value is neither null nor false.
+     *
+     * @param value value to test.
+     * @return true if a value is neither null nor false, otherwise false.
+     */
+    static boolean truthy(Object value) {
+        return (value instanceof Boolean) ? (Boolean) value : value != null;
+    }
+
+    /**
+     * Create a constant expression.
+     *
+     * @param value value of the constant.
+     * @return constant expression.
+     */
+    static Expression constant(Object value) {
+        return new Constant(value);
+    }
+
+    /**
+     * Create a json path expression.
+     *
+     * @param source source of the json path.
+     * @return json path expression.
+     */
+    static Expression path(String source) {
+        return new Path(source, JsonPath.create(source));
+    }
+
+    /**
+     * Create a negation, folded if possible.
+     *
+     * @param operand operand to negate.
+     * @return negation.
+     */
+    static Expression not(Expression operand) {
+        if (operand instanceof Not && ((Not) operand).operand.isBoolean()) {
+            return ((Not) operand).operand;
+        }
+        return fold(new Not(operand));
+    }
+
+    /**
+     * Create a conjunction, folded if possible.
+     *
+     * @param left  left operand.
+     * @param right right operand.
+     * @return conjunction.
+     */
+    static Expression and(Expression left, Expression right) {
+        if (left.isConstant()) {
+            if (!truthy(left.eval(null))) {
+                return Constant.FALSE;
+            } else if (right.isBoolean() || right.isConstant()) {
+                return fold(right);
+            }
+        } else if (right.isConstant() && !truthy(right.eval(null))) {
+            return Constant.FALSE;
+        } else if (right.isConstant() && left.isBoolean()) {
+            return left;
+        }
+        return new And(left, right);
+    }
+
+    /**
+     * Create a disjunction, folded if possible.
+     *
+     * @param left  left operand.
+     * @param right right operand.
+     * @return disjunction.
+     */
+    static Expression or(Expression left, Expression right) {
+        if (left.isConstant()) {
+            if (truthy(left.eval(null))) {
+                return Constant.TRUE;
+            } else if (right.isBoolean() || right.isConstant()) {
+                return fold(right);
+            }
+        } else if (right.isConstant() && truthy(right.eval(null))) {
+            return Constant.TRUE;
+        } else if (right.isConstant() && left.isBoolean()) {
+            return left;
+        }
+        return new Or(left, right);
+    }
+
+    /**
+     * Create a comparison, folded if possible.
+     *
+     * @param operator operator of the comparison.
+     * @param left     left operand.
+     * @param right    right operand.
+     * @return comparison.
+     */
+    static Expression compare(String operator, Expression left, Expression right) {
+        return fold(new Compare(Compare.operator(operator), single(operator, left), single(operator, right)));
+    }
+
+    /**
+     * Create a function call, folded if possible.
+     *
+     * @param name name of the function.
+     * @param args arguments of the function.
+     * @return function call.
+     * @throws IllegalArgumentException if the function doesn't exist or arguments are invalid.
+     */
+    static Expression call(String name, Expression[] args) {
+        switch (name) {
+            case "exists":
+                arity(name, args, 1);
+                return fold(new Exists(args[0]));
+            case "startsWith":
+                arity(name, args, 2);
+                return fold(new Text(Text.STARTS_WITH, single(name, args[0]), single(name, args[1])));
+            case "endsWith":
+                arity(name, args, 2);
+                return fold(new Text(Text.ENDS_WITH, single(name, args[0]), single(name, args[1])));
+            case "contains":
+                arity(name, args, 2);
+                return fold(new Text(Text.CONTAINS, single(name, args[0]), single(name, args[1])));
+            case "matches":
+                arity(name, args, 2);
+                if (!args[1].isConstant() || !(args[1].eval(null) instanceof String)) {
+                    throw new IllegalArgumentException("The regex of 'matches' must be a string literal");
+                }
+                return fold(new Matches(single(name, args[0]), Pattern.compile((String) args[1].eval(null))));
+            default:
+                throw new IllegalArgumentException("The function '" + name + "' doesn't exist");
+        }
+    }
+
+    /**
+     * Check the number of arguments of a function.
+     *
+     * @param name  name of the function.
+     * @param args  arguments of the function.
+     * @param arity number of arguments expected.
+     */
+    private static void arity(String name, Expression[] args, int arity) {
+        if (args.length != arity) {
+            throw new IllegalArgumentException("The function '" + name + "' expects " + arity + " argument(s)");
+        }
+    }
+
+    /**
+     * Check that an operand reaches at most one value.
+     *
+     * @param name    name of the operator or function.
+     * @param operand operand to check.
+     * @return same operand.
+     * @throws IllegalArgumentException if the operand is a path that may reach many values.
+     */
+    private static Expression single(String name, Expression operand) {
+        if (operand instanceof Path && !((Path) operand).definite) {
+            throw new IllegalArgumentException("The path '" + operand + "' may reach many values and can't be used with '" + name + "'");
+        }
+        return operand;
+    }
+
+    /**
+     * Fold an expression into a constant if it is constant.
+     *
+     * @param expr expression to fold.
+     * @return constant or same expression.
+     */
+    private static Expression fold(Expression expr) {
+        if (expr.isConstant() && !(expr instanceof Constant)) {
+            Object value = expr.eval(null);
+            if (value instanceof Boolean) {
+                return (Boolean) value ? Constant.TRUE : Constant.FALSE;
+            }
+            return new Constant(value);
+        }
+        return expr;
+    }
+
+    /**
+     * Constant expression.
+     */
+    static final class Constant extends Expression {
+
+        // Boolean constants
+        static final Constant TRUE = new Constant(Boolean.TRUE);
+        static final Constant FALSE = new Constant(Boolean.FALSE);
+
+        // Value
+        private final Object value;
+
+        Constant(Object value) {
+            this.value = value;
+        }
+
+        @Override public Object eval(JsonObject doc) {
+            return value;
+        }
+
+        @Override boolean isConstant() {
+            return true;
+        }
+
+        @Override boolean isBoolean() {
+            return value instanceof Boolean;
+        }
+
+        @Override public String toString() {
+            return (value instanceof String) ? '"' + (String) value + '"' : String.valueOf(value);
+        }
+
+    }
+
+    /**
+     * Json path expression.
+     */
+    static final class Path extends Expression {
+
+        // Path to evaluate
+        private final String source;
+        private final JsonPath path;
+        private final boolean definite;
+
+        Path(String source, JsonPath path) {
+            this.source = source;
+            this.path = path;
+            this.definite = path.isDefinite();
+        }
+
+        @Override public Object eval(JsonObject doc) {
+            Object value = path.get(doc);
+
+            // No match of a multi path is a missing value
+            if (!definite && value instanceof JsonArray && ((JsonArray) value).isEmpty()) {
+                return null;
+            }
+            return value;
+        }
+
+        @Override public String toString() {
+            return source;
+        }
+
+    }
+
+    /**
+     * Boolean expression, evaluated without boxing.
+     */
+    abstract static class Condition extends Expression {
+
+        @Override public Object eval(JsonObject doc) {
+            return test(doc) ? Boolean.TRUE : Boolean.FALSE;
+        }
+
+        @Override public abstract boolean test(JsonObject doc);
+
+        @Override boolean isBoolean() {
+            return true;
+        }
+
+    }
+
+    /**
+     * Negation expression.
+     */
+    static final class Not extends Condition {
+
+        // Operand
+        private final Expression operand;
+
+        Not(Expression operand) {
+            this.operand = operand;
+        }
+
+        @Override public boolean test(JsonObject doc) {
+            return !operand.test(doc);
+        }
+
+        @Override boolean isConstant() {
+            return operand.isConstant();
+        }
+
+        @Override public String toString() {
+            return "!" + operand;
+        }
+
+    }
+
+    /**
+     * Conjunction expression.
+     */
+    static final class And extends Condition {
+
+        // Operands
+        private final Expression left;
+        private final Expression right;
+
+        And(Expression left, Expression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override public boolean test(JsonObject doc) {
+            return left.test(doc) && right.test(doc);
+        }
+
+        @Override public String toString() {
+            return "(" + left + " && " + right + ")";
+        }
+
+    }
+
+    /**
+     * Disjunction expression.
+     */
+    static final class Or extends Condition {
+
+        // Operands
+        private final Expression left;
+        private final Expression right;
+
+        Or(Expression left, Expression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override public boolean test(JsonObject doc) {
+            return left.test(doc) || right.test(doc);
+        }
+
+        @Override public String toString() {
+            return "(" + left + " || " + right + ")";
+        }
+
+    }
+
+    /**
+     * Comparison expression.
+     * Numbers are compared by value and strings lexicographically, other values only support equality.
+     */
+    static final class Compare extends Condition {
+
+        // Operators
+        private static final String[] OPERATORS = {"==", "!=", "<", "<=", ">", ">="};
+        private static final int EQ = 0;
+        private static final int NE = 1;
+        private static final int LT = 2;
+        private static final int LE = 3;
+        private static final int GT = 4;
+        private static final int GE = 5;
+
+        // Operator and operands
+        private final int operator;
+        private final Expression left;
+        private final Expression right;
+
+        Compare(int operator, Expression left, Expression right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        /**
+         * Returns the operator matching a symbol.
+         *
+         * @param symbol symbol of the operator.
+         * @return operator.
+         */
+        static int operator(String symbol) {
+            for (int i = 0; i < OPERATORS.length; i++) {
+                if (OPERATORS[i].equals(symbol)) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("The operator '" + symbol + "' doesn't exist");
+        }
+
+        @Override public boolean test(JsonObject doc) {
+            Object l = left.eval(doc);
+            Object r = right.eval(doc);
+            int cmp;
+            if (l instanceof Number && r instanceof Number) {
+                cmp = compare((Number) l, (Number) r);
+            } else if (l instanceof String && r instanceof String) {
+                cmp = ((String) l).compareTo((String) r);
+            } else if (operator == EQ) {
+                return Objects.equals(l, r);
+            } else if (operator == NE) {
+                return !Objects.equals(l, r);
+            } else {
+                return false;
+            }
+            switch (operator) {
+                case EQ:
+                    return cmp == 0;
+                case NE:
+                    return cmp != 0;
+                case LT:
+                    return cmp < 0;
+                case LE:
+                    return cmp <= 0;
+                case GT:
+                    return cmp > 0;
+                default:
+                    return cmp >= 0;
+            }
+        }
+
+        /**
+         * Compare two numbers, integral numbers are compared without loss of precision.
+         *
+         * @param l left number.
+         * @param r right number.
+         * @return comparison result.
+         */
+        private static int compare(Number l, Number r) {
+            if (isIntegral(l) && isIntegral(r)) {
+                return Long.compare(l.longValue(), r.longValue());
+            }
+            return Double.compare(l.doubleValue(), r.doubleValue());
+        }
+
+        /**
+         * Returns true if the number is integral.
+         *
+         * @param n number to test.
+         * @return true if the number is integral, otherwise false.
+         */
+        private static boolean isIntegral(Number n) {
+            return n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte;
+        }
+
+        @Override boolean isConstant() {
+            return left.isConstant() && right.isConstant();
+        }
+
+        @Override public String toString() {
+            return "(" + left + " " + OPERATORS[operator] + " " + right + ")";
+        }
+
+    }
+
+    /**
+     * Presence expression.
+     */
+    static final class Exists extends Condition {
+
+        // Operand
+        private final Expression operand;
+
+        Exists(Expression operand) {
+            this.operand = operand;
+        }
+
+        @Override public boolean test(JsonObject doc) {
+            return operand.eval(doc) != null;
+        }
+
+        @Override boolean isConstant() {
+            return operand.isConstant();
+        }
+
+        @Override public String toString() {
+            return "exists(" + operand + ")";
+        }
+
+    }
+
+    /**
+     * Text expression, false if an operand isn't a string.
+     */
+    static final class Text extends Condition {
+
+        // Functions
+        private static final String[] FUNCTIONS = {"startsWith", "endsWith", "contains"};
+        private static final int STARTS_WITH = 0;
+        private static final int ENDS_WITH = 1;
+        private static final int CONTAINS = 2;
+
+        // Function and operands
+        private final int function;
+        private final Expression value;
+        private final Expression match;
+
+        Text(int function, Expression value, Expression match) {
+            this.function = function;
+            this.value = value;
+            this.match = match;
+        }
+
+        @Override public boolean test(JsonObject doc) {
+            Object v = value.eval(doc);
+            Object m = match.eval(doc);
+            if (!(v instanceof String) || !(m instanceof String)) {
+                return false;
+            }
+            switch (function) {
+                case STARTS_WITH:
+                    return ((String) v).startsWith((String) m);
+                case ENDS_WITH:
+                    return ((String) v).endsWith((String) m);
+                default:
+                    return ((String) v).contains((String) m);
+            }
+        }
+
+        @Override boolean isConstant() {
+            return value.isConstant() && match.isConstant();
+        }
+
+        @Override public String toString() {
+            return FUNCTIONS[function] + "(" + value + ", " + match + ")";
+        }
+
+    }
+
+    /**
+     * Regex expression, false if the operand isn't a string.
+     */
+    static final class Matches extends Condition {
+
+        // Operand and regex
+        private final Expression value;
+        private final Pattern pattern;
+
+        Matches(Expression value, Pattern pattern) {
+            this.value = value;
+            this.pattern = pattern;
+        }
+
+        @Override public boolean test(JsonObject doc) {
+            Object v = value.eval(doc);
+            return v instanceof String && pattern.matcher((String) v).find();
+        }
+
+        @Override boolean isConstant() {
+            return value.isConstant();
+        }
+
+        @Override public String toString() {
+            return "matches(" + value + ", \"" + pattern + "\")";
+        }
+
+    }
+
+}
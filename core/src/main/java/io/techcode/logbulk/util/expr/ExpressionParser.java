@@ -0,0 +1,310 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.expr;
+
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+/**
+ * Recursive descent parser of expressions.
+ * Operators by increasing precedence: {@code ||}, {@code &&}, {@code !}, comparisons.
+ */
+class ExpressionParser {
+
+    // Comparison operators, longest first
+    private static final String[] COMPARISONS = {"==", "!=", "<=", ">=", "<", ">"};
+
+    // Source and position
+    private final String source;
+    private int pos = 0;
+
+    /**
+     * Create a new expression parser.
+     *
+     * @param source source of the expression.
+     */
+    ExpressionParser(String source) {
+        this.source = source;
+    }
+
+    /**
+     * Parse the whole source.
+     *
+     * @return expression parsed.
+     */
+    Expression parse() {
+        Expression expr = or();
+        skip();
+        if (pos < source.length()) {
+            throw error("Unexpected '" + source.charAt(pos) + "'");
+        }
+        return expr;
+    }
+
+    /**
+     * Parse a disjunction.
+     *
+     * @return expression parsed.
+     */
+    private Expression or() {
+        Expression expr = and();
+        while (accept("||")) {
+            expr = Expression.or(expr, and());
+        }
+        return expr;
+    }
+
+    /**
+     * Parse a conjunction.
+     *
+     * @return expression parsed.
+     */
+    private Expression and() {
+        Expression expr = not();
+        while (accept("&&")) {
+            expr = Expression.and(expr, not());
+        }
+        return expr;
+    }
+
+    /**
+     * Parse a negation.
+     *
+     * @return expression parsed.
+     */
+    private Expression not() {
+        skip();
+        if (pos < source.length() && source.charAt(pos) == '!' && !source.startsWith("!=", pos)) {
+            pos++;
+            return Expression.not(not());
+        }
+        return comparison();
+    }
+
+    /**
+     * Parse a comparison.
+     *
+     * @return expression parsed.
+     */
+    private Expression comparison() {
+        Expression left = primary();
+        for (String operator : COMPARISONS) {
+            if (accept(operator)) {
+                return Expression.compare(operator, left, primary());
+            }
+        }
+        return left;
+    }
+
+    /**
+     * Parse a literal, a json path, a function call or a parenthesized expression.
+     *
+     * @return expression parsed.
+     */
+    private Expression primary() {
+        skip();
+        if (pos >= source.length()) {
+            throw error("Unexpected end");
+        }
+        char c = source.charAt(pos);
+        if (c == '(') {
+            pos++;
+            Expression expr = or();
+            expect(")");
+            return expr;
+        } else if (c == '"' || c == '\'') {
+            return Expression.constant(string(c));
+        } else if (Character.isDigit(c) || (c == '-' && pos + 1 < source.length() && Character.isDigit(source.charAt(pos + 1)))) {
+            return Expression.constant(number());
+        } else if (c == '$') {
+            return path();
+        } else if (Character.isLetter(c)) {
+            String name = identifier();
+            switch (name) {
+                case "true":
+                    return Expression.constant(Boolean.TRUE);
+                case "false":
+                    return Expression.constant(Boolean.FALSE);
+                case "null":
+                    return Expression.constant(null);
+                default:
+                    return Expression.call(name, arguments());
+            }
+        }
+        throw error("Unexpected '" + c + "'");
+    }
+
+    /**
+     * Parse arguments of a function call.
+     *
+     * @return arguments parsed.
+     */
+    private Expression[] arguments() {
+        expect("(");
+        List<Expression> args = Lists.newArrayList();
+        if (!accept(")")) {
+            do {
+                args.add(or());
+            } while (accept(","));
+            expect(")");
+        }
+        return args.toArray(new Expression[args.size()]);
+    }
+
+    /**
+     * Parse a quoted string, backslash escapes the next character.
+     *
+     * @param quote quote character.
+     * @return string parsed.
+     */
+    private String string(char quote) {
+        StringBuilder builder = new StringBuilder();
+        pos++;
+        while (pos < source.length()) {
+            char c = source.charAt(pos++);
+            if (c == quote) {
+                return builder.toString();
+            } else if (c == '\\' && pos < source.length()) {
+                builder.append(source.charAt(pos++));
+            } else {
+                builder.append(c);
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    /**
+     * Parse a number, integral numbers are parsed as long.
+     *
+     * @return number parsed.
+     */
+    private Number number() {
+        int start = pos++;
+        boolean integral = true;
+        while (pos < source.length()) {
+            char c = source.charAt(pos);
+            if (c == '.' || c == 'e' || c == 'E' || ((c == '-' || c == '+') && (source.charAt(pos - 1) == 'e' || source.charAt(pos - 1) == 'E'))) {
+                integral = false;
+            } else if (!Character.isDigit(c)) {
+                break;
+            }
+            pos++;
+        }
+        String text = source.substring(start, pos);
+        try {
+            return integral ? (Number) Long.parseLong(text) : (Number) Double.parseDouble(text);
+        } catch (NumberFormatException ex) {
+            throw error("Invalid number '" + text + "'");
+        }
+    }
+
+    /**
+     * Parse a json path.
+     *
+     * @return expression parsed.
+     */
+    private Expression path() {
+        int start = pos;
+        while (pos < source.length() && isPathChar(source.charAt(pos))) {
+            pos++;
+        }
+        String text = source.substring(start, pos);
+        try {
+            return Expression.path(text);
+        } catch (IllegalArgumentException ex) {
+            throw error("Invalid json path '" + text + "'");
+        }
+    }
+
+    /**
+     * Parse an identifier.
+     *
+     * @return identifier parsed.
+     */
+    private String identifier() {
+        int start = pos;
+        while (pos < source.length() && Character.isLetterOrDigit(source.charAt(pos))) {
+            pos++;
+        }
+        return source.substring(start, pos);
+    }
+
+    /**
+     * Returns true if the character is part of a json path.
+     *
+     * @param c character to test.
+     * @return true if the character is part of a json path, otherwise false.
+     */
+    private static boolean isPathChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '$' || c == '.' || c == '_' || c == '-' ||
+                c == '[' || c == ']' || c == '*' || c == ':';
+    }
+
+    /**
+     * Consume a token if present.
+     *
+     * @param token token to consume.
+     * @return true if the token has been consumed, otherwise false.
+     */
+    private boolean accept(String token) {
+        skip();
+        if (source.startsWith(token, pos)) {
+            pos += token.length();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consume a token.
+     *
+     * @param token token to consume.
+     */
+    private void expect(String token) {
+        if (!accept(token)) {
+            throw error("Expected '" + token + "'");
+        }
+    }
+
+    /**
+     * Skip whitespaces.
+     */
+    private void skip() {
+        while (pos < source.length() && Character.isWhitespace(source.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    /**
+     * Returns a parse error at the current position.
+     *
+     * @param message message of the error.
+     * @return parse error.
+     */
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + pos + " in expression: " + source);
+    }
+
+}
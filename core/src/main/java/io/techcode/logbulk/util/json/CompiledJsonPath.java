@@ -40,6 +40,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 /**
  * Compiled json path implementation.
+ * Accessors are interpreted one by one, kept as fallback of {@link FlatJsonPath}.
  */
 public class CompiledJsonPath extends JsonPath {
 
@@ -98,16 +99,35 @@ public class CompiledJsonPath extends JsonPath {
         // Current document
         Object current = doc;
 
-        // Iterate over each accessor and apply
+        // Iterate over each accessor and apply, intermediate values are only read
         Iterator<Accessor> it = accessors.iterator();
         while (it.hasNext() && current != null) {
-            current = it.next().get(current);
+            Accessor accessor = it.next();
+            current = it.hasNext() ? accessor.peek(current) : accessor.get(current);
+        }
+
+        // Nested value reached by peeking may be mutated by the caller, walk again as owner
+        if ((current instanceof JsonObject || current instanceof JsonArray) && accessors.size() > 1 && isPeekable(doc)) {
+            current = doc;
+            for (Accessor accessor : accessors) {
+                current = accessor.get(current);
+            }
         }
 
         // Result
         return current;
     }
 
+    /**
+     * Returns true if the document reads values without taking ownership of them.
+     *
+     * @param doc json document.
+     * @return true if the document reads values without taking ownership of them, otherwise false.
+     */
+    static boolean isPeekable(Object doc) {
+        return doc instanceof JsonObject && ((JsonObject) doc).getMap() instanceof Peekable;
+    }
+
     @Override public void put(@NonNull JsonObject doc, Object value) {
         putUnderlying(doc, value);
     }
@@ -219,6 +239,10 @@ public class CompiledJsonPath extends JsonPath {
 
         public abstract Object getTyped(T doc);
 
+        public Object peek(Object doc) {
+            return get(doc);
+        }
+
         public void put(Object doc, Object value) {
             if (typed.isInstance(doc)) {
                 putTyped((T) doc, value);
@@ -251,6 +275,10 @@ public class CompiledJsonPath extends JsonPath {
             return doc.getValue(field);
         }
 
+        @Override public Object peek(Object doc) {
+            return (doc instanceof JsonObject) ? LazyJsonObject.peek((JsonObject) doc, field) : null;
+        }
+
         @Override public void putTyped(JsonObject doc, Object value) {
             doc.put(field, value);
         }
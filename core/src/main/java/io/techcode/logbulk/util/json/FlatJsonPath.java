@@ -0,0 +1,364 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.json;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import lombok.NonNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Json path compiled to flat arrays of steps.
+ * Steps are evaluated over underlying maps and lists, put resolves each level once.
+ * A nested object or array read from a peekable document is resolved again as owner, and returned wrapped.
+ */
+public final class FlatJsonPath extends JsonPath {
+
+    // Pattern to validate json path
+    private static final Pattern VALID_JSON_PATH = Pattern.compile("\\$((\\.[a-zA-Z-_]+)|(\\[[0-9]+\\]))+");
+
+    // Pattern to iterate based on json path
+    private static final Pattern TREE_JSON_PATH = Pattern.compile("((\\.[a-zA-Z-_]+)|(\\[[0-9]+\\]))");
+
+    // Field of each step or null for an index step
+    private final String[] fields;
+
+    // Index of each index step
+    private final int[] indexes;
+
+    // Last step
+    private final int last;
+
+    /**
+     * Create a new flat json path.
+     *
+     * @param path json path.
+     */
+    FlatJsonPath(String path) {
+        super(path);
+        checkArgument(VALID_JSON_PATH.matcher(path).matches(), "The path must be a valid jsonpath");
+
+        // Count steps
+        Matcher matcher = TREE_JSON_PATH.matcher(path);
+        int steps = 0;
+        while (matcher.find()) {
+            steps++;
+        }
+
+        // Flatten steps
+        fields = new String[steps];
+        indexes = new int[steps];
+        matcher.reset();
+        for (int i = 0; matcher.find(); i++) {
+            String match = matcher.group(0);
+            if (match.startsWith(".")) {
+                fields[i] = match.substring(1);
+            } else {
+                indexes[i] = Integer.parseInt(match.substring(1, match.length() - 1));
+            }
+        }
+        last = steps - 1;
+    }
+
+    @Override public Object get(@NonNull JsonObject doc) {
+        return getUnderlying(doc);
+    }
+
+    @Override public Object get(@NonNull JsonArray doc) {
+        return getUnderlying(doc);
+    }
+
+    @Override public <T> T get(@NonNull JsonObject doc, @NonNull Class<T> typed) {
+        Object value = getUnderlying(doc);
+        return typed.isInstance(value) ? (T) value : null;
+    }
+
+    @Override public <T> T get(@NonNull JsonArray doc, @NonNull Class<T> typed) {
+        Object value = getUnderlying(doc);
+        return typed.isInstance(value) ? (T) value : null;
+    }
+
+    @Override public void put(@NonNull JsonObject doc, Object value) {
+        putUnderlying(doc, value);
+    }
+
+    @Override public void put(@NonNull JsonArray doc, Object value) {
+        putUnderlying(doc, value);
+    }
+
+    @Override public void remove(@NonNull JsonObject doc) {
+        removeUnderlying(doc);
+    }
+
+    @Override public void remove(@NonNull JsonArray doc) {
+        removeUnderlying(doc);
+    }
+
+    /**
+     * Get a value based on json path, intermediate values are only read.
+     *
+     * @param doc json document.
+     * @return value if possible, otherwise null.
+     */
+    private Object getUnderlying(Object doc) {
+        Object parent = walk(doc, last, true);
+        Object value = (parent != null) ? step(parent, last, false) : null;
+
+        // Nested value reached by peeking may be mutated by the caller, walk again as owner
+        if (last > 0 && isContainer(value) && CompiledJsonPath.isPeekable(doc)) {
+            parent = walk(doc, last, false);
+            value = (parent != null) ? step(parent, last, false) : null;
+        }
+        return wrap(value);
+    }
+
+    /**
+     * Put a value based on json path, missing intermediate values are created.
+     *
+     * @param doc   json document.
+     * @param value value to put.
+     */
+    private void putUnderlying(Object doc, Object value) {
+        Object current = doc;
+        for (int i = 0; i < last && current != null; i++) {
+            Object next = step(current, i, false);
+            if (next == null) {
+                next = (fields[i + 1] != null) ? new JsonObject() : new JsonArray();
+                set(current, i, next);
+            }
+            current = next;
+        }
+        if (current != null) {
+            set(current, last, value);
+        }
+    }
+
+    /**
+     * Remove a value based on json path.
+     *
+     * @param doc json document.
+     */
+    private void removeUnderlying(Object doc) {
+        Object parent = walk(doc, last, false);
+        if (parent != null) {
+            unset(parent, fields[last], indexes[last]);
+        }
+    }
+
+    /**
+     * Walk steps from the document.
+     *
+     * @param doc  json document.
+     * @param end  step to stop before.
+     * @param peek true to only read values, otherwise false.
+     * @return value reached or null.
+     */
+    private Object walk(Object doc, int end, boolean peek) {
+        Object current = doc;
+        for (int i = 0; i < end && current != null; i++) {
+            current = step(current, i, peek);
+        }
+        return current;
+    }
+
+    /**
+     * Apply a step on a value.
+     *
+     * @param current value to step in.
+     * @param i       step to apply.
+     * @param peek    true to only read the value, otherwise false.
+     * @return value reached or null.
+     */
+    private Object step(Object current, int i, boolean peek) {
+        return step(current, fields[i], indexes[i], peek);
+    }
+
+    /**
+     * Set a value with a step.
+     *
+     * @param current value to step in.
+     * @param i       step to apply.
+     * @param value   value to set.
+     */
+    private void set(Object current, int i, Object value) {
+        set(current, fields[i], indexes[i], value);
+    }
+
+    /**
+     * Returns the steps of the path.
+     *
+     * @return field of each step or null for an index step.
+     */
+    String[] fields() {
+        return fields;
+    }
+
+    /**
+     * Returns the indexes of the path.
+     *
+     * @return index of each index step.
+     */
+    int[] indexes() {
+        return indexes;
+    }
+
+    /**
+     * Apply a step on a value.
+     *
+     * @param current value to step in.
+     * @param field   field of the step or null for an index step.
+     * @param index   index of the step.
+     * @param peek    true to only read the value, otherwise false.
+     * @return value reached or null.
+     */
+    static Object step(Object current, String field, int index, boolean peek) {
+        if (field != null) {
+            Map<String, Object> map = map(current);
+            if (map == null) {
+                return null;
+            }
+            return (peek && map instanceof Peekable) ? ((Peekable) map).peek(field) : map.get(field);
+        } else {
+            List<Object> list = list(current);
+            return (list != null && index < list.size()) ? list.get(index) : null;
+        }
+    }
+
+    /**
+     * Set a value with a step.
+     *
+     * @param current value to step in.
+     * @param field   field of the step or null for an index step.
+     * @param index   index of the step.
+     * @param value   value to set.
+     */
+    static void set(Object current, String field, int index, Object value) {
+        if (field != null) {
+            if (current instanceof JsonObject) {
+                ((JsonObject) current).put(field, value);
+            } else if (current instanceof Map) {
+                new JsonObject(map(current)).put(field, value);
+            }
+        } else {
+            List<Object> list = list(current);
+            if (list == null) {
+                return;
+            }
+            if (index >= list.size()) {
+                for (int j = index - list.size(); j > 0; j--) {
+                    list.add(null);
+                }
+                list.add(index, value);
+            } else {
+                list.set(index, value);
+            }
+        }
+    }
+
+    /**
+     * Remove a value with a step.
+     *
+     * @param current value to step in.
+     * @param field   field of the step or null for an index step.
+     * @param index   index of the step.
+     */
+    static void unset(Object current, String field, int index) {
+        if (field != null) {
+            Map<String, Object> map = map(current);
+            if (map != null) {
+                map.remove(field);
+            }
+        } else {
+            List<Object> list = list(current);
+            if (list != null && index < list.size()) {
+                list.remove(index);
+            }
+        }
+    }
+
+    /**
+     * Returns the underlying map of a json object.
+     *
+     * @param value json object or map.
+     * @return underlying map or null.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> map(Object value) {
+        if (value instanceof JsonObject) {
+            return ((JsonObject) value).getMap();
+        } else if (value instanceof Map) {
+            return (Map<String, Object>) value;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the underlying list of a json array.
+     *
+     * @param value json array or list.
+     * @return underlying list or null.
+     */
+    @SuppressWarnings("unchecked")
+    static List<Object> list(Object value) {
+        if (value instanceof JsonArray) {
+            return ((JsonArray) value).getList();
+        } else if (value instanceof List) {
+            return (List<Object>) value;
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the value is a json container.
+     *
+     * @param value value to test.
+     * @return true if the value is a json container, otherwise false.
+     */
+    static boolean isContainer(Object value) {
+        return value instanceof Map || value instanceof List || value instanceof JsonObject || value instanceof JsonArray;
+    }
+
+    /**
+     * Wrap an underlying value like json objects and arrays do.
+     *
+     * @param value underlying value.
+     * @return value wrapped.
+     */
+    @SuppressWarnings("unchecked")
+    static Object wrap(Object value) {
+        if (value instanceof Map) {
+            return new JsonObject((Map<String, Object>) value);
+        } else if (value instanceof List) {
+            return new JsonArray((List) value);
+        }
+        return value;
+    }
+
+}
@@ -31,6 +31,8 @@ import lombok.NonNull;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -55,28 +57,52 @@ public abstract class JsonPath implements Comparable<JsonPath> {
     }
 
     /**
-     * Create a new json path.
+     * Create a new json path, compiled to flat steps.
      *
      * @param path json path.
      * @return new json path.
      */
     public static JsonPath create(String path) {
+        return create(path, false);
+    }
+
+    /**
+     * Create a new json path.
+     *
+     * @param path        json path.
+     * @param interpreted true to interpret accessors, otherwise paths are compiled to flat steps.
+     * @return new json path.
+     */
+    public static JsonPath create(String path, boolean interpreted) {
         checkArgument(!Strings.isNullOrEmpty(path), "The json path must be valid");
         if ("$".equals(path)) {
             return new SelfJsonPath(path);
+        } else if (MultiJsonPath.isMulti(path)) {
+            return new MultiJsonPath(path);
         } else if (path.startsWith("$")) {
             List<String> elements = SPLITTER.splitToList(path);
             if (elements.size() == 2) {
                 String field = elements.get(1);
-                return field.endsWith("]") ? new CompiledJsonPath(path) : new DirectJsonPath(field);
+                return field.endsWith("]") ? compile(path, interpreted) : new DirectJsonPath(field);
             } else {
-                return new CompiledJsonPath(path);
+                return compile(path, interpreted);
             }
         } else {
             return new DirectJsonPath(path);
         }
     }
 
+    /**
+     * Compile a json path with accessors or flat steps.
+     *
+     * @param path        json path.
+     * @param interpreted true to interpret accessors, otherwise paths are compiled to flat steps.
+     * @return new json path.
+     */
+    private static JsonPath compile(String path, boolean interpreted) {
+        return interpreted ? new CompiledJsonPath(path) : new FlatJsonPath(path);
+    }
+
     /**
      * Get a value based on json path.
      *
@@ -153,6 +179,73 @@ public abstract class JsonPath implements Comparable<JsonPath> {
     public void remove(@NonNull JsonArray doc) {
     }
 
+    /**
+     * Returns true if the path reaches at most one value.
+     *
+     * @return true if the path reaches at most one value, otherwise false.
+     */
+    public boolean isDefinite() {
+        return true;
+    }
+
+    /**
+     * Visit each value reached by json path.
+     *
+     * @param doc    json document.
+     * @param action action to perform on each value.
+     */
+    public void forEach(@NonNull JsonObject doc, @NonNull Consumer<Object> action) {
+        Object value = get(doc);
+        if (value != null) {
+            action.accept(value);
+        }
+    }
+
+    /**
+     * Visit each value reached by json path.
+     *
+     * @param doc    json document.
+     * @param action action to perform on each value.
+     */
+    public void forEach(@NonNull JsonArray doc, @NonNull Consumer<Object> action) {
+        Object value = get(doc);
+        if (value != null) {
+            action.accept(value);
+        }
+    }
+
+    /**
+     * Replace each value reached by json path, in place.
+     *
+     * @param doc      json document.
+     * @param function function applied on each value.
+     */
+    public void replace(@NonNull JsonObject doc, @NonNull UnaryOperator<Object> function) {
+        Object value = get(doc);
+        if (value != null) {
+            Object replaced = function.apply(value);
+            if (replaced != value) {
+                put(doc, replaced);
+            }
+        }
+    }
+
+    /**
+     * Replace each value reached by json path, in place.
+     *
+     * @param doc      json document.
+     * @param function function applied on each value.
+     */
+    public void replace(@NonNull JsonArray doc, @NonNull UnaryOperator<Object> function) {
+        Object value = get(doc);
+        if (value != null) {
+            Object replaced = function.apply(value);
+            if (replaced != value) {
+                put(doc, replaced);
+            }
+        }
+    }
+
     @Override public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof JsonPath)) return false;
@@ -0,0 +1,650 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.json;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Set of json paths merged into a prefix trie.
+ * Paths are evaluated through a cursor that resolves shared prefixes once per document,
+ * paths that can't be merged are evaluated on their own.
+ */
+public class JsonPathSet {
+
+    // Paths by slot
+    private final List<JsonPath> paths = Lists.newArrayList();
+    private final Map<JsonPath, Integer> slots = Maps.newHashMap();
+
+    // Trie under construction
+    private final Node root = new Node(null, 0);
+
+    // Trie in pre-order, node zero is the document
+    private String[] fields;
+    private int[] indexes;
+    private int[] parents;
+    private int[] ends;
+    private boolean[] leaves;
+
+    // Node of each slot or -1 if the path is evaluated on its own
+    private int[] nodes;
+
+    // Slots in removal order
+    private int[] removals;
+
+    /**
+     * Add a path to the set.
+     *
+     * @param path json path to add.
+     * @return slot of the path.
+     */
+    public int add(@NonNull JsonPath path) {
+        checkState(fields == null, "The set is already compiled");
+        Integer slot = slots.get(path);
+        if (slot != null) {
+            return slot;
+        }
+        slot = paths.size();
+        paths.add(path);
+        slots.put(path, slot);
+
+        // Merge steps into trie
+        if (path instanceof DirectJsonPath) {
+            root.child(path.path, 0).slots.add(slot);
+        } else if (path instanceof FlatJsonPath) {
+            String[] steps = ((FlatJsonPath) path).fields();
+            int[] idx = ((FlatJsonPath) path).indexes();
+            Node node = root;
+            for (int i = 0; i < steps.length; i++) {
+                node = node.child(steps[i], idx[i]);
+            }
+            node.slots.add(slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Returns the path of a slot.
+     *
+     * @param slot slot of the path.
+     * @return json path.
+     */
+    public JsonPath path(int slot) {
+        return paths.get(slot);
+    }
+
+    /**
+     * Returns the number of paths.
+     *
+     * @return number of paths.
+     */
+    public int size() {
+        return paths.size();
+    }
+
+    /**
+     * Returns a new cursor, the set can't be modified afterwards.
+     * A cursor isn't thread-safe and is meant to be reused for each document.
+     *
+     * @return new cursor.
+     */
+    public Cursor cursor() {
+        if (fields == null) {
+            compile();
+        }
+        return new Cursor();
+    }
+
+    /**
+     * Flatten the trie in pre-order.
+     */
+    private void compile() {
+        int count = root.count();
+        fields = new String[count];
+        indexes = new int[count];
+        parents = new int[count];
+        ends = new int[count];
+        leaves = new boolean[count];
+        nodes = new int[paths.size()];
+        Arrays.fill(nodes, -1);
+        flatten(root, -1, 0);
+
+        // Paths evaluated on their own are removed last
+        List<Integer> order = Lists.newArrayListWithCapacity(paths.size());
+        root.order(order);
+        for (int slot = 0; slot < nodes.length; slot++) {
+            if (nodes[slot] < 0) {
+                order.add(slot);
+            }
+        }
+        removals = order.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Flatten a node and his children.
+     *
+     * @param node   node to flatten.
+     * @param parent index of the parent node.
+     * @param i      index of the node.
+     * @return index following the subtree of the node.
+     */
+    private int flatten(Node node, int parent, int i) {
+        fields[i] = node.field;
+        indexes[i] = node.index;
+        parents[i] = parent;
+        leaves[i] = !node.slots.isEmpty();
+        for (int slot : node.slots) {
+            nodes[slot] = i;
+        }
+        int next = i + 1;
+        for (Node child : node.children.values()) {
+            next = flatten(child, i, next);
+        }
+        ends[i] = next;
+        return next;
+    }
+
+    /**
+     * Per-document evaluation of the paths of the set.
+     * Values are resolved on demand and kept until a write invalidates them.
+     */
+    public final class Cursor {
+
+        // Values resolved by node
+        private final Object[] values = new Object[fields.length];
+        private final int[] stamps = new int[fields.length];
+        private int epoch = 0;
+
+        // Current document
+        private JsonObject doc;
+
+        // Fields to keep, only with paths evaluated on their own
+        private Marks marks;
+
+        /**
+         * Create a new cursor.
+         */
+        private Cursor() {
+        }
+
+        /**
+         * Reset the cursor over a document.
+         * Must be called again if the document is modified without the cursor.
+         *
+         * @param doc json document.
+         * @return same object for chaining.
+         */
+        public Cursor reset(@NonNull JsonObject doc) {
+            this.doc = doc;
+            invalidateAll();
+            return this;
+        }
+
+        /**
+         * Returns the current document.
+         *
+         * @return current document.
+         */
+        public JsonObject document() {
+            return doc;
+        }
+
+        /**
+         * Get the value of a slot.
+         *
+         * @param slot slot of the path.
+         * @return value if possible, otherwise null.
+         */
+        public Object get(int slot) {
+            int node = nodes[slot];
+            if (node < 0) {
+                return paths.get(slot).get(doc);
+            }
+            return FlatJsonPath.wrap(resolve(node));
+        }
+
+        /**
+         * Get the value of a slot.
+         *
+         * @param slot  slot of the path.
+         * @param typed type of value.
+         * @param <T>   type of value.
+         * @return value if possible, otherwise null.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T get(int slot, @NonNull Class<T> typed) {
+            Object value = get(slot);
+            return typed.isInstance(value) ? (T) value : null;
+        }
+
+        /**
+         * Put the value of a slot, missing intermediate values are created.
+         *
+         * @param slot  slot of the path.
+         * @param value value to put.
+         */
+        public void put(int slot, Object value) {
+            int node = nodes[slot];
+            if (node < 0) {
+                paths.get(slot).put(doc, value);
+                invalidateAll();
+                return;
+            }
+            Object parent = ensure(parents[node], fields[node] != null);
+            if (parent != null) {
+                FlatJsonPath.set(parent, fields[node], indexes[node], value);
+            }
+            invalidateStep(node);
+        }
+
+        /**
+         * Remove the value of a slot.
+         *
+         * @param slot slot of the path.
+         */
+        public void remove(int slot) {
+            int node = nodes[slot];
+            if (node < 0) {
+                paths.get(slot).remove(doc);
+                invalidateAll();
+                return;
+            }
+            Object parent = resolve(parents[node]);
+            if (parent != null) {
+                FlatJsonPath.unset(parent, fields[node], indexes[node]);
+            }
+            invalidateStep(node);
+        }
+
+        /**
+         * Remove the values of all slots.
+         * Elements of a same array are removed from the last one, so that a removal doesn't shift the others.
+         */
+        public void removeAll() {
+            for (int slot : removals) {
+                remove(slot);
+            }
+        }
+
+        /**
+         * Visit each value of a slot.
+         *
+         * @param slot   slot of the path.
+         * @param action action to perform on each value.
+         */
+        public void forEach(int slot, @NonNull Consumer<Object> action) {
+            if (nodes[slot] < 0) {
+                paths.get(slot).forEach(doc, action);
+                return;
+            }
+            Object value = get(slot);
+            if (value != null) {
+                action.accept(value);
+            }
+        }
+
+        /**
+         * Replace each value of a slot, in place.
+         *
+         * @param slot     slot of the path.
+         * @param function function applied on each value.
+         */
+        public void replace(int slot, @NonNull UnaryOperator<Object> function) {
+            if (nodes[slot] < 0) {
+                paths.get(slot).replace(doc, function);
+                invalidateAll();
+                return;
+            }
+            Object value = get(slot);
+            if (value != null) {
+                Object replaced = function.apply(value);
+                if (replaced != value) {
+                    put(slot, replaced);
+                }
+            }
+        }
+
+        /**
+         * Remove all fields of the document that aren't reached by a path of the set.
+         * Values reached by a path are kept whole, elements of arrays are never removed.
+         * Definite paths keep the fields they go through, while paths with wildcards, slices or
+         * recursive descents only keep the fields leading to a value reached, elements they step
+         * over are kept without the fields not reached.
+         */
+        public void retain() {
+            boolean definite = true;
+            for (int slot = 0; slot < nodes.length; slot++) {
+                if (nodes[slot] < 0) {
+                    if (!(paths.get(slot) instanceof MultiJsonPath)) {
+                        // Path evaluated on its own may reach anything
+                        return;
+                    }
+                    definite = false;
+                }
+            }
+            if (definite) {
+                retain(0, doc);
+            } else {
+                // Mark fields to keep, then prune the others
+                if (marks == null) {
+                    marks = new Marks();
+                }
+                mark(0, doc);
+                for (int slot = 0; slot < nodes.length; slot++) {
+                    if (nodes[slot] < 0) {
+                        ((MultiJsonPath) paths.get(slot)).mark(doc, marks);
+                    }
+                }
+                marks.prune(doc);
+                marks.clear();
+            }
+            invalidateAll();
+        }
+
+        /**
+         * Mark fields of a value going through or reaching a child of a node.
+         *
+         * @param node  node of the value.
+         * @param value value reached.
+         */
+        private void mark(int node, Object value) {
+            Map<String, Object> map = FlatJsonPath.map(value);
+            List<Object> list = (map == null) ? FlatJsonPath.list(value) : null;
+            for (int child = node + 1; child < ends[node]; child = ends[child]) {
+                if (fields[child] != null ? map != null && map.containsKey(fields[child])
+                        : list != null && indexes[child] < list.size()) {
+                    marks.mark(fields[child] != null ? map : list,
+                            fields[child] != null ? fields[child] : indexes[child], leaves[child]);
+                    Object next = FlatJsonPath.step(value, fields[child], indexes[child], false);
+                    if (!leaves[child] && next != null) {
+                        mark(child, next);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Remove fields of a value that aren't reached by a child of a node.
+         *
+         * @param node  node of the value.
+         * @param value value reached.
+         */
+        private void retain(int node, Object value) {
+            if (leaves[node]) {
+                return;
+            }
+            Map<String, Object> map = FlatJsonPath.map(value);
+            if (map != null) {
+                Iterator<String> it = map.keySet().iterator();
+                while (it.hasNext()) {
+                    if (child(node, it.next()) < 0) {
+                        it.remove();
+                    }
+                }
+            }
+            for (int child = node + 1; child < ends[node]; child = ends[child]) {
+                Object next = FlatJsonPath.step(value, fields[child], indexes[child], false);
+                if (next != null) {
+                    retain(child, next);
+                }
+            }
+        }
+
+        /**
+         * Returns the child of a node reached by a field.
+         *
+         * @param node  parent node.
+         * @param field field of the child.
+         * @return index of the child or -1.
+         */
+        private int child(int node, String field) {
+            for (int child = node + 1; child < ends[node]; child = ends[child]) {
+                if (field.equals(fields[child])) {
+                    return child;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Resolve the value of a node.
+         *
+         * @param node node to resolve.
+         * @return value reached or null.
+         */
+        private Object resolve(int node) {
+            if (stamps[node] == epoch) {
+                return values[node];
+            }
+            Object parent = resolve(parents[node]);
+            Object value = (parent != null) ? FlatJsonPath.step(parent, fields[node], indexes[node], false) : null;
+            values[node] = value;
+            stamps[node] = epoch;
+            return value;
+        }
+
+        /**
+         * Resolve the value of a node, created if missing.
+         *
+         * @param node   node to resolve.
+         * @param object true to create a json object, otherwise a json array.
+         * @return value reached or null if not a container.
+         */
+        private Object ensure(int node, boolean object) {
+            Object value = resolve(node);
+            if (value == null && node > 0) {
+                Object parent = ensure(parents[node], fields[node] != null);
+                if (parent != null) {
+                    value = object ? new JsonObject() : new JsonArray();
+                    FlatJsonPath.set(parent, fields[node], indexes[node], value);
+                    invalidateStep(node);
+                    values[node] = value;
+                    stamps[node] = epoch;
+                }
+            }
+            return value;
+        }
+
+        /**
+         * Invalidate a node after a write, elements of an array may have shifted.
+         *
+         * @param node node written.
+         */
+        private void invalidateStep(int node) {
+            invalidate((fields[node] != null) ? node : parents[node]);
+        }
+
+        /**
+         * Invalidate a node and his subtree.
+         *
+         * @param node node to invalidate.
+         */
+        private void invalidate(int node) {
+            for (int i = node; i < ends[node]; i++) {
+                stamps[i] = 0;
+            }
+            if (node == 0) {
+                invalidateAll();
+            }
+        }
+
+        /**
+         * Invalidate all nodes except the document.
+         */
+        private void invalidateAll() {
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                epoch = 1;
+            }
+            values[0] = doc;
+            stamps[0] = epoch;
+        }
+
+    }
+
+    /**
+     * Fields to keep by container, compared by identity.
+     * A field is kept whole or only with the fields of its value marked.
+     */
+    static final class Marks {
+
+        // Fields or indexes to keep by container, true if kept whole
+        private final Map<Object, Map<Object, Boolean>> marks = new IdentityHashMap<>();
+
+        /**
+         * Mark a field or an index of a container.
+         *
+         * @param container map or list holding the value.
+         * @param key       field or index of the value.
+         * @param whole     true to keep the value whole, otherwise only its marked fields.
+         */
+        void mark(Object container, Object key, boolean whole) {
+            marks.computeIfAbsent(container, k -> Maps.newHashMap()).merge(key, whole, Boolean::logicalOr);
+        }
+
+        /**
+         * Remove fields of a value that aren't marked.
+         *
+         * @param value value to prune.
+         */
+        void prune(Object value) {
+            Map<String, Object> map = FlatJsonPath.map(value);
+            if (map != null) {
+                Map<Object, Boolean> kept = marks.get(map);
+                Iterator<Map.Entry<String, Object>> it = map.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<String, Object> entry = it.next();
+                    Boolean whole = (kept != null) ? kept.get(entry.getKey()) : null;
+                    if (whole == null) {
+                        it.remove();
+                    } else if (!whole && entry.getValue() != null) {
+                        prune(entry.getValue());
+                    }
+                }
+                return;
+            }
+            List<Object> list = FlatJsonPath.list(value);
+            Map<Object, Boolean> kept = (list != null) ? marks.get(list) : null;
+            if (kept != null) {
+                for (Map.Entry<Object, Boolean> entry : kept.entrySet()) {
+                    Object element = list.get((Integer) entry.getKey());
+                    if (!entry.getValue() && element != null) {
+                        prune(element);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Clear all marks.
+         */
+        void clear() {
+            marks.clear();
+        }
+
+    }
+
+    /**
+     * Node of the trie under construction.
+     */
+    private static class Node {
+
+        // Step from the parent
+        private final String field;
+        private final int index;
+
+        // Slots ending at this node
+        private final List<Integer> slots = Lists.newArrayList();
+
+        // Children by step
+        private final Map<Object, Node> children = Maps.newLinkedHashMap();
+
+        /**
+         * Create a new node.
+         *
+         * @param field field of the step or null for an index step.
+         * @param index index of the step.
+         */
+        Node(String field, int index) {
+            this.field = field;
+            this.index = index;
+        }
+
+        /**
+         * Returns the child reached by a step, created if needed.
+         *
+         * @param field field of the step or null for an index step.
+         * @param index index of the step.
+         * @return child node.
+         */
+        Node child(String field, int index) {
+            Object key = (field != null) ? field : index;
+            return children.computeIfAbsent(key, k -> new Node(field, index));
+        }
+
+        /**
+         * Collect slots of the subtree in pre-order, index steps in descending order.
+         *
+         * @param order slots collected.
+         */
+        void order(List<Integer> order) {
+            order.addAll(slots);
+            List<Node> nodes = Lists.newArrayList(children.values());
+            nodes.sort(Comparator.comparing((Node node) -> node.field == null)
+                    .thenComparing(node -> (node.field == null) ? -node.index : 0));
+            for (Node child : nodes) {
+                child.order(order);
+            }
+        }
+
+        /**
+         * Returns the number of nodes of the subtree.
+         *
+         * @return number of nodes of the subtree.
+         */
+        int count() {
+            int count = 1;
+            for (Node child : children.values()) {
+                count += child.count();
+            }
+            return count;
+        }
+
+    }
+
+}
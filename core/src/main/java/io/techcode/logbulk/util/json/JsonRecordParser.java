@@ -0,0 +1,345 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Delimited json record parser.
+ * Records are decoded in place from chunks, only a partial record at the end of a chunk is copied.
+ * Records that aren't json objects are reported as malformed instead of raising an exception.
+ * Records are structurally checked first, so that a parser is only created for records that look well-formed.
+ * In lazy mode, records are then copied and decoded on demand by {@link LazyJsonObject}.
+ */
+public class JsonRecordParser implements Handler<Buffer> {
+
+    // Factory shared with vertx mapper, parsers reuse its buffers
+    private static final JsonFactory FACTORY = Json.mapper.getFactory();
+
+    // Shapes of a record
+    private static final int MALFORMED = -1;
+    private static final int EMPTY = 0;
+    private static final int OBJECT = 1;
+
+    // Nesting depth tracked by the structural check
+    private static final int MAX_TRACKED_DEPTH = 64;
+
+    // Settings
+    private final byte[] delimiter;
+    private final boolean lazy;
+
+    // Handlers
+    private final Handler<JsonObject> handler;
+    private final Handler<Buffer> malformed;
+
+    // Partial record of previous chunks
+    private Buffer pending;
+
+    /**
+     * Create a new json record parser.
+     *
+     * @param delimiter delimiter of records.
+     * @param lazy      true to decode records on demand, otherwise false.
+     * @param handler   handler of json records.
+     * @param malformed handler of malformed records.
+     */
+    public JsonRecordParser(@NonNull String delimiter, boolean lazy,
+                            @NonNull Handler<JsonObject> handler, @NonNull Handler<Buffer> malformed) {
+        checkArgument(!delimiter.isEmpty(), "The delimiter must be valid");
+        this.delimiter = delimiter.getBytes(StandardCharsets.UTF_8);
+        this.lazy = lazy;
+        this.handler = handler;
+        this.malformed = malformed;
+    }
+
+    @Override public void handle(@NonNull Buffer chunk) {
+        // Join with partial record if any
+        Buffer data = chunk;
+        int start = 0;
+        if (pending != null) {
+            start = pending.length() - Math.min(pending.length(), delimiter.length - 1);
+            data = pending.appendBuffer(chunk);
+            pending = null;
+        }
+        ByteBuf buf = data.getByteBuf();
+        int length = data.length();
+
+        // Decode each complete record
+        int from = 0;
+        int end;
+        while ((end = indexOf(buf, Math.max(from, start), length)) >= 0) {
+            record(buf, from, end);
+            from = end + delimiter.length;
+        }
+
+        // Keep partial record
+        if (from < length) {
+            pending = data.getBuffer(from, length);
+        }
+    }
+
+    /**
+     * Find the next delimiter.
+     *
+     * @param buf    buffer to scan.
+     * @param from   index to start from.
+     * @param length length of the buffer.
+     * @return index of the delimiter or -1 if not found.
+     */
+    private int indexOf(ByteBuf buf, int from, int length) {
+        int last = length - delimiter.length;
+        if (delimiter.length == 1) {
+            return (from > last) ? -1 : buf.indexOf(from, length, delimiter[0]);
+        }
+        for (int i = from; i <= last; i++) {
+            int j = 0;
+            while (j < delimiter.length && buf.getByte(i + j) == delimiter[j]) {
+                j++;
+            }
+            if (j == delimiter.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Decode a record.
+     *
+     * @param buf  buffer holding the record.
+     * @param from start of the record.
+     * @param to   end of the record.
+     */
+    private void record(ByteBuf buf, int from, int to) {
+        // Skip blank records and fast reject anything but an object
+        int i = from;
+        while (i < to && Character.isWhitespace(buf.getByte(i))) {
+            i++;
+        }
+        if (i == to) {
+            return;
+        }
+        // Structural errors are rejected without a parser
+        int shape = (buf.getByte(i) == '{') ? shape(buf, i, to) : MALFORMED;
+        if (shape == MALFORMED) {
+            malformed.handle(Buffer.buffer(buf.copy(from, to - from)));
+            return;
+        }
+        if (shape == EMPTY) {
+            return;
+        }
+        if (lazy) {
+            handler.handle(new LazyJsonObject(Buffer.buffer(buf.copy(i, to - i))));
+            return;
+        }
+
+        // Decode in place, values may still be malformed
+        JsonObject doc;
+        try (JsonParser parser = parser(buf, i, to - i)) {
+            parser.nextToken();
+            doc = new JsonObject(readObject(parser));
+        } catch (IOException ex) {
+            doc = null;
+        }
+        if (doc == null) {
+            malformed.handle(Buffer.buffer(buf.copy(from, to - from)));
+        } else {
+            handler.handle(doc);
+        }
+    }
+
+    /**
+     * Check the structure of a record without decoding it.
+     * Strings, brackets and braces must be balanced and the object must end the record.
+     * Values aren't validated, a lazy record may still fail to decode on access.
+     *
+     * @param buf  buffer holding the record.
+     * @param from start of the record, on the opening brace.
+     * @param to   end of the record.
+     * @return shape of the record.
+     */
+    private int shape(ByteBuf buf, int from, int to) {
+        int last = to;
+        while (last > from && Character.isWhitespace(buf.getByte(last - 1))) {
+            last--;
+        }
+
+        // Bit set for each nested object, cleared for each nested array
+        long kinds = 0;
+        int depth = 0;
+        boolean string = false;
+        for (int i = from; i < last; i++) {
+            byte b = buf.getByte(i);
+            if (string) {
+                if (b == '\\') {
+                    i++;
+                } else if (b == '"') {
+                    string = false;
+                }
+                continue;
+            }
+            switch (b) {
+                case '"':
+                    string = true;
+                    break;
+                case '{':
+                case '[':
+                    if (depth < MAX_TRACKED_DEPTH) {
+                        kinds = (kinds << 1) | (b == '{' ? 1 : 0);
+                    }
+                    depth++;
+                    break;
+                case '}':
+                case ']':
+                    if (depth == 0) {
+                        return MALFORMED;
+                    }
+                    depth--;
+                    if (depth < MAX_TRACKED_DEPTH) {
+                        if (((kinds & 1) == 1) != (b == '}')) {
+                            return MALFORMED;
+                        }
+                        kinds >>>= 1;
+                    }
+                    if (depth == 0 && i != last - 1) {
+                        return MALFORMED;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (string || depth != 0) {
+            return MALFORMED;
+        }
+
+        // Empty if the opening brace is directly closed
+        int i = from + 1;
+        while (Character.isWhitespace(buf.getByte(i))) {
+            i++;
+        }
+        return (i == last - 1) ? EMPTY : OBJECT;
+    }
+
+    /**
+     * Create a parser over a region of a buffer without copy.
+     *
+     * @param buf    buffer to parse.
+     * @param offset start of the region.
+     * @param length length of the region.
+     * @return parser over the region.
+     * @throws IOException if the parser can't be created.
+     */
+    private JsonParser parser(ByteBuf buf, int offset, int length) throws IOException {
+        if (buf.hasArray()) {
+            return FACTORY.createParser(buf.array(), buf.arrayOffset() + offset, length);
+        }
+        return FACTORY.createParser(new ByteBufInputStream(buf.slice(offset, length)));
+    }
+
+    /**
+     * Read an object, the parser is positioned on the start object token.
+     *
+     * @param parser parser to read.
+     * @return object read.
+     * @throws IOException if the object is malformed.
+     */
+    private Map<String, Object> readObject(JsonParser parser) throws IOException {
+        Map<String, Object> map = Maps.newLinkedHashMap();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            map.put(field, readValue(parser));
+        }
+        return map;
+    }
+
+    /**
+     * Read an array, the parser is positioned on the start array token.
+     *
+     * @param parser parser to read.
+     * @return array read.
+     * @throws IOException if the array is malformed.
+     */
+    private List<Object> readArray(JsonParser parser) throws IOException {
+        List<Object> list = Lists.newArrayList();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            list.add(readValue(parser));
+        }
+        return list;
+    }
+
+    /**
+     * Read a value, the parser is positioned on the first token of the value.
+     *
+     * @param parser parser to read.
+     * @return value read.
+     * @throws IOException if the value is malformed.
+     */
+    private Object readValue(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == null) {
+            throw new IOException("Unexpected end of record");
+        }
+        switch (token) {
+            case START_OBJECT:
+                return readObject(parser);
+            case START_ARRAY:
+                return readArray(parser);
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                return parser.getNumberValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                throw new IOException("Unexpected token: " + token);
+        }
+    }
+
+}
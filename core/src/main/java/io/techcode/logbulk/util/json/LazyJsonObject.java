@@ -0,0 +1,350 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.collect.Maps;
+import io.netty.buffer.ByteBufInputStream;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Json object backed by the raw bytes of a record.
+ * Fields are decoded on demand and the whole object only once iterated or mutated.
+ * As long as the object isn't modified, it's encoded as the original bytes.
+ */
+public class LazyJsonObject extends JsonObject {
+
+    // Lazy underlying map
+    private final LazyMap lazy;
+
+    /**
+     * Create a new lazy json object.
+     *
+     * @param raw raw bytes of a json object.
+     * @throws DecodeException if the raw bytes don't start as a json object.
+     */
+    public LazyJsonObject(@NonNull Buffer raw) {
+        this(new LazyMap(raw));
+    }
+
+    /**
+     * Create a new lazy json object.
+     *
+     * @param lazy lazy underlying map.
+     */
+    private LazyJsonObject(LazyMap lazy) {
+        super(lazy);
+        this.lazy = lazy;
+    }
+
+    /**
+     * Returns the encoded form of a json object, reusing original bytes if possible.
+     *
+     * @param doc json object to encode.
+     * @return encoded form of the json object.
+     */
+    public static Buffer toBuffer(@NonNull JsonObject doc) {
+        if (doc instanceof LazyJsonObject && !((LazyJsonObject) doc).isModified()) {
+            return ((LazyJsonObject) doc).lazy.raw;
+        }
+        return Buffer.buffer(doc.encode());
+    }
+
+    /**
+     * Returns a value without considering the object modified.
+     * The value returned must not be mutated.
+     *
+     * @param doc   json object.
+     * @param field field to lookup.
+     * @return value of the field or null.
+     */
+    public static Object peek(@NonNull JsonObject doc, @NonNull String field) {
+        Map<String, Object> map = doc.getMap();
+        if (map instanceof Peekable) {
+            Object value = ((Peekable) map).peek(field);
+            if (value instanceof Map) {
+                return new JsonObject((Map) value);
+            } else if (value instanceof List) {
+                return new JsonArray((List) value);
+            }
+            return value;
+        }
+        return doc.getValue(field);
+    }
+
+    /**
+     * Returns the raw bytes the object was created from, even if they are outdated or malformed.
+     *
+     * @return raw bytes of the object.
+     */
+    public Buffer raw() {
+        return lazy.raw;
+    }
+
+    /**
+     * Returns true if the object may have been modified since decoding.
+     * Accessing a nested object or array is considered as a modification.
+     *
+     * @return true if the object may have been modified, otherwise false.
+     */
+    public boolean isModified() {
+        return lazy.modified;
+    }
+
+    /**
+     * Returns true if the whole object has been decoded.
+     *
+     * @return true if the whole object has been decoded, otherwise false.
+     */
+    public boolean isMaterialized() {
+        return lazy.map != null;
+    }
+
+    @Override public String encode() {
+        return lazy.modified ? super.encode() : lazy.raw.toString();
+    }
+
+    @Override public JsonObject copy() {
+        return lazy.modified ? super.copy() : new LazyJsonObject(lazy.raw);
+    }
+
+    @Override public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof JsonObject)) return false;
+        // Compare as plain json objects
+        return new JsonObject(getMap()).equals(new JsonObject(((JsonObject) o).getMap()));
+    }
+
+    @Override public int hashCode() {
+        return super.hashCode();
+    }
+
+    /**
+     * Map decoding fields on demand.
+     */
+    private static class LazyMap extends AbstractMap<String, Object> implements Peekable {
+
+        // Marker of absent field
+        private static final Object ABSENT = new Object();
+
+        // Lookups before decoding the whole object
+        private static final int MAX_LOOKUPS = 4;
+
+        // Raw bytes
+        private final Buffer raw;
+
+        // Fields decoded on demand
+        private Map<String, Object> fields;
+        private int lookups = 0;
+
+        // Whole object decoded
+        private Map<String, Object> map;
+
+        // Raw bytes are outdated
+        private boolean modified = false;
+
+        /**
+         * Create a new lazy map.
+         *
+         * @param raw raw bytes of a json object.
+         */
+        LazyMap(Buffer raw) {
+            this.raw = raw;
+            int i = 0;
+            while (i < raw.length() && Character.isWhitespace(raw.getByte(i))) {
+                i++;
+            }
+            if (i == raw.length() || raw.getByte(i) != '{') {
+                throw new DecodeException("Failed to decode: not a json object");
+            }
+        }
+
+        @Override public Object get(Object key) {
+            Object value = lookup(key);
+            if (value instanceof Map || value instanceof List) {
+                // Nested value may be mutated by the caller
+                modified = true;
+            }
+            return value;
+        }
+
+        @Override public Object peek(Object key) {
+            return lookup(key);
+        }
+
+        @Override public boolean containsKey(Object key) {
+            if (map != null) {
+                return map.containsKey(key);
+            }
+            lookup(key);
+            return map != null ? map.containsKey(key) : fields.get(key) != ABSENT;
+        }
+
+        @Override public boolean isEmpty() {
+            if (map != null) {
+                return map.isEmpty();
+            }
+            try (JsonParser parser = parser()) {
+                parser.nextToken();
+                return parser.nextToken() == JsonToken.END_OBJECT;
+            } catch (IOException ex) {
+                throw new DecodeException("Failed to decode:" + ex.getMessage(), ex);
+            }
+        }
+
+        @Override public int size() {
+            return materialize().size();
+        }
+
+        @Override public Object put(String key, Object value) {
+            modified = true;
+            return materialize().put(key, value);
+        }
+
+        @Override public Object remove(Object key) {
+            modified = true;
+            return materialize().remove(key);
+        }
+
+        @Override public void clear() {
+            modified = true;
+            materialize().clear();
+        }
+
+        @Override public Set<String> keySet() {
+            modified = true;
+            return materialize().keySet();
+        }
+
+        @Override public Collection<Object> values() {
+            modified = true;
+            return materialize().values();
+        }
+
+        @Override public Set<Entry<String, Object>> entrySet() {
+            modified = true;
+            return materialize().entrySet();
+        }
+
+        /**
+         * Lookup a field, decoding only this field if possible.
+         *
+         * @param key field to lookup.
+         * @return value of the field or null.
+         */
+        Object lookup(Object key) {
+            if (map != null) {
+                return map.get(key);
+            }
+            if (fields != null && fields.containsKey(key)) {
+                Object value = fields.get(key);
+                return (value == ABSENT) ? null : value;
+            }
+
+            // Too much lookups, decode once for all
+            if (++lookups > MAX_LOOKUPS || !(key instanceof String)) {
+                return materialize().get(key);
+            }
+            Object value = scan((String) key);
+            if (fields == null) {
+                fields = Maps.newHashMapWithExpectedSize(MAX_LOOKUPS);
+            }
+            fields.put((String) key, value);
+            return (value == ABSENT) ? null : value;
+        }
+
+        /**
+         * Scan raw bytes to decode a single field.
+         *
+         * @param key field to decode.
+         * @return value of the field or absent marker.
+         */
+        private Object scan(String key) {
+            try (JsonParser parser = parser()) {
+                parser.nextToken();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    parser.nextToken();
+                    if (key.equals(name)) {
+                        return Json.mapper.readValue(parser, Object.class);
+                    }
+                    parser.skipChildren();
+                }
+                return ABSENT;
+            } catch (IOException ex) {
+                throw new DecodeException("Failed to decode:" + ex.getMessage(), ex);
+            }
+        }
+
+        /**
+         * Decode the whole object, keeping fields already decoded.
+         *
+         * @return whole object.
+         */
+        @SuppressWarnings("unchecked")
+        private Map<String, Object> materialize() {
+            if (map == null) {
+                try (JsonParser parser = parser()) {
+                    map = Json.mapper.readValue(parser, Map.class);
+                } catch (IOException ex) {
+                    throw new DecodeException("Failed to decode:" + ex.getMessage(), ex);
+                }
+
+                // Fields decoded may have been mutated
+                if (fields != null) {
+                    fields.forEach((k, v) -> {
+                        if (v != ABSENT) map.put(k, v);
+                    });
+                    fields = null;
+                }
+            }
+            return map;
+        }
+
+        /**
+         * Returns a parser over raw bytes.
+         *
+         * @return parser over raw bytes.
+         * @throws IOException if the parser can't be created.
+         */
+        private JsonParser parser() throws IOException {
+            return Json.mapper.getFactory().createParser(new ByteBufInputStream(raw.getByteBuf()));
+        }
+
+    }
+
+}
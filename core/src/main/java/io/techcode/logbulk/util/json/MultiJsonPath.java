@@ -0,0 +1,557 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.json;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import lombok.NonNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Json path reaching many values with wildcards, slices and recursive descents.
+ * Steps are compiled to flat arrays and matches are visited in place with a callback,
+ * without intermediate list of matches, except for writes through a recursive descent.
+ */
+public final class MultiJsonPath extends JsonPath {
+
+    // Step pattern
+    private static final String STEP = "(\\.\\.[a-zA-Z-_]+)|(\\.[a-zA-Z-_]+)|(\\[\\*\\])|(\\[-?[0-9]*:-?[0-9]*\\])|(\\[[0-9]+\\])";
+
+    // Pattern to validate json path
+    private static final Pattern VALID_JSON_PATH = Pattern.compile("\\$(" + STEP + ")+");
+
+    // Pattern to iterate based on json path
+    private static final Pattern TREE_JSON_PATH = Pattern.compile(STEP);
+
+    // Kinds of step
+    private static final byte FIELD = 0;
+    private static final byte INDEX = 1;
+    private static final byte WILDCARD = 2;
+    private static final byte SLICE = 3;
+    private static final byte DESCENT = 4;
+
+    // Operations on matches
+    private static final byte VISIT = 0;
+    private static final byte PUT = 1;
+    private static final byte REPLACE = 2;
+    private static final byte REMOVE = 3;
+
+    // Kind of each step
+    private final byte[] kinds;
+
+    // Field of each field or descent step
+    private final String[] fields;
+
+    // Bounds of each index or slice step, negative bounds are relative to the end
+    private final int[] starts;
+    private final int[] ends;
+
+    // Last step
+    private final int last;
+
+    /**
+     * Create a new multi json path.
+     *
+     * @param path json path.
+     */
+    MultiJsonPath(String path) {
+        super(path);
+        checkArgument(VALID_JSON_PATH.matcher(path).matches(), "The path must be a valid jsonpath");
+
+        // Count steps
+        Matcher matcher = TREE_JSON_PATH.matcher(path);
+        int steps = 0;
+        while (matcher.find()) {
+            steps++;
+        }
+
+        // Flatten steps
+        kinds = new byte[steps];
+        fields = new String[steps];
+        starts = new int[steps];
+        ends = new int[steps];
+        matcher.reset();
+        for (int i = 0; matcher.find(); i++) {
+            String match = matcher.group(0);
+            if (match.startsWith("..")) {
+                kinds[i] = DESCENT;
+                fields[i] = match.substring(2);
+            } else if (match.startsWith(".")) {
+                kinds[i] = FIELD;
+                fields[i] = match.substring(1);
+            } else if ("[*]".equals(match)) {
+                kinds[i] = WILDCARD;
+            } else if (match.indexOf(':') >= 0) {
+                kinds[i] = SLICE;
+                String start = match.substring(1, match.indexOf(':'));
+                String end = match.substring(match.indexOf(':') + 1, match.length() - 1);
+                starts[i] = Strings.isNullOrEmpty(start) ? 0 : Integer.parseInt(start);
+                ends[i] = Strings.isNullOrEmpty(end) ? Integer.MAX_VALUE : Integer.parseInt(end);
+            } else {
+                kinds[i] = INDEX;
+                starts[i] = Integer.parseInt(match.substring(1, match.length() - 1));
+            }
+        }
+        last = steps - 1;
+    }
+
+    /**
+     * Returns true if the json path may reach many values.
+     *
+     * @param path json path.
+     * @return true if the json path may reach many values, otherwise false.
+     */
+    static boolean isMulti(String path) {
+        return path.startsWith("$") && (path.contains("..") || path.contains("[*]") || path.indexOf(':') >= 0);
+    }
+
+    /**
+     * Returns all values reached, a new json array is allocated on each call.
+     *
+     * @param doc json document.
+     * @return json array of values reached.
+     */
+    @Override public Object get(@NonNull JsonObject doc) {
+        JsonArray matches = new JsonArray();
+        walk(doc, 0, VISIT, (Consumer<Object>) matches::add);
+        return matches;
+    }
+
+    @Override public Object get(@NonNull JsonArray doc) {
+        JsonArray matches = new JsonArray();
+        walk(doc, 0, VISIT, (Consumer<Object>) matches::add);
+        return matches;
+    }
+
+    @Override public <T> T get(@NonNull JsonObject doc, @NonNull Class<T> typed) {
+        Object value = get(doc);
+        return typed.isInstance(value) ? (T) value : null;
+    }
+
+    @Override public <T> T get(@NonNull JsonArray doc, @NonNull Class<T> typed) {
+        Object value = get(doc);
+        return typed.isInstance(value) ? (T) value : null;
+    }
+
+    /**
+     * Put a value on all values reached, missing values aren't created.
+     *
+     * @param doc   json document.
+     * @param value value to put.
+     */
+    @Override public void put(@NonNull JsonObject doc, Object value) {
+        walk(doc, 0, PUT, value);
+    }
+
+    @Override public void put(@NonNull JsonArray doc, Object value) {
+        walk(doc, 0, PUT, value);
+    }
+
+    /**
+     * Remove all values reached.
+     *
+     * @param doc json document.
+     */
+    @Override public void remove(@NonNull JsonObject doc) {
+        walk(doc, 0, REMOVE, null);
+    }
+
+    @Override public void remove(@NonNull JsonArray doc) {
+        walk(doc, 0, REMOVE, null);
+    }
+
+    @Override public boolean isDefinite() {
+        return false;
+    }
+
+    @Override public void forEach(@NonNull JsonObject doc, @NonNull Consumer<Object> action) {
+        walk(doc, 0, VISIT, action);
+    }
+
+    @Override public void forEach(@NonNull JsonArray doc, @NonNull Consumer<Object> action) {
+        walk(doc, 0, VISIT, action);
+    }
+
+    @Override public void replace(@NonNull JsonObject doc, @NonNull UnaryOperator<Object> function) {
+        walk(doc, 0, REPLACE, function);
+    }
+
+    @Override public void replace(@NonNull JsonArray doc, @NonNull UnaryOperator<Object> function) {
+        walk(doc, 0, REPLACE, function);
+    }
+
+    /**
+     * Mark the values reached and the fields leading to them.
+     *
+     * @param doc   json document.
+     * @param marks marks to update.
+     */
+    void mark(@NonNull JsonObject doc, @NonNull JsonPathSet.Marks marks) {
+        mark(doc, 0, marks);
+    }
+
+    /**
+     * Apply a step on a value and mark the following steps of each value reached.
+     *
+     * @param current value to step in.
+     * @param i       step to apply.
+     * @param marks   marks to update.
+     * @return true if a value is reached, otherwise false.
+     */
+    private boolean mark(Object current, int i, JsonPathSet.Marks marks) {
+        Map<String, Object> map = FlatJsonPath.map(current);
+        List<Object> list = (map == null) ? FlatJsonPath.list(current) : null;
+        boolean reached = false;
+        switch (kinds[i]) {
+            case FIELD:
+                if (map != null && map.containsKey(fields[i])) {
+                    reached = mark(map, fields[i], map.get(fields[i]), i, marks);
+                }
+                break;
+            case INDEX:
+                if (list != null && starts[i] < list.size()) {
+                    reached = mark(list, starts[i], list.get(starts[i]), i, marks);
+                }
+                break;
+            case WILDCARD:
+                if (list != null) {
+                    reached = element(list, 0, list.size(), i, marks);
+                } else if (map != null) {
+                    for (Map.Entry<String, Object> entry : map.entrySet()) {
+                        reached |= mark(map, entry.getKey(), entry.getValue(), i, marks);
+                    }
+                }
+                break;
+            case SLICE:
+                if (list != null) {
+                    reached = element(list, bound(starts[i], list.size()), bound(ends[i], list.size()), i, marks);
+                }
+                break;
+            case DESCENT:
+                if (map != null) {
+                    if (map.containsKey(fields[i])) {
+                        reached = mark(map, fields[i], map.get(fields[i]), i, marks);
+                    }
+                    for (Map.Entry<String, Object> entry : map.entrySet()) {
+                        if (FlatJsonPath.isContainer(entry.getValue()) && mark(entry.getValue(), i, marks)) {
+                            marks.mark(map, entry.getKey(), false);
+                            reached = true;
+                        }
+                    }
+                } else if (list != null) {
+                    for (int j = 0; j < list.size(); j++) {
+                        if (FlatJsonPath.isContainer(list.get(j))) {
+                            // Elements stepped over are kept without the fields not reached
+                            reached |= mark(list.get(j), i, marks);
+                            marks.mark(list, j, false);
+                        }
+                    }
+                }
+                break;
+        }
+        return reached;
+    }
+
+    /**
+     * Mark a range of elements stepped over, elements are kept without the fields not reached.
+     *
+     * @param list  list holding the elements.
+     * @param from  first element of the range.
+     * @param to    end of the range, exclusive.
+     * @param i     step applied.
+     * @param marks marks to update.
+     * @return true if a value is reached, otherwise false.
+     */
+    private boolean element(List<Object> list, int from, int to, int i, JsonPathSet.Marks marks) {
+        boolean reached = false;
+        for (int j = from; j < to; j++) {
+            if (!mark(list, j, list.get(j), i, marks)) {
+                marks.mark(list, j, false);
+            } else {
+                reached = true;
+            }
+        }
+        return reached;
+    }
+
+    /**
+     * Mark a value reached by a step if it's the last one or if the following steps reach a value.
+     *
+     * @param container map or list holding the value.
+     * @param key       field or index of the value.
+     * @param value     value reached by the step.
+     * @param i         step applied.
+     * @param marks     marks to update.
+     * @return true if a value is reached, otherwise false.
+     */
+    private boolean mark(Object container, Object key, Object value, int i, JsonPathSet.Marks marks) {
+        boolean reached = (i == last) || (value != null && mark(value, i + 1, marks));
+        if (reached) {
+            marks.mark(container, key, i == last);
+        }
+        return reached;
+    }
+
+    /**
+     * Apply a step on a value and walk the following steps of each value reached.
+     *
+     * @param current value to step in.
+     * @param i       step to apply.
+     * @param op      operation on matches.
+     * @param arg     argument of the operation.
+     */
+    private void walk(Object current, int i, byte op, Object arg) {
+        switch (kinds[i]) {
+            case FIELD: {
+                Map<String, Object> map = FlatJsonPath.map(current);
+                if (map != null) {
+                    field(map, i, op, arg);
+                }
+                break;
+            }
+            case INDEX: {
+                List<Object> list = FlatJsonPath.list(current);
+                if (list != null && starts[i] < list.size()) {
+                    range(list, starts[i], starts[i] + 1, i, op, arg);
+                }
+                break;
+            }
+            case WILDCARD: {
+                List<Object> list = FlatJsonPath.list(current);
+                if (list != null) {
+                    range(list, 0, list.size(), i, op, arg);
+                } else {
+                    Map<String, Object> map = FlatJsonPath.map(current);
+                    if (map != null) {
+                        members(map, i, op, arg);
+                    }
+                }
+                break;
+            }
+            case SLICE: {
+                List<Object> list = FlatJsonPath.list(current);
+                if (list != null) {
+                    range(list, bound(starts[i], list.size()), bound(ends[i], list.size()), i, op, arg);
+                }
+                break;
+            }
+            case DESCENT:
+                descend(current, i, op, arg);
+                break;
+        }
+    }
+
+    /**
+     * Apply a field step on a map.
+     *
+     * @param map map to step in.
+     * @param i   step to apply.
+     * @param op  operation on matches.
+     * @param arg argument of the operation.
+     */
+    private void field(Map<String, Object> map, int i, byte op, Object arg) {
+        String field = fields[i];
+        if (i < last) {
+            Object next = map.get(field);
+            if (next != null) {
+                walk(next, i + 1, op, arg);
+            }
+        } else if (op == REMOVE) {
+            map.remove(field);
+        } else if (op == PUT) {
+            map.put(field, arg);
+        } else {
+            Object value = map.get(field);
+            if (value != null) {
+                Object replaced = apply(value, op, arg);
+                if (replaced != value) {
+                    map.put(field, replaced);
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply a step on all members of a map.
+     *
+     * @param map map to step in.
+     * @param i   step to apply.
+     * @param op  operation on matches.
+     * @param arg argument of the operation.
+     */
+    private void members(Map<String, Object> map, int i, byte op, Object arg) {
+        if (i == last && op == REMOVE) {
+            map.clear();
+            return;
+        }
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            Object value = entry.getValue();
+            if (i < last) {
+                walk(value, i + 1, op, arg);
+            } else if (op == PUT) {
+                entry.setValue(arg);
+            } else if (value != null) {
+                Object replaced = apply(value, op, arg);
+                if (replaced != value) {
+                    entry.setValue(replaced);
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply a step on a range of elements of a list.
+     *
+     * @param list list to step in.
+     * @param from first element, inclusive.
+     * @param to   last element, exclusive.
+     * @param i    step to apply.
+     * @param op   operation on matches.
+     * @param arg  argument of the operation.
+     */
+    private void range(List<Object> list, int from, int to, int i, byte op, Object arg) {
+        if (i == last && op == REMOVE) {
+            // Backward to keep indexes stable
+            for (int j = Math.min(to, list.size()) - 1; j >= from; j--) {
+                list.remove(j);
+            }
+            return;
+        }
+        for (int j = from; j < to && j < list.size(); j++) {
+            Object value = list.get(j);
+            if (i < last) {
+                walk(value, i + 1, op, arg);
+            } else if (op == PUT) {
+                list.set(j, arg);
+            } else if (value != null) {
+                Object replaced = apply(value, op, arg);
+                if (replaced != value) {
+                    list.set(j, replaced);
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply a descent step on a value and all nested values, parents first.
+     * Writes are applied once all matches are collected, so that they never reach values they have written.
+     *
+     * @param current value to step in.
+     * @param i       step to apply.
+     * @param op      operation on matches.
+     * @param arg     argument of the operation.
+     */
+    private void descend(Object current, int i, byte op, Object arg) {
+        if (op == VISIT) {
+            descend(current, i, op, arg, null);
+            return;
+        }
+        List<Map<String, Object>> matches = Lists.newArrayList();
+        descend(current, i, op, arg, matches);
+        for (Map<String, Object> map : matches) {
+            field(map, i, op, arg);
+        }
+    }
+
+    /**
+     * Apply a descent step on a value and all nested values, parents first.
+     *
+     * @param current value to step in.
+     * @param i       step to apply.
+     * @param op      operation on matches.
+     * @param arg     argument of the operation.
+     * @param matches maps to write collected or null to visit in place.
+     */
+    private void descend(Object current, int i, byte op, Object arg, List<Map<String, Object>> matches) {
+        Map<String, Object> map = FlatJsonPath.map(current);
+        if (map != null) {
+            if (map.containsKey(fields[i])) {
+                if (matches != null) {
+                    matches.add(map);
+                } else {
+                    field(map, i, op, arg);
+                }
+            }
+            for (Object value : map.values()) {
+                if (FlatJsonPath.isContainer(value)) {
+                    descend(value, i, op, arg, matches);
+                }
+            }
+        } else {
+            List<Object> list = FlatJsonPath.list(current);
+            if (list != null) {
+                for (int j = 0; j < list.size(); j++) {
+                    Object value = list.get(j);
+                    if (FlatJsonPath.isContainer(value)) {
+                        descend(value, i, op, arg, matches);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply a visit or a replace operation on a value reached.
+     *
+     * @param value value reached.
+     * @param op    operation on matches.
+     * @param arg   argument of the operation.
+     * @return value replaced or same value.
+     */
+    @SuppressWarnings("unchecked")
+    private Object apply(Object value, byte op, Object arg) {
+        if (op == VISIT) {
+            ((Consumer<Object>) arg).accept(FlatJsonPath.wrap(value));
+            return value;
+        }
+        Object wrapped = FlatJsonPath.wrap(value);
+        Object replaced = ((UnaryOperator<Object>) arg).apply(wrapped);
+        return (replaced == wrapped) ? value : replaced;
+    }
+
+    /**
+     * Resolve a bound of a slice.
+     *
+     * @param bound bound of the slice, negative is relative to the end.
+     * @param size  size of the list.
+     * @return bound resolved in [0, size].
+     */
+    private static int bound(int bound, int size) {
+        if (bound < 0) {
+            return Math.max(size + bound, 0);
+        }
+        return Math.min(bound, size);
+    }
+
+}
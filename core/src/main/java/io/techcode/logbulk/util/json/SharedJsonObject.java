@@ -0,0 +1,418 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.json;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import lombok.NonNull;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Copy-on-write json object.
+ * Copies share one snapshot of the fields, which is only copied by a copy at the first write
+ * or at the first access to a nested object or array, then only the nested value accessed is copied.
+ * A nested object or array read before a copy is part of the snapshot and must not be mutated afterwards.
+ */
+public class SharedJsonObject extends JsonObject {
+
+    // Copy-on-write underlying map
+    private final CowMap cow;
+
+    /**
+     * Create a new shared json object.
+     *
+     * @param cow copy-on-write underlying map.
+     */
+    private SharedJsonObject(CowMap cow) {
+        super(cow);
+        this.cow = cow;
+    }
+
+    /**
+     * Returns a copy-on-write view of a json object.
+     * The json object given becomes the shared snapshot and must not be mutated afterwards.
+     *
+     * @param doc json object to share.
+     * @return copy-on-write view of the json object.
+     */
+    public static SharedJsonObject share(@NonNull JsonObject doc) {
+        if (doc instanceof SharedJsonObject) {
+            return (SharedJsonObject) doc.copy();
+        }
+        return new SharedJsonObject(new CowMap(doc.getMap(), false));
+    }
+
+    /**
+     * Returns a view owning a json object, which is only shared by its copies.
+     * The json object given is owned by the view and must not be used afterwards.
+     *
+     * @param doc json object to own.
+     * @return view owning the json object.
+     */
+    public static SharedJsonObject wrap(@NonNull JsonObject doc) {
+        if (doc instanceof SharedJsonObject) {
+            return (SharedJsonObject) doc;
+        }
+        return new SharedJsonObject(new CowMap(doc.getMap(), true));
+    }
+
+    /**
+     * Returns true if the fields are still shared with other copies.
+     *
+     * @return true if the fields are still shared, otherwise false.
+     */
+    public boolean isShared() {
+        return cow.own == null;
+    }
+
+    /**
+     * Returns the fields for reading only, nested values may be shared with other copies.
+     *
+     * @return fields for reading only.
+     */
+    public Map<String, Object> view() {
+        return cow.view();
+    }
+
+    @Override public String encode() {
+        return Json.encode(cow.view());
+    }
+
+    @Override public String encodePrettily() {
+        return Json.encodePrettily(cow.view());
+    }
+
+    @Override public JsonObject copy() {
+        return new SharedJsonObject(new CowMap(cow.share(), false));
+    }
+
+    @Override public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof JsonObject)) return false;
+        // Compare as plain json objects without copying
+        Map<String, Object> other = (o instanceof SharedJsonObject) ? ((SharedJsonObject) o).cow.view() : ((JsonObject) o).getMap();
+        return new JsonObject(cow.view()).equals(new JsonObject(other));
+    }
+
+    @Override public int hashCode() {
+        return cow.view().hashCode();
+    }
+
+    /**
+     * Map reading a shared snapshot until the first write.
+     * The first write copies the fields of the snapshot but not their nested values,
+     * a nested object or array is only copied on its first access.
+     * Iterations read the fields in place, nested values reached are copied like on access.
+     */
+    private static class CowMap extends AbstractMap<String, Object> implements Peekable {
+
+        // Snapshot shared between copies
+        private Map<String, Object> shared;
+
+        // Fields owned once written, nested values are still shared until copied
+        private Map<String, Object> own;
+        private Set<String> copied;
+
+        // True if all nested values are owned
+        private boolean exclusive;
+
+        /**
+         * Create a new copy-on-write map.
+         *
+         * @param fields    fields of the map.
+         * @param exclusive true if the fields are owned, otherwise false if they are a shared snapshot.
+         */
+        CowMap(Map<String, Object> fields, boolean exclusive) {
+            if (exclusive) {
+                this.own = fields;
+                this.exclusive = true;
+            } else {
+                this.shared = fields;
+            }
+        }
+
+        @Override public Object get(Object key) {
+            Object value = view().get(key);
+            if (!FlatJsonPath.isContainer(value) || isOwned(key)) {
+                return value;
+            }
+
+            // Nested value may be mutated by the caller
+            Object copy = copy(value);
+            own().put((String) key, copy);
+            copied.add((String) key);
+            return copy;
+        }
+
+        @Override public Object peek(Object key) {
+            return view().get(key);
+        }
+
+        @Override public boolean containsKey(Object key) {
+            return view().containsKey(key);
+        }
+
+        @Override public boolean isEmpty() {
+            return view().isEmpty();
+        }
+
+        @Override public int size() {
+            return view().size();
+        }
+
+        @Override public Object put(String key, Object value) {
+            Object previous = own().put(key, value);
+            if (!exclusive) {
+                copied.add(key);
+            }
+            return previous;
+        }
+
+        @Override public Object remove(Object key) {
+            if (own == null && !shared.containsKey(key)) {
+                return null;
+            }
+            Map<String, Object> fields = own();
+            if (!exclusive) {
+                copied.remove(key);
+            }
+            return fields.remove(key);
+        }
+
+        @Override public void clear() {
+            // Nothing left to copy
+            if (own == null) {
+                own = Maps.newLinkedHashMap();
+                shared = null;
+            } else {
+                own.clear();
+            }
+            copied = null;
+            exclusive = true;
+        }
+
+        @Override public Set<String> keySet() {
+            return new AbstractSet<String>() {
+                @Override public Iterator<String> iterator() {
+                    return new Fields<>(Entry::getKey);
+                }
+
+                @Override public int size() {
+                    return CowMap.this.size();
+                }
+            };
+        }
+
+        @Override public Collection<Object> values() {
+            return new AbstractCollection<Object>() {
+                @Override public Iterator<Object> iterator() {
+                    return new Fields<>(entry -> get(entry.getKey()));
+                }
+
+                @Override public int size() {
+                    return CowMap.this.size();
+                }
+            };
+        }
+
+        @Override public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override public Iterator<Entry<String, Object>> iterator() {
+                    return new Fields<>(entry -> new Field(entry.getKey()));
+                }
+
+                @Override public int size() {
+                    return CowMap.this.size();
+                }
+            };
+        }
+
+        /**
+         * Returns the fields for reading only.
+         *
+         * @return fields for reading only.
+         */
+        Map<String, Object> view() {
+            return (own != null) ? own : shared;
+        }
+
+        /**
+         * Returns the fields as a snapshot to share, owned fields become shared.
+         *
+         * @return snapshot to share.
+         */
+        Map<String, Object> share() {
+            if (own != null) {
+                shared = own;
+                own = null;
+                copied = null;
+                exclusive = false;
+            }
+            return shared;
+        }
+
+        /**
+         * Returns true if the value of a field is owned.
+         *
+         * @param key key of the field.
+         * @return true if the value of the field is owned, otherwise false.
+         */
+        private boolean isOwned(Object key) {
+            return own != null && (exclusive || copied.contains(key));
+        }
+
+        /**
+         * Copy the fields of the shared snapshot on first write.
+         *
+         * @return fields owned.
+         */
+        private Map<String, Object> own() {
+            if (own == null) {
+                own = Maps.newLinkedHashMap(shared);
+                copied = Sets.newHashSet();
+                shared = null;
+            }
+            return own;
+        }
+
+        /**
+         * Returns a deep copy of a nested object or array.
+         *
+         * @param value nested value.
+         * @return deep copy of the value.
+         */
+        @SuppressWarnings("unchecked")
+        private static Object copy(Object value) {
+            if (value instanceof Map) {
+                return new JsonObject((Map<String, Object>) value).copy();
+            } else if (value instanceof JsonObject) {
+                return ((JsonObject) value).copy();
+            } else if (value instanceof List) {
+                return new JsonArray((List) value).copy();
+            }
+            return ((JsonArray) value).copy();
+        }
+
+        /**
+         * Iterator over the fields read in place, removals are applied to the map.
+         *
+         * @param <T> type of elements.
+         */
+        private final class Fields<T> implements Iterator<T> {
+
+            // Iterator of the fields
+            private final Iterator<Entry<String, Object>> it;
+            private final boolean owned;
+
+            // Element mapper
+            private final Function<Entry<String, Object>, T> mapper;
+
+            // Field of last element
+            private String last;
+
+            /**
+             * Create a new iterator over the fields.
+             *
+             * @param mapper element mapper.
+             */
+            Fields(Function<Entry<String, Object>, T> mapper) {
+                this.owned = own != null;
+                this.it = view().entrySet().iterator();
+                this.mapper = mapper;
+            }
+
+            @Override public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override public T next() {
+                Entry<String, Object> entry = it.next();
+                last = entry.getKey();
+                return mapper.apply(entry);
+            }
+
+            @Override public void remove() {
+                checkState(last != null, "No field to remove");
+                if (owned) {
+                    it.remove();
+                    if (!exclusive) {
+                        copied.remove(last);
+                    }
+                } else {
+                    // Snapshot iterated is left untouched
+                    CowMap.this.remove(last);
+                }
+                last = null;
+            }
+
+        }
+
+        /**
+         * Field of the map, nested values are copied on access.
+         */
+        private final class Field implements Entry<String, Object> {
+
+            // Key of the field
+            private final String key;
+
+            /**
+             * Create a new field.
+             *
+             * @param key key of the field.
+             */
+            Field(String key) {
+                this.key = key;
+            }
+
+            @Override public String getKey() {
+                return key;
+            }
+
+            @Override public Object getValue() {
+                return get(key);
+            }
+
+            @Override public Object setValue(Object value) {
+                return put(key, value);
+            }
+
+        }
+
+    }
+
+}
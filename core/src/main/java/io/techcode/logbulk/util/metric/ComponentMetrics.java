@@ -0,0 +1,64 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.metric;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Metrics shared by all instances of a component.
+ */
+@Getter
+public class ComponentMetrics {
+
+    // Events handled by the component
+    private final Counter in;
+
+    // Events sent by the component
+    private final Counter out;
+
+    // Events sent to fallback
+    private final Counter fallback;
+
+    // Malformed records dropped by an input
+    private final Counter malformed;
+
+    // Handle time by event
+    private final Histogram handle;
+
+    /**
+     * Create metrics of a component.
+     *
+     * @param component component endpoint.
+     */
+    public ComponentMetrics(@NonNull String component) {
+        String labels = MetricRegistry.component(component);
+        in = MetricRegistry.counter("logbulk_events_in_total", "Events handled by component.", labels);
+        out = MetricRegistry.counter("logbulk_events_out_total", "Events sent by component.", labels);
+        fallback = MetricRegistry.counter("logbulk_fallbacks_total", "Events sent to fallback by component.", labels);
+        malformed = MetricRegistry.counter("logbulk_malformed_total", "Malformed records dropped by component.", labels);
+        handle = MetricRegistry.histogram("logbulk_handle_seconds", "Handle time of events by component.", labels);
+    }
+
+}
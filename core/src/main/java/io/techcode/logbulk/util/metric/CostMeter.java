@@ -0,0 +1,222 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.metric;
+
+import lombok.NonNull;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * Sampled accounting of thread cpu time and allocated bytes by component instance.
+ * Nested handling on the same thread, like fused stages or direct delivery, is subtracted from the caller,
+ * so each instance is only charged for its own work.
+ */
+public class CostMeter {
+
+    // Thread counters
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_SUPPORTED = THREADS.isCurrentThreadCpuTimeSupported();
+    private static final boolean ALLOCATION_SUPPORTED = THREADS instanceof com.sun.management.ThreadMXBean &&
+            ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported();
+
+    // Measures in progress by thread
+    private static final ThreadLocal<Frames> FRAMES = ThreadLocal.withInitial(Frames::new);
+
+    // Sampling period
+    private final int period;
+    private long events = 0;
+
+    // Totals of sampled events
+    private final Counter cpu;
+    private final Counter allocated;
+    private final Counter profiled;
+
+    /**
+     * Create a new cost meter.
+     * Metrics are only registered if the meter is enabled.
+     *
+     * @param component component endpoint.
+     * @param instance  instance of the component.
+     * @param period    sampling period of events or zero to disable.
+     */
+    public CostMeter(@NonNull String component, @NonNull String instance, int period) {
+        this.period = (CPU_SUPPORTED || ALLOCATION_SUPPORTED) ? Math.max(period, 0) : 0;
+        if (this.period > 0) {
+            String labels = MetricRegistry.labels("component", component, "instance", instance);
+            cpu = MetricRegistry.counter("logbulk_cpu_nanoseconds_total", "Thread cpu time of sampled events by component instance.", labels);
+            allocated = MetricRegistry.counter("logbulk_allocated_bytes_total", "Bytes allocated by sampled events by component instance.", labels);
+            profiled = MetricRegistry.counter("logbulk_profiled_events_total", "Events sampled by component instance.", labels);
+        } else {
+            cpu = null;
+            allocated = null;
+            profiled = null;
+        }
+    }
+
+    /**
+     * Returns true if the meter is enabled.
+     *
+     * @return true if the meter is enabled, otherwise false.
+     */
+    public boolean isEnabled() {
+        return period > 0;
+    }
+
+    /**
+     * Begin to measure an event if sampled.
+     * An event is always measured if an outer event is measured on the same thread.
+     *
+     * @return true if the event is measured and {@link #end()} must be called, otherwise false.
+     */
+    public boolean begin() {
+        if (period == 0) {
+            return false;
+        }
+        Frames frames = FRAMES.get();
+        if (frames.depth == 0 && ++events % period != 0) {
+            return false;
+        }
+        frames.push(cpuTime(), allocatedBytes());
+        return true;
+    }
+
+    /**
+     * End to measure the current event.
+     */
+    public void end() {
+        Frames frames = FRAMES.get();
+        int i = frames.pop();
+        long cpuTotal = cpuTime() - frames.cpu[i];
+        long allocatedTotal = allocatedBytes() - frames.allocated[i];
+        cpu.inc(Math.max(cpuTotal - frames.nestedCpu[i], 0));
+        allocated.inc(Math.max(allocatedTotal - frames.nestedAllocated[i], 0));
+        profiled.inc();
+
+        // Charge the caller without our own cost
+        if (i > 0) {
+            frames.nestedCpu[i - 1] += cpuTotal;
+            frames.nestedAllocated[i - 1] += allocatedTotal;
+        }
+    }
+
+    /**
+     * Returns the cpu time of sampled events.
+     *
+     * @return cpu time in nanoseconds.
+     */
+    public long getCpu() {
+        return (cpu != null) ? cpu.get() : 0;
+    }
+
+    /**
+     * Returns the bytes allocated by sampled events.
+     *
+     * @return bytes allocated.
+     */
+    public long getAllocated() {
+        return (allocated != null) ? allocated.get() : 0;
+    }
+
+    /**
+     * Returns the number of sampled events.
+     *
+     * @return number of sampled events.
+     */
+    public long getProfiled() {
+        return (profiled != null) ? profiled.get() : 0;
+    }
+
+    /**
+     * Returns the cpu time of the current thread.
+     *
+     * @return cpu time in nanoseconds or zero if unsupported.
+     */
+    private static long cpuTime() {
+        return CPU_SUPPORTED ? Math.max(THREADS.getCurrentThreadCpuTime(), 0) : 0;
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread.
+     *
+     * @return bytes allocated or zero if unsupported.
+     */
+    private static long allocatedBytes() {
+        return ALLOCATION_SUPPORTED ? Math.max(((com.sun.management.ThreadMXBean) THREADS)
+                .getThreadAllocatedBytes(Thread.currentThread().getId()), 0) : 0;
+    }
+
+    /**
+     * Stack of measures in progress on a thread.
+     */
+    private static class Frames {
+
+        // Initial depth
+        private static final int CAPACITY = 8;
+
+        // Counters at start
+        private long[] cpu = new long[CAPACITY];
+        private long[] allocated = new long[CAPACITY];
+
+        // Costs of nested measures
+        private long[] nestedCpu = new long[CAPACITY];
+        private long[] nestedAllocated = new long[CAPACITY];
+
+        // Measures in progress
+        private int depth = 0;
+
+        /**
+         * Push a new measure.
+         *
+         * @param cpuStart       cpu time at start.
+         * @param allocatedStart bytes allocated at start.
+         */
+        void push(long cpuStart, long allocatedStart) {
+            if (depth == cpu.length) {
+                int capacity = depth * 2;
+                cpu = Arrays.copyOf(cpu, capacity);
+                allocated = Arrays.copyOf(allocated, capacity);
+                nestedCpu = Arrays.copyOf(nestedCpu, capacity);
+                nestedAllocated = Arrays.copyOf(nestedAllocated, capacity);
+            }
+            cpu[depth] = cpuStart;
+            allocated[depth] = allocatedStart;
+            nestedCpu[depth] = 0;
+            nestedAllocated[depth] = 0;
+            depth++;
+        }
+
+        /**
+         * Pop the current measure.
+         *
+         * @return index of the measure.
+         */
+        int pop() {
+            return --depth;
+        }
+
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.metric;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free monotonic counter.
+ */
+public class Counter extends Metric {
+
+    // Value
+    private final LongAdder value = new LongAdder();
+
+    /**
+     * Increment the counter by one.
+     */
+    public void inc() {
+        value.increment();
+    }
+
+    /**
+     * Increment the counter.
+     *
+     * @param n amount to add.
+     */
+    public void inc(long n) {
+        value.add(n);
+    }
+
+    /**
+     * Returns the current value.
+     *
+     * @return current value.
+     */
+    public long get() {
+        return value.sum();
+    }
+
+    @Override void write(StringBuilder out, String name, String labels) {
+        sample(out, name, labels, null, Long.toString(get()));
+    }
+
+}
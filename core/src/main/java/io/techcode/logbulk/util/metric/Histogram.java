@@ -0,0 +1,96 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.metric;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with fixed buckets.
+ * Observations are recorded in nanoseconds and exposed in seconds.
+ */
+public class Histogram extends Metric {
+
+    // Upper bounds of buckets in nanoseconds
+    static final long[] BOUNDS = {
+            1_000L, 5_000L, 10_000L, 50_000L, 100_000L, 500_000L,
+            1_000_000L, 5_000_000L, 10_000_000L, 50_000_000L, 100_000_000L, 500_000_000L,
+            1_000_000_000L, 5_000_000_000L
+    };
+
+    // Nanoseconds by second
+    private static final double NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // Counts by bucket, last one is unbounded
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Create a new histogram.
+     */
+    public Histogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record an observation.
+     *
+     * @param nanos duration in nanoseconds.
+     */
+    public void observe(long nanos) {
+        int i = 0;
+        while (i < BOUNDS.length && nanos > BOUNDS[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        sum.add(nanos);
+    }
+
+    /**
+     * Returns the number of observations.
+     *
+     * @return number of observations.
+     */
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    @Override void write(StringBuilder out, String name, String labels) {
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += buckets[i].sum();
+            String le = (i < BOUNDS.length) ? Double.toString(BOUNDS[i] / NANOS) : "+Inf";
+            sample(out, name + "_bucket", labels, "le=\"" + le + '"', Long.toString(cumulative));
+        }
+        sample(out, name + "_sum", labels, null, Double.toString(sum.sum() / NANOS));
+        sample(out, name + "_count", labels, null, Long.toString(cumulative));
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.metric;
+
+/**
+ * Base of all metrics exposed by the registry.
+ */
+public abstract class Metric {
+
+    /**
+     * Write samples of the metric in prometheus text format.
+     *
+     * @param out    output to write.
+     * @param name   name of the metric family.
+     * @param labels labels of the metric.
+     */
+    abstract void write(StringBuilder out, String name, String labels);
+
+    /**
+     * Write a sample line.
+     *
+     * @param out    output to write.
+     * @param name   name of the sample.
+     * @param labels labels of the metric.
+     * @param extra  extra labels or null.
+     * @param value  value of the sample.
+     */
+    static void sample(StringBuilder out, String name, String labels, String extra, String value) {
+        out.append(name).append('{').append(labels);
+        if (extra != null) {
+            out.append(',').append(extra);
+        }
+        out.append("} ").append(value).append('\n');
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.metric;
+
+import lombok.NonNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Metric registry shared by all components of the jvm.
+ * Metrics are grouped by family and identified by their labels.
+ */
+public final class MetricRegistry {
+
+    // Families by name
+    private static final ConcurrentMap<String, Family> FAMILIES = new ConcurrentSkipListMap<>();
+
+    // Utility class
+    private MetricRegistry() {
+    }
+
+    /**
+     * Returns the counter of labels, created if needed.
+     *
+     * @param name      name of the metric family.
+     * @param help      description of the metric family.
+     * @param labels labels of the metric.
+     * @return counter of the labels.
+     */
+    public static Counter counter(@NonNull String name, @NonNull String help, @NonNull String labels) {
+        return family(name, help, "counter").get(labels, Counter::new);
+    }
+
+    /**
+     * Returns the histogram of labels, created if needed.
+     *
+     * @param name      name of the metric family.
+     * @param help      description of the metric family.
+     * @param labels labels of the metric.
+     * @return histogram of the labels.
+     */
+    public static Histogram histogram(@NonNull String name, @NonNull String help, @NonNull String labels) {
+        return family(name, help, "histogram").get(labels, Histogram::new);
+    }
+
+    /**
+     * Register the gauge of labels, replacing a previous one.
+     *
+     * @param name      name of the metric family.
+     * @param help      description of the metric family.
+     * @param labels   labels of the metric.
+     * @param supplier value supplier.
+     */
+    public static void gauge(@NonNull String name, @NonNull String help, @NonNull String labels, @NonNull LongSupplier supplier) {
+        family(name, help, "gauge").metrics.put(labels, new Gauge(supplier));
+    }
+
+    /**
+     * Returns the labels of a component.
+     *
+     * @param component component endpoint.
+     * @return labels of the component.
+     */
+    public static String component(@NonNull String component) {
+        return labels("component", component);
+    }
+
+    /**
+     * Returns labels from pairs of name and value.
+     *
+     * @param pairs pairs of label name and value.
+     * @return labels formatted.
+     */
+    public static String labels(@NonNull String... pairs) {
+        checkArgument(pairs.length % 2 == 0, "The labels must be pairs of name and value");
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(pairs[i]).append("=\"");
+            String value = pairs[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '\\' || c == '"') {
+                    out.append('\\').append(c);
+                } else if (c == '\n') {
+                    out.append("\\n");
+                } else {
+                    out.append(c);
+                }
+            }
+            out.append('"');
+        }
+        return out.toString();
+    }
+
+    /**
+     * Returns all metrics in prometheus text format.
+     *
+     * @return all metrics in prometheus text format.
+     */
+    public static String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Map.Entry<String, Family> el : FAMILIES.entrySet()) {
+            String name = el.getKey();
+            Family family = el.getValue();
+            out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            family.metrics.forEach((labels, metric) -> metric.write(out, name, labels));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Remove all metrics.
+     */
+    static void clear() {
+        FAMILIES.clear();
+    }
+
+    /**
+     * Returns a family, created if needed.
+     *
+     * @param name name of the metric family.
+     * @param help description of the metric family.
+     * @param type type of the metric family.
+     * @return family.
+     */
+    private static Family family(String name, String help, String type) {
+        Family family = FAMILIES.computeIfAbsent(name, k -> new Family(help, type));
+        checkState(family.type.equals(type), "The metric '%s' is already registered as %s", name, family.type);
+        return family;
+    }
+
+    /**
+     * Metrics of a family by labels.
+     */
+    private static class Family {
+
+        // Description
+        private final String help;
+        private final String type;
+
+        // Metrics by labels
+        private final ConcurrentMap<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+        /**
+         * Create a new family.
+         *
+         * @param help description of the family.
+         * @param type type of the family.
+         */
+        Family(String help, String type) {
+            this.help = help;
+            this.type = type;
+        }
+
+        /**
+         * Returns the metric of labels, created if needed.
+         *
+         * @param labels  labels of the metric.
+         * @param factory metric factory.
+         * @param <T>     type of metric.
+         * @return metric of the labels.
+         */
+        @SuppressWarnings("unchecked")
+        <T extends Metric> T get(String labels, Supplier<T> factory) {
+            return (T) metrics.computeIfAbsent(labels, k -> factory.get());
+        }
+
+    }
+
+}
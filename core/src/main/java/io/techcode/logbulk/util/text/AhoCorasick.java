@@ -0,0 +1,253 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.text;
+
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+import lombok.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeSet;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Aho-Corasick automaton matching many patterns in a single scan.
+ * Patterns are either found anywhere in the text or anchored as prefix of the text.
+ * Transitions are compiled to a dense table over the characters used by patterns.
+ */
+public final class AhoCorasick {
+
+    // Empty outputs
+    private static final int[] NONE = new int[0];
+
+    // Class of each character, zero for characters not used by patterns
+    private final char[] classes = new char[Character.MAX_VALUE + 1];
+    private final int width;
+
+    // Transitions by state and class
+    private final int[] delta;
+
+    // Patterns ending at each state, including by failure links
+    private final int[][] outputs;
+
+    // Patterns settings
+    private final boolean[] anchored;
+    private final int[] lengths;
+
+    // Empty patterns matching any text
+    private final int[] always;
+
+    /**
+     * Create a new automaton.
+     *
+     * @param patterns patterns to match, the index of a pattern is its identifier.
+     * @param anchored true for each pattern anchored as prefix, otherwise false.
+     */
+    public AhoCorasick(@NonNull String[] patterns, @NonNull boolean[] anchored) {
+        checkArgument(patterns.length == anchored.length, "Each pattern must be anchored or not");
+        this.anchored = anchored.clone();
+        this.lengths = new int[patterns.length];
+
+        // Map characters to classes
+        TreeSet<Character> chars = new TreeSet<>();
+        for (String pattern : patterns) {
+            for (int i = 0; i < pattern.length(); i++) {
+                chars.add(pattern.charAt(i));
+            }
+        }
+        char next = 1;
+        for (char c : chars) {
+            classes[c] = next++;
+        }
+        width = next;
+
+        // Build trie
+        List<int[]> rows = Lists.newArrayList();
+        List<List<Integer>> outs = Lists.newArrayList();
+        List<Integer> empty = Lists.newArrayList();
+        rows.add(row());
+        outs.add(Lists.newArrayList());
+        for (int id = 0; id < patterns.length; id++) {
+            String pattern = patterns[id];
+            lengths[id] = pattern.length();
+            if (pattern.isEmpty()) {
+                empty.add(id);
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                int[] transitions = rows.get(state);
+                int cls = classes[pattern.charAt(i)];
+                if (transitions[cls] < 0) {
+                    transitions[cls] = rows.size();
+                    rows.add(row());
+                    outs.add(Lists.newArrayList());
+                }
+                state = transitions[cls];
+            }
+            outs.get(state).add(id);
+        }
+        always = Ints.toArray(empty);
+
+        // Complete transitions with failure links, breadth first
+        int[] fail = new int[rows.size()];
+        Deque<Integer> queue = new ArrayDeque<>();
+        int[] root = rows.get(0);
+        for (int cls = 0; cls < width; cls++) {
+            if (root[cls] < 0) {
+                root[cls] = 0;
+            } else {
+                queue.add(root[cls]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int[] transitions = rows.get(state);
+            int[] fallback = rows.get(fail[state]);
+            for (int cls = 0; cls < width; cls++) {
+                int child = transitions[cls];
+                if (child < 0) {
+                    transitions[cls] = fallback[cls];
+                } else {
+                    fail[child] = fallback[cls];
+                    outs.get(child).addAll(outs.get(fail[child]));
+                    queue.add(child);
+                }
+            }
+        }
+
+        // Flatten
+        delta = new int[rows.size() * width];
+        outputs = new int[rows.size()][];
+        for (int state = 0; state < rows.size(); state++) {
+            System.arraycopy(rows.get(state), 0, delta, state * width, width);
+            List<Integer> out = outs.get(state);
+            outputs[state] = out.isEmpty() ? NONE : Ints.toArray(out);
+        }
+    }
+
+    /**
+     * Returns the number of patterns.
+     *
+     * @return number of patterns.
+     */
+    public int size() {
+        return lengths.length;
+    }
+
+    /**
+     * Returns a new matcher.
+     * A matcher isn't thread-safe and is meant to be reused for each text.
+     *
+     * @return new matcher.
+     */
+    public Matcher matcher() {
+        return new Matcher();
+    }
+
+    /**
+     * Create a row of transitions.
+     *
+     * @return row of missing transitions.
+     */
+    private int[] row() {
+        int[] row = new int[width];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    /**
+     * Reusable scan of texts, each pattern matched is reported once by scan.
+     */
+    public final class Matcher {
+
+        // Patterns matched by last scan
+        private final int[] hits = new int[lengths.length];
+
+        // Scan of last match by pattern
+        private final int[] stamps = new int[lengths.length];
+        private int epoch = 0;
+
+        /**
+         * Create a new matcher.
+         */
+        private Matcher() {
+        }
+
+        /**
+         * Scan a text.
+         *
+         * @param text text to scan.
+         * @return number of patterns matched.
+         */
+        public int match(@NonNull CharSequence text) {
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                epoch = 1;
+            }
+            int count = 0;
+            for (int id : always) {
+                stamps[id] = epoch;
+                hits[count++] = id;
+            }
+            int state = 0;
+            for (int i = 0; i < text.length(); i++) {
+                state = delta[state * width + classes[text.charAt(i)]];
+                for (int id : outputs[state]) {
+                    if (stamps[id] != epoch && (!anchored[id] || lengths[id] == i + 1)) {
+                        stamps[id] = epoch;
+                        hits[count++] = id;
+                    }
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Returns the patterns matched by the last scan, in order of match.
+         * Only the first elements given by the scan are valid, until the next scan.
+         *
+         * @return patterns matched.
+         */
+        public int[] hits() {
+            return hits;
+        }
+
+        /**
+         * Returns true if a pattern is matched by the last scan.
+         *
+         * @param id identifier of the pattern.
+         * @return true if the pattern is matched by the last scan, otherwise false.
+         */
+        public boolean matched(int id) {
+            return epoch > 0 && stamps[id] == epoch;
+        }
+
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.component;
+
+import com.google.common.collect.ImmutableMap;
+import io.techcode.logbulk.net.Packet;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for FairQueue.
+ */
+public class FairQueueTest {
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor1() {
+        new FairQueue(true, null, ImmutableMap.of());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor2() {
+        new FairQueue(true, FairQueue.Key.ROUTE, ImmutableMap.of("foo", 0));
+    }
+
+    @Test public void testPoll1() {
+        FairQueue queue = new FairQueue(true);
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test public void testPoll2() {
+        // Without lanes, order is kept
+        FairQueue fifo = new FairQueue(true);
+        FairQueue lifo = new FairQueue(false);
+        for (int i = 0; i < 3; i++) {
+            fifo.add(packet("foo", "input", i));
+            lifo.add(packet("foo", "input", i));
+        }
+        assertEquals(3, fifo.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, index(fifo.poll()));
+            assertEquals(2 - i, index(lifo.poll()));
+        }
+        assertTrue(fifo.isEmpty());
+    }
+
+    @Test public void testPoll3() {
+        // Flooding route doesn't starve others
+        FairQueue queue = new FairQueue(true, FairQueue.Key.ROUTE, ImmutableMap.of());
+        for (int i = 0; i < 100; i++) {
+            queue.add(packet("noisy", "input", i));
+        }
+        queue.add(packet("quiet", "input", 0));
+        assertEquals("noisy", queue.poll().getHeader().getRoute());
+        assertEquals("quiet", queue.poll().getHeader().getRoute());
+        assertEquals(100, queue.size());
+    }
+
+    @Test public void testPoll4() {
+        // Lanes are served according to weights
+        FairQueue queue = new FairQueue(true, FairQueue.Key.SOURCE, ImmutableMap.of("foo", 3));
+        for (int i = 0; i < 10; i++) {
+            queue.add(packet("main", "foo", i));
+            queue.add(packet("main", "bar", i));
+        }
+        StringBuilder order = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            order.append(queue.poll().getHeader().getSource().charAt(0));
+        }
+        assertEquals("fffbfffb", order.toString());
+        assertEquals(ImmutableMap.of("bar", 8, "foo", 4), queue.lanes());
+    }
+
+    @Test public void testDefer() {
+        FairQueue queue = new FairQueue(true, FairQueue.Key.ROUTE, ImmutableMap.of());
+        queue.add(packet("foo", "input", 0));
+        queue.add(packet("foo", "input", 1));
+        queue.add(packet("bar", "input", 0));
+
+        // Deferred packet is served again first
+        Packet packet = queue.poll();
+        queue.defer(packet);
+        assertEquals(3, queue.size());
+        assertSame(packet, queue.poll());
+        assertEquals("bar", queue.poll().getHeader().getRoute());
+        assertEquals(1, index(queue.poll()));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test public void testKey() {
+        assertEquals(FairQueue.Key.ROUTE, FairQueue.Key.of("route"));
+        assertEquals(FairQueue.Key.SOURCE, FairQueue.Key.of("SOURCE"));
+    }
+
+    private int index(Packet packet) {
+        return packet.getBody().getInteger("i");
+    }
+
+    private Packet packet(String route, String source, int i) {
+        return Packet.builder()
+                .header(Packet.Header.builder().source(source).route(route).previous(0).current(1).build())
+                .body(new JsonObject().put("i", i))
+                .build();
+    }
+
+}
@@ -0,0 +1,209 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.component;
+
+import io.techcode.logbulk.VerticleTestBase;
+import io.techcode.logbulk.net.Packet;
+import io.techcode.logbulk.net.Trace;
+import io.techcode.logbulk.util.json.LazyJsonObject;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Test for FusedStage.
+ */
+@RunWith(VertxUnitRunner.class)
+public class FusedStageTest extends VerticleTestBase {
+
+    @Override protected Class getVerticle() {
+        return FusedStage.class;
+    }
+
+    @Test public void testForward(TestContext ctx) {
+        Async async = ctx.async();
+        vertx.eventBus().<Packet>localConsumer("out", h -> {
+            Packet packet = h.body();
+            ctx.assertEquals("a", packet.getBody().getString("a"));
+            ctx.assertEquals("b", packet.getBody().getString("b"));
+            ctx.assertEquals(1, packet.getHeader().getPrevious());
+            ctx.assertEquals(2, packet.getHeader().getCurrent());
+            async.complete();
+        });
+        deployAndSend(ctx, new JsonObject());
+    }
+
+    @Test public void testFallback(TestContext ctx) {
+        Async async = ctx.async();
+        vertx.eventBus().<Packet>localConsumer("fallback", h -> {
+            Packet packet = h.body();
+            ctx.assertEquals("a", packet.getBody().getString("a"));
+            ctx.assertNull(packet.getBody().getString("b"));
+            ctx.assertEquals("test", packet.getHeader().getOldRoute());
+            ctx.assertEquals(0, packet.getHeader().getCurrent());
+            async.complete();
+        });
+        deployAndSend(ctx, new JsonObject().put("fail", true));
+    }
+
+    @Test public void testFallbackUndecodable(TestContext ctx) {
+        Async async = ctx.async();
+        vertx.eventBus().<Packet>localConsumer("fallback", h -> {
+            Packet packet = h.body();
+            ctx.assertFalse(packet.getBody() instanceof LazyJsonObject);
+            ctx.assertEquals("{\"a\":}", packet.getBody().getString("message"));
+            ctx.assertTrue(packet.getBody().getString("stacktrace").contains("DecodeException"));
+            async.complete();
+        });
+        deployAndSend(ctx, new LazyJsonObject(Buffer.buffer("{\"a\":}")));
+    }
+
+    @Test public void testWhen(TestContext ctx) {
+        Async async = ctx.async();
+        vertx.eventBus().<Packet>localConsumer("out", h -> {
+            Packet packet = h.body();
+            ctx.assertEquals("a", packet.getBody().getString("a"));
+            ctx.assertNull(packet.getBody().getString("b"));
+            ctx.assertEquals(2, packet.getHeader().getCurrent());
+            async.complete();
+        });
+        deployAndSend(ctx, new JsonObject().put("skip", true));
+    }
+
+    @Test public void testTrace(TestContext ctx) {
+        // Each member records its own hop
+        Async async = ctx.async();
+        vertx.eventBus().<Packet>localConsumer("out", h -> {
+            Trace trace = h.body().getHeader().getTrace();
+            ctx.assertEquals(2, trace.size());
+            ctx.assertEquals(1, Trace.index(trace.stage(0)));
+            ctx.assertEquals(0, Trace.member(trace.stage(0)));
+            ctx.assertEquals(1, Trace.index(trace.stage(1)));
+            ctx.assertEquals(1, Trace.member(trace.stage(1)));
+            async.complete();
+        });
+        vertx.deployVerticle(FusedStage.class.getName(), new DeploymentOptions().setConfig(conf().put("hasMailbox", false)), ctx.asyncAssertSuccess(id -> {
+            Packet.Header header = Packet.Header.builder().source("test").route("test").current(1).build();
+            header.setTrace(new Trace(System.nanoTime()));
+            vertx.eventBus().publish("test", Packet.builder().header(header).body(new JsonObject()).build());
+        }));
+    }
+
+    @Test public void testWhenUndecodable1(TestContext ctx) {
+        // Condition of a fused stage over a malformed body
+        JsonObject conf = conf().put("stages", new JsonArray()
+                .add(stage("a", StageA.class, new JsonObject().put("when", "!exists($.skip)")))
+                .add(stage("b", StageB.class, new JsonObject())));
+        testWhenUndecodable(ctx, FusedStage.class, conf);
+    }
+
+    @Test public void testWhenUndecodable2(TestContext ctx) {
+        // Condition of a standalone stage over a malformed body
+        JsonObject conf = conf()
+                .put("when", "!exists($.skip)")
+                .put("fallback", "fallback");
+        testWhenUndecodable(ctx, StageA.class, conf);
+    }
+
+    private void testWhenUndecodable(TestContext ctx, Class<?> verticle, JsonObject conf) {
+        Async async = ctx.async();
+        vertx.eventBus().<Packet>localConsumer("fallback", h -> {
+            Packet packet = h.body();
+            ctx.assertEquals("{\"a\":}", packet.getBody().getString("message"));
+            ctx.assertTrue(packet.getBody().getString("stacktrace").contains("DecodeException"));
+            async.complete();
+        });
+        deployAndSend(ctx, verticle, conf, new LazyJsonObject(Buffer.buffer("{\"a\":}")));
+    }
+
+    private void deployAndSend(TestContext ctx, JsonObject body) {
+        deployAndSend(ctx, FusedStage.class, conf(), body);
+    }
+
+    private void deployAndSend(TestContext ctx, Class<?> verticle, JsonObject conf, JsonObject body) {
+        vertx.deployVerticle(verticle.getName(), new DeploymentOptions().setConfig(conf.put("hasMailbox", false)), ctx.asyncAssertSuccess(id -> {
+            vertx.eventBus().publish("test", Packet.builder()
+                    .header(Packet.Header.builder().source("test").route("test").current(1).build())
+                    .body(body)
+                    .build());
+        }));
+    }
+
+    @Override protected JsonObject conf() {
+        return super.conf()
+                .put("route", new JsonObject()
+                        .put("test", new JsonArray().add("in").add("test").add("out"))
+                        .put("fallback", new JsonArray().add("fallback")))
+                .put("stages", new JsonArray()
+                        .add(stage("a", StageA.class, new JsonObject()))
+                        .add(stage("b", StageB.class, new JsonObject().put("when", "!exists($.skip)"))));
+    }
+
+    private JsonObject stage(String endpoint, Class<?> component, JsonObject config) {
+        return new JsonObject()
+                .put("endpoint", endpoint)
+                .put("component", component.getName())
+                .put("config", config.put("fallback", "fallback"));
+    }
+
+    public static class StageA extends BaseComponentVerticle implements Fusable {
+        @Override public void start() {
+            super.start();
+            resume();
+        }
+
+        @Override public void handle(Packet packet) {
+            packet.getBody().put("a", "a");
+            forwardAndRelease(packet);
+        }
+
+        @Override protected void checkConfig(JsonObject config) {
+        }
+    }
+
+    public static class StageB extends BaseComponentVerticle implements Fusable {
+        @Override public void start() {
+            super.start();
+            resume();
+        }
+
+        @Override public void handle(Packet packet) {
+            if (packet.getBody().getBoolean("fail", false)) {
+                throw new IllegalStateException();
+            }
+            packet.getBody().put("b", "b");
+            forwardAndRelease(packet);
+        }
+
+        @Override protected void checkConfig(JsonObject config) {
+        }
+    }
+
+}
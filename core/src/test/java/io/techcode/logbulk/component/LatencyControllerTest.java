@@ -0,0 +1,95 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.component;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for LatencyController.
+ */
+public class LatencyControllerTest {
+
+    // Settings
+    private static final long TARGET = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor1() {
+        new LatencyController(0, 1, 10, 10, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor2() {
+        new LatencyController(TARGET, 10, 1, 10, 0);
+    }
+
+    @Test public void testUpdate1() {
+        // Nothing completed, nothing changes
+        LatencyController controller = new LatencyController(TARGET, 1, 1000, 1000, 0);
+        controller.update(INTERVAL, 1);
+        assertEquals(16, controller.limit());
+        assertEquals(1000, controller.threshold());
+    }
+
+    @Test public void testUpdate2() {
+        // Worker limited without latency increase, limit grows
+        LatencyController controller = new LatencyController(TARGET, 1, 1000, 1000, 0);
+        controller.observe(0, 16);
+        controller.complete(1600);
+        controller.update(INTERVAL, 1);
+        assertEquals(17, controller.limit());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1), controller.latency(), 1);
+
+        // Threshold follows throughput times target
+        assertEquals(540, controller.threshold(), 1);
+    }
+
+    @Test public void testUpdate3() {
+        // Latency increases with in-flight packets, limit shrinks
+        LatencyController controller = new LatencyController(TARGET, 1, 1000, 1000, 0);
+        controller.observe(0, 16);
+        controller.complete(1600);
+        controller.update(INTERVAL, 1);
+        for (int i = 2; i < 5; i++) {
+            controller.observe(0, 64);
+            controller.complete(1600);
+            controller.update(INTERVAL * i, 1);
+        }
+        assertTrue(controller.limit() < 17);
+    }
+
+    @Test public void testUpdate4() {
+        // Standing queue above target, threshold backs off
+        LatencyController controller = new LatencyController(TARGET, 1, 1000, 1000, 0);
+        controller.observe(1000, 16);
+        controller.complete(1600);
+        controller.update(INTERVAL, 1);
+        assertEquals(750, controller.threshold());
+    }
+
+}
@@ -23,10 +23,24 @@
  */
 package io.techcode.logbulk.component;
 
+import com.google.common.collect.Lists;
 import io.techcode.logbulk.VerticleTestBase;
+import io.techcode.logbulk.net.Packet;
+import io.techcode.logbulk.net.PacketBatch;
+import io.techcode.logbulk.util.CreditHandler;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Test for Mailbox.
  */
@@ -37,4 +51,261 @@ public class MailboxTest extends VerticleTestBase {
         return Mailbox.class;
     }
 
-}
\ No newline at end of file
+    @Test public void testBatchFull(TestContext ctx) {
+        testBatch(ctx, 4, 4);
+    }
+
+    @Test public void testBatchLinger(TestContext ctx) {
+        testBatch(ctx, 2, 2);
+    }
+
+    @Test public void testCreditGrant(TestContext ctx) {
+        Async async = ctx.async();
+        JsonObject conf = conf()
+                .put("hasMailbox", false)
+                .put("mailbox", 4);
+
+        // Fake upstream
+        vertx.eventBus().<JsonArray>localConsumer("upstream.grant", h -> {
+            ctx.assertEquals(new JsonArray().add("test").add(2), h.body());
+            async.complete();
+        });
+
+        // Request credits
+        vertx.deployVerticle(Mailbox.class.getName(), new DeploymentOptions().setConfig(conf), ctx.asyncAssertSuccess(id -> {
+            vertx.eventBus().publish("test.credit", new JsonArray().add("upstream").add(0).add(2));
+        }));
+    }
+
+    @Test public void testCreditDeferred(TestContext ctx) {
+        Async async = ctx.async();
+        JsonObject conf = conf()
+                .put("hasMailbox", false)
+                .put("mailbox", 4);
+
+        // Fake upstream, only granted once buffer is drained
+        AtomicBoolean drained = new AtomicBoolean();
+        vertx.eventBus().<JsonArray>localConsumer("upstream.grant", h -> {
+            ctx.assertTrue(drained.get());
+            ctx.assertEquals(new JsonArray().add("test").add(2), h.body());
+            async.complete();
+        });
+
+        // Fill buffer, request credits and then register worker
+        vertx.deployVerticle(Mailbox.class.getName(), new DeploymentOptions().setConfig(conf), ctx.asyncAssertSuccess(id -> {
+            for (int i = 0; i < 4; i++) {
+                vertx.eventBus().publish("test", Packet.builder()
+                        .header(Packet.Header.builder().source("test").route("test").build())
+                        .body(new JsonObject())
+                        .build());
+            }
+            vertx.eventBus().publish("test.credit", new JsonArray().add("upstream").add(0).add(2));
+            vertx.setTimer(50, h -> {
+                drained.set(true);
+                vertx.eventBus().publish("test.worker", new JsonArray().add("test.worker.fake").add(0));
+            });
+        }));
+    }
+
+    @Test public void testCreditUpstreams(TestContext ctx) {
+        Async async = ctx.async();
+        JsonObject conf = conf()
+                .put("hasMailbox", false)
+                .put("mailbox", 4);
+
+        // Upstreams start without credits and request a window each
+        List<CreditHandler> upstreams = Lists.newArrayList();
+        for (int i = 0; i < 3; i++) {
+            CreditHandler upstream = new CreditHandler(vertx, "upstream-" + i, 4);
+            vertx.eventBus().<JsonArray>localConsumer("upstream-" + i + ".grant").handler(upstream);
+            upstreams.add(upstream);
+        }
+        vertx.deployVerticle(Mailbox.class.getName(), new DeploymentOptions().setConfig(conf), ctx.asyncAssertSuccess(id -> {
+            upstreams.forEach(upstream -> ctx.assertFalse(upstream.hasCredit("test")));
+            vertx.setTimer(100, h -> {
+                // Credits granted never exceed the mailbox threshold
+                int total = upstreams.stream().mapToInt(upstream -> upstream.credits("test")).sum();
+                ctx.assertTrue(total > 0);
+                ctx.assertTrue(total <= 4);
+                async.complete();
+            });
+        }));
+    }
+
+    @Test public void testCreditRerouted(TestContext ctx) {
+        Async async = ctx.async();
+        JsonObject route = new JsonObject()
+                .put("test", new JsonArray().add("test"))
+                .put("other", new JsonArray().add("sink"));
+        JsonObject conf = conf()
+                .put("route", route)
+                .put("hasMailbox", false)
+                .put("mailbox", 4);
+
+        // Fake input flooding the dispatcher
+        CreditHandler input = new CreditHandler(vertx, "input", 4);
+        vertx.eventBus().<JsonArray>localConsumer("input.grant").handler(input);
+        AtomicInteger sent = new AtomicInteger();
+
+        // Sink without worker, dispatched route fills up
+        vertx.deployVerticle(Mailbox.class.getName(), new DeploymentOptions().setConfig(conf.copy().put("endpoint", "sink")), ctx.asyncAssertSuccess(sink -> {
+            vertx.deployVerticle(Mailbox.class.getName(), new DeploymentOptions().setConfig(conf), ctx.asyncAssertSuccess(mailbox -> {
+                vertx.deployVerticle(Dispatcher.class.getName(), new DeploymentOptions().setConfig(conf().put("route", route)), ctx.asyncAssertSuccess(worker -> {
+                    long timer = vertx.setPeriodic(1, h -> {
+                        while (input.hasCredit("test")) {
+                            Packet packet = Packet.builder()
+                                    .header(Packet.Header.builder().source("test").route("test").build())
+                                    .body(new JsonObject())
+                                    .build();
+                            packet.getHeader().setUpstream("input");
+                            vertx.eventBus().publish("test", packet);
+                            input.consume("test");
+                            sent.incrementAndGet();
+                        }
+                    });
+                    vertx.setTimer(500, h -> {
+                        // Input is paused once credits of the dispatched route are exhausted
+                        vertx.cancelTimer(timer);
+                        ctx.assertTrue(input.isStarved());
+                        ctx.assertTrue(sent.get() < 64);
+                        async.complete();
+                    });
+                }));
+            }));
+        }));
+    }
+
+    @Test public void testPartitionHotKey(TestContext ctx) {
+        Async async = ctx.async();
+        JsonObject conf = conf()
+                .put("hasMailbox", false)
+                .put("mailbox", 4)
+                .put("partitionBy", "key");
+
+        // Fake workers holding their jobs
+        List<Integer> received = Lists.newArrayList();
+        AtomicInteger other = new AtomicInteger();
+        vertx.eventBus().<Packet>localConsumer("hot", h -> received.add(h.body().getBody().getInteger("seq")));
+        vertx.eventBus().<Packet>localConsumer("cold", h -> other.incrementAndGet());
+
+        // Hot key only takes its share of the threshold
+        vertx.deployVerticle(Mailbox.class.getName(), new DeploymentOptions().setConfig(conf), ctx.asyncAssertSuccess(id -> {
+            vertx.eventBus().publish("test.worker", new JsonArray().add("hot").add(0));
+            vertx.eventBus().publish("test.worker", new JsonArray().add("cold").add(0));
+            vertx.setTimer(50, h -> {
+                WorkerPool pool = new WorkerPool(4, 2);
+                pool.register("hot");
+                pool.register("cold");
+                String key = hotKey(pool);
+                for (int i = 0; i < 32; i++) {
+                    vertx.eventBus().publish("test", Packet.builder()
+                            .header(Packet.Header.builder().source("test").route("test").build())
+                            .body(new JsonObject().put("key", key).put("seq", i))
+                            .build());
+                }
+                vertx.setTimer(100, e -> {
+                    ctx.assertEquals(Lists.newArrayList(0, 1, 2, 3), received);
+                    ctx.assertEquals(0, other.get());
+
+                    // Released jobs let the hot key go on in order
+                    vertx.eventBus().publish("test.worker", new JsonArray().add("hot").add(4));
+                    vertx.setTimer(100, f -> {
+                        ctx.assertEquals(Lists.newArrayList(0, 1, 2, 3, 4, 5, 6, 7), received);
+                        async.complete();
+                    });
+                });
+            });
+        }));
+    }
+
+    @Test public void testPartitionFence(TestContext ctx) {
+        Async async = ctx.async();
+        JsonObject conf = conf()
+                .put("hasMailbox", false)
+                .put("mailbox", 4)
+                .put("partitionBy", "key");
+
+        // Fake workers, the first one holds its jobs until fenced
+        AtomicInteger held = new AtomicInteger();
+        AtomicBoolean fenced = new AtomicBoolean();
+        AtomicBoolean drained = new AtomicBoolean();
+        vertx.eventBus().<Packet>localConsumer("first", h -> {
+            if (fenced.get()) {
+                vertx.eventBus().publish("test.worker", new JsonArray().add("first").add(1));
+            } else {
+                held.incrementAndGet();
+            }
+        });
+        vertx.eventBus().<Packet>localConsumer("second", h -> {
+            // Keys only move once packets in flight on the first worker are drained
+            ctx.assertTrue(drained.get());
+            async.complete();
+        });
+
+        vertx.deployVerticle(Mailbox.class.getName(), new DeploymentOptions().setConfig(conf), ctx.asyncAssertSuccess(id -> {
+            vertx.eventBus().publish("test.worker", new JsonArray().add("first").add(0));
+            for (int i = 0; i < 32; i++) {
+                vertx.eventBus().publish("test", Packet.builder()
+                        .header(Packet.Header.builder().source("test").route("test").build())
+                        .body(new JsonObject().put("key", "key-" + i))
+                        .build());
+            }
+            vertx.setTimer(50, h -> {
+                vertx.eventBus().publish("test.worker", new JsonArray().add("second").add(0));
+                vertx.setTimer(50, e -> {
+                    drained.set(true);
+                    fenced.set(true);
+                    vertx.eventBus().publish("test.worker", new JsonArray().add("first").add(held.get()));
+                });
+            });
+        }));
+    }
+
+    private void testBatch(TestContext ctx, int sent, int expected) {
+        Async async = ctx.async();
+        JsonObject conf = conf()
+                .put("hasMailbox", false)
+                .put("batch", 4)
+                .put("linger", 50);
+
+        // Fake worker
+        vertx.eventBus().<PacketBatch>localConsumer("test.worker.fake.batch", h -> {
+            ctx.assertEquals(expected, h.body().size());
+            async.complete();
+        });
+
+        // Register worker and send packets
+        vertx.deployVerticle(Mailbox.class.getName(), new DeploymentOptions().setConfig(conf), ctx.asyncAssertSuccess(id -> {
+            vertx.eventBus().publish("test.worker", new JsonArray().add("test.worker.fake").add(0));
+            for (int i = 0; i < sent; i++) {
+                vertx.eventBus().publish("test", Packet.builder()
+                        .header(Packet.Header.builder().source("test").route("test").build())
+                        .body(new JsonObject())
+                        .build());
+            }
+        }));
+    }
+
+    private String hotKey(WorkerPool pool) {
+        for (int i = 0; ; i++) {
+            if (pool.partition(("key-" + i).hashCode()) == 0) {
+                return "key-" + i;
+            }
+        }
+    }
+
+    public static class Dispatcher extends BaseComponentVerticle {
+        @Override public void start() {
+            super.start();
+            resume();
+        }
+
+        @Override public void handle(Packet packet) {
+            forwardAndRelease(updateRoute(packet, "other"));
+        }
+
+        @Override protected void checkConfig(JsonObject config) {
+        }
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.component;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import io.techcode.logbulk.net.Packet;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for StageFusion.
+ */
+public class StageFusionTest {
+
+    // Components
+    private static final Map<String, String> COMPONENTS = ImmutableMap.of(
+            "a", Stage.class.getName(),
+            "b", Stage.class.getName(),
+            "c", Stage.class.getName(),
+            "d", BaseComponentVerticle.class.getName()
+    );
+
+    @Test(expected = NullPointerException.class) public void testConstructor1() {
+        new StageFusion(null, transforms(), COMPONENTS::get);
+    }
+
+    @Test(expected = NullPointerException.class) public void testConstructor2() {
+        new StageFusion(new JsonObject(), null, COMPONENTS::get);
+    }
+
+    @Test(expected = NullPointerException.class) public void testConstructor3() {
+        new StageFusion(new JsonObject(), transforms(), null);
+    }
+
+    @Test public void testFuse() {
+        StageFusion fusion = fusion(route("in", "a", "b", "c", "out"), transforms());
+        assertEquals(route("in", "a+b+c", "out"), fusion.getRoutes().getJsonArray("test"));
+        assertEquals(1, fusion.getStages().size());
+        JsonArray stages = fusion.getStages().get("a+b+c").getJsonArray(FusedStage.STAGES);
+        assertEquals(3, stages.size());
+        assertEquals("a", stages.getJsonObject(0).getString("endpoint"));
+        assertEquals(Stage.class.getName(), stages.getJsonObject(0).getString(FusedStage.COMPONENT));
+    }
+
+    @Test public void testFuseSingle() {
+        StageFusion fusion = fusion(route("in", "a", "out"), transforms());
+        assertEquals(route("in", "a", "out"), fusion.getRoutes().getJsonArray("test"));
+        assertTrue(fusion.getStages().isEmpty());
+    }
+
+    @Test public void testFuseNotFusable() {
+        StageFusion fusion = fusion(route("in", "a", "b", "d", "c", "out"), transforms());
+        assertEquals(route("in", "a+b", "d", "c", "out"), fusion.getRoutes().getJsonArray("test"));
+        assertEquals(1, fusion.getStages().size());
+    }
+
+    @Test public void testFuseInput() {
+        StageFusion fusion = fusion(route("a", "b", "c"), transforms());
+        assertEquals(route("a", "b+c"), fusion.getRoutes().getJsonArray("test"));
+    }
+
+    @Test public void testFuseOptOut() {
+        Map<String, JsonObject> transforms = transforms();
+        transforms.get("b").put("fusion", false);
+        StageFusion fusion = fusion(route("in", "a", "b", "c", "out"), transforms);
+        assertEquals(route("in", "a", "b", "c", "out"), fusion.getRoutes().getJsonArray("test"));
+    }
+
+    @Test public void testFuseWorker() {
+        Map<String, JsonObject> transforms = transforms();
+        transforms.get("c").put("worker", true);
+        StageFusion fusion = fusion(route("in", "a", "b", "c", "out"), transforms);
+        assertEquals(route("in", "a+b", "c", "out"), fusion.getRoutes().getJsonArray("test"));
+    }
+
+    @Test public void testFusePartitioned() {
+        Map<String, JsonObject> transforms = transforms();
+        transforms.get("a").put("partitionBy", "host");
+        StageFusion fusion = fusion(route("in", "a", "b", "c", "out"), transforms);
+        assertEquals(route("in", "a", "b+c", "out"), fusion.getRoutes().getJsonArray("test"));
+    }
+
+    @Test public void testFuseInstance() {
+        Map<String, JsonObject> transforms = transforms();
+        transforms.get("a").put("mailbox", 42);
+        transforms.get("b").put("instance", 4);
+        StageFusion fusion = fusion(route("in", "a", "b", "out"), transforms);
+        JsonObject conf = fusion.getStages().get("a+b");
+        assertEquals(4, (int) conf.getInteger("instance"));
+        assertEquals(42, (int) conf.getInteger("mailbox"));
+    }
+
+    @Test public void testFuseMailboxSettings() {
+        Map<String, JsonObject> transforms = transforms();
+        transforms.get("a").put("spill", new JsonObject().put("path", "/tmp"));
+        StageFusion fusion = fusion(route("in", "a", "b", "c", "out"), transforms);
+        assertEquals(route("in", "a+b+c", "out"), fusion.getRoutes().getJsonArray("test"));
+        assertEquals(new JsonObject().put("path", "/tmp"), fusion.getStages().get("a+b+c").getJsonObject("spill"));
+    }
+
+    @Test public void testFuseMailboxSettingsHead() {
+        Map<String, JsonObject> transforms = transforms();
+        transforms.get("b").put("fair", new JsonObject()).put("adaptive", new JsonObject().put("target", 50));
+        StageFusion fusion = fusion(route("in", "a", "b", "c", "out"), transforms);
+        assertEquals(route("in", "a", "b+c", "out"), fusion.getRoutes().getJsonArray("test"));
+        JsonObject conf = fusion.getStages().get("b+c");
+        assertEquals(new JsonObject(), conf.getJsonObject("fair"));
+        assertEquals(50, (int) conf.getJsonObject("adaptive").getInteger("target"));
+    }
+
+    @Test public void testFuseMailboxSettingsConflict() {
+        // Settings of a member are never silently dropped
+        Map<String, JsonObject> transforms = transforms();
+        transforms.get("a").put("mailbox", 42);
+        transforms.get("b").put("mailbox", 42);
+        transforms.get("c").put("batch", 8);
+        StageFusion fusion = fusion(route("in", "a", "b", "c", "out"), transforms);
+        assertEquals(route("in", "a+b", "c", "out"), fusion.getRoutes().getJsonArray("test"));
+    }
+
+    @Test public void testReplaced() {
+        JsonObject routes = new JsonObject()
+                .put("first", route("in", "a", "b", "out"))
+                .put("second", route("in", "a", "d", "c", "out"));
+        StageFusion fusion = new StageFusion(routes, transforms(), COMPONENTS::get);
+        assertEquals(Sets.newHashSet("b"), fusion.getReplaced());
+    }
+
+    @Test public void testMember() {
+        assertEquals("a", StageFusion.member("a+b+c", 0));
+        assertEquals("c", StageFusion.member("a+b+c", 2));
+        assertNull(StageFusion.member("a+b+c", 3));
+    }
+
+    private StageFusion fusion(JsonArray route, Map<String, JsonObject> transforms) {
+        return new StageFusion(new JsonObject().put("test", route), transforms, COMPONENTS::get);
+    }
+
+    private JsonArray route(String... endpoints) {
+        JsonArray route = new JsonArray();
+        for (String endpoint : endpoints) {
+            route.add(endpoint);
+        }
+        return route;
+    }
+
+    private Map<String, JsonObject> transforms() {
+        return ImmutableMap.of(
+                "a", new JsonObject(),
+                "b", new JsonObject(),
+                "c", new JsonObject(),
+                "d", new JsonObject()
+        );
+    }
+
+    public static class Stage extends BaseComponentVerticle implements Fusable {
+        @Override public void handle(Packet packet) {
+            forwardAndRelease(packet);
+        }
+    }
+
+}
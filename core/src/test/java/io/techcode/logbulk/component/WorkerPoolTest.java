@@ -0,0 +1,225 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.component;
+
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for WorkerPool.
+ */
+public class WorkerPoolTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor1() {
+        new WorkerPool(0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor2() {
+        new WorkerPool(1, 0);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testRegister1() {
+        new WorkerPool(10, 5).register(null);
+    }
+
+    @Test public void testRegister2() {
+        WorkerPool pool = new WorkerPool(10, 5);
+        assertEquals(0, pool.register("foo"));
+        assertEquals(1, pool.register("bar"));
+        assertEquals(0, pool.register("foo"));
+        assertEquals(2, pool.size());
+        assertEquals("bar", pool.name(1));
+    }
+
+    @Test public void testRegister3() {
+        WorkerPool pool = new WorkerPool(10, 5);
+        for (int i = 0; i < 64; i++) {
+            assertEquals(i, pool.register("worker-" + i));
+        }
+        assertEquals(64, pool.size());
+        assertEquals("worker-63", pool.name(63));
+    }
+
+    @Test public void testSelect1() {
+        assertEquals(-1, new WorkerPool(10, 5).select());
+    }
+
+    @Test public void testSelect2() {
+        // Workers with equal jobs must all be selectable
+        WorkerPool pool = new WorkerPool(10, 5);
+        pool.register("foo");
+        pool.register("bar");
+        Set<Integer> selected = Sets.newHashSet();
+        for (int i = 0; i < 100; i++) {
+            selected.add(pool.select());
+        }
+        assertEquals(Sets.newHashSet(0, 1), selected);
+    }
+
+    @Test public void testSelect3() {
+        WorkerPool pool = new WorkerPool(2, 1);
+        pool.register("foo");
+        pool.register("bar");
+        pool.acquire(0, 2);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(1, pool.select());
+        }
+        pool.acquire(1, 2);
+        assertEquals(-1, pool.select());
+        assertFalse(pool.hasAvailable());
+    }
+
+    @Test public void testSelect4() {
+        // Least loaded worker is preferred with two workers
+        WorkerPool pool = new WorkerPool(10, 5);
+        pool.register("foo");
+        pool.register("bar");
+        pool.acquire(0, 4);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(1, pool.select());
+        }
+    }
+
+    @Test public void testSelect5() {
+        // Choices are only drawn among available workers
+        WorkerPool pool = new WorkerPool(2, 1);
+        for (int i = 0; i < 64; i++) {
+            pool.register("worker-" + i);
+            if (i != 37) {
+                pool.acquire(i, 2);
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(37, pool.select());
+        }
+        pool.release(12, 2);
+        pool.acquire(37, 2);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(12, pool.select());
+        }
+    }
+
+    @Test public void testAcquire() {
+        WorkerPool pool = new WorkerPool(10, 5);
+        pool.register("foo");
+        pool.acquire(0, 3);
+        assertEquals(3, pool.jobs(0));
+        assertEquals(7, pool.capacity(0));
+        assertTrue(pool.hasAvailable());
+    }
+
+    @Test public void testRelease() {
+        WorkerPool pool = new WorkerPool(10, 5);
+        pool.register("foo");
+        pool.acquire(0, 10);
+        assertFalse(pool.hasAvailable());
+
+        // Still busy until idle
+        pool.release(0, 4);
+        assertFalse(pool.hasAvailable());
+        pool.release(0, 2);
+        assertTrue(pool.hasAvailable());
+        assertEquals(4, pool.jobs(0));
+    }
+
+    @Test public void testJobs() {
+        WorkerPool pool = new WorkerPool(10, 5);
+        pool.register("foo");
+        pool.register("bar");
+        pool.acquire(0, 3);
+        pool.acquire(1, 2);
+        pool.release(0, 1);
+        assertEquals(4, pool.jobs());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testResize1() {
+        new WorkerPool(10, 5).resize(0, 1);
+    }
+
+    @Test public void testResize2() {
+        WorkerPool pool = new WorkerPool(10, 5);
+        pool.register("foo");
+        pool.acquire(0, 4);
+        assertTrue(pool.hasAvailable());
+
+        // Shrink evicts busy workers
+        pool.resize(4, 2);
+        assertEquals(4, pool.threshold());
+        assertFalse(pool.hasAvailable());
+
+        // Grow restores them
+        pool.resize(10, 5);
+        assertTrue(pool.hasAvailable());
+        assertEquals(6, pool.capacity(0));
+    }
+
+    @Test public void testPartition1() {
+        assertEquals(-1, new WorkerPool(10, 5).partition(42));
+    }
+
+    @Test public void testPartition2() {
+        WorkerPool pool = new WorkerPool(10, 5);
+        pool.register("foo");
+        pool.register("bar");
+        int[] owners = new int[100];
+        Set<Integer> used = Sets.newHashSet();
+        for (int i = 0; i < owners.length; i++) {
+            owners[i] = pool.partition(i);
+            used.add(owners[i]);
+
+            // Owner doesn't depend on load
+            pool.acquire(owners[i], 10);
+            assertEquals(owners[i], pool.partition(i));
+        }
+        assertEquals(2, used.size());
+
+        // Keys only move to a new worker
+        pool.register("baz");
+        for (int i = 0; i < owners.length; i++) {
+            int owner = pool.partition(i);
+            assertTrue(owner == owners[i] || owner == 2);
+        }
+    }
+
+    @Test public void testPartition3() {
+        // Keys stay on the first workers until new ones own keys
+        WorkerPool pool = new WorkerPool(10, 5);
+        pool.register("foo");
+        pool.register("bar");
+        assertEquals(-1, pool.partition(42, 0));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, pool.partition(i, 1));
+            assertEquals(pool.partition(i), pool.partition(i, 2));
+        }
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.io;
+
+import io.techcode.logbulk.net.Packet;
+import io.vertx.core.json.JsonObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for SpillQueue.
+ */
+public class SpillQueueTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor1() {
+        new SpillQueue(null, 1024, 1, SpillQueue.Sync.NONE);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor2() {
+        new SpillQueue(path(), 1024, 1, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor3() {
+        new SpillQueue(path(), 0, 1, SpillQueue.Sync.NONE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor4() {
+        new SpillQueue(path(), 1024, 0, SpillQueue.Sync.NONE);
+    }
+
+    @Test public void testAppend1() {
+        SpillQueue spill = new SpillQueue(path(), 1024, 1, SpillQueue.Sync.NONE);
+        assertTrue(spill.isEmpty());
+        assertTrue(spill.append(packet(0)));
+        assertFalse(spill.isEmpty());
+        assertEquals(1, spill.getSize());
+        spill.close();
+    }
+
+    @Test public void testAppend2() {
+        // Record larger than a segment
+        SpillQueue spill = new SpillQueue(path(), 16, 1, SpillQueue.Sync.NONE);
+        assertFalse(spill.append(packet(0)));
+        assertTrue(spill.isEmpty());
+        spill.close();
+    }
+
+    @Test public void testAppend3() {
+        // Only one segment allowed
+        SpillQueue spill = new SpillQueue(path(), 128, 1, SpillQueue.Sync.ALWAYS);
+        int appended = 0;
+        while (spill.append(packet(appended))) {
+            appended++;
+        }
+        assertTrue(appended > 0);
+        assertEquals(appended, spill.getSize());
+        spill.close();
+    }
+
+    @Test public void testPoll1() {
+        SpillQueue spill = new SpillQueue(path(), 1024, 1, SpillQueue.Sync.NONE);
+        assertNull(spill.poll());
+        spill.close();
+    }
+
+    @Test public void testPoll2() {
+        // Order is kept across segments
+        SpillQueue spill = new SpillQueue(path(), 128, 64, SpillQueue.Sync.SEGMENT);
+        for (int i = 0; i < 32; i++) {
+            assertTrue(spill.append(packet(i)));
+        }
+        for (int i = 0; i < 32; i++) {
+            assertEquals(packet(i), spill.poll());
+        }
+        assertTrue(spill.isEmpty());
+        assertNull(spill.poll());
+        spill.close();
+    }
+
+    @Test public void testRecycle() {
+        Path path = path();
+        SpillQueue spill = new SpillQueue(path, 128, 64, SpillQueue.Sync.NONE);
+        for (int round = 0; round < 4; round++) {
+            for (int i = 0; i < 32; i++) {
+                spill.append(packet(i));
+            }
+            for (int i = 0; i < 32; i++) {
+                assertEquals(packet(i), spill.poll());
+            }
+        }
+
+        // Only recycled segments remain
+        File[] files = path.toFile().listFiles();
+        assertNotNull(files);
+        assertEquals(SpillQueue.RECYCLED, files.length);
+        spill.close();
+        assertEquals(0, path.toFile().listFiles().length);
+    }
+
+    @Test public void testRecover() {
+        // Packets left are recovered in order by the next queue
+        Path path = path();
+        SpillQueue spill = new SpillQueue(path, 128, 64, SpillQueue.Sync.SEGMENT);
+        for (int i = 0; i < 16; i++) {
+            assertTrue(spill.append(packet(i)));
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals(packet(i), spill.poll());
+        }
+        spill.close();
+        spill = new SpillQueue(path, 128, 64, SpillQueue.Sync.SEGMENT);
+        assertEquals(11, spill.getSize());
+        assertTrue(spill.append(packet(16)));
+        for (int i = 5; i < 17; i++) {
+            assertEquals(packet(i), spill.poll());
+        }
+        assertTrue(spill.isEmpty());
+        spill.close();
+        assertEquals(0, path.toFile().listFiles().length);
+    }
+
+    @Test public void testSync() {
+        assertEquals(SpillQueue.Sync.ALWAYS, SpillQueue.Sync.of("always"));
+        assertEquals(SpillQueue.Sync.SEGMENT, SpillQueue.Sync.of("SEGMENT"));
+    }
+
+    private Path path() {
+        return folder.getRoot().toPath().resolve("spill");
+    }
+
+    private Packet packet(int i) {
+        return Packet.builder()
+                .header(Packet.Header.builder().source("input").route("test").previous(0).current(1).build())
+                .body(new JsonObject().put("message", "foobar").put("i", i))
+                .build();
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.net;
+
+import com.google.common.collect.Lists;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for packet batch codec.
+ */
+public class PacketBatchCodecTest {
+
+    @Test public void testTransform() {
+        // Test
+        PacketBatch batch = new PacketBatch(1);
+        PacketBatchCodec codec = new PacketBatchCodec();
+        assertSame(batch, codec.transform(batch));
+    }
+
+    @Test public void testWire1() {
+        PacketBatch batch = wire(new PacketBatch(1));
+        assertTrue(batch.isEmpty());
+    }
+
+    @Test public void testWire2() {
+        // Prepare batch
+        PacketBatch batch = new PacketBatch(2)
+                .add(Packet.builder()
+                        .header(Packet.Header.builder().source("input").route("test").previous(1).current(2).build())
+                        .body(new JsonObject().put("message", "foo"))
+                        .build())
+                .add(Packet.builder()
+                        .header(Packet.Header.builder().source("input").route("test").oldRoute("old").build())
+                        .body(new JsonObject().put("message", "bar").put("count", 42))
+                        .build());
+
+        // Test
+        PacketBatch decoded = wire(batch);
+        assertEquals(Lists.newArrayList(batch), Lists.newArrayList(decoded));
+    }
+
+    @Test public void testName() {
+        // Test
+        assertEquals("PacketBatchCodec", new PacketBatchCodec().name());
+    }
+
+    @Test public void testSystemCodecID() {
+        // Test
+        assertEquals(-1, new PacketBatchCodec().systemCodecID());
+    }
+
+    private PacketBatch wire(PacketBatch batch) {
+        // Encode after some bytes to check offsets
+        PacketBatchCodec codec = new PacketBatchCodec();
+        Buffer buf = Buffer.buffer().appendInt(42);
+        codec.encodeToWire(buf, batch);
+        return codec.decodeFromWire(4, buf);
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.net;
+
+import com.google.common.collect.Lists;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for PacketBatch.
+ */
+public class PacketBatchTest {
+
+    @Test(expected = NullPointerException.class)
+    public void testAdd1() {
+        new PacketBatch(1).add(null);
+    }
+
+    @Test public void testAdd2() {
+        PacketBatch batch = new PacketBatch(1);
+        assertTrue(batch.isEmpty());
+        batch.add(createPacket()).add(createPacket());
+        assertFalse(batch.isEmpty());
+        assertEquals(2, batch.size());
+    }
+
+    @Test public void testIterator() {
+        Packet first = createPacket();
+        Packet second = createPacket();
+        PacketBatch batch = new PacketBatch(2).add(first).add(second);
+        assertEquals(Lists.newArrayList(first, second), Lists.newArrayList(batch));
+    }
+
+    private Packet createPacket() {
+        return Packet.builder()
+                .header(Packet.Header.builder()
+                        .source("foobar")
+                        .route("foobar")
+                        .build())
+                .body(new JsonObject())
+                .build();
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.net;
+
+import com.hazelcast.config.ClasspathXmlConfig;
+import com.hazelcast.config.Config;
+import com.hazelcast.config.JoinConfig;
+import io.techcode.logbulk.component.BaseComponentVerticle;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.spi.cluster.hazelcast.HazelcastClusterManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+/**
+ * Test for packet codec across two clustered jvm.
+ */
+@RunWith(VertxUnitRunner.class)
+public class PacketCodecClusterTest {
+
+    // Some constants
+    private static final String READY = "READY";
+    private static final String LOOPBACK = "127.0.0.1";
+
+    // Remote node
+    private Process node;
+
+    // Local node
+    private Vertx vertx;
+
+    @Before public void setUp(TestContext ctx) throws Exception {
+        // Start remote node
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        node = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), Node.class.getName())
+                .redirectErrorStream(true)
+                .start();
+
+        // Start local node
+        Async async = ctx.async();
+        Vertx.clusteredVertx(options(), ctx.asyncAssertSuccess(h -> {
+            vertx = h;
+            vertx.eventBus().registerDefaultCodec(Packet.class, new PacketCodec());
+            async.complete();
+        }));
+        async.awaitSuccess(60000);
+
+        // Wait remote node
+        BufferedReader reader = new BufferedReader(new InputStreamReader(node.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null && !READY.equals(line)) {
+            // Consume remote output
+        }
+        ctx.assertEquals(READY, line);
+
+        // Avoid blocking remote node on full pipe
+        Thread drain = new Thread(() -> {
+            try {
+                while (reader.readLine() != null) {
+                    // Consume remote output
+                }
+            } catch (IOException ignored) {
+                // Remote node is stopped
+            }
+        });
+        drain.setDaemon(true);
+        drain.start();
+    }
+
+    @After public void tearDown(TestContext ctx) throws Exception {
+        node.destroy();
+        node.waitFor();
+        if (vertx != null) {
+            vertx.close(ctx.asyncAssertSuccess());
+        }
+    }
+
+    @Test(timeout = 60000) public void testRoute(TestContext ctx) {
+        Async async = ctx.async();
+        vertx.eventBus().<Packet>consumer("output", h -> {
+            Packet packet = h.body();
+            ctx.assertEquals("foobar", packet.getBody().getString("message"));
+            ctx.assertTrue(packet.getBody().getBoolean("remote"));
+            ctx.assertEquals("input", packet.getHeader().getSource());
+            ctx.assertEquals(1, packet.getHeader().getPrevious());
+            ctx.assertEquals(2, packet.getHeader().getCurrent());
+            async.complete();
+        }).completionHandler(ctx.asyncAssertSuccess(h -> {
+            vertx.eventBus().send("remote", Packet.builder()
+                    .header(Packet.Header.builder().source("input").route("test").previous(0).current(1).build())
+                    .body(new JsonObject().put("message", "foobar"))
+                    .build());
+        }));
+    }
+
+    /**
+     * Returns cluster options bound to loopback.
+     *
+     * @return cluster options.
+     */
+    private static VertxOptions options() {
+        Config config = new ClasspathXmlConfig("default-cluster.xml");
+        config.setProperty("hazelcast.logging.type", "slf4j");
+        config.getNetworkConfig().getInterfaces().setEnabled(true).setInterfaces(Collections.singletonList(LOOPBACK));
+        JoinConfig join = config.getNetworkConfig().getJoin();
+        join.getMulticastConfig().setEnabled(false);
+        join.getTcpIpConfig().setEnabled(true).setMembers(Collections.singletonList(LOOPBACK));
+        return new VertxOptions()
+                .setClustered(true)
+                .setClusterHost(LOOPBACK)
+                .setClusterManager(new HazelcastClusterManager(config));
+    }
+
+    /**
+     * Remote node deploying a component of the route.
+     */
+    public static class Node {
+        public static void main(String[] args) {
+            Vertx.clusteredVertx(options(), h -> {
+                if (h.failed()) {
+                    h.cause().printStackTrace();
+                    System.exit(1);
+                }
+                Vertx vertx = h.result();
+                vertx.eventBus().registerDefaultCodec(Packet.class, new PacketCodec());
+                JsonObject conf = new JsonObject()
+                        .put("endpoint", "remote")
+                        .put("hasMailbox", false)
+                        .put("route", new JsonObject().put("test", new JsonArray().add("input").add("remote").add("output")));
+                vertx.deployVerticle(RemoteComponent.class.getName(), new DeploymentOptions().setConfig(conf), d -> {
+                    if (d.failed()) {
+                        d.cause().printStackTrace();
+                        System.exit(1);
+                    }
+                    System.out.println(READY);
+                });
+            });
+        }
+    }
+
+    /**
+     * Remote component.
+     */
+    public static class RemoteComponent extends BaseComponentVerticle {
+        @Override public void start() {
+            super.start();
+            resume();
+        }
+
+        @Override public void handle(Packet packet) {
+            packet.getBody().put("remote", true);
+            forwardAndRelease(packet);
+        }
+
+        @Override protected void checkConfig(JsonObject config) {
+        }
+    }
+
+}
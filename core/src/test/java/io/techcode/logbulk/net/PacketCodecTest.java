@@ -24,10 +24,11 @@
 package io.techcode.logbulk.net;
 
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.*;
 
 /**
@@ -55,21 +56,74 @@ public class PacketCodecTest {
         assertEquals(mockedPacket, transformed);
     }
 
-    @Test public void testDecode() {
-        PacketCodec codec = new PacketCodec();
-        codec.decodeFromWire(0, Buffer.buffer());
-        assertNull(codec.decodeFromWire(0, Buffer.buffer()));
+    @Test public void testWire1() {
+        // Prepare packet
+        Packet packet = Packet.builder()
+                .header(Packet.Header.builder().source("input").route("test").previous(1).current(2).build())
+                .body(new JsonObject().put("message", "foobar"))
+                .build();
+
+        // Test
+        assertEquals(packet, wire(packet));
     }
 
-    @Test public void testEncode() {
-        // Prepare mocks
-        Packet mockedPacket = mock(Packet.class);
+    @Test public void testWire2() {
+        // Prepare packet
+        Packet.Header header = Packet.Header.builder().source("input").route("test").oldRoute("old").build();
+        Trace trace = new Trace(1L);
+        trace.exit(Trace.stage(0, 0), 2L);
+        trace.arrive(3L);
+        header.setTrace(trace);
+        header.put("_mask", new JsonObject().put("message", "foobar"));
+        Packet packet = Packet.builder()
+                .header(header)
+                .body(new JsonObject()
+                        .put("string", "foobar")
+                        .put("int", 42)
+                        .put("long", Long.MAX_VALUE)
+                        .put("double", 4.2D)
+                        .put("boolean", true)
+                        .putNull("null")
+                        .put("object", new JsonObject().put("foo", "bar"))
+                        .put("array", new JsonArray().add(1).add("2").add(new JsonObject())))
+                .build();
+
+        // Test
+        Packet decoded = wire(packet);
+        assertEquals(packet.getBody().encode(), decoded.getBody().encode());
+
+        // Trace is rebased on the decoding clock
+        Trace decodedTrace = decoded.getHeader().getTrace();
+        assertEquals(1, decodedTrace.size());
+        assertEquals(1L, decodedTrace.elapsed(0));
+        header.setTrace(null);
+        decoded.getHeader().setTrace(null);
+        assertEquals(packet.getHeader(), decoded.getHeader());
+    }
+
+    @Test public void testWire3() {
+        // Prepare packet
+        Packet packet = Packet.builder()
+                .header(Packet.Header.builder().source("input").route("test").build())
+                .body(new JsonObject())
+                .build();
 
         // Test
+        assertEquals(packet, wire(packet));
+    }
+
+    @Test public void testWire4() {
+        // Prepare packet
+        Packet packet = Packet.builder()
+                .header(Packet.Header.builder().source("input").route("test").build())
+                .body(new JsonObject().put("message", "foobar"))
+                .build();
+
+        // Test with offset
         PacketCodec codec = new PacketCodec();
-        Buffer buf = Buffer.buffer();
-        codec.encodeToWire(buf, mockedPacket);
-        assertEquals(0, buf.length());
+        Buffer buf = Buffer.buffer().appendInt(42);
+        codec.encodeToWire(buf, packet);
+        assertEquals(packet, codec.decodeFromWire(4, buf));
     }
 
     @Test public void testName() {
@@ -82,4 +136,11 @@ public class PacketCodecTest {
         assertEquals(-1, new PacketCodec().systemCodecID());
     }
 
+    private Packet wire(Packet packet) {
+        PacketCodec codec = new PacketCodec();
+        Buffer buf = Buffer.buffer();
+        codec.encodeToWire(buf, packet);
+        return codec.decodeFromWire(0, buf);
+    }
+
 }
@@ -0,0 +1,97 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.net;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for PacketLeakDetector.
+ */
+public class PacketLeakDetectorTest {
+
+    private static final int TEST_ROUTE = RouteTable.id("foobar");
+
+    @After public void tearDown() {
+        PacketPool.configure(false, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstruct1() throws Exception {
+        new PacketLeakDetector(0);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testTrack1() throws Exception {
+        new PacketLeakDetector(1).track(null);
+    }
+
+    @Test public void testTrack2() throws Exception {
+        PacketPool.configure(true, 1);
+        PacketLeakDetector detector = new PacketLeakDetector(1);
+        assertNotNull(detector.track(PacketPool.acquire("foo", TEST_ROUTE)));
+    }
+
+    @Test public void testReportLeaks1() throws Exception {
+        PacketLeakDetector detector = new PacketLeakDetector(1);
+        leak(detector, false);
+        assertTrue(awaitLeaks(detector) > 0);
+    }
+
+    @Test public void testReportLeaks2() throws Exception {
+        PacketLeakDetector detector = new PacketLeakDetector(1);
+        leak(detector, true);
+        assertEquals(0, awaitLeaks(detector));
+    }
+
+    /**
+     * Track a packet and drop it.
+     *
+     * @param detector detector to use.
+     * @param close    true to close the tracker before dropping the packet.
+     */
+    private void leak(PacketLeakDetector detector, boolean close) {
+        PacketLeakDetector.Leak leak = detector.track(PacketPool.acquire("foo", TEST_ROUTE));
+        if (close) leak.close();
+    }
+
+    /**
+     * Force garbage collection until leaks are reported or timeout.
+     *
+     * @param detector detector to poll.
+     * @return number of leaks reported.
+     */
+    private int awaitLeaks(PacketLeakDetector detector) throws InterruptedException {
+        for (int i = 0; i < 20; i++) {
+            System.gc();
+            int leaks = detector.reportLeaks();
+            if (leaks > 0) return leaks;
+            Thread.sleep(10);
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.net;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for PacketPool.
+ */
+public class PacketPoolTest {
+
+    private static final int TEST_ROUTE = RouteTable.id("foobar");
+
+    @Before public void setUp() {
+        PacketPool.configure(true, 0);
+    }
+
+    @After public void tearDown() {
+        PacketPool.configure(false, 0);
+    }
+
+    @Test public void testEnabled() throws Exception {
+        assertTrue(PacketPool.isEnabled());
+        PacketPool.configure(false, 0);
+        assertFalse(PacketPool.isEnabled());
+    }
+
+    @Test public void testAcquire() throws Exception {
+        Packet packet = PacketPool.acquire("foo", TEST_ROUTE);
+        Packet.Header header = packet.getHeader();
+        assertEquals("foo", header.getSource());
+        assertEquals(TEST_ROUTE, header.getRouteId());
+        assertEquals(-1, header.getOldRouteId());
+        assertEquals(-1, header.getPrevious());
+        assertEquals(0, header.getCurrent());
+        assertTrue(packet.getBody().isEmpty());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testAcquire2() throws Exception {
+        PacketPool.acquire(null, TEST_ROUTE);
+    }
+
+    @Test public void testRecycle() throws Exception {
+        Packet packet = PacketPool.acquire("foo", TEST_ROUTE);
+        packet.getHeader().setCurrent(2);
+        packet.getHeader().setTrace(new Trace(1L));
+        packet.getHeader().put("foo", "bar");
+        packet.getBody().put("foo", "bar");
+        PacketPool.recycle(packet);
+
+        // Same thread must reuse the packet
+        Packet reused = PacketPool.acquire("bar", TEST_ROUTE);
+        assertSame(packet, reused);
+        assertEquals("bar", reused.getHeader().getSource());
+        assertEquals(0, reused.getHeader().getCurrent());
+        assertNull(reused.getHeader().getTrace());
+        assertFalse(reused.getHeader().containsKey("foo"));
+        assertTrue(reused.getBody().isEmpty());
+    }
+
+    @Test public void testRecycle2() throws Exception {
+        Packet packet = Packet.builder()
+                .header(Packet.Header.builder().source("foo").route("foobar").build())
+                .body(new JsonObject().put("foo", "bar"))
+                .build();
+        PacketPool.recycle(packet);
+
+        // Packet not pooled must be left untouched
+        assertEquals("bar", packet.getBody().getString("foo"));
+        assertNotSame(packet, PacketPool.acquire("foo", TEST_ROUTE));
+    }
+
+    @Test public void testRetain() throws Exception {
+        Packet packet = PacketPool.acquire("foo", TEST_ROUTE).retain();
+        packet.getBody().put("foo", "bar");
+        PacketPool.recycle(packet);
+
+        // Still retained
+        assertEquals("bar", packet.getBody().getString("foo"));
+        assertNotSame(packet, PacketPool.acquire("foo", TEST_ROUTE));
+
+        // Last reference released
+        PacketPool.recycle(packet);
+        assertSame(packet, PacketPool.acquire("foo", TEST_ROUTE));
+    }
+
+    @Test public void testRecycleTwice() throws Exception {
+        Packet packet = PacketPool.acquire("foo", TEST_ROUTE);
+        PacketPool.recycle(packet);
+        PacketPool.recycle(packet);
+        assertSame(packet, PacketPool.acquire("foo", TEST_ROUTE));
+        assertNotSame(packet, PacketPool.acquire("foo", TEST_ROUTE));
+    }
+
+    @Test public void testCopy() throws Exception {
+        Packet packet = PacketPool.acquire("foo", TEST_ROUTE);
+        packet.getHeader().setOldRouteId(TEST_ROUTE);
+        packet.getHeader().setPrevious(1);
+        packet.getHeader().setCurrent(2);
+        packet.getHeader().setTrace(new Trace(1L));
+        packet.getHeader().put("foo", new JsonObject().put("bar", "foo"));
+        packet.getBody().put("foo", new JsonArray().add("bar"));
+        Packet cpy = packet.copy();
+
+        assertNotSame(packet, cpy);
+        assertEquals(packet, cpy);
+        assertEquals(packet.getHeader().getTrace(), cpy.getHeader().getTrace());
+        assertNotSame(packet.getHeader().getTrace(), cpy.getHeader().getTrace());
+
+        // Deep copy
+        cpy.getBody().getJsonArray("foo").add("foo");
+        cpy.getHeader().getJsonObject("foo").put("foo", "bar");
+        assertEquals(1, packet.getBody().getJsonArray("foo").size());
+        assertFalse(packet.getHeader().getJsonObject("foo").containsKey("foo"));
+    }
+
+}
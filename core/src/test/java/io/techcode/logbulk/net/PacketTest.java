@@ -188,8 +188,74 @@ public class PacketTest {
         assertEquals("foobar", copy.getHeader().getString("message"));
     }
 
+    @Test public void testCopy4() {
+        Packet packet = createPacket();
+        packet.getHeader().setTrace(new Trace(1L));
+        packet.getHeader().getTrace().exit(Trace.stage(0, 0), 2L);
+        Packet copy = packet.copy();
+        packet.getHeader().getTrace().exit(Trace.stage(0, 1), 3L);
+        assertEquals(1, copy.getHeader().getTrace().size());
+    }
+
+    @Test public void testCopy5() {
+        Packet packet = createPacket();
+        packet.getBody().put("message", "foobar");
+        Packet copy = packet.copy();
+        copy.getBody().put("message", "foobar_mod");
+        assertEquals("foobar", packet.getBody().getString("message"));
+        assertEquals("foobar_mod", copy.getBody().getString("message"));
+    }
+
+    @Test public void testCopy6() {
+        // Body references taken before a copy keep writing to the packet only
+        Packet packet = createPacket();
+        JsonObject body = packet.getBody();
+        body.put("message", "foobar");
+        Packet copy = packet.copy();
+        body.put("message", "foobar_mod");
+        assertSame(body, packet.getBody());
+        assertEquals("foobar_mod", packet.getBody().getString("message"));
+        assertEquals("foobar", copy.getBody().getString("message"));
+    }
+
+    @Test public void testHeaderAttributes1() {
+        Packet.Header header = createPacket().getHeader();
+        assertNull(header.getAttributes());
+        assertNull(header.getString("message"));
+        assertFalse(header.containsKey("message"));
+        assertNull(header.remove("message"));
+        assertNull(header.getAttributes());
+    }
+
+    @Test public void testHeaderAttributes2() {
+        Packet.Header header = createPacket().getHeader();
+        header.put("string", "foobar").put("long", 1L).put("object", new JsonObject());
+        assertTrue(header.containsKey("string"));
+        assertEquals("foobar", header.getString("string"));
+        assertEquals(Long.valueOf(1L), header.getLong("long"));
+        assertEquals(new JsonObject(), header.getJsonObject("object"));
+        assertEquals("foobar", header.remove("string"));
+        assertFalse(header.containsKey("string"));
+    }
+
+    @Test public void testHeaderAttributes3() {
+        Packet.Header header = createPacket().getHeader();
+        header.put("message", "foobar");
+        header.remove("message");
+        assertEquals(createPacket().getHeader(), header);
+        assertEquals(createPacket().getHeader().hashCode(), header.hashCode());
+    }
+
+    @Test public void testHeaderTrace() {
+        Packet.Header header = createPacket().getHeader();
+        assertNull(header.getTrace());
+        header.setTrace(new Trace(1L));
+        assertNotEquals(createPacket().getHeader(), header);
+    }
+
     @Test public void testHeaderEquals() {
         EqualsVerifier.forClass(Packet.Header.class)
+                .withPrefabValues(Trace.class, new Trace(1L), new Trace(2L))
                 .usingGetClass()
                 .suppress(Warning.NONFINAL_FIELDS)
                 .suppress(Warning.NULL_FIELDS)
@@ -197,7 +263,12 @@ public class PacketTest {
     }
 
     @Test public void testEquals() {
+        PacketLeakDetector detector = new PacketLeakDetector(1);
         EqualsVerifier.forClass(Packet.class)
+                .withPrefabValues(PacketLeakDetector.Leak.class,
+                        detector.track(PacketPool.acquire("foo", -1)),
+                        detector.track(PacketPool.acquire("bar", -1)))
+                .withIgnoredFields("handle", "refCnt", "leak")
                 .suppress(Warning.NONFINAL_FIELDS)
                 .suppress(Warning.NULL_FIELDS)
                 .verify();
@@ -243,7 +314,7 @@ public class PacketTest {
         Packet packet = createPacket();
         assertNotEquals(body, packet.getBody());
         packet.setBody(body);
-        assertEquals(body, packet.getBody());
+        assertEquals(body.encode(), packet.getBody().encode());
     }
 
     @Test(expected = NullPointerException.class)
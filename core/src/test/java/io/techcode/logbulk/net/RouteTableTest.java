@@ -0,0 +1,91 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.net;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for RouteTable.
+ */
+public class RouteTableTest {
+
+    @Test(expected = NullPointerException.class)
+    public void testCompile1() {
+        RouteTable.compile(null);
+    }
+
+    @Test public void testCompile2() {
+        RouteTable table = RouteTable.compile(routes());
+        int route = RouteTable.id("route_table_main");
+        assertEquals(3, table.size(route));
+        assertEquals("input", table.endpoint(route, 0));
+        assertEquals("transform", table.endpoint(route, 1));
+        assertEquals("output", table.endpoint(route, 2));
+    }
+
+    @Test public void testEndpoint() {
+        RouteTable table = RouteTable.compile(routes());
+        int route = RouteTable.id("route_table_main");
+        assertNull(table.endpoint(route, -1));
+        assertNull(table.endpoint(route, 3));
+        assertNull(table.endpoint(-1, 0));
+        assertNull(table.endpoint(Integer.MAX_VALUE, 0));
+        assertNull(table.endpoint(RouteTable.id("route_table_unknown"), 0));
+    }
+
+    @Test public void testSize() {
+        RouteTable table = RouteTable.compile(routes());
+        assertEquals(1, table.size(RouteTable.id("route_table_fallback")));
+        assertEquals(0, table.size(-1));
+        assertEquals(0, table.size(RouteTable.id("route_table_unknown")));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testId1() {
+        RouteTable.id(null);
+    }
+
+    @Test public void testId2() {
+        int id = RouteTable.id("route_table_id");
+        assertEquals(id, RouteTable.id("route_table_id"));
+        assertNotEquals(id, RouteTable.id("route_table_other"));
+    }
+
+    @Test public void testName() {
+        assertEquals("route_table_name", RouteTable.name(RouteTable.id("route_table_name")));
+        assertNull(RouteTable.name(-1));
+        assertNull(RouteTable.name(Integer.MAX_VALUE));
+    }
+
+    private JsonObject routes() {
+        return new JsonObject()
+                .put("route_table_main", new JsonArray().add("input").add("transform").add("output"))
+                .put("route_table_fallback", new JsonArray().add("output"));
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.net;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for Trace.
+ */
+public class TraceTest {
+
+    @Test public void testStage() {
+        long stage = Trace.stage(3, 7);
+        assertEquals(3, Trace.route(stage));
+        assertEquals(7, Trace.index(stage));
+        assertEquals(-1, Trace.member(stage));
+        assertEquals(-1, Trace.index(Trace.stage(3, -1)));
+    }
+
+    @Test public void testStageMember() {
+        long stage = Trace.stage(3, 7, 2);
+        assertEquals(3, Trace.route(stage));
+        assertEquals(7, Trace.index(stage));
+        assertEquals(2, Trace.member(stage));
+    }
+
+    @Test public void testExit1() {
+        // Input stage is entered at creation
+        Trace trace = new Trace(10L);
+        trace.exit(Trace.stage(0, 0), 15L);
+        assertEquals(1, trace.size());
+        assertEquals(Trace.stage(0, 0), trace.stage(0));
+        assertEquals(5L, trace.elapsed(0));
+        assertEquals(0L, trace.wait(0));
+        assertEquals(5L, trace.latency());
+    }
+
+    @Test public void testExit2() {
+        Trace trace = new Trace(10L);
+        trace.exit(Trace.stage(0, 0), 15L);
+        trace.arrive(20L);
+        trace.dispatch(50L);
+        trace.enter(55L);
+        trace.exit(Trace.stage(0, 1), 60L);
+        assertEquals(2, trace.size());
+        assertEquals(5L, trace.elapsed(1));
+        assertEquals(30L, trace.wait(1));
+        assertEquals(50L, trace.latency());
+    }
+
+    @Test public void testExit3() {
+        // Grow beyond default capacity
+        Trace trace = new Trace(0L);
+        for (int i = 0; i < 16; i++) {
+            trace.exit(Trace.stage(0, i), i + 1);
+        }
+        assertEquals(16, trace.size());
+        assertEquals(Trace.stage(0, 15), trace.stage(15));
+        assertEquals(16L, trace.latency());
+    }
+
+    @Test public void testLatency() {
+        assertEquals(0L, new Trace(10L).latency());
+    }
+
+    @Test public void testCopy() {
+        Trace trace = new Trace(10L);
+        trace.exit(Trace.stage(0, 0), 15L);
+        Trace cpy = trace.copy();
+        trace.exit(Trace.stage(0, 1), 20L);
+        assertEquals(1, cpy.size());
+        assertNotEquals(trace, cpy);
+    }
+
+    @Test public void testEncode() {
+        Trace trace = new Trace(10L);
+        trace.exit(Trace.stage(1, 0), 15L);
+        trace.arrive(20L);
+        Buffer buffer = Buffer.buffer().appendByte((byte) 42);
+        trace.encode(buffer, 22L);
+
+        // Decode after offset on another clock
+        int[] cursor = new int[] {1};
+        Trace decoded = Trace.decode(buffer, cursor, 1022L);
+        assertEquals(buffer.length(), cursor[0]);
+        assertEquals(1010L, decoded.start());
+        assertEquals(Trace.stage(1, 0), decoded.stage(0));
+        assertEquals(5L, decoded.elapsed(0));
+        assertEquals(5L, decoded.latency());
+
+        // Pending mailbox wait is kept
+        decoded.dispatch(1025L);
+        decoded.exit(Trace.stage(1, 1), 1030L);
+        assertEquals(5L, decoded.wait(1));
+        assertEquals(20L, decoded.latency());
+    }
+
+    @Test public void testEquals() {
+        assertEquals(new Trace(1L), new Trace(1L));
+        assertEquals(new Trace(1L).hashCode(), new Trace(1L).hashCode());
+        assertNotEquals(new Trace(1L), new Trace(2L));
+    }
+
+}
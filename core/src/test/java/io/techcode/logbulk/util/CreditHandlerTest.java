@@ -0,0 +1,242 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.streams.ReadStream;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Credit handler test.
+ */
+public class CreditHandlerTest {
+
+    private Vertx mockedVertx;
+    private EventBus mockedEventBus;
+
+    @Before public void setUp() {
+        mockedVertx = mock(Vertx.class);
+        mockedEventBus = mock(EventBus.class);
+        when(mockedVertx.eventBus()).thenReturn(mockedEventBus);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor1() throws Exception {
+        new CreditHandler(null, "test-endpoint", 4);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor2() throws Exception {
+        new CreditHandler(mockedVertx, null, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor3() throws Exception {
+        new CreditHandler(mockedVertx, "test-endpoint", 0);
+    }
+
+    @Test public void testRegister1() {
+        ReadStream mockedStream = mock(ReadStream.class);
+        new CreditHandler(mockedVertx, "test-endpoint", 4).register(mockedStream, null);
+        verify(mockedStream).endHandler(any());
+        verify(mockedStream, never()).pause();
+    }
+
+    @Test public void testRegister2() {
+        EndedReadStream stream = new EndedReadStream();
+        AtomicBoolean called = new AtomicBoolean();
+        new CreditHandler(mockedVertx, "test-endpoint", 4).register(stream, h -> called.set(true));
+        stream.fireEnd();
+        assertTrue(called.get());
+    }
+
+    @Test public void testRegister3() {
+        ReadStream mockedStream = mock(ReadStream.class);
+        CreditHandler handler = new CreditHandler(mockedVertx, "test-endpoint", 1);
+        handler.consume("next-endpoint");
+        handler.register(mockedStream, null);
+        verify(mockedStream).pause();
+    }
+
+    @Test public void testCredits1() {
+        // Unknown downstream starts without credits
+        ReadStream mockedStream = mock(ReadStream.class);
+        CreditHandler handler = new CreditHandler(mockedVertx, "test-endpoint", 4);
+        handler.register(mockedStream, null);
+        assertEquals(0, handler.credits("next-endpoint"));
+        assertFalse(handler.hasCredit("next-endpoint"));
+        assertTrue(handler.isStarved());
+        verify(mockedStream).pause();
+        verify(mockedEventBus).publish(eq("next-endpoint.credit"),
+                eq(new JsonArray().add("test-endpoint").add(0).add(4)), any(DeliveryOptions.class));
+    }
+
+    @Test public void testCredits2() {
+        ReadStream mockedStream = mock(ReadStream.class);
+        CreditHandler handler = new CreditHandler(mockedVertx, "test-endpoint", 4);
+        handler.register(mockedStream, null);
+        assertFalse(handler.hasCredit("next-endpoint"));
+        handler.handle(grant("next-endpoint", 4));
+        assertTrue(handler.hasCredit("next-endpoint"));
+        assertFalse(handler.isStarved());
+        verify(mockedStream).resume();
+    }
+
+    @Test public void testConsume1() {
+        CreditHandler handler = new CreditHandler(mockedVertx, "test-endpoint", 4);
+        handler.handle(grant("next-endpoint", 4));
+        handler.consume("next-endpoint");
+        assertEquals(3, handler.credits("next-endpoint"));
+        verify(mockedEventBus, never()).publish(any(), any(), any(DeliveryOptions.class));
+    }
+
+    @Test public void testConsume2() {
+        CreditHandler handler = new CreditHandler(mockedVertx, "test-endpoint", 4);
+        handler.handle(grant("next-endpoint", 4));
+        handler.consume("next-endpoint");
+        handler.consume("next-endpoint");
+        handler.consume("next-endpoint");
+
+        // Request only once ahead of time
+        verify(mockedEventBus).publish(eq("next-endpoint.credit"),
+                eq(new JsonArray().add("test-endpoint").add(2).add(4)), any(DeliveryOptions.class));
+    }
+
+    @Test public void testConsume3() {
+        ReadStream mockedStream = mock(ReadStream.class);
+        CreditHandler handler = new CreditHandler(mockedVertx, "test-endpoint", 2);
+        handler.register(mockedStream, null);
+        handler.handle(grant("next-endpoint", 2));
+        handler.consume("next-endpoint");
+        handler.consume("next-endpoint");
+        assertTrue(handler.isStarved());
+        assertFalse(handler.hasCredit("next-endpoint"));
+        verify(mockedStream).pause();
+        verify(mockedVertx).setPeriodic(anyLong(), any());
+    }
+
+    @Test public void testHandle1() {
+        ReadStream mockedStream = mock(ReadStream.class);
+        CreditHandler handler = new CreditHandler(mockedVertx, "test-endpoint", 2);
+        handler.register(mockedStream, null);
+        handler.handle(grant("next-endpoint", 2));
+        handler.consume("next-endpoint");
+        handler.consume("next-endpoint");
+        handler.handle(grant("next-endpoint", 2));
+        assertFalse(handler.isStarved());
+        assertEquals(2, handler.credits("next-endpoint"));
+        verify(mockedStream).resume();
+    }
+
+    @Test public void testHandle2() {
+        ReadStream mockedStream = mock(ReadStream.class);
+        CreditHandler handler = new CreditHandler(mockedVertx, "test-endpoint", 1);
+        handler.register(mockedStream, null);
+        handler.consume("next-endpoint-1");
+        handler.consume("next-endpoint-2");
+        handler.handle(grant("next-endpoint-1", 2));
+        assertTrue(handler.hasCredit("next-endpoint-1"));
+
+        // Still starved by another downstream
+        assertTrue(handler.isStarved());
+        verify(mockedStream).pause();
+        verify(mockedStream, never()).resume();
+    }
+
+    @Test public void testHandle3() {
+        AtomicBoolean called = new AtomicBoolean();
+        CreditHandler handler = new CreditHandler(mockedVertx, "test-endpoint", 4);
+        handler.grantHandler(h -> called.set(true));
+        handler.handle(grant("next-endpoint", 1));
+        assertTrue(called.get());
+        assertEquals(1, handler.credits("next-endpoint"));
+    }
+
+    @Test public void testHandle4() {
+        CreditHandler handler = new CreditHandler(mockedVertx, "test-endpoint", 4);
+        handler.handle(grant("next-endpoint", 4));
+        handler.consume("next-endpoint");
+        handler.consume("next-endpoint");
+        handler.consume("next-endpoint");
+        handler.handle(grant("next-endpoint", 2));
+        handler.consume("next-endpoint");
+        handler.consume("next-endpoint");
+
+        // Request again once granted
+        verify(mockedEventBus, times(2)).publish(eq("next-endpoint.credit"), any(), any(DeliveryOptions.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Message<JsonArray> grant(String downstream, int credits) {
+        Message<JsonArray> mockedMessage = mock(Message.class);
+        when(mockedMessage.body()).thenReturn(new JsonArray().add(downstream).add(credits));
+        return mockedMessage;
+    }
+
+    private class EndedReadStream<T> implements ReadStream<T> {
+
+        private Handler<Void> endHandler;
+
+        @Override public ReadStream<T> exceptionHandler(Handler<Throwable> handler) {
+            throw new RuntimeException();
+        }
+
+        @Override public ReadStream<T> handler(Handler<T> handler) {
+            throw new RuntimeException();
+        }
+
+        @Override public ReadStream<T> pause() {
+            throw new RuntimeException();
+        }
+
+        @Override public ReadStream<T> resume() {
+            throw new RuntimeException();
+        }
+
+        @Override public EndedReadStream<T> endHandler(Handler<Void> endHandler) {
+            this.endHandler = endHandler;
+            return this;
+        }
+
+        public void fireEnd() {
+            if (endHandler != null) endHandler.handle(null);
+        }
+
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.expr;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for Expression.
+ */
+public class ExpressionTest {
+
+    @Test(expected = NullPointerException.class)
+    public void testCompile1() {
+        Expression.compile(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompile2() {
+        Expression.compile("$.status >=");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompile3() {
+        Expression.compile("($.status == 200");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompile4() {
+        Expression.compile("unknown($.path)");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompile5() {
+        Expression.compile("startsWith($.path)");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompile6() {
+        Expression.compile("matches($.path, $.regex)");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompile7() {
+        Expression.compile("\"unterminated");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompile8() {
+        // Multi path is only tested for presence
+        Expression.compile("$.items[*].ip == 'a'");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompile9() {
+        Expression.compile("contains($..ip, 'a')");
+    }
+
+    @Test public void testFold1() {
+        assertSame(Expression.Constant.TRUE, Expression.compile("1 < 2 && startsWith(\"foobar\", \"foo\")"));
+        assertSame(Expression.Constant.FALSE, Expression.compile("!(1 == 1)"));
+    }
+
+    @Test public void testFold2() {
+        // Constant operand of a logical operator is removed
+        assertEquals("($.status >= 500)", Expression.compile("true && $.status >= 500").toString());
+        assertEquals("($.status >= 500)", Expression.compile("$.status >= 500 || false").toString());
+        assertSame(Expression.Constant.FALSE, Expression.compile("$.status >= 500 && 1 > 2"));
+        assertSame(Expression.Constant.TRUE, Expression.compile("true || $.status >= 500"));
+    }
+
+    @Test public void testFold3() {
+        assertEquals("($.status >= 500)", Expression.compile("!!($.status >= 500)").toString());
+    }
+
+    @Test public void testCompare1() {
+        Expression expr = Expression.compile("$.status >= 500");
+        assertTrue(expr.test(doc()));
+        assertFalse(expr.test(new JsonObject().put("status", 200)));
+        assertFalse(expr.test(new JsonObject().put("status", "503")));
+        assertFalse(expr.test(new JsonObject()));
+    }
+
+    @Test public void testCompare2() {
+        // Integral and decimal numbers
+        assertTrue(Expression.compile("$.latency < 0.5").test(doc()));
+        assertTrue(Expression.compile("$.status == 503.0").test(doc()));
+        assertTrue(Expression.compile("$.bytes == 9007199254740993").test(doc()));
+        assertFalse(Expression.compile("$.bytes == 9007199254740992").test(doc()));
+    }
+
+    @Test public void testCompare3() {
+        assertTrue(Expression.compile("$.method == 'GET'").test(doc()));
+        assertTrue(Expression.compile("$.method != \"POST\"").test(doc()));
+        assertTrue(Expression.compile("$.method < \"POST\"").test(doc()));
+        assertTrue(Expression.compile("$.missing == null").test(doc()));
+        assertTrue(Expression.compile("$.secure == false").test(doc()));
+    }
+
+    @Test public void testLogical() {
+        Expression expr = Expression.compile("$.status >= 500 && startsWith($.path, \"/api\") || $.method == \"DELETE\"");
+        assertTrue(expr.test(doc()));
+        assertFalse(expr.test(doc().put("path", "/static")));
+        assertTrue(expr.test(doc().put("path", "/static").put("method", "DELETE")));
+    }
+
+    @Test public void testFunctions() {
+        assertTrue(Expression.compile("exists($.path)").test(doc()));
+        assertFalse(Expression.compile("exists($.missing)").test(doc()));
+        assertTrue(Expression.compile("endsWith($.path, 'users')").test(doc()));
+        assertTrue(Expression.compile("contains($.path, '/v1/')").test(doc()));
+        assertFalse(Expression.compile("contains($.status, '5')").test(doc()));
+        assertTrue(Expression.compile("matches($.path, '^/api/v[0-9]+/')").test(doc()));
+    }
+
+    @Test public void testPath() {
+        assertTrue(Expression.compile("$.path").test(doc()));
+        assertTrue(Expression.compile("exists($.items[*].ip)").test(doc()));
+        assertFalse(Expression.compile("exists($.items[*].mac)").test(doc()));
+        assertEquals("a", Expression.compile("$.items[0].ip").eval(doc()));
+    }
+
+    private JsonObject doc() {
+        return new JsonObject()
+                .put("status", 503)
+                .put("latency", 0.25)
+                .put("bytes", 9007199254740993L)
+                .put("method", "GET")
+                .put("secure", false)
+                .put("path", "/api/v1/users")
+                .put("items", new JsonArray().add(new JsonObject().put("ip", "a")));
+    }
+
+}
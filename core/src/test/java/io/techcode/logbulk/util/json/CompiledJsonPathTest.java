@@ -37,106 +37,106 @@ public class CompiledJsonPathTest {
 
     @Test(expected = NullPointerException.class)
     public void testGet1() {
-        JsonPath path = JsonPath.create("$.test.test");
+        JsonPath path = JsonPath.create("$.test.test", true);
         JsonObject doc = null;
         path.get(doc);
     }
 
     @Test public void testGet2() {
-        JsonPath path = JsonPath.create("$.test.test");
+        JsonPath path = JsonPath.create("$.test.test", true);
         JsonObject doc = new JsonObject().put("test", new JsonObject().put("test", "test"));
         assertEquals("test", path.get(doc));
     }
 
     @Test(expected = NullPointerException.class)
     public void testGet3() {
-        JsonPath path = JsonPath.create("$[0]");
+        JsonPath path = JsonPath.create("$[0]", true);
         JsonArray doc = null;
         path.get(doc);
     }
 
     @Test public void testGet4() {
-        JsonPath path = JsonPath.create("$[0]");
+        JsonPath path = JsonPath.create("$[0]", true);
         assertEquals(new JsonObject(), path.get(new JsonArray().add(new JsonObject())));
     }
 
     @Test public void testGet5() {
-        JsonPath path = JsonPath.create("$[1]");
+        JsonPath path = JsonPath.create("$[1]", true);
         assertNull(path.get(new JsonArray().add(new JsonObject())));
     }
 
     @Test public void testGet6() {
-        JsonPath path = JsonPath.create("$.test[0].name");
+        JsonPath path = JsonPath.create("$.test[0].name", true);
         assertEquals("test", path.get(new JsonObject().put("test", new JsonArray().add(new JsonObject().put("name", "test")))));
     }
 
     @Test public void testGet7() {
-        JsonPath path = JsonPath.create("$.test[0].name");
+        JsonPath path = JsonPath.create("$.test[0].name", true);
         assertNull(path.get(new JsonObject().put("test", "test")));
     }
 
     @Test(expected = NullPointerException.class)
     public void testGet8() {
-        JsonPath path = JsonPath.create("$[0]");
+        JsonPath path = JsonPath.create("$[0]", true);
         JsonObject doc = null;
         path.get(doc, String.class);
     }
 
     @Test(expected = NullPointerException.class)
     public void testGet9() {
-        JsonPath path = JsonPath.create("$[0]");
+        JsonPath path = JsonPath.create("$[0]", true);
         JsonArray doc = null;
         path.get(doc, String.class);
     }
 
     @Test(expected = NullPointerException.class)
     public void testGet10() {
-        JsonPath path = JsonPath.create("$[0]");
+        JsonPath path = JsonPath.create("$[0]", true);
         path.get(new JsonArray(), null);
     }
 
     @Test(expected = NullPointerException.class)
     public void testGet11() {
-        JsonPath path = JsonPath.create("$[0]");
+        JsonPath path = JsonPath.create("$[0]", true);
         path.get(new JsonObject(), null);
     }
 
     @Test public void testGet12() {
-        JsonPath path = JsonPath.create("$.test.test");
+        JsonPath path = JsonPath.create("$.test.test", true);
         assertEquals("test", path.get(new JsonObject().put("test", new JsonObject().put("test", "test")), String.class));
     }
 
     @Test public void testGet13() {
-        JsonPath path = JsonPath.create("$.test.test");
+        JsonPath path = JsonPath.create("$.test.test", true);
         assertNull(path.get(new JsonObject().put("test", new JsonObject().put("test", "test")), Integer.class));
     }
 
     @Test public void testGet14() {
-        JsonPath path = JsonPath.create("$[0]");
+        JsonPath path = JsonPath.create("$[0]", true);
         assertEquals("test", path.get(new JsonArray().add("test"), String.class));
     }
 
     @Test public void testGet15() {
-        JsonPath path = JsonPath.create("$[0]");
+        JsonPath path = JsonPath.create("$[0]", true);
         assertNull(path.get(new JsonArray().add("test"), Integer.class));
     }
 
     @Test(expected = NullPointerException.class)
     public void testPut1() {
-        JsonPath path = JsonPath.create("$[0]");
+        JsonPath path = JsonPath.create("$[0]", true);
         JsonArray doc = null;
         path.put(doc, null);
     }
 
     @Test(expected = NullPointerException.class)
     public void testPut2() {
-        JsonPath path = JsonPath.create("$[0]");
+        JsonPath path = JsonPath.create("$[0]", true);
         JsonObject doc = null;
         path.put(doc, null);
     }
 
     @Test public void testPut3() {
-        JsonPath path = JsonPath.create("$[1]");
+        JsonPath path = JsonPath.create("$[1]", true);
         JsonArray doc = new JsonArray();
         path.put(doc, "name");
         assertNull(doc.getString(0));
@@ -144,35 +144,35 @@ public class CompiledJsonPathTest {
     }
 
     @Test public void testPut4() {
-        JsonPath path = JsonPath.create("$.test[1]");
+        JsonPath path = JsonPath.create("$.test[1]", true);
         JsonObject doc = new JsonObject();
         path.put(doc, "name");
         assertEquals(new JsonObject().put("test", new JsonArray().addNull().add("name")), doc);
     }
 
     @Test public void testPut5() {
-        JsonPath path = JsonPath.create("$.test[1]");
+        JsonPath path = JsonPath.create("$.test[1]", true);
         JsonObject doc = new JsonObject();
         path.put(doc, "name");
         assertEquals(new JsonObject().put("test", new JsonArray().addNull().add("name")), doc);
     }
 
     @Test public void testPut6() {
-        JsonPath path = JsonPath.create("$.test[1]");
+        JsonPath path = JsonPath.create("$.test[1]", true);
         JsonObject doc = new JsonObject().put("test", new JsonArray().addNull().addNull());
         path.put(doc, "name");
         assertEquals(new JsonObject().put("test", new JsonArray().addNull().add("name")), doc);
     }
 
     @Test public void testPut7() {
-        JsonPath path = JsonPath.create("$.test.test");
+        JsonPath path = JsonPath.create("$.test.test", true);
         JsonObject doc = new JsonObject();
         path.put(doc, "name");
         assertEquals(new JsonObject().put("test", new JsonObject().put("test", "name")), doc);
     }
 
     @Test public void testPut8() {
-        JsonPath path = JsonPath.create("$.test.test.test");
+        JsonPath path = JsonPath.create("$.test.test.test", true);
         JsonObject doc = new JsonObject().put("test", "invalid");
         path.put(doc, "name");
         assertEquals(new JsonObject().put("test", "invalid"), doc);
@@ -180,37 +180,46 @@ public class CompiledJsonPathTest {
 
     @Test(expected = NullPointerException.class)
     public void testRemove1() {
-        JsonPath path = JsonPath.create("$.test.test");
+        JsonPath path = JsonPath.create("$.test.test", true);
         JsonObject doc = null;
         path.remove(doc);
     }
 
     @Test(expected = NullPointerException.class)
     public void testRemove2() {
-        JsonPath path = JsonPath.create("$.test.test");
+        JsonPath path = JsonPath.create("$.test.test", true);
         JsonArray doc = null;
         path.remove(doc);
     }
 
     @Test public void testRemove3() {
-        JsonPath path = JsonPath.create("$.test.name");
+        JsonPath path = JsonPath.create("$.test.name", true);
         JsonObject doc = new JsonObject().put("test", new JsonObject().put("name", "foobar"));
         path.remove(doc);
         assertEquals(new JsonObject().put("test", new JsonObject()), doc);
     }
 
     @Test public void testRemove4() {
-        JsonPath path = JsonPath.create("$[0]");
+        JsonPath path = JsonPath.create("$[0]", true);
         JsonArray doc = new JsonArray().add("test");
         path.remove(doc);
         assertEquals(new JsonArray(), doc);
     }
 
     @Test public void testRemove5() {
-        JsonPath path = JsonPath.create("$.test[0]");
+        JsonPath path = JsonPath.create("$.test[0]", true);
         JsonObject doc = new JsonObject().put("test", "invalid");
         path.remove(doc);
         assertEquals(new JsonObject().put("test", "invalid"), doc);
     }
 
+    @Test public void testGetShared() {
+        // Nested value returned isn't shared with copies
+        JsonPath path = JsonPath.create("$.test.names", true);
+        JsonObject doc = SharedJsonObject.share(new JsonObject().put("test", new JsonObject().put("names", new JsonArray())));
+        JsonObject cpy = doc.copy();
+        path.get(cpy, JsonArray.class).add("foobar");
+        assertEquals(0, path.get(doc, JsonArray.class).size());
+    }
+
 }
@@ -0,0 +1,195 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.json;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for json path set.
+ */
+public class JsonPathSetTest {
+
+    @Test(expected = NullPointerException.class)
+    public void testAdd1() {
+        new JsonPathSet().add(null);
+    }
+
+    @Test public void testAdd2() {
+        // Same path share a slot
+        JsonPathSet set = new JsonPathSet();
+        assertEquals(0, set.add(JsonPath.create("$.geo.city")));
+        assertEquals(1, set.add(JsonPath.create("$.geo.country")));
+        assertEquals(0, set.add(JsonPath.create("$.geo.city")));
+        assertEquals(2, set.size());
+        assertEquals(JsonPath.create("$.geo.country"), set.path(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAdd3() {
+        JsonPathSet set = new JsonPathSet();
+        set.cursor();
+        set.add(JsonPath.create("message"));
+    }
+
+    @Test public void testGet() {
+        JsonPathSet set = new JsonPathSet();
+        int message = set.add(JsonPath.create("message"));
+        int city = set.add(JsonPath.create("$.geo.city"));
+        int tag = set.add(JsonPath.create("$.tags[1]"));
+        int self = set.add(JsonPath.create("$"));
+        int missing = set.add(JsonPath.create("$.geo.missing.field"));
+        JsonPathSet.Cursor cursor = set.cursor().reset(doc());
+        assertEquals("foobar", cursor.get(message));
+        assertEquals("Paris", cursor.get(city, String.class));
+        assertNull(cursor.get(city, Integer.class));
+        assertEquals("access", cursor.get(tag));
+        assertSame(cursor.document(), cursor.get(self));
+        assertNull(cursor.get(missing));
+    }
+
+    @Test public void testPut() {
+        JsonPathSet set = new JsonPathSet();
+        int city = set.add(JsonPath.create("$.geo.city"));
+        int lat = set.add(JsonPath.create("$.geo.location.lat"));
+        JsonPathSet.Cursor cursor = set.cursor().reset(doc());
+        cursor.put(city, "Lyon");
+        cursor.put(lat, 45.76);
+        assertEquals("Lyon", cursor.get(city));
+        assertEquals(45.76, cursor.get(lat));
+        assertEquals(45.76, JsonPath.create("$.geo.location.lat").get(cursor.document()));
+    }
+
+    @Test public void testRemove() {
+        JsonPathSet set = new JsonPathSet();
+        int geo = set.add(JsonPath.create("$.geo"));
+        int city = set.add(JsonPath.create("$.geo.city"));
+        int first = set.add(JsonPath.create("$.tags[0]"));
+        int second = set.add(JsonPath.create("$.tags[1]"));
+        JsonPathSet.Cursor cursor = set.cursor().reset(doc());
+        assertEquals("Paris", cursor.get(city));
+
+        // Subtree is resolved again
+        cursor.remove(geo);
+        assertNull(cursor.get(city));
+
+        // Following elements have shifted
+        assertEquals("access", cursor.get(second));
+        cursor.remove(first);
+        assertEquals("access", cursor.get(first));
+        assertNull(cursor.get(second));
+    }
+
+    @Test public void testRemoveAll() {
+        // Elements are removed from the last one
+        JsonPathSet set = new JsonPathSet();
+        set.add(JsonPath.create("$.tags[0]"));
+        set.add(JsonPath.create("$.geo.city"));
+        set.add(JsonPath.create("$.tags[1]"));
+        set.add(JsonPath.create("$..country"));
+        JsonPathSet.Cursor cursor = set.cursor().reset(doc());
+        cursor.removeAll();
+        assertEquals(new JsonObject()
+                .put("message", "foobar")
+                .put("tags", new JsonArray())
+                .put("geo", new JsonObject()), cursor.document());
+    }
+
+    @Test public void testRename() {
+        // Value moved to a path resolved before
+        JsonPathSet set = new JsonPathSet();
+        int from = set.add(JsonPath.create("$.geo"));
+        int to = set.add(JsonPath.create("$.location"));
+        int city = set.add(JsonPath.create("$.location.city"));
+        JsonPathSet.Cursor cursor = set.cursor().reset(doc());
+        assertNull(cursor.get(city));
+        cursor.put(to, cursor.get(from));
+        cursor.remove(from);
+        assertEquals("Paris", cursor.get(city));
+    }
+
+    @Test public void testRetain() {
+        JsonPathSet set = new JsonPathSet();
+        set.add(JsonPath.create("message"));
+        set.add(JsonPath.create("$.geo.city"));
+        JsonPathSet.Cursor cursor = set.cursor().reset(doc());
+        cursor.retain();
+        assertEquals(new JsonObject()
+                .put("message", "foobar")
+                .put("geo", new JsonObject().put("city", "Paris")), cursor.document());
+    }
+
+    @Test public void testRetainMulti1() {
+        // Recursive descent keeps fields leading to values reached
+        JsonPathSet set = new JsonPathSet();
+        set.add(JsonPath.create("message"));
+        set.add(JsonPath.create("$..city"));
+        JsonPathSet.Cursor cursor = set.cursor().reset(doc()
+                .put("hosts", new JsonArray().add(new JsonObject().put("name", "a").put("city", "Lyon"))));
+        cursor.retain();
+        assertEquals(new JsonObject()
+                .put("message", "foobar")
+                .put("geo", new JsonObject().put("city", "Paris"))
+                .put("hosts", new JsonArray().add(new JsonObject().put("city", "Lyon"))), cursor.document());
+    }
+
+    @Test public void testRetainMulti2() {
+        // Wildcard and slice keep elements of arrays
+        JsonPathSet set = new JsonPathSet();
+        set.add(JsonPath.create("$.hosts[*].name"));
+        set.add(JsonPath.create("$.geo.city"));
+        set.add(JsonPath.create("$.ports[1:]"));
+        JsonPathSet.Cursor cursor = set.cursor().reset(doc()
+                .put("hosts", new JsonArray()
+                        .add(new JsonObject().put("name", "a").put("ip", "1.1.1.1"))
+                        .add(new JsonObject().put("ip", "2.2.2.2")))
+                .put("ports", new JsonArray().add(80).add(443)));
+        cursor.retain();
+        assertEquals(new JsonObject()
+                .put("geo", new JsonObject().put("city", "Paris"))
+                .put("hosts", new JsonArray().add(new JsonObject().put("name", "a")).add(new JsonObject()))
+                .put("ports", new JsonArray().add(80).add(443)), cursor.document());
+    }
+
+    @Test public void testShared() {
+        // Writes don't leak into copies
+        JsonPathSet set = new JsonPathSet();
+        int city = set.add(JsonPath.create("$.geo.city"));
+        JsonObject doc = SharedJsonObject.share(doc());
+        JsonObject cpy = doc.copy();
+        set.cursor().reset(cpy).put(city, "Lyon");
+        assertEquals("Paris", JsonPath.create("$.geo.city").get(doc));
+    }
+
+    private JsonObject doc() {
+        return new JsonObject()
+                .put("message", "foobar")
+                .put("tags", new JsonArray().add("nginx").add("access"))
+                .put("geo", new JsonObject().put("country", "FR").put("city", "Paris"));
+    }
+
+}
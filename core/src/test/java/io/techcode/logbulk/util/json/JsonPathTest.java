@@ -52,11 +52,11 @@ public class JsonPathTest {
     }
 
     @Test public void testCreate3() {
-        assertTrue(JsonPath.create("$.test.test") instanceof CompiledJsonPath);
+        assertTrue(JsonPath.create("$.test.test") instanceof FlatJsonPath);
     }
 
     @Test public void testCreate4() {
-        assertTrue(JsonPath.create("$.test[0]") instanceof CompiledJsonPath);
+        assertTrue(JsonPath.create("$.test[0]") instanceof FlatJsonPath);
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -73,6 +73,12 @@ public class JsonPathTest {
         assertTrue(JsonPath.create("$") instanceof SelfJsonPath);
     }
 
+    @Test public void testCreate8() {
+        // Interpreter fallback
+        assertTrue(JsonPath.create("$.test.test", true) instanceof CompiledJsonPath);
+        assertTrue(JsonPath.create("$.test.test", false) instanceof FlatJsonPath);
+    }
+
     @Test public void testGet1() {
         JsonObject mock = mock(JsonObject.class);
         assertNull(new Impl("test").get(mock));
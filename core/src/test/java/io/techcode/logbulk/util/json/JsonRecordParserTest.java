@@ -0,0 +1,127 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016-2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.json;
+
+import com.google.common.collect.Lists;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for json record parser.
+ */
+public class JsonRecordParserTest {
+
+    // Records handled
+    private final List<JsonObject> records = Lists.newArrayList();
+    private final List<String> malformed = Lists.newArrayList();
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor1() {
+        new JsonRecordParser(null, false, records::add, buf -> malformed.add(buf.toString()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor2() {
+        new JsonRecordParser("", false, records::add, buf -> malformed.add(buf.toString()));
+    }
+
+    @Test public void testHandle1() {
+        parser("\n", false).handle(Buffer.buffer("{\"message\":\"foo\",\"i\":1}\n{\"message\":\"bar\",\"f\":1.5,\"l\":[true,null]}\n"));
+        assertEquals(2, records.size());
+        assertEquals(new JsonObject().put("message", "foo").put("i", 1), records.get(0));
+        assertEquals(new JsonObject().put("message", "bar").put("f", 1.5)
+                .put("l", new JsonArray().add(true).addNull()), records.get(1));
+        assertTrue(malformed.isEmpty());
+    }
+
+    @Test public void testHandle2() {
+        // Record split across chunks
+        JsonRecordParser parser = parser("\n", false);
+        parser.handle(Buffer.buffer("{\"message\":"));
+        assertTrue(records.isEmpty());
+        parser.handle(Buffer.buffer("\"foo\"}\n{\"mess"));
+        parser.handle(Buffer.buffer("age\":\"bar\"}\n"));
+        assertEquals(2, records.size());
+        assertEquals("bar", records.get(1).getString("message"));
+    }
+
+    @Test public void testHandle3() {
+        // Delimiter split across chunks
+        JsonRecordParser parser = parser("\r\n", false);
+        parser.handle(Buffer.buffer("{\"message\":\"foo\"}\r"));
+        parser.handle(Buffer.buffer("\n{}\r\n"));
+        assertEquals(1, records.size());
+        assertEquals("foo", records.get(0).getString("message"));
+    }
+
+    @Test public void testHandle4() {
+        // Malformed records are reported
+        parser("\n", false).handle(Buffer.buffer("foobar\n\n{\"message\":\n[1]\n{} {}\n{\"message\":\"foo\"}\n"));
+        assertEquals(1, records.size());
+        assertEquals(Lists.newArrayList("foobar", "{\"message\":", "[1]", "{} {}"), malformed);
+    }
+
+    @Test public void testHandle5() {
+        parser("\n", true).handle(Buffer.buffer("{\"message\":\"foo\"}\nfoobar\n"));
+        assertEquals(1, records.size());
+        assertTrue(records.get(0) instanceof LazyJsonObject);
+        assertEquals("{\"message\":\"foo\"}", records.get(0).encode());
+        assertEquals(1, malformed.size());
+    }
+
+    @Test public void testHandle6() {
+        // Malformed records don't stop lazy decoding of the chunk
+        parser("\n", true).handle(Buffer.buffer("{\"message\":\"foo\"}\n{oops\n{} {}\n{\"a\":[}]}\n{}\n{\"message\":\"bar\"}\n"));
+        assertEquals(2, records.size());
+        assertEquals("bar", records.get(1).getString("message"));
+        assertEquals(Lists.newArrayList("{oops", "{} {}", "{\"a\":[}]}"), malformed);
+    }
+
+    @Test public void testHandle7() {
+        // Brackets and escaped quotes inside strings are ignored
+        parser("\n", true).handle(Buffer.buffer("{\"message\":\"{[\\\"}\"}\n"));
+        assertEquals(1, records.size());
+        assertEquals("{[\"}", records.get(0).getString("message"));
+        assertTrue(malformed.isEmpty());
+    }
+
+    @Test public void testHandle8() {
+        // Eager decoding checks the structure first and still rejects malformed values
+        parser("\n", false).handle(Buffer.buffer("{oops\n{\"a\":[}]}\n{\"a\":}\n{}\n{\"message\":\"bar\"}\n"));
+        assertEquals(1, records.size());
+        assertEquals("bar", records.get(0).getString("message"));
+        assertEquals(Lists.newArrayList("{oops", "{\"a\":[}]}", "{\"a\":}"), malformed);
+    }
+
+    private JsonRecordParser parser(String delimiter, boolean lazy) {
+        return new JsonRecordParser(delimiter, lazy, records::add, buf -> malformed.add(buf.toString()));
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016-2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.json;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for lazy json object.
+ */
+public class LazyJsonObjectTest {
+
+    // Raw record with unusual formatting
+    private static final String RAW = "{ \"message\" : \"foobar\", \"geo\" : {\"city\" : \"Paris\"}, \"status\" : 200 }";
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor1() {
+        new LazyJsonObject(null);
+    }
+
+    @Test(expected = DecodeException.class)
+    public void testConstructor2() {
+        new LazyJsonObject(Buffer.buffer("[1, 2]"));
+    }
+
+    @Test public void testGet1() {
+        LazyJsonObject doc = lazy();
+        assertEquals("foobar", doc.getString("message"));
+        assertEquals(200, (int) doc.getInteger("status"));
+        assertNull(doc.getValue("missing"));
+        assertFalse(doc.isMaterialized());
+        assertFalse(doc.isModified());
+    }
+
+    @Test public void testGet2() {
+        // Nested object may be mutated
+        LazyJsonObject doc = lazy();
+        doc.getJsonObject("geo").put("country", "France");
+        assertTrue(doc.isModified());
+        assertEquals("France", doc.getJsonObject("geo").getString("country"));
+        assertEquals(3, doc.size());
+        assertEquals("France", doc.getJsonObject("geo").getString("country"));
+    }
+
+    @Test public void testContainsKey() {
+        LazyJsonObject doc = lazy();
+        assertTrue(doc.containsKey("status"));
+        assertFalse(doc.containsKey("missing"));
+        assertFalse(doc.isMaterialized());
+    }
+
+    @Test public void testIsEmpty() {
+        assertFalse(lazy().isEmpty());
+        assertTrue(new LazyJsonObject(Buffer.buffer(" {} ")).isEmpty());
+    }
+
+    @Test public void testEncode1() {
+        LazyJsonObject doc = lazy();
+        doc.getString("message");
+        assertEquals(RAW, doc.encode());
+        assertEquals(RAW, LazyJsonObject.toBuffer(doc).toString());
+    }
+
+    @Test public void testEncode2() {
+        LazyJsonObject doc = lazy();
+        doc.put("message", "bar");
+        assertTrue(doc.isModified());
+        assertEquals(new JsonObject(RAW).put("message", "bar").encode(), doc.encode());
+    }
+
+    @Test public void testCopy() {
+        LazyJsonObject doc = lazy();
+        JsonObject cpy = doc.copy();
+        assertTrue(cpy instanceof LazyJsonObject);
+        cpy.put("message", "bar");
+        assertEquals("foobar", doc.getString("message"));
+        assertEquals(RAW, doc.encode());
+    }
+
+    @Test public void testPeek() {
+        LazyJsonObject doc = lazy();
+        assertEquals("Paris", JsonPath.create("$.geo.city").get(doc));
+        assertFalse(doc.isModified());
+        assertEquals(new JsonObject().put("city", "Paris"), LazyJsonObject.peek(doc, "geo"));
+        assertFalse(doc.isModified());
+    }
+
+    @Test public void testEquals() {
+        assertEquals(lazy(), new JsonObject(RAW));
+        assertEquals(lazy(), lazy());
+    }
+
+    private LazyJsonObject lazy() {
+        return new LazyJsonObject(Buffer.buffer(RAW));
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.json;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for multi json path.
+ */
+public class MultiJsonPathTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreate1() {
+        new MultiJsonPath("$.items[*");
+    }
+
+    @Test public void testCreate2() {
+        assertTrue(JsonPath.create("$.items[*].ip") instanceof MultiJsonPath);
+        assertTrue(JsonPath.create("$.items[1:]") instanceof MultiJsonPath);
+        assertTrue(JsonPath.create("$..ip") instanceof MultiJsonPath);
+        assertFalse(JsonPath.create("$..ip").isDefinite());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testGet1() {
+        JsonObject doc = null;
+        JsonPath.create("$.items[*].ip").get(doc);
+    }
+
+    @Test public void testGet2() {
+        assertEquals(new JsonArray().add("10.0.0.1").add("10.0.0.2").add("10.0.0.3"),
+                JsonPath.create("$.items[*].ip").get(doc()));
+    }
+
+    @Test public void testGet3() {
+        assertEquals(new JsonArray(), JsonPath.create("$.missing[*].ip").get(doc()));
+    }
+
+    @Test public void testGet4() {
+        assertEquals(new JsonArray().add("10.0.0.2").add("10.0.0.3"), JsonPath.create("$.items[1:].ip").get(doc()));
+        assertEquals(new JsonArray().add("10.0.0.1").add("10.0.0.2"), JsonPath.create("$.items[:-1].ip").get(doc()));
+        assertEquals(new JsonArray().add("10.0.0.3"), JsonPath.create("$.items[-1:].ip").get(doc()));
+        assertEquals(new JsonArray(), JsonPath.create("$.items[5:9].ip").get(doc()));
+    }
+
+    @Test public void testGet5() {
+        // Parents first
+        assertEquals(new JsonArray().add("10.0.0.254").add("10.0.0.1").add("10.0.0.2").add("10.0.0.3"),
+                JsonPath.create("$..ip").get(doc()));
+    }
+
+    @Test public void testGet6() {
+        assertEquals(new JsonArray().add("10.0.0.254"), JsonPath.create("$..gateway.ip").get(doc()));
+    }
+
+    @Test public void testGet7() {
+        // Wildcard over object members
+        assertEquals(new JsonArray().add("10.0.0.254"), JsonPath.create("$.gateway[*]").get(doc()));
+    }
+
+    @Test public void testForEach() {
+        AtomicInteger count = new AtomicInteger();
+        JsonPath.create("$.items[*].ip").forEach(doc(), value -> count.incrementAndGet());
+        assertEquals(3, count.get());
+    }
+
+    @Test public void testPut() {
+        JsonObject doc = doc();
+        JsonPath.create("$.items[*].ip").put(doc, "masked");
+        assertEquals(new JsonArray().add("masked").add("masked").add("masked"), JsonPath.create("$.items[*].ip").get(doc));
+        assertEquals("10.0.0.254", JsonPath.create("$.gateway.ip").get(doc));
+    }
+
+    @Test public void testPutDescent() {
+        // Value written isn't descended into
+        JsonObject doc = doc();
+        JsonObject value = new JsonObject().put("ip", "masked");
+        JsonPath.create("$..ip").put(doc, value);
+        assertSame(value, doc.getJsonObject("gateway").getJsonObject("ip"));
+        assertEquals("masked", value.getString("ip"));
+        assertSame(value, doc.getJsonArray("items").getJsonObject(2).getJsonObject("ip"));
+    }
+
+    @Test public void testReplace() {
+        JsonObject doc = doc();
+        JsonPath.create("$.items[*].name").replace(doc, value -> ((String) value).toUpperCase());
+        assertEquals(new JsonArray().add("WEB").add("DB").add("CACHE"), JsonPath.create("$.items[*].name").get(doc));
+    }
+
+    @Test public void testRemove1() {
+        JsonObject doc = doc();
+        JsonPath.create("$..ip").remove(doc);
+        assertEquals(new JsonArray(), JsonPath.create("$..ip").get(doc));
+        assertEquals(3, doc.getJsonArray("items").size());
+    }
+
+    @Test public void testRemove2() {
+        JsonObject doc = doc();
+        JsonPath.create("$.items[:2]").remove(doc);
+        assertEquals(new JsonArray().add("cache"), JsonPath.create("$.items[*].name").get(doc));
+    }
+
+    @Test public void testShared() {
+        // Writes don't leak into copies
+        JsonObject doc = SharedJsonObject.share(doc());
+        JsonPath.create("$.items[*].ip").put(doc.copy(), "masked");
+        assertEquals("10.0.0.1", JsonPath.create("$.items[0].ip").get(doc));
+    }
+
+    private JsonObject doc() {
+        return new JsonObject()
+                .put("gateway", new JsonObject().put("ip", "10.0.0.254"))
+                .put("items", new JsonArray()
+                        .add(new JsonObject().put("name", "web").put("ip", "10.0.0.1"))
+                        .add(new JsonObject().put("name", "db").put("ip", "10.0.0.2"))
+                        .add(new JsonObject().put("name", "cache").put("ip", "10.0.0.3")));
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.json;
+
+import com.google.common.collect.Sets;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for shared json object.
+ */
+public class SharedJsonObjectTest {
+
+    @Test(expected = NullPointerException.class)
+    public void testShare1() {
+        SharedJsonObject.share(null);
+    }
+
+    @Test public void testShare2() {
+        SharedJsonObject doc = SharedJsonObject.share(source());
+        assertTrue(doc.isShared());
+        assertEquals(source(), doc);
+        assertEquals(doc, source());
+        assertEquals(source().hashCode(), doc.hashCode());
+    }
+
+    @Test public void testGet() {
+        JsonObject source = source();
+        SharedJsonObject doc = SharedJsonObject.share(source);
+        assertEquals("foobar", doc.getString("message"));
+        assertEquals(200, (int) doc.getInteger("status"));
+        assertTrue(doc.containsKey("geo"));
+        assertEquals(3, doc.size());
+        assertTrue(doc.isShared());
+
+        // Nested object may be mutated
+        doc.getJsonObject("geo").put("country", "France");
+        assertFalse(doc.isShared());
+        assertFalse(source.getJsonObject("geo").containsKey("country"));
+    }
+
+    @Test public void testGetNested() {
+        // Only the nested value accessed is copied, once
+        JsonObject source = source().put("user", new JsonObject().put("name", "foo"));
+        SharedJsonObject doc = SharedJsonObject.share(source);
+        JsonObject geo = doc.getJsonObject("geo");
+        assertSame(geo, doc.getJsonObject("geo"));
+        assertNotSame(source.getValue("geo"), doc.view().get("geo"));
+        assertSame(source.getValue("user"), doc.view().get("user"));
+    }
+
+    @Test public void testPut() {
+        JsonObject source = source();
+        SharedJsonObject doc = SharedJsonObject.share(source);
+        JsonObject cpy = doc.copy();
+        cpy.put("message", "foobar_mod");
+        assertEquals("foobar_mod", cpy.getString("message"));
+        assertEquals("foobar", doc.getString("message"));
+        assertEquals("foobar", source.getString("message"));
+        assertTrue(doc.isShared());
+        assertFalse(((SharedJsonObject) cpy).isShared());
+    }
+
+    @Test public void testPutShallow() {
+        // First write doesn't copy nested values
+        JsonObject source = source();
+        SharedJsonObject doc = SharedJsonObject.share(source);
+        doc.put("message", "foobar_mod");
+        assertFalse(doc.isShared());
+        assertSame(source.getValue("geo"), doc.view().get("geo"));
+        doc.getJsonObject("geo").put("city", "Lyon");
+        assertEquals("Paris", source.getJsonObject("geo").getString("city"));
+    }
+
+    @Test public void testRemove() {
+        SharedJsonObject doc = SharedJsonObject.share(source());
+        JsonObject cpy = doc.copy();
+        assertNull(cpy.remove("missing"));
+        assertTrue(((SharedJsonObject) cpy).isShared());
+        assertEquals("foobar", cpy.remove("message"));
+        assertFalse(cpy.containsKey("message"));
+        assertTrue(doc.containsKey("message"));
+    }
+
+    @Test public void testClear() {
+        SharedJsonObject doc = SharedJsonObject.share(source());
+        JsonObject cpy = doc.copy();
+        cpy.clear();
+        assertTrue(cpy.isEmpty());
+        assertEquals(3, doc.size());
+    }
+
+    @Test public void testIterate1() {
+        // Fields are read in place
+        SharedJsonObject doc = SharedJsonObject.share(source());
+        Set<String> fields = Sets.newHashSet(doc.fieldNames());
+        assertEquals(Sets.newHashSet("message", "geo", "status"), fields);
+        for (Map.Entry<String, Object> entry : doc.getMap().entrySet()) {
+            if (!"geo".equals(entry.getKey())) {
+                assertNotNull(entry.getValue());
+            }
+        }
+        assertTrue(doc.isShared());
+    }
+
+    @Test public void testIterate2() {
+        // Nested values reached by iteration may be mutated
+        JsonObject source = source();
+        SharedJsonObject doc = SharedJsonObject.share(source);
+        for (Map.Entry<String, Object> entry : doc.getMap().entrySet()) {
+            if ("geo".equals(entry.getKey())) {
+                ((JsonObject) entry.getValue()).put("city", "Lyon");
+            }
+        }
+        assertEquals("Lyon", doc.getJsonObject("geo").getString("city"));
+        assertEquals("Paris", source.getJsonObject("geo").getString("city"));
+    }
+
+    @Test public void testIterate3() {
+        // Removals don't leak into the snapshot
+        JsonObject source = source();
+        SharedJsonObject doc = SharedJsonObject.share(source);
+        Iterator<String> it = doc.fieldNames().iterator();
+        while (it.hasNext()) {
+            if (!"geo".equals(it.next())) {
+                it.remove();
+            }
+        }
+        assertEquals(new JsonObject().put("geo", new JsonObject().put("city", "Paris")), doc);
+        assertEquals(3, source.size());
+    }
+
+    @Test public void testCopy() {
+        // Owned fields become shared again
+        SharedJsonObject doc = SharedJsonObject.share(source());
+        doc.put("message", "foobar_mod");
+        assertFalse(doc.isShared());
+        JsonObject cpy = doc.copy();
+        assertTrue(doc.isShared());
+        cpy.put("message", "foobar");
+        assertEquals("foobar_mod", doc.getString("message"));
+    }
+
+    @Test public void testPeek() {
+        SharedJsonObject doc = SharedJsonObject.share(source());
+        assertEquals(new JsonObject().put("city", "Paris"), LazyJsonObject.peek(doc, "geo"));
+        assertEquals("Paris", JsonPath.create("$.geo.city").get(doc));
+        assertTrue(doc.isShared());
+    }
+
+    @Test public void testEncode() {
+        SharedJsonObject doc = SharedJsonObject.share(source());
+        assertEquals(source().encode(), doc.encode());
+        assertTrue(doc.isShared());
+    }
+
+    private JsonObject source() {
+        return new JsonObject()
+                .put("message", "foobar")
+                .put("geo", new JsonObject().put("city", "Paris"))
+                .put("status", 200);
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.metric;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for CostMeter.
+ */
+public class CostMeterTest {
+
+    @Before public void setUp() {
+        MetricRegistry.clear();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor1() {
+        new CostMeter(null, "1", 1);
+    }
+
+    @Test public void testConstructor2() {
+        // Disabled meter doesn't register metrics
+        CostMeter meter = new CostMeter("test", "1", 0);
+        assertFalse(meter.isEnabled());
+        assertFalse(meter.begin());
+        assertEquals("", MetricRegistry.scrape());
+    }
+
+    @Test public void testSampling() {
+        CostMeter meter = new CostMeter("test", "1", 4);
+        int measured = 0;
+        for (int i = 0; i < 8; i++) {
+            if (meter.begin()) {
+                measured++;
+                meter.end();
+            }
+        }
+        assertEquals(2, measured);
+        assertEquals(2, meter.getProfiled());
+        assertTrue(MetricRegistry.scrape().contains("logbulk_profiled_events_total{component=\"test\",instance=\"1\"} 2\n"));
+    }
+
+    @Test public void testNested() {
+        // Nested event is always measured while outer one is
+        CostMeter outer = new CostMeter("outer", "1", 1);
+        CostMeter inner = new CostMeter("inner", "1", 1000);
+        assertTrue(outer.begin());
+        assertTrue(inner.begin());
+        byte[][] garbage = new byte[64][];
+        for (int i = 0; i < garbage.length; i++) {
+            garbage[i] = new byte[1024];
+        }
+        inner.end();
+        outer.end();
+        assertEquals(1, inner.getProfiled());
+        assertEquals(1, outer.getProfiled());
+        assertTrue(garbage[0].length > 0);
+
+        // Nested cost isn't charged twice
+        assertTrue(inner.getAllocated() >= outer.getAllocated());
+    }
+
+    @Test public void testShared() {
+        // Same instance share totals
+        CostMeter meter = new CostMeter("test", "1", 1);
+        assertTrue(meter.begin());
+        meter.end();
+        assertEquals(1, new CostMeter("test", "1", 1).getProfiled());
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.metric;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for Histogram.
+ */
+public class HistogramTest {
+
+    @Test public void testObserve1() {
+        Histogram histogram = new Histogram();
+        histogram.observe(0L);
+        histogram.observe(Histogram.BOUNDS[0]);
+        histogram.observe(Long.MAX_VALUE);
+        assertEquals(3, histogram.count());
+    }
+
+    @Test public void testObserve2() {
+        Histogram histogram = new Histogram();
+        histogram.observe(1_500_000L);
+        StringBuilder out = new StringBuilder();
+        histogram.write(out, "test", MetricRegistry.component("test"));
+
+        // Cumulative buckets
+        String scrape = out.toString();
+        assertTrue(scrape.contains("test_bucket{component=\"test\",le=\"0.001\"} 0\n"));
+        assertTrue(scrape.contains("test_bucket{component=\"test\",le=\"0.005\"} 1\n"));
+        assertTrue(scrape.contains("test_bucket{component=\"test\",le=\"+Inf\"} 1\n"));
+        assertTrue(scrape.contains("test_sum{component=\"test\"} 0.0015\n"));
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.metric;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for MetricRegistry.
+ */
+public class MetricRegistryTest {
+
+    // Labels of test component
+    private static final String C_TEST = MetricRegistry.component("test");
+
+    @Before public void setUp() {
+        MetricRegistry.clear();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testCounter1() {
+        MetricRegistry.counter(null, "help", C_TEST);
+    }
+
+    @Test public void testCounter2() {
+        // Same counter for same component
+        Counter counter = MetricRegistry.counter("test_total", "help", C_TEST);
+        counter.inc();
+        MetricRegistry.counter("test_total", "help", C_TEST).inc(2);
+        assertEquals(3, counter.get());
+        assertNotSame(counter, MetricRegistry.counter("test_total", "help", MetricRegistry.component("other")));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCounter3() {
+        MetricRegistry.histogram("test_total", "help", C_TEST);
+        MetricRegistry.counter("test_total", "help", C_TEST);
+    }
+
+    @Test public void testGauge() {
+        MetricRegistry.gauge("test_depth", "help", C_TEST, () -> 1L);
+        MetricRegistry.gauge("test_depth", "help", C_TEST, () -> 2L);
+        assertTrue(MetricRegistry.scrape().contains("test_depth{component=\"test\"} 2\n"));
+    }
+
+    @Test public void testScrape1() {
+        assertEquals("", MetricRegistry.scrape());
+    }
+
+    @Test public void testScrape2() {
+        MetricRegistry.counter("test_total", "Test counter.", C_TEST).inc();
+        MetricRegistry.counter("test_total", "Test counter.", MetricRegistry.component("a\"b")).inc(2);
+        assertEquals("# HELP test_total Test counter.\n" +
+                "# TYPE test_total counter\n" +
+                "test_total{component=\"a\\\"b\"} 2\n" +
+                "test_total{component=\"test\"} 1\n", MetricRegistry.scrape());
+    }
+
+    @Test public void testScrape3() {
+        MetricRegistry.histogram("test_seconds", "Test histogram.", C_TEST).observe(2_000L);
+        String scrape = MetricRegistry.scrape();
+        assertTrue(scrape.contains("# TYPE test_seconds histogram\n"));
+        assertTrue(scrape.contains("test_seconds_bucket{component=\"test\",le=\"1.0E-6\"} 0\n"));
+        assertTrue(scrape.contains("test_seconds_bucket{component=\"test\",le=\"5.0E-6\"} 1\n"));
+        assertTrue(scrape.contains("test_seconds_bucket{component=\"test\",le=\"+Inf\"} 1\n"));
+        assertTrue(scrape.contains("test_seconds_count{component=\"test\"} 1\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLabels1() {
+        MetricRegistry.labels("route");
+    }
+
+    @Test public void testLabels2() {
+        assertEquals("route=\"main\",stage=\"a\\nb\"", MetricRegistry.labels("route", "main", "stage", "a\nb"));
+    }
+
+}
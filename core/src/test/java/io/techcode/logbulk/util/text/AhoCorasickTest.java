@@ -0,0 +1,103 @@
+/*
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2017
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.techcode.logbulk.util.text;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for AhoCorasick.
+ */
+public class AhoCorasickTest {
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor1() {
+        new AhoCorasick(null, new boolean[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor2() {
+        new AhoCorasick(new String[] {"foo"}, new boolean[0]);
+    }
+
+    @Test public void testMatch1() {
+        AhoCorasick.Matcher matcher = automaton().matcher();
+        assertArrayEquals(new int[] {0, 1, 2}, match(matcher, "ushers"));
+    }
+
+    @Test public void testMatch2() {
+        // Each pattern is reported once
+        AhoCorasick.Matcher matcher = automaton().matcher();
+        assertArrayEquals(new int[] {0, 1}, match(matcher, "she sells shells"));
+    }
+
+    @Test public void testMatch3() {
+        AhoCorasick.Matcher matcher = automaton().matcher();
+        assertArrayEquals(new int[0], match(matcher, "nothing to see"));
+        assertArrayEquals(new int[0], match(matcher, ""));
+    }
+
+    @Test public void testAnchored() {
+        AhoCorasick.Matcher matcher = new AhoCorasick(new String[] {"/api", "api", "/"}, new boolean[] {true, false, true}).matcher();
+        assertArrayEquals(new int[] {0, 1, 2}, match(matcher, "/api/v1"));
+        assertArrayEquals(new int[] {1, 2}, match(matcher, "/v1/api"));
+        assertArrayEquals(new int[] {1}, match(matcher, "v1/api"));
+    }
+
+    @Test public void testEmpty() {
+        AhoCorasick.Matcher matcher = new AhoCorasick(new String[] {"", "foo"}, new boolean[] {true, false}).matcher();
+        assertArrayEquals(new int[] {0}, match(matcher, "bar"));
+        assertArrayEquals(new int[] {0, 1}, match(matcher, "foo"));
+    }
+
+    @Test public void testMatched() {
+        AhoCorasick.Matcher matcher = automaton().matcher();
+        assertFalse(matcher.matched(0));
+        matcher.match("ushers");
+        assertTrue(matcher.matched(1));
+        assertFalse(matcher.matched(3));
+        matcher.match("his");
+        assertFalse(matcher.matched(1));
+        assertTrue(matcher.matched(3));
+    }
+
+    @Test public void testSize() {
+        assertEquals(4, automaton().size());
+    }
+
+    private AhoCorasick automaton() {
+        return new AhoCorasick(new String[] {"he", "she", "hers", "his"}, new boolean[4]);
+    }
+
+    private int[] match(AhoCorasick.Matcher matcher, String text) {
+        int count = matcher.match(text);
+        int[] hits = Arrays.copyOf(matcher.hits(), count);
+        Arrays.sort(hits);
+        return hits;
+    }
+
+}
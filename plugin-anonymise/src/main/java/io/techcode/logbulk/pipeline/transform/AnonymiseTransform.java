@@ -26,6 +26,7 @@ package io.techcode.logbulk.pipeline.transform;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
 import io.techcode.logbulk.component.BaseComponentVerticle;
+import io.techcode.logbulk.component.Fusable;
 import io.techcode.logbulk.net.Packet;
 import io.techcode.logbulk.util.json.JsonPath;
 import io.techcode.logbulk.util.stream.Streams;
@@ -42,7 +43,7 @@ import static com.google.common.base.Preconditions.checkState;
 /**
  * Anonymise transformer pipeline component.
  */
-public class AnonymiseTransform extends BaseComponentVerticle {
+public class AnonymiseTransform extends BaseComponentVerticle implements Fusable {
 
     // Hashing constant
     private static final Map<String, HashFunction> HASHING = new HashMap<String, HashFunction>() {{
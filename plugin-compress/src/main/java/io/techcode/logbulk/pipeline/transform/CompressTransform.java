@@ -24,6 +24,7 @@
 package io.techcode.logbulk.pipeline.transform;
 
 import io.techcode.logbulk.component.BaseComponentVerticle;
+import io.techcode.logbulk.component.Fusable;
 import io.techcode.logbulk.net.Packet;
 import io.techcode.logbulk.util.json.JsonPath;
 import io.vertx.core.json.JsonObject;
@@ -38,7 +39,7 @@ import static com.google.common.base.Preconditions.checkState;
 /**
  * Compress transformer pipeline component.
  */
-public class CompressTransform extends BaseComponentVerticle {
+public class CompressTransform extends BaseComponentVerticle implements Fusable {
 
     // Some constants
     private static final String CONF_FIELD = "field";
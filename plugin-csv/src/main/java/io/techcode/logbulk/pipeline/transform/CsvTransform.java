@@ -28,6 +28,7 @@ import com.google.common.primitives.Ints;
 import com.univocity.parsers.csv.CsvParser;
 import com.univocity.parsers.csv.CsvParserSettings;
 import io.techcode.logbulk.component.BaseComponentVerticle;
+import io.techcode.logbulk.component.Fusable;
 import io.techcode.logbulk.net.Packet;
 import io.vertx.core.json.JsonObject;
 
@@ -38,7 +39,7 @@ import static com.google.common.base.Preconditions.checkState;
 /**
  * Csv transformer pipeline component.
  */
-public class CsvTransform extends BaseComponentVerticle {
+public class CsvTransform extends BaseComponentVerticle implements Fusable {
 
     // Settings
     private String source;
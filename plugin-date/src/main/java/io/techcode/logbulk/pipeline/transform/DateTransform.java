@@ -25,6 +25,7 @@ package io.techcode.logbulk.pipeline.transform;
 
 import com.google.common.base.Strings;
 import io.techcode.logbulk.component.BaseComponentVerticle;
+import io.techcode.logbulk.component.Fusable;
 import io.techcode.logbulk.net.Packet;
 import io.techcode.logbulk.util.json.JsonPath;
 import io.vertx.core.json.JsonObject;
@@ -41,7 +42,7 @@ import static com.google.common.base.Preconditions.checkState;
 /**
  * Date transformer pipeline component.
  */
-public class DateTransform extends BaseComponentVerticle {
+public class DateTransform extends BaseComponentVerticle implements Fusable {
 
     // ISO formatter
     private static final DateTimeFormatter ISO_FORMATTER = ISODateTimeFormat.dateTime().withLocale(Locale.ENGLISH);
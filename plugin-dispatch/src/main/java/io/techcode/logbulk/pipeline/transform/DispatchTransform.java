@@ -27,7 +27,9 @@ import com.google.common.base.Strings;
 import com.google.common.collect.*;
 import io.techcode.logbulk.component.BaseComponentVerticle;
 import io.techcode.logbulk.net.Packet;
+import io.techcode.logbulk.util.expr.Expression;
 import io.techcode.logbulk.util.json.JsonPath;
+import io.techcode.logbulk.util.text.AhoCorasick;
 import io.vertx.core.json.JsonObject;
 import lombok.NonNull;
 
@@ -50,10 +52,14 @@ public class DispatchTransform extends BaseComponentVerticle {
     private static final String CONF_MISS = "miss";
     private static final String CONF_MODE = "mode";
     private static final String CONF_ROUTE = "route";
+    private static final String CONF_WHEN = "when";
 
     // Dispatch routes
     private final List<Dispatch> dispatch = Lists.newArrayList();
 
+    // Start & contains scans shared by dispatch routes
+    private final List<TextScan> scans = Lists.newArrayList();
+
     // Missed dispatching
     private String miss;
 
@@ -67,6 +73,9 @@ public class DispatchTransform extends BaseComponentVerticle {
         // Aggregate equalsIgnoreCase dispatch
         Map<String, EqualsIgnoreCaseDispatch> routing = Maps.newHashMap();
 
+        // Aggregate start & contains scans
+        Map<String, TextScan> texts = Maps.newHashMap();
+
         // Check routes
         Set<String> cachedRoute = Sets.newHashSet(config.getJsonObject(CONF_ROUTE).fieldNames());
         for (String d : rawDispatch.fieldNames()) {
@@ -74,21 +83,29 @@ public class DispatchTransform extends BaseComponentVerticle {
             JsonObject dispatchRoute = rawDispatch.getJsonObject(d);
             String mode = dispatchRoute.getString(CONF_MODE);
             if (Strings.isNullOrEmpty(mode)) {
-                dispatch.add(new SimpleDispatch(d));
+                String when = dispatchRoute.getString(CONF_WHEN);
+                dispatch.add(when != null ? new WhenDispatch(Expression.compile(when), d) : new SimpleDispatch(d));
             } else {
                 switch (mode) {
                     case "start":
-                        dispatch.add(new StartDispatch(dispatchRoute.getString(CONF_FIELD), dispatchRoute.getString(CONF_MATCH), d));
-                        break;
+                    case "contains": {
+                        String field = dispatchRoute.getString(CONF_FIELD);
+                        TextScan scan = texts.get(field);
+                        if (scan == null) {
+                            scan = new TextScan(field);
+                            texts.put(field, scan);
+                            scans.add(scan);
+                        }
+                        int id = scan.map(dispatchRoute.getString(CONF_MATCH), "start".equals(mode));
+                        dispatch.add(new TextDispatch(scan, id, d));
+                    }
+                    break;
                     case "absent":
                         dispatch.add(new AbsentDispatch(dispatchRoute.getString(CONF_FIELD), d));
                         break;
                     case "present":
                         dispatch.add(new PresentDispatch(dispatchRoute.getString(CONF_FIELD), d));
                         break;
-                    case "contains":
-                        dispatch.add(new ContainsDispatch(dispatchRoute.getString(CONF_FIELD), dispatchRoute.getString(CONF_MATCH), d));
-                        break;
                     case "equals":
                         dispatch.add(new EqualsDispatch(dispatchRoute.getString(CONF_FIELD), dispatchRoute.getValue(CONF_MATCH), d));
                         break;
@@ -110,8 +127,12 @@ public class DispatchTransform extends BaseComponentVerticle {
             }
         }
 
+        // Compile automatons
+        scans.forEach(TextScan::compile);
+
         // Help gc
         routing.clear();
+        texts.clear();
 
         // Ready
         resume();
@@ -119,6 +140,7 @@ public class DispatchTransform extends BaseComponentVerticle {
 
     @Override public void handle(Packet packet) {
         // Process
+        scans.forEach(TextScan::reset);
         boolean routed = false;
         for (Dispatch d : dispatch) {
             routed |= d.dispatch(packet);
@@ -135,6 +157,18 @@ public class DispatchTransform extends BaseComponentVerticle {
         checkState(config.getJsonObject(CONF_DISPATCH) != null, "The routes is required");
     }
 
+    /**
+     * Returns true if the field is present in header attributes.
+     *
+     * @param field  field to lookup.
+     * @param packet packet involved.
+     * @return true if the field is present in header attributes, otherwise false.
+     */
+    private static boolean isInHeader(JsonPath field, Packet packet) {
+        JsonObject attributes = packet.getHeader().getAttributes();
+        return attributes != null && field.get(attributes) != null;
+    }
+
     /**
      * Dispatch interface.
      */
@@ -207,7 +241,7 @@ public class DispatchTransform extends BaseComponentVerticle {
         }
 
         @Override public boolean dispatch(Packet packet) {
-            return (field.get(packet.getBody()) != null || field.get(packet.getHeader()) != null) && super.dispatch(packet);
+            return (field.get(packet.getBody()) != null || isInHeader(field, packet)) && super.dispatch(packet);
         }
 
     }
@@ -232,69 +266,141 @@ public class DispatchTransform extends BaseComponentVerticle {
         }
 
         @Override public boolean dispatch(Packet packet) {
-            return field.get(packet.getBody()) == null && field.get(packet.getHeader()) == null && super.dispatch(packet);
+            return field.get(packet.getBody()) == null && !isInHeader(field, packet) && super.dispatch(packet);
         }
 
     }
 
 
     /**
-     * Start dispatch implementation.
+     * Expression dispatch implementation.
      */
-    private class StartDispatch extends SimpleDispatch {
+    private class WhenDispatch extends SimpleDispatch {
 
-        // Field to match
-        private final JsonPath field;
+        // Condition to match
+        private final Expression when;
+
+        /**
+         * Create a new expression dispatch.
+         *
+         * @param when  condition to match.
+         * @param route route dispatching.
+         */
+        WhenDispatch(@NonNull Expression when, @NonNull String route) {
+            super(route);
+            this.when = when;
+        }
+
+        @Override public boolean dispatch(Packet packet) {
+            return when.test(packet.getBody()) && super.dispatch(packet);
+        }
+    }
+
+    /**
+     * Start & contains dispatch implementation.
+     */
+    private class TextDispatch extends SimpleDispatch {
+
+        // Scan of the field
+        private final TextScan scan;
 
         // Pattern to match
-        private final String match;
+        private final int id;
 
         /**
-         * Create a new start dispatch.
+         * Create a new text dispatch.
          *
-         * @param field field to match.
-         * @param match pattern to match.
+         * @param scan  scan of the field.
+         * @param id    identifier of the pattern in the scan.
          * @param route route dispatching.
          */
-        StartDispatch(@NonNull String field, @NonNull String match, @NonNull String route) {
+        TextDispatch(@NonNull TextScan scan, int id, @NonNull String route) {
             super(route);
-            this.field = JsonPath.create(field);
-            this.match = match;
+            this.scan = scan;
+            this.id = id;
         }
 
         @Override public boolean dispatch(Packet packet) {
-            String value = field.get(packet.getBody(), String.class);
-            return !Strings.isNullOrEmpty(value) && value.startsWith(match) && super.dispatch(packet);
+            return scan.matched(packet, id) && super.dispatch(packet);
         }
     }
 
     /**
-     * Contains dispatch implementation.
+     * Start & contains patterns of a field, all matched in a single scan by packet.
      */
-    private class ContainsDispatch extends SimpleDispatch {
+    private static class TextScan {
 
         // Field to match
         private final JsonPath field;
 
-        // Pattern to match
-        private final String match;
+        // Patterns to match, by identifier
+        private final List<String> patterns = Lists.newArrayList();
+        private final List<Boolean> anchored = Lists.newArrayList();
+
+        // Compiled patterns
+        private AhoCorasick.Matcher matcher;
+
+        // State of the current packet
+        private boolean scanned;
+        private boolean present;
 
         /**
-         * Create a new contains dispatch.
+         * Create a new text scan.
          *
          * @param field field to match.
-         * @param match pattern to match.
-         * @param route route dispatching.
          */
-        ContainsDispatch(@NonNull String field, @NonNull String match, @NonNull String route) {
-            super(route);
+        TextScan(@NonNull String field) {
             this.field = JsonPath.create(field);
-            this.match = match;
         }
 
-        @Override public boolean dispatch(Packet packet) {
-            String value = field.get(packet.getBody(), String.class);
-            return !Strings.isNullOrEmpty(value) && value.contains(match) && super.dispatch(packet);
+        /**
+         * Add a pattern to match.
+         *
+         * @param match  pattern to match.
+         * @param prefix true if the pattern must start the field, otherwise false.
+         * @return identifier of the pattern.
+         */
+        int map(@NonNull String match, boolean prefix) {
+            patterns.add(match);
+            anchored.add(prefix);
+            return patterns.size() - 1;
+        }
+
+        /**
+         * Compile all patterns mapped.
+         */
+        void compile() {
+            boolean[] prefixes = new boolean[anchored.size()];
+            for (int i = 0; i < prefixes.length; i++) {
+                prefixes[i] = anchored.get(i);
+            }
+            matcher = new AhoCorasick(patterns.toArray(new String[patterns.size()]), prefixes).matcher();
+        }
+
+        /**
+         * Forget the scan of the previous packet.
+         */
+        void reset() {
+            scanned = false;
+        }
+
+        /**
+         * Returns true if a pattern is matched by the field, the field is scanned once by packet.
+         *
+         * @param packet packet involved.
+         * @param id     identifier of the pattern.
+         * @return true if the pattern is matched, otherwise false.
+         */
+        boolean matched(Packet packet, int id) {
+            if (!scanned) {
+                String value = field.get(packet.getBody(), String.class);
+                present = !Strings.isNullOrEmpty(value);
+                if (present) {
+                    matcher.match(value);
+                }
+                scanned = true;
+            }
+            return present && matcher.matched(id);
         }
     }
 
@@ -23,11 +23,20 @@
  */
 package io.techcode.logbulk.pipeline.transform;
 
+import com.google.common.collect.Lists;
 import io.techcode.logbulk.VerticleTestBase;
+import io.techcode.logbulk.net.Packet;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.List;
+
 /**
  * Test for DispatchTransform.
  */
@@ -45,4 +54,82 @@ public class DispatchTransformTest extends VerticleTestBase {
         return conf;
     }
 
+    @Test public void testDispatchOrder(TestContext ctx) {
+        // Grouped start & contains rules keep their configuration order
+        JsonObject dispatch = new JsonObject()
+                .put("r1", text("start", "GET"))
+                .put("r2", new JsonObject().put("mode", "present").put("field", "status"))
+                .put("r3", text("contains", "api"))
+                .put("r4", new JsonObject().put("mode", "equals").put("field", "status").put("match", 200))
+                .put("r5", text("start", "G"));
+        JsonObject body = new JsonObject().put("message", "GET /api").put("status", 200);
+        deployAndSend(ctx, dispatch, body, "r1", "r2", "r3", "r4", "r5");
+    }
+
+    @Test public void testDispatchAnchored(TestContext ctx) {
+        JsonObject dispatch = new JsonObject()
+                .put("r1", text("start", "api"))
+                .put("r2", text("contains", "api"))
+                .put("r3", text("start", "GET"))
+                .put("r4", text("contains", "POST"));
+        deployAndSend(ctx, dispatch, new JsonObject().put("message", "GET /api"), "r2", "r3");
+    }
+
+    @Test public void testDispatchEmpty1(TestContext ctx) {
+        // Empty patterns match any value
+        JsonObject dispatch = new JsonObject()
+                .put("r1", text("contains", ""))
+                .put("r2", text("start", "foo"))
+                .put("r3", text("start", ""));
+        deployAndSend(ctx, dispatch, new JsonObject().put("message", "bar"), "r1", "r3");
+    }
+
+    @Test public void testDispatchEmpty2(TestContext ctx) {
+        // Empty patterns don't match a missing or empty value
+        JsonObject dispatch = new JsonObject()
+                .put("r1", text("contains", ""))
+                .put("r2", text("start", ""));
+        deployAndSend(ctx, dispatch, new JsonObject().put("message", ""));
+    }
+
+    @Test public void testDispatchWhen(TestContext ctx) {
+        JsonObject dispatch = new JsonObject()
+                .put("r1", new JsonObject().put("when", "$.status >= 500"))
+                .put("r2", text("contains", "x"))
+                .put("r3", new JsonObject().put("when", "$.status < 500"))
+                .put("r4", text("start", "x"));
+        deployAndSend(ctx, dispatch, new JsonObject().put("message", "x").put("status", 503), "r1", "r2", "r4");
+    }
+
+    private JsonObject text(String mode, String match) {
+        return new JsonObject().put("mode", mode).put("field", "message").put("match", match);
+    }
+
+    private void deployAndSend(TestContext ctx, JsonObject dispatch, JsonObject body, String... expected) {
+        // Dispatched packets and the forwarded one end in the same sink
+        Async async = ctx.async();
+        List<String> routes = Lists.newArrayList();
+        vertx.eventBus().<Packet>localConsumer("sink", h -> {
+            String route = h.body().getHeader().getRoute();
+            if ("test".equals(route)) {
+                ctx.assertEquals(Lists.newArrayList(expected), routes);
+                async.complete();
+            } else {
+                routes.add(route);
+            }
+        });
+        JsonObject route = new JsonObject().put("test", new JsonArray().add("in").add("test").add("sink"));
+        dispatch.fieldNames().forEach(d -> route.put(d, new JsonArray().add("sink")));
+        JsonObject conf = conf()
+                .put("hasMailbox", false)
+                .put("route", route)
+                .put("dispatch", dispatch);
+        vertx.deployVerticle(DispatchTransform.class.getName(), new DeploymentOptions().setConfig(conf), ctx.asyncAssertSuccess(id -> {
+            vertx.eventBus().publish("test", Packet.builder()
+                    .header(Packet.Header.builder().source("test").route("test").current(1).build())
+                    .body(body)
+                    .build());
+        }));
+    }
+
 }
\ No newline at end of file
@@ -27,6 +27,7 @@ import com.google.common.base.Strings;
 import com.google.common.collect.Maps;
 import com.google.common.primitives.Ints;
 import io.techcode.logbulk.component.BaseComponentVerticle;
+import io.techcode.logbulk.component.Fusable;
 import io.techcode.logbulk.net.Packet;
 import io.techcode.logbulk.util.json.JsonPath;
 import io.techcode.logbulk.util.logging.MessageException;
@@ -39,7 +40,7 @@ import static com.google.common.base.Preconditions.checkState;
 /**
  * Enclose transformer pipeline component.
  */
-public class EncloseTransform extends BaseComponentVerticle {
+public class EncloseTransform extends BaseComponentVerticle implements Fusable {
 
     // Settings
     private JsonPath field;
@@ -26,10 +26,11 @@ package io.techcode.logbulk.pipeline.input;
 import io.techcode.logbulk.component.ComponentVerticle;
 import io.techcode.logbulk.util.concurrent.VertxScheduler;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.file.AsyncFile;
 import io.vertx.core.file.OpenOptions;
 import io.vertx.core.json.JsonObject;
-import io.vertx.core.parsetools.RecordParser;
 import net.jodah.failsafe.Failsafe;
 import net.jodah.failsafe.RetryPolicy;
 import org.apache.commons.lang3.StringUtils;
@@ -56,7 +57,7 @@ public class FileInput extends ComponentVerticle {
         RetryPolicy retryPolicy = new RetryPolicy()
                 .withBackoff(interval, intervalMax, TimeUnit.SECONDS)
                 .withMaxRetries(maxAttempts);
-        RecordParser parser = inputParser(config);
+        Handler<Buffer> parser = inputParser(config);
 
         // Setup processing task
         String path = config.getString("path");
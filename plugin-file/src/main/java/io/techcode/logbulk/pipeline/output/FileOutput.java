@@ -25,6 +25,7 @@ package io.techcode.logbulk.pipeline.output;
 
 import io.techcode.logbulk.component.BaseComponentVerticle;
 import io.techcode.logbulk.net.Packet;
+import io.techcode.logbulk.util.json.LazyJsonObject;
 import io.vertx.core.Handler;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.file.AsyncFile;
@@ -72,7 +73,7 @@ public class FileOutput extends BaseComponentVerticle {
 
     @Override public void handle(Packet packet) {
         // Process the body
-        buf.appendString(packet.getBody().encode()).appendString(delimiter);
+        buf.appendBuffer(LazyJsonObject.toBuffer(packet.getBody())).appendString(delimiter);
 
         // If send needed
         if (buf.length() > chunkPartition) {
@@ -24,6 +24,7 @@
 package io.techcode.logbulk.pipeline.transform;
 
 import io.techcode.logbulk.component.BaseComponentVerticle;
+import io.techcode.logbulk.component.Fusable;
 import io.techcode.logbulk.net.Packet;
 import io.techcode.logbulk.util.json.JsonPath;
 import io.thekraken.grok.api.Grok;
@@ -38,7 +39,7 @@ import static com.google.common.base.Preconditions.checkState;
 /**
  * Grok transformer pipeline component.
  */
-public class GrokTransform extends BaseComponentVerticle {
+public class GrokTransform extends BaseComponentVerticle implements Fusable {
 
     // Settings
     private Grok grok;
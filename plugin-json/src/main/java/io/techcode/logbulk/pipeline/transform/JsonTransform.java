@@ -24,6 +24,7 @@
 package io.techcode.logbulk.pipeline.transform;
 
 import io.techcode.logbulk.component.BaseComponentVerticle;
+import io.techcode.logbulk.component.Fusable;
 import io.techcode.logbulk.net.Packet;
 import io.techcode.logbulk.util.json.JsonPath;
 import io.vertx.core.json.JsonObject;
@@ -33,7 +34,7 @@ import static com.google.common.base.Preconditions.checkState;
 /**
  * Json transformer pipeline component.
  */
-public class JsonTransform extends BaseComponentVerticle {
+public class JsonTransform extends BaseComponentVerticle implements Fusable {
 
     // Settings
     private JsonPath field;
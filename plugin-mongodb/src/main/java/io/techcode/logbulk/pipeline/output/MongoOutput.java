@@ -23,8 +23,10 @@
  */
 package io.techcode.logbulk.pipeline.output;
 
+import com.google.common.collect.Lists;
 import io.techcode.logbulk.component.BaseComponentVerticle;
 import io.techcode.logbulk.net.Packet;
+import io.techcode.logbulk.net.PacketPool;
 import io.techcode.logbulk.util.Flusher;
 import io.techcode.logbulk.util.stream.Streams;
 import io.vertx.core.json.JsonArray;
@@ -46,6 +48,7 @@ public class MongoOutput extends BaseComponentVerticle {
 
     // Documents pending
     private JsonArray pending = new JsonArray();
+    private List<Packet> retained = Lists.newArrayList();
 
     // Some settings
     private int bulk;
@@ -91,6 +94,7 @@ public class MongoOutput extends BaseComponentVerticle {
 
         // Enqueue for bulk request
         pending.add(body);
+        retained.add(packet.retain());
 
         // If send needed
         if (pending.size() >= bulk) {
@@ -126,17 +130,22 @@ public class MongoOutput extends BaseComponentVerticle {
             command.put("documents", pending);
 
             // Send request
+            List<Packet> process = retained;
             client.runCommand("insert", command, event -> {
                 if (event.failed()) {
                     log.error("Failed to insert documents", event.cause());
                 }
 
+                // Bodies can be reused now
+                process.forEach(PacketPool::recycle);
+
                 // Resume component
                 resume();
             });
 
             // Reset pending
             pending = new JsonArray();
+            retained = Lists.newArrayList();
         }
     }
 
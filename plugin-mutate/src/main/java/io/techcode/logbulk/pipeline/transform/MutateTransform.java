@@ -26,36 +26,40 @@ package io.techcode.logbulk.pipeline.transform;
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
-import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Table;
 import com.google.common.primitives.Floats;
 import com.google.common.primitives.Ints;
 import io.techcode.logbulk.component.BaseComponentVerticle;
+import io.techcode.logbulk.component.Fusable;
 import io.techcode.logbulk.net.Packet;
 import io.techcode.logbulk.util.json.JsonPath;
+import io.techcode.logbulk.util.json.JsonPathSet;
 import io.techcode.logbulk.util.stream.Streams;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import lombok.NonNull;
-import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
  * Mutate transformer pipeline component.
  */
-public class MutateTransform extends BaseComponentVerticle {
+public class MutateTransform extends BaseComponentVerticle implements Fusable {
 
     // Pipeline
     private List<Consumer<Packet>> pipeline;
 
+    // Paths of all tasks
+    private final JsonPathSet paths = new JsonPathSet();
+    private JsonPathSet.Cursor cursor;
+
     @Override public void start() {
         super.start();
 
@@ -103,6 +107,7 @@ public class MutateTransform extends BaseComponentVerticle {
 
         // Optimize space consumption
         ((ArrayList) pipeline).trimToSize();
+        cursor = paths.cursor();
 
         // Ready
         resume();
@@ -110,12 +115,37 @@ public class MutateTransform extends BaseComponentVerticle {
 
     @Override public void handle(Packet packet) {
         // Process
+        cursor.reset(packet.getBody());
         pipeline.forEach(t -> t.accept(packet));
 
         // Send to the next endpoint
         forwardAndRelease(packet);
     }
 
+    /**
+     * Returns the slots of a list of paths.
+     *
+     * @param config configuration of the task.
+     * @param key    key of the list.
+     * @return slots of paths.
+     */
+    private int[] slots(JsonObject config, String key) {
+        return Streams.to(config.getJsonArray(key).stream(), String.class)
+                .map(JsonPath::create)
+                .mapToInt(paths::add)
+                .toArray();
+    }
+
+    /**
+     * Returns the slots of paths ordered as json paths.
+     *
+     * @param ordered paths ordered.
+     * @return slots of paths.
+     */
+    private int[] slots(Map<JsonPath, ?> ordered) {
+        return ordered.keySet().stream().mapToInt(paths::add).toArray();
+    }
+
     /**
      * Mask task implementation.
      */
@@ -141,6 +171,7 @@ public class MutateTransform extends BaseComponentVerticle {
                 JsonObject mask = body.getJsonObject(toMask);
                 headers.put("_mask", body);
                 packet.setBody(mask);
+                cursor.reset(mask);
             }
         }
 
@@ -166,6 +197,7 @@ public class MutateTransform extends BaseComponentVerticle {
                 JsonObject unmask = headers.getJsonObject("_mask");
                 headers.remove("_mask");
                 packet.setBody(unmask);
+                cursor.reset(unmask);
             }
         }
 
@@ -177,7 +209,7 @@ public class MutateTransform extends BaseComponentVerticle {
     private class RemoveTask implements Consumer<Packet> {
 
         // Field to remove
-        private final List<JsonPath> toRemove;
+        private final int[] toRemove;
 
         /**
          * Create a new remove task.
@@ -185,15 +217,13 @@ public class MutateTransform extends BaseComponentVerticle {
          * @param config configuration of the task.
          */
         private RemoveTask(@NonNull JsonObject config) {
-            toRemove = Streams.to(config.getJsonArray("remove").stream(), String.class)
-                    .map(JsonPath::create)
-                    .collect(Collectors.toList());
-            ((ArrayList) toRemove).trimToSize();
+            toRemove = slots(config, "remove");
         }
 
         @Override public void accept(Packet packet) {
-            JsonObject body = packet.getBody();
-            toRemove.forEach(path -> path.remove(body));
+            for (int slot : toRemove) {
+                cursor.remove(slot);
+            }
         }
 
     }
@@ -207,7 +237,9 @@ public class MutateTransform extends BaseComponentVerticle {
         private final Pattern pattern = Pattern.compile("\\s+");
 
         // Field to strip
-        private final List<JsonPath> toStrip;
+        private final int[] toStrip;
+        private final UnaryOperator<Object> strip = value ->
+                (value instanceof String) ? pattern.matcher((String) value).replaceAll(" ") : value;
 
         /**
          * Create a new strip task.
@@ -215,20 +247,13 @@ public class MutateTransform extends BaseComponentVerticle {
          * @param config configuration of the task.
          */
         private StripTask(@NonNull JsonObject config) {
-            toStrip = Streams.to(config.getJsonArray("strip").stream(), String.class)
-                    .map(JsonPath::create)
-                    .collect(Collectors.toList());
-            ((ArrayList) toStrip).trimToSize();
+            toStrip = slots(config, "strip");
         }
 
         @Override public void accept(Packet packet) {
-            JsonObject body = packet.getBody();
-            toStrip.forEach(key -> {
-                String value = key.get(body, String.class);
-                if (value != null) {
-                    key.put(body, pattern.matcher(value).replaceAll(" "));
-                }
-            });
+            for (int slot : toStrip) {
+                cursor.replace(slot, strip);
+            }
         }
 
     }
@@ -239,7 +264,9 @@ public class MutateTransform extends BaseComponentVerticle {
     private class LowercaseTask implements Consumer<Packet> {
 
         // Field to lowercase
-        private final List<JsonPath> toLowercase;
+        private final int[] toLowercase;
+        private final UnaryOperator<Object> lowercase = value ->
+                (value instanceof String) ? ((String) value).toLowerCase() : value;
 
         /**
          * Create a new strip task.
@@ -247,20 +274,13 @@ public class MutateTransform extends BaseComponentVerticle {
          * @param config configuration of the task.
          */
         private LowercaseTask(@NonNull JsonObject config) {
-            toLowercase = Streams.to(config.getJsonArray("lowercase").stream(), String.class)
-                    .map(JsonPath::create)
-                    .collect(Collectors.toList());
-            ((ArrayList) toLowercase).trimToSize();
+            toLowercase = slots(config, "lowercase");
         }
 
         @Override public void accept(Packet packet) {
-            JsonObject body = packet.getBody();
-            toLowercase.forEach(key -> {
-                String value = key.get(body, String.class);
-                if (value != null) {
-                    key.put(body, value.toLowerCase());
-                }
-            });
+            for (int slot : toLowercase) {
+                cursor.replace(slot, lowercase);
+            }
         }
 
     }
@@ -271,7 +291,9 @@ public class MutateTransform extends BaseComponentVerticle {
     private class UppercaseTask implements Consumer<Packet> {
 
         // Field to uppercase
-        private final List<JsonPath> toUppercase;
+        private final int[] toUppercase;
+        private final UnaryOperator<Object> uppercase = value ->
+                (value instanceof String) ? ((String) value).toUpperCase() : value;
 
         /**
          * Create a new strip task.
@@ -279,20 +301,13 @@ public class MutateTransform extends BaseComponentVerticle {
          * @param config configuration of the task.
          */
         private UppercaseTask(@NonNull JsonObject config) {
-            toUppercase = Streams.to(config.getJsonArray("uppercase").stream(), String.class)
-                    .map(JsonPath::create)
-                    .collect(Collectors.toList());
-            ((ArrayList) toUppercase).trimToSize();
+            toUppercase = slots(config, "uppercase");
         }
 
         @Override public void accept(Packet packet) {
-            JsonObject body = packet.getBody();
-            toUppercase.forEach(key -> {
-                String value = key.get(body, String.class);
-                if (value != null) {
-                    key.put(body, value.toUpperCase());
-                }
-            });
+            for (int slot : toUppercase) {
+                cursor.replace(slot, uppercase);
+            }
         }
 
     }
@@ -303,8 +318,8 @@ public class MutateTransform extends BaseComponentVerticle {
     private class ConcatTask implements Consumer<Packet> {
 
         // Element to concat
-        private final List<JsonPath> toConcat = Lists.newArrayList();
-        private JsonPath target;
+        private final int[] toConcat;
+        private final int target;
 
         /**
          * Create a new concat task.
@@ -313,26 +328,27 @@ public class MutateTransform extends BaseComponentVerticle {
          */
         private ConcatTask(@NonNull JsonObject config) {
             JsonObject concatConf = config.getJsonObject("concat");
-            Streams.to(concatConf.getJsonArray("sources", new JsonArray()).stream(), String.class)
+            toConcat = Streams.to(concatConf.getJsonArray("sources", new JsonArray()).stream(), String.class)
                     .map(JsonPath::create)
-                    .forEach(toConcat::add);
-            target = JsonPath.create(concatConf.getString("target"));
+                    .mapToInt(paths::add)
+                    .toArray();
+            target = paths.add(JsonPath.create(concatConf.getString("target")));
         }
 
         @Override public void accept(Packet packet) {
             JsonObject body = packet.getBody();
             StringBuilder builder = new StringBuilder();
-            toConcat.forEach(key -> {
-                Object value = key.get(body);
+            for (int slot : toConcat) {
+                Object value = cursor.get(slot);
                 if (value == body) {
                     builder.append(body.encode());
                 } else if (value != null) {
                     builder.append(value);
                 } else {
-                    builder.append(key);
+                    builder.append(paths.path(slot));
                 }
-            });
-            target.put(body, builder.toString());
+            }
+            cursor.put(target, builder.toString());
         }
     }
 
@@ -341,11 +357,13 @@ public class MutateTransform extends BaseComponentVerticle {
      */
     private class SplitTask implements Consumer<Packet> {
 
-        // All splitters
-        private final Map<JsonPath, Splitter> splitters = Maps.newTreeMap();
+        // Element to split
+        private final int[] toSplit;
+        private final Splitter[] splitters;
 
-        // Element to columns
-        private final Table<String, Integer, String> toColumns = HashBasedTable.create();
+        // Columns by element, target slots by column
+        private final int[][] columns;
+        private final int[][] targets;
 
         /**
          * Create a new split task.
@@ -354,13 +372,29 @@ public class MutateTransform extends BaseComponentVerticle {
          */
         private SplitTask(@NonNull JsonObject config) {
             JsonObject splitConf = config.getJsonObject("split");
+            Map<JsonPath, String> ordered = Maps.newTreeMap();
             for (String field : splitConf.fieldNames()) {
+                ordered.put(JsonPath.create(field), field);
+            }
+            toSplit = slots(ordered);
+            splitters = new Splitter[toSplit.length];
+            columns = new int[toSplit.length][];
+            targets = new int[toSplit.length][];
+
+            int i = 0;
+            for (String field : ordered.values()) {
                 JsonObject conf = splitConf.getJsonObject(field);
                 JsonObject rawColumns = conf.getJsonObject("columns");
+                Map<Integer, String> row = Maps.newLinkedHashMap();
                 for (String key : rawColumns.fieldNames()) {
                     Integer conv = Ints.tryParse(key);
-                    if (conv != null) toColumns.put(field, conv, rawColumns.getString(key));
+                    if (conv != null) row.put(conv, rawColumns.getString(key));
                 }
+                columns[i] = row.keySet().stream().mapToInt(Integer::intValue).toArray();
+                targets[i] = row.values().stream()
+                        .map(JsonPath::create)
+                        .mapToInt(paths::add)
+                        .toArray();
 
                 // Setup splitter
                 Splitter splitter = Splitter.on(conf.getString("delimiter"));
@@ -371,31 +405,27 @@ public class MutateTransform extends BaseComponentVerticle {
                 if (limit > 0) {
                     splitter = splitter.limit(limit);
                 }
-                splitters.put(JsonPath.create(field), splitter);
+                splitters[i++] = splitter;
             }
         }
 
         @Override public void accept(Packet packet) {
-            JsonObject body = packet.getBody();
-            for (Map.Entry<JsonPath, Splitter> el : splitters.entrySet()) {
-                String value = el.getKey().get(body, String.class);
+            for (int i = 0; i < toSplit.length; i++) {
+                String value = cursor.get(toSplit[i], String.class);
                 if (!Strings.isNullOrEmpty(value)) {
                     // Split to values
-                    List<String> splitted = el.getValue().splitToList(value);
+                    List<String> splitted = splitters[i].splitToList(value);
 
-                    // Retrieve row
-                    Map<Integer, String> row = toColumns.row(el.getKey().toString());
-
-                    // Iterate over each entry
-                    for (Map.Entry<Integer, String> entry : row.entrySet()) {
-                        if (entry.getKey() < splitted.size()) {
-                            String splitValue = splitted.get(entry.getKey());
+                    // Iterate over each column
+                    for (int j = 0; j < columns[i].length; j++) {
+                        if (columns[i][j] < splitted.size()) {
+                            String splitValue = splitted.get(columns[i][j]);
 
                             // We need to replace old value in any case
                             if (Strings.isNullOrEmpty(splitValue)) {
-                                body.remove(entry.getValue());
+                                cursor.remove(targets[i][j]);
                             } else {
-                                body.put(entry.getValue(), splitValue);
+                                cursor.put(targets[i][j], splitValue);
                             }
                         }
                     }
@@ -411,7 +441,8 @@ public class MutateTransform extends BaseComponentVerticle {
     private class UpdateTask implements Consumer<Packet> {
 
         // Element to update
-        private final Map<JsonPath, Object> toUpdate = Maps.newTreeMap();
+        private final int[] toUpdate;
+        private final Object[] values;
 
         /**
          * Create a new remame task.
@@ -419,14 +450,18 @@ public class MutateTransform extends BaseComponentVerticle {
          * @param config configuration of the task.
          */
         private UpdateTask(@NonNull JsonObject config) {
+            Map<JsonPath, Object> ordered = Maps.newTreeMap();
             for (Map.Entry<String, Object> entry : config.getJsonObject("update")) {
-                toUpdate.put(JsonPath.create(entry.getKey()), entry.getValue());
+                ordered.put(JsonPath.create(entry.getKey()), entry.getValue());
             }
+            toUpdate = slots(ordered);
+            values = ordered.values().toArray();
         }
 
         @Override public void accept(Packet packet) {
-            JsonObject body = packet.getBody();
-            toUpdate.keySet().forEach(key -> key.put(body, toUpdate.get(key)));
+            for (int i = 0; i < toUpdate.length; i++) {
+                cursor.put(toUpdate[i], values[i]);
+            }
         }
 
     }
@@ -437,7 +472,8 @@ public class MutateTransform extends BaseComponentVerticle {
     private class GsubTask implements Consumer<Packet> {
 
         // Element to gsub
-        private final Map<JsonPath, Pair<String, String>> toGsub = Maps.newTreeMap();
+        private final int[] toGsub;
+        private final List<UnaryOperator<Object>> gsubs;
 
         /**
          * Create a new gsub task.
@@ -445,27 +481,28 @@ public class MutateTransform extends BaseComponentVerticle {
          * @param config configuration of the task.
          */
         private GsubTask(@NonNull JsonObject config) {
+            Map<JsonPath, JsonArray> ordered = Maps.newTreeMap();
             for (Map.Entry<String, Object> entry : config.getJsonObject("gsub")) {
                 if (entry.getValue() instanceof JsonArray) {
                     JsonArray list = (JsonArray) entry.getValue();
                     if (list.size() == 2) {
-                        toGsub.put(JsonPath.create(entry.getKey()), Pair.of(list.getString(0), list.getString(1)));
+                        ordered.put(JsonPath.create(entry.getKey()), list);
                     } else {
                         log.error("GSub incorrect values: " + entry.getValue());
                     }
                 }
             }
+            toGsub = slots(ordered);
+            gsubs = ordered.values().stream()
+                    .map(list -> (UnaryOperator<Object>) value -> (value instanceof String) ?
+                            ((String) value).replaceAll(list.getString(0), list.getString(1)) : value)
+                    .collect(Collectors.toList());
         }
 
         @Override public void accept(Packet packet) {
-            JsonObject body = packet.getBody();
-            toGsub.keySet().forEach(key -> {
-                String value = key.get(body, String.class);
-                if (value != null) {
-                    Pair<String, String> pair = toGsub.get(key);
-                    key.put(body, value.replaceAll(pair.getKey(), pair.getValue()));
-                }
-            });
+            for (int i = 0; i < toGsub.length; i++) {
+                cursor.replace(toGsub[i], gsubs.get(i));
+            }
         }
 
     }
@@ -476,7 +513,8 @@ public class MutateTransform extends BaseComponentVerticle {
     private class JoinTask implements Consumer<Packet> {
 
         // Element to join
-        private final Map<JsonPath, String> toJoin = Maps.newTreeMap();
+        private final int[] toJoin;
+        private final Joiner[] joiners;
 
         /**
          * Create a new join task.
@@ -484,20 +522,21 @@ public class MutateTransform extends BaseComponentVerticle {
          * @param config configuration of the task.
          */
         private JoinTask(@NonNull JsonObject config) {
+            Map<JsonPath, String> ordered = Maps.newTreeMap();
             for (Map.Entry<String, Object> entry : config.getJsonObject("join")) {
-                toJoin.put(JsonPath.create(entry.getKey()), String.valueOf(entry.getValue()));
+                ordered.put(JsonPath.create(entry.getKey()), String.valueOf(entry.getValue()));
             }
+            toJoin = slots(ordered);
+            joiners = ordered.values().stream().map(Joiner::on).toArray(Joiner[]::new);
         }
 
         @Override public void accept(Packet packet) {
-            JsonObject body = packet.getBody();
-            toJoin.keySet().forEach(key -> {
-                List list = key.get(body, List.class);
+            for (int i = 0; i < toJoin.length; i++) {
+                JsonArray list = cursor.get(toJoin[i], JsonArray.class);
                 if (list != null) {
-                    String joined = Joiner.on(toJoin.get(key)).join(list);
-                    key.put(body, joined);
+                    cursor.put(toJoin[i], joiners[i].join(list.getList()));
                 }
-            });
+            }
         }
 
     }
@@ -508,7 +547,8 @@ public class MutateTransform extends BaseComponentVerticle {
     private class RenameTask implements Consumer<Packet> {
 
         // Element to rename
-        private final Map<JsonPath, JsonPath> toRename = Maps.newTreeMap();
+        private final int[] from;
+        private final int[] to;
 
         /**
          * Create a new remame task.
@@ -516,17 +556,19 @@ public class MutateTransform extends BaseComponentVerticle {
          * @param config configuration of the task.
          */
         private RenameTask(@NonNull JsonObject config) {
+            Map<JsonPath, JsonPath> ordered = Maps.newTreeMap();
             for (Map.Entry<String, Object> entry : config.getJsonObject("rename")) {
-                toRename.put(JsonPath.create(entry.getKey()), JsonPath.create(String.valueOf(entry.getValue())));
+                ordered.put(JsonPath.create(entry.getKey()), JsonPath.create(String.valueOf(entry.getValue())));
             }
+            from = slots(ordered);
+            to = ordered.values().stream().mapToInt(paths::add).toArray();
         }
 
         @Override public void accept(Packet packet) {
-            JsonObject body = packet.getBody();
-            toRename.keySet().forEach(key -> {
-                toRename.get(key).put(body, key.get(body));
-                key.remove(body);
-            });
+            for (int i = 0; i < from.length; i++) {
+                cursor.put(to[i], cursor.get(from[i]));
+                cursor.remove(from[i]);
+            }
         }
 
     }
@@ -537,7 +579,8 @@ public class MutateTransform extends BaseComponentVerticle {
     private class ConvertTask implements Consumer<Packet> {
 
         // Element to convert
-        private final Map<JsonPath, Byte> toConvert = Maps.newTreeMap();
+        private final int[] toConvert;
+        private final byte[] kinds;
 
         /**
          * Create a new remame task.
@@ -545,40 +588,47 @@ public class MutateTransform extends BaseComponentVerticle {
          * @param config configuration of the task.
          */
         private ConvertTask(@NonNull JsonObject config) {
+            Map<JsonPath, Byte> ordered = Maps.newTreeMap();
             for (Map.Entry<String, Object> entry : config.getJsonObject("convert")) {
                 switch (String.valueOf(entry.getValue())) {
                     case "integer":
-                        toConvert.put(JsonPath.create(entry.getKey()), (byte) 0);
+                        ordered.put(JsonPath.create(entry.getKey()), (byte) 0);
                         break;
                     case "string":
-                        toConvert.put(JsonPath.create(entry.getKey()), (byte) 1);
+                        ordered.put(JsonPath.create(entry.getKey()), (byte) 1);
                         break;
                     case "float":
-                        toConvert.put(JsonPath.create(entry.getKey()), (byte) 2);
+                        ordered.put(JsonPath.create(entry.getKey()), (byte) 2);
                         break;
                 }
             }
+            toConvert = slots(ordered);
+            kinds = new byte[toConvert.length];
+            int i = 0;
+            for (byte kind : ordered.values()) {
+                kinds[i++] = kind;
+            }
         }
 
         @Override public void accept(Packet packet) {
-            JsonObject body = packet.getBody();
-            toConvert.keySet().forEach(key -> {
-                switch (toConvert.get(key)) {
+            for (int i = 0; i < toConvert.length; i++) {
+                int slot = toConvert[i];
+                switch (kinds[i]) {
                     case 0:
-                        Integer intVal = Ints.tryParse(key.get(body, String.class));
-                        key.put(body, intVal == null ? 0 : intVal);
+                        Integer intVal = Ints.tryParse(cursor.get(slot, String.class));
+                        cursor.put(slot, intVal == null ? 0 : intVal);
                         break;
                     case 1:
-                        key.put(body, String.valueOf(key.get(body)));
+                        cursor.put(slot, String.valueOf(cursor.get(slot)));
                         break;
                     case 2:
-                        Float floatVal = Floats.tryParse(key.get(body, String.class));
-                        key.put(body, floatVal == null ? Float.NaN : floatVal);
+                        Float floatVal = Floats.tryParse(cursor.get(slot, String.class));
+                        cursor.put(slot, floatVal == null ? Float.NaN : floatVal);
                         break;
                 }
-            });
+            }
         }
 
     }
 
-}
\ No newline at end of file
+}
@@ -24,7 +24,15 @@
 package io.techcode.logbulk.pipeline.transform;
 
 import io.techcode.logbulk.VerticleTestBase;
+import io.techcode.logbulk.net.Packet;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 
 /**
@@ -37,4 +45,78 @@ public class MutateTransformTest extends VerticleTestBase {
         return MutateTransform.class;
     }
 
-}
\ No newline at end of file
+    @Test public void testMaskRemove(TestContext ctx) {
+        // Cursor must follow the masked body
+        JsonObject config = new JsonObject()
+                .put("uppercase", new JsonArray().add("secret"))
+                .put("mask", "data")
+                .put("remove", new JsonArray().add("secret"));
+        JsonObject body = new JsonObject()
+                .put("secret", "foo")
+                .put("data", new JsonObject().put("secret", "bar").put("keep", "baz"));
+        deployAndSend(ctx, config, body, packet -> {
+            ctx.assertEquals(new JsonObject().put("keep", "baz").encode(), packet.getBody().encode());
+            ctx.assertEquals("FOO", packet.getHeader().getJsonObject("_mask").getString("secret"));
+        });
+    }
+
+    @Test public void testMaskUnmaskRemove(TestContext ctx) {
+        // Cursor must follow the unmasked body
+        JsonObject config = new JsonObject()
+                .put("rename", new JsonObject().put("message", "$.data.secret"))
+                .put("mask", "data")
+                .put("unmask", true)
+                .put("remove", new JsonArray().add("$.data.secret"));
+        JsonObject body = new JsonObject()
+                .put("message", "foo")
+                .put("data", new JsonObject().put("keep", "baz"));
+        deployAndSend(ctx, config, body, packet -> {
+            ctx.assertEquals(new JsonObject().put("data", new JsonObject().put("keep", "baz")).encode(), packet.getBody().encode());
+            ctx.assertFalse(packet.getHeader().containsKey("_mask"));
+        });
+    }
+
+    @Test public void testJoin(TestContext ctx) {
+        JsonObject config = new JsonObject().put("join", new JsonObject().put("tags", ",").put("$.geo.path", "/"));
+        JsonObject body = new JsonObject()
+                .put("tags", new JsonArray().add("a").add("b").add("c"))
+                .put("geo", new JsonObject().put("path", new JsonArray().add("eu").add("fr")));
+        deployAndSend(ctx, config, body, packet -> {
+            ctx.assertEquals("a,b,c", packet.getBody().getString("tags"));
+            ctx.assertEquals("eu/fr", packet.getBody().getJsonObject("geo").getString("path"));
+        });
+    }
+
+    @Test public void testSplit(TestContext ctx) {
+        JsonObject config = new JsonObject().put("split", new JsonObject().put("message", new JsonObject()
+                .put("delimiter", ",")
+                .put("columns", new JsonObject().put("0", "first").put("2", "$.third.value").put("3", "fourth"))));
+        JsonObject body = new JsonObject()
+                .put("message", "a, b, c,")
+                .put("fourth", "old");
+        deployAndSend(ctx, config, body, packet -> {
+            ctx.assertEquals("a", packet.getBody().getString("first"));
+            ctx.assertEquals("c", packet.getBody().getJsonObject("third").getString("value"));
+            ctx.assertFalse(packet.getBody().containsKey("fourth"));
+            ctx.assertEquals("a, b, c,", packet.getBody().getString("message"));
+        });
+    }
+
+    private void deployAndSend(TestContext ctx, JsonObject config, JsonObject body, Handler<Packet> check) {
+        Async async = ctx.async();
+        vertx.eventBus().<Packet>localConsumer("out", h -> {
+            check.handle(h.body());
+            async.complete();
+        });
+        JsonObject conf = conf()
+                .put("hasMailbox", false)
+                .put("route", new JsonObject().put("test", new JsonArray().add("in").add("test").add("out")));
+        vertx.deployVerticle(MutateTransform.class.getName(), new DeploymentOptions().setConfig(conf.mergeIn(config)), ctx.asyncAssertSuccess(id -> {
+            vertx.eventBus().publish("test", Packet.builder()
+                    .header(Packet.Header.builder().source("test").route("test").current(1).build())
+                    .body(body)
+                    .build());
+        }));
+    }
+
+}
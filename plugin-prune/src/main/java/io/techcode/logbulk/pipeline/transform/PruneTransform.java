@@ -24,116 +24,80 @@
 package io.techcode.logbulk.pipeline.transform;
 
 import com.google.common.base.Splitter;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 import io.techcode.logbulk.component.BaseComponentVerticle;
+import io.techcode.logbulk.component.Fusable;
 import io.techcode.logbulk.net.Packet;
+import io.techcode.logbulk.util.json.JsonPath;
+import io.techcode.logbulk.util.json.JsonPathSet;
 import io.techcode.logbulk.util.stream.Streams;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import lombok.NonNull;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
-import java.util.function.Consumer;
-import java.util.stream.Collectors;
-
 /**
- * Mutate transformer pipeline component.
+ * Prune transformer pipeline component.
  */
-public class PruneTransform extends BaseComponentVerticle {
+public class PruneTransform extends BaseComponentVerticle implements Fusable {
+
+    // Splitter
+    private static final Splitter SPLITTER = Splitter.on('\n').omitEmptyStrings().trimResults();
+
+    // Fields to keep
+    private JsonPathSet.Cursor whitelist;
 
-    // Pipeline
-    private List<Consumer<Packet>> pipeline;
+    // Fields to remove
+    private JsonPathSet.Cursor blacklist;
 
     @Override public void start() {
         super.start();
 
-        // Aggregate all operations perform
-        pipeline = Lists.newArrayList();
-        if (config.containsKey("rename")) {
-            pipeline.add(new RenameTask(config));
-        }
-        if (config.containsKey("strip")) {
-            pipeline.add(new StripTask(config));
-        }
-        if (config.containsKey("join")) {
-            pipeline.add(new JoinTask(config));
-        }
-        if (config.containsKey("uppercase")) {
-            pipeline.add(new WhitelistTask(config));
-        }
-        if (config.containsKey("lowercase")) {
-            pipeline.add(new LowercaseTask(config));
-        }
-        if (config.containsKey("update")) {
-            pipeline.add(new UpdateTask(config));
-        }
-        if (config.containsKey("convert")) {
-            pipeline.add(new ConvertTask(config));
-        }
-        if (config.containsKey("gsub")) {
-            pipeline.add(new GsubTask(config));
-        }
-        if (config.containsKey("mask")) {
-            pipeline.add(new MaskTask(config));
+        // Compile paths
+        if (config.containsKey("whitelist")) {
+            whitelist = paths(config.getJsonObject("whitelist")).cursor();
         }
-        if (config.containsKey("unmask")) {
-            pipeline.add(new UnmaskTask(config));
+        if (config.containsKey("blacklist")) {
+            blacklist = paths(config.getJsonObject("blacklist")).cursor();
         }
-        if (config.containsKey("remove")) {
-            pipeline.add(new RemoveTask(config));
-        }
-
-        // Optimize space consumption
-        ((ArrayList) pipeline).trimToSize();
 
         // Ready
         resume();
     }
 
     @Override public void handle(Packet packet) {
-        // Process
-        pipeline.forEach(t -> t.accept(packet));
+        JsonObject body = packet.getBody();
+
+        // Keep only whitelisted fields
+        if (whitelist != null) {
+            whitelist.reset(body).retain();
+        }
+
+        // Remove blacklisted fields
+        if (blacklist != null) {
+            blacklist.reset(body).removeAll();
+        }
 
         // Send to the next endpoint
         forwardAndRelease(packet);
     }
 
     /**
-     * Whitelist task implementation.
+     * Returns the set of paths of a list, given as an array or a file with one path by line.
+     *
+     * @param config configuration of the list.
+     * @return set of paths.
      */
-    private class WhitelistTask implements Consumer<Packet> {
-
-        // Field to set
-        private Set<String> whitelist;
-
-        /**
-         * Create a new whitelist task.
-         *
-         * @param config configuration of the task.
-         * @ @param key key involved.
-         */
-        public WhitelistTask(@NonNull JsonObject config, String key) {
-            Object value = config.getValue(key);
-            if (value instanceof Iterable) {
-                whitelist = Streams.to(config.getJsonArray(key).stream(), String.class).collect(Collectors.toSet());
-            } else {
-                Buffer buf = vertx.fileSystem().readFileBlocking(config.getString(key));
-                whitelist = Sets.newHashSet(Splitter.on("\n").omitEmptyStrings().trimResults().split(buf.toString()));
-            }
+    private JsonPathSet paths(@NonNull JsonObject config) {
+        JsonPathSet paths = new JsonPathSet();
+        Streams.to(config.getJsonArray("array", new JsonArray()).stream(), String.class)
+                .map(JsonPath::create)
+                .forEach(paths::add);
+        String file = config.getString("file", "");
+        if (!file.isEmpty()) {
+            Buffer buf = vertx.fileSystem().readFileBlocking(file);
+            SPLITTER.split(buf.toString()).forEach(path -> paths.add(JsonPath.create(path)));
         }
-
-        @Override public void accept(Packet packet) {
-            JsonObject body = packet.getBody();
-            whitelist.forEach(key -> {
-                if (body.containsKey(key)) {
-                    body.put(key, body.getString(key).toUpperCase());
-                }
-            });
-        }
-
+        return paths;
     }
 
-}
\ No newline at end of file
+}
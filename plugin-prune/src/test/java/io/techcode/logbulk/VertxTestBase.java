@@ -23,6 +23,12 @@
  */
 package io.techcode.logbulk;
 
+import io.techcode.logbulk.net.FastJsonArrayCodec;
+import io.techcode.logbulk.net.FastJsonObjectCodec;
+import io.techcode.logbulk.net.Packet;
+import io.techcode.logbulk.net.PacketBatch;
+import io.techcode.logbulk.net.PacketBatchCodec;
+import io.techcode.logbulk.net.PacketCodec;
 import io.vertx.core.Vertx;
 import io.vertx.ext.unit.TestContext;
 import org.junit.After;
@@ -42,6 +48,13 @@ public abstract class VertxTestBase {
 
         // Register the context exception handler
         vertx.exceptionHandler(h -> ctx.exceptionHandler());
+
+        // Register vertx codec
+        vertx.eventBus()
+                .registerDefaultCodec(Packet.class, new PacketCodec())
+                .registerDefaultCodec(PacketBatch.class, new PacketBatchCodec())
+                .registerCodec(new FastJsonObjectCodec())
+                .registerCodec(new FastJsonArrayCodec());
     }
 
     @After public void after(TestContext ctx) {
@@ -24,7 +24,15 @@
 package io.techcode.logbulk.pipeline.transform;
 
 import io.techcode.logbulk.VerticleTestBase;
+import io.techcode.logbulk.net.Packet;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 
 /**
@@ -37,4 +45,90 @@ public class PruneTransformTest extends VerticleTestBase {
         return PruneTransform.class;
     }
 
+    @Test public void testWhitelistDescent(TestContext ctx) {
+        JsonObject config = new JsonObject().put("whitelist", list("message", "$..city"));
+        deployAndSend(ctx, config, packet -> ctx.assertEquals(new JsonObject()
+                .put("message", "foobar")
+                .put("geo", new JsonObject().put("city", "Paris"))
+                .put("hosts", new JsonArray()
+                        .add(new JsonObject().put("city", "Lyon"))
+                        .add(new JsonObject())), packet.getBody()));
+    }
+
+    @Test public void testWhitelistWildcard(TestContext ctx) {
+        JsonObject config = new JsonObject().put("whitelist", list("$.hosts[*].name", "$.ports[1:]"));
+        deployAndSend(ctx, config, packet -> ctx.assertEquals(new JsonObject()
+                .put("hosts", new JsonArray()
+                        .add(new JsonObject().put("name", "a"))
+                        .add(new JsonObject().put("name", "b")))
+                .put("ports", new JsonArray().add(80).add(443).add(8080)), packet.getBody()));
+    }
+
+    @Test public void testBlacklistDescent(TestContext ctx) {
+        JsonObject config = new JsonObject().put("blacklist", list("$..city", "tags"));
+        deployAndSend(ctx, config, packet -> ctx.assertEquals(new JsonObject()
+                .put("message", "foobar")
+                .put("geo", new JsonObject().put("country", "FR"))
+                .put("hosts", new JsonArray()
+                        .add(new JsonObject().put("name", "a"))
+                        .add(new JsonObject().put("name", "b")))
+                .put("ports", new JsonArray().add(80).add(443).add(8080)), packet.getBody()));
+    }
+
+    @Test public void testBlacklistWildcard(TestContext ctx) {
+        JsonObject config = new JsonObject().put("blacklist", list("$.hosts[*].city", "$.ports[:2]", "message"));
+        deployAndSend(ctx, config, packet -> ctx.assertEquals(new JsonObject()
+                .put("tags", new JsonArray().add("nginx"))
+                .put("geo", new JsonObject().put("country", "FR").put("city", "Paris"))
+                .put("hosts", new JsonArray()
+                        .add(new JsonObject().put("name", "a"))
+                        .add(new JsonObject().put("name", "b")))
+                .put("ports", new JsonArray().add(8080)), packet.getBody()));
+    }
+
+    @Test public void testBlacklistIndexes(TestContext ctx) {
+        // Removing an element doesn't shift the others
+        JsonObject config = new JsonObject().put("blacklist", list("$.ports[0]", "$.ports[2]", "$.tags[0]"));
+        deployAndSend(ctx, config, packet -> {
+            ctx.assertEquals(new JsonArray().add(443), packet.getBody().getJsonArray("ports"));
+            ctx.assertEquals(new JsonArray(), packet.getBody().getJsonArray("tags"));
+        });
+    }
+
+    private JsonObject list(String... paths) {
+        JsonArray array = new JsonArray();
+        for (String path : paths) {
+            array.add(path);
+        }
+        return new JsonObject().put("array", array);
+    }
+
+    private JsonObject doc() {
+        return new JsonObject()
+                .put("message", "foobar")
+                .put("tags", new JsonArray().add("nginx"))
+                .put("geo", new JsonObject().put("country", "FR").put("city", "Paris"))
+                .put("hosts", new JsonArray()
+                        .add(new JsonObject().put("name", "a").put("city", "Lyon"))
+                        .add(new JsonObject().put("name", "b")))
+                .put("ports", new JsonArray().add(80).add(443).add(8080));
+    }
+
+    private void deployAndSend(TestContext ctx, JsonObject config, Handler<Packet> check) {
+        Async async = ctx.async();
+        vertx.eventBus().<Packet>localConsumer("out", h -> {
+            check.handle(h.body());
+            async.complete();
+        });
+        JsonObject conf = conf()
+                .put("hasMailbox", false)
+                .put("route", new JsonObject().put("test", new JsonArray().add("in").add("test").add("out")));
+        vertx.deployVerticle(PruneTransform.class.getName(), new DeploymentOptions().setConfig(conf.mergeIn(config)), ctx.asyncAssertSuccess(id -> {
+            vertx.eventBus().publish("test", Packet.builder()
+                    .header(Packet.Header.builder().source("test").route("test").current(1).build())
+                    .body(doc())
+                    .build());
+        }));
+    }
+
 }
\ No newline at end of file
@@ -29,6 +29,7 @@ import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.MessageProperties;
 import io.techcode.logbulk.component.BaseComponentVerticle;
 import io.techcode.logbulk.net.Packet;
+import io.techcode.logbulk.util.json.LazyJsonObject;
 import io.techcode.logbulk.util.stream.Streams;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Context;
@@ -154,7 +155,7 @@ public class RabbitMQOutput extends BaseComponentVerticle {
             Packet.Header headers = packet.getHeader();
             switch (mode) {
                 case PUBLISH: {
-                    rabbit.basicPublish(exchange, routingKey, MessageProperties.BASIC, packet.getBody().encode().getBytes());
+                    rabbit.basicPublish(exchange, routingKey, MessageProperties.BASIC, LazyJsonObject.toBuffer(packet.getBody()).getBytes());
 
                     // Send to the next endpoint
                     forwardAndRelease(packet);
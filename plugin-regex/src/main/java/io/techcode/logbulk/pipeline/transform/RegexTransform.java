@@ -26,6 +26,7 @@ package io.techcode.logbulk.pipeline.transform;
 import com.google.common.collect.Maps;
 import com.google.common.primitives.Ints;
 import io.techcode.logbulk.component.BaseComponentVerticle;
+import io.techcode.logbulk.component.Fusable;
 import io.techcode.logbulk.net.Packet;
 import io.techcode.logbulk.util.json.JsonPath;
 import io.techcode.logbulk.util.logging.MessageException;
@@ -40,7 +41,7 @@ import static com.google.common.base.Preconditions.checkState;
 /**
  * Regex transformer pipeline component.
  */
-public class RegexTransform extends BaseComponentVerticle {
+public class RegexTransform extends BaseComponentVerticle implements Fusable {
 
     // Settings
     private JsonPath source;
@@ -26,6 +26,8 @@ package io.techcode.logbulk;
 import io.techcode.logbulk.net.FastJsonArrayCodec;
 import io.techcode.logbulk.net.FastJsonObjectCodec;
 import io.techcode.logbulk.net.Packet;
+import io.techcode.logbulk.net.PacketBatch;
+import io.techcode.logbulk.net.PacketBatchCodec;
 import io.techcode.logbulk.net.PacketCodec;
 import io.vertx.core.Vertx;
 import io.vertx.ext.unit.TestContext;
@@ -50,6 +52,7 @@ public abstract class VertxTestBase {
         // Register vertx codec
         vertx.eventBus()
                 .registerDefaultCodec(Packet.class, new PacketCodec())
+                .registerDefaultCodec(PacketBatch.class, new PacketBatchCodec())
                 .registerCodec(new FastJsonObjectCodec())
                 .registerCodec(new FastJsonArrayCodec());
     }